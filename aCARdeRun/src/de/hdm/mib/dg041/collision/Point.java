@@ -108,4 +108,14 @@ public class Point implements Shape2D
         this.position.v[0] = position.v[0];
         this.position.v[1] = position.v[1];
     }
+
+    /**
+     * @param x set the x-axis value of the point
+     * @param y set the y-axis value of the point
+     */
+    public void setPosition(float x, float y)
+    {
+        this.position.v[0] = x;
+        this.position.v[1] = y;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.game;
+
+import android.os.Debug;
+import android.util.Log;
+
+/**
+ * This class counts the objects which are allocated by the GL thread during a frame. After a
+ * warm up period every frame should allocate nothing, otherwise the garbage collector pauses
+ * the game sooner or later. Frames which allocate are reported to the log.
+ *
+ * The counters of android.os.Debug slow down the allocations, so the tracker is only enabled
+ * during development by Game.TRACK_ALLOCATIONS.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class AllocationTracker
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static String TAG = AllocationTracker.class.getName();
+
+    /** frames after enabling which are not checked, content is loaded and caches are filled **/
+    private static final int WARM_UP_FRAMES = 120;
+    /** minimum number of frames between two log messages **/
+    private static final int LOG_INTERVAL = 60;
+
+    private boolean enabled;
+    private int frames;
+    private int framesSinceLog = LOG_INTERVAL;
+
+    private int lastFrameCount;
+    private int lastFrameSize;
+    private int allocatingFrames;
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * @param enabled TRUE to start counting the allocations of the calling thread
+     */
+    public void setEnabled(boolean enabled)
+    {
+        if (enabled == this.enabled)
+        {
+            return;
+        }
+
+        if (enabled)
+        {
+            Debug.startAllocCounting();
+        }
+        else
+        {
+            Debug.stopAllocCounting();
+        }
+
+        this.enabled = enabled;
+        reset();
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * This method restarts the warm up period, for example after new content was loaded.
+     */
+    public void reset()
+    {
+        frames = 0;
+        allocatingFrames = 0;
+        lastFrameCount = 0;
+        lastFrameSize = 0;
+    }
+
+    /**
+     * This method has to be called by the GL thread at the beginning of a frame.
+     */
+    public void beginFrame()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+    }
+
+    /**
+     * This method has to be called by the GL thread at the end of a frame. It reads the counters
+     * before anything is logged, so the log message itself is not counted.
+     */
+    public void endFrame()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        lastFrameCount = Debug.getThreadAllocCount();
+        lastFrameSize = Debug.getThreadAllocSize();
+        frames++;
+        framesSinceLog++;
+
+        if (frames <= WARM_UP_FRAMES || lastFrameCount == 0)
+        {
+            return;
+        }
+
+        allocatingFrames++;
+
+        if (framesSinceLog >= LOG_INTERVAL)
+        {
+            Log.w(TAG, "WARNING - Frame " + frames + " allocated " + lastFrameCount + " objects (" +
+                    lastFrameSize + " bytes), " + allocatingFrames + " allocating frames so far.");
+            framesSinceLog = 0;
+        }
+    }
+
+    /**
+     * @return the number of objects allocated during the last frame
+     */
+    public int getLastFrameCount()
+    {
+        return lastFrameCount;
+    }
+
+    /**
+     * @return the number of bytes allocated during the last frame
+     */
+    public int getLastFrameSize()
+    {
+        return lastFrameSize;
+    }
+
+    /**
+     * @return the number of frames after the warm up period which allocated objects
+     */
+    public int getAllocatingFrames()
+    {
+        return allocatingFrames;
+    }
+}
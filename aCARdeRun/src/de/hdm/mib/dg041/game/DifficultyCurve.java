@@ -0,0 +1,356 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.StringTokenizer;
+
+/**
+ * This class describes how the difficulty of a round develops over the game time. The curve is
+ * defined by keyframes, every keyframe sets the speed of the world and the spawn density of the
+ * obstacles at a point in time. Between the keyframes the values are kept until the next keyframe,
+ * interpolated linear or with a monotone cubic spline, which does not overshoot the keyframes.
+ * After the last keyframe its values are kept.
+ *
+ * The curve is loaded from a text file, so it can be tuned without changing the code:
+ *
+ *   # comment
+ *   interpolation cubic
+ *   # seconds  speed  density
+ *   0          3.0    0.6
+ *   30         6.0    0.8
+ *
+ * The speed is given in units per second, the density between 0 (no obstacles) and 1 (the next
+ * obstacle follows immediately). The evaluation does not allocate and does not change the curve,
+ * so one curve can be evaluated every tick and shared by many simulations.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class DifficultyCurve
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    /** the curve of the game before it was loaded from a file, the speed steps of the first version **/
+    private static final float[] DEFAULT_TIMES = {
+        0.0f, 30.0f, 60.0f, 90.0f, 120.0f, 150.0f, 180.0f, 210.0f, 240.0f, 270.0f
+    };
+    private static final float[] DEFAULT_SPEEDS = {
+        3.0f, 6.0f, 12.0f, 15.0f, 21.0f, 24.0f, 33.0f, 39.0f, 45.0f, 54.0f
+    };
+
+    private Interpolation interpolation;
+    private float[] times;
+    private float[] speeds;
+    private float[] densities;
+
+    /** slopes of the cubic spline at the keyframes, computed once when the curve is created **/
+    private float[] speedTangents;
+    private float[] densityTangents;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param interpolation the interpolation between the keyframes
+     * @param times the times of the keyframes in seconds, strictly increasing
+     * @param speeds the speeds of the keyframes in units per second
+     * @param densities the spawn densities of the keyframes, greater than 0 and at most 1
+     */
+    public DifficultyCurve(Interpolation interpolation, float[] times, float[] speeds, float[] densities)
+    {
+        if (times.length == 0 || speeds.length != times.length || densities.length != times.length)
+        {
+            throw new InvalidParameterException("Every keyframe needs a time, a speed and a density!");
+        }
+
+        for (int i = 0; i < times.length; ++i)
+        {
+            if (i > 0 && times[i] <= times[i - 1])
+            {
+                throw new InvalidParameterException("The times of the keyframes have to be strictly increasing!");
+            }
+            if (speeds[i] < 0.0f)
+            {
+                throw new InvalidParameterException("The speed of a keyframe must not be negative!");
+            }
+            if (densities[i] <= 0.0f || densities[i] > 1.0f)
+            {
+                throw new InvalidParameterException("The density of a keyframe has to be greater than 0 and at most 1!");
+            }
+        }
+
+        this.interpolation = interpolation;
+        this.times = times.clone();
+        this.speeds = speeds.clone();
+        this.densities = densities.clone();
+        this.speedTangents = computeTangents(this.times, this.speeds);
+        this.densityTangents = computeTangents(this.times, this.densities);
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * @return the curve with the speed steps and the constant density of the first version of the
+     *         game, used if no curve could be loaded
+     */
+    public static DifficultyCurve createDefault()
+    {
+        float[] densities = new float[DEFAULT_TIMES.length];
+        Arrays.fill(densities, 1.0f);
+        return new DifficultyCurve(Interpolation.STEP, DEFAULT_TIMES, DEFAULT_SPEEDS, densities);
+    }
+
+    /**
+     * This method reads a curve in the format described above.
+     *
+     * @param stream the stream of the file, it is not closed
+     * @return the loaded curve
+     * @throws IOException if the file could not be read or contains an invalid line
+     */
+    public static DifficultyCurve load(InputStream stream) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+        Interpolation interpolation = Interpolation.LINEAR;
+        float[] times = new float[16];
+        float[] speeds = new float[16];
+        float[] densities = new float[16];
+        int numKeys = 0;
+        int lineNumber = 0;
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine())
+        {
+            lineNumber++;
+
+            int comment = line.indexOf('#');
+            if (comment >= 0)
+            {
+                line = line.substring(0, comment);
+            }
+
+            StringTokenizer tokenizer = new StringTokenizer(line);
+            if (!tokenizer.hasMoreTokens())
+            {
+                continue;
+            }
+
+            String first = tokenizer.nextToken();
+            if (first.equals("interpolation"))
+            {
+                if (tokenizer.countTokens() != 1)
+                {
+                    throw new IOException("Line " + lineNumber + ": interpolation needs exactly one value!");
+                }
+                try
+                {
+                    // the default locale would turn the i of "linear" into a dotted capital I on turkish devices
+                    interpolation = Interpolation.valueOf(tokenizer.nextToken().toUpperCase(Locale.US));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    throw new IOException("Line " + lineNumber + ": unknown interpolation, use step, linear or cubic!");
+                }
+                continue;
+            }
+
+            if (tokenizer.countTokens() != 2)
+            {
+                throw new IOException("Line " + lineNumber + ": a keyframe needs a time, a speed and a density!");
+            }
+
+            if (numKeys == times.length)
+            {
+                times = Arrays.copyOf(times, numKeys * 2);
+                speeds = Arrays.copyOf(speeds, numKeys * 2);
+                densities = Arrays.copyOf(densities, numKeys * 2);
+            }
+
+            try
+            {
+                times[numKeys] = Float.parseFloat(first);
+                speeds[numKeys] = Float.parseFloat(tokenizer.nextToken());
+                densities[numKeys] = Float.parseFloat(tokenizer.nextToken());
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage());
+            }
+
+            if (numKeys > 0 && times[numKeys] <= times[numKeys - 1])
+            {
+                throw new IOException("Line " + lineNumber + ": the times of the keyframes have to be strictly increasing!");
+            }
+            numKeys++;
+        }
+
+        try
+        {
+            return new DifficultyCurve(interpolation, Arrays.copyOf(times, numKeys),
+                    Arrays.copyOf(speeds, numKeys), Arrays.copyOf(densities, numKeys));
+        }
+        catch (InvalidParameterException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    public Interpolation getInterpolation()
+    {
+        return interpolation;
+    }
+
+    public int getNumKeyframes()
+    {
+        return times.length;
+    }
+
+    /**
+     * @return the time of the last keyframe in seconds, the curve is constant after it
+     */
+    public float getDuration()
+    {
+        return times[times.length - 1];
+    }
+
+    /**
+     * @param seconds the game time in seconds
+     * @return the speed of the world and the obstacles in units per second
+     */
+    public float getSpeed(float seconds)
+    {
+        return evaluate(speeds, speedTangents, seconds);
+    }
+
+    /**
+     * @param seconds the game time in seconds
+     * @return the spawn density of the obstacles, greater than 0 and at most 1
+     */
+    public float getSpawnDensity(float seconds)
+    {
+        return evaluate(densities, densityTangents, seconds);
+    }
+
+    private float evaluate(float[] values, float[] tangents, float seconds)
+    {
+        int last = times.length - 1;
+        if (seconds <= times[0])
+        {
+            return values[0];
+        }
+        if (seconds >= times[last])
+        {
+            return values[last];
+        }
+
+        // binary search for the keyframe in front of the time, there are only a few keyframes
+        int low = 0;
+        int high = last;
+        while (high - low > 1)
+        {
+            int middle = (low + high) >>> 1;
+            if (times[middle] <= seconds)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        if (interpolation == Interpolation.STEP)
+        {
+            return values[low];
+        }
+
+        float length = times[high] - times[low];
+        float t = (seconds - times[low]) / length;
+
+        if (interpolation == Interpolation.LINEAR)
+        {
+            return values[low] + (values[high] - values[low]) * t;
+        }
+
+        // cubic hermite spline
+        float t2 = t * t;
+        float t3 = t2 * t;
+        return (2.0f * t3 - 3.0f * t2 + 1.0f) * values[low] +
+               (t3 - 2.0f * t2 + t) * length * tangents[low] +
+               (-2.0f * t3 + 3.0f * t2) * values[high] +
+               (t3 - t2) * length * tangents[high];
+    }
+
+    /**
+     * This method computes the slopes of a monotone cubic spline after Fritsch and Carlson. Between
+     * two keyframes the spline stays between their values, so a flat part of the curve stays flat
+     * and the speed never drops while the keyframes increase.
+     */
+    private static float[] computeTangents(float[] times, float[] values)
+    {
+        int n = times.length;
+        float[] tangents = new float[n];
+        if (n < 2)
+        {
+            return tangents;
+        }
+
+        float[] secants = new float[n - 1];
+        for (int i = 0; i < n - 1; ++i)
+        {
+            secants[i] = (values[i + 1] - values[i]) / (times[i + 1] - times[i]);
+        }
+
+        tangents[0] = secants[0];
+        tangents[n - 1] = secants[n - 2];
+        for (int i = 1; i < n - 1; ++i)
+        {
+            // extremum or flat part: the spline has to be flat at the keyframe
+            tangents[i] = (secants[i - 1] * secants[i] <= 0.0f) ? 0.0f : (secants[i - 1] + secants[i]) * 0.5f;
+        }
+
+        // limit the slopes, so the spline does not overshoot between the keyframes
+        for (int i = 0; i < n - 1; ++i)
+        {
+            if (secants[i] == 0.0f)
+            {
+                tangents[i] = 0.0f;
+                tangents[i + 1] = 0.0f;
+                continue;
+            }
+
+            float a = tangents[i] / secants[i];
+            float b = tangents[i + 1] / secants[i];
+            float sum = a * a + b * b;
+            if (sum > 9.0f)
+            {
+                float scale = 3.0f / (float) Math.sqrt(sum);
+                tangents[i] = scale * a * secants[i];
+                tangents[i + 1] = scale * b * secants[i];
+            }
+        }
+
+        return tangents;
+    }
+}
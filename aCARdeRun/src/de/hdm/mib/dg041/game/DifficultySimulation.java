@@ -0,0 +1,254 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.game;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class plays many rounds against a difficulty curve without graphics to tune the curve:
+ *
+ *   java de.hdm.mib.dg041.game.DifficultySimulation [curve file] [rounds]
+ *
+ * The arguments may be given in any order, an argument which is no file but an integer is the
+ * number of rounds.
+ *
+ * Every round runs with the fixed timestep of the game. The obstacles move like in Obstacle and
+ * start on a random lane after the gap of the current spawn density. A simulated player sees an
+ * obstacle when it reaches Obstacle.VISIBLE_Z and changes the lane after a reaction time, which
+ * differs between the players and a little between the obstacles. A round ends with the first
+ * collision or after MAX_ROUND_SECONDS.
+ *
+ * The rounds do not allocate, so thousands of them take only a few seconds. The distribution of
+ * the survival times shows at which time most players fail.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class DifficultySimulation
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int DEFAULT_ROUNDS = 10000;
+    private static final String DEFAULT_CURVE = "assets/difficulty.txt";
+    private static final String USAGE = "usage: java " + DifficultySimulation.class.getName() + " [curve file] [rounds]";
+
+    /** longest simulated round, players which survive it are counted with this time **/
+    private static final float MAX_ROUND_SECONDS = 600.0f;
+
+    /** reaction time of the players in seconds: mean and deviation between the players **/
+    private static final float REACTION_MEAN = 0.6f;
+    private static final float REACTION_DEVIATION = 0.15f;
+    /** deviation of the reaction time of one player between the obstacles **/
+    private static final float REACTION_JITTER = 0.05f;
+    /** nobody reacts faster than this **/
+    private static final float REACTION_MIN = 0.15f;
+
+    private static final long SEED = 2012L;
+
+    private DifficultyCurve curve;
+    private Random random = new Random(SEED);
+    private float tickSeconds = 1.0f / FixedTimestep.DEFAULT_TICK_RATE;
+
+    /** number of obstacles the player avoided in the last round **/
+    private int obstaclesPassed;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    public DifficultySimulation(DifficultyCurve curve)
+    {
+        this.curve = curve;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public static void main(String[] args) throws IOException
+    {
+        int rounds = DEFAULT_ROUNDS;
+        File file = new File(DEFAULT_CURVE);
+        for (String arg : args)
+        {
+            if (new File(arg).exists())
+            {
+                file = new File(arg);
+                continue;
+            }
+
+            try
+            {
+                rounds = Integer.parseInt(arg);
+            }
+            catch (NumberFormatException e)
+            {
+                // neither a file nor a number, report the missing curve below
+                file = new File(arg);
+                continue;
+            }
+            if (rounds <= 0)
+            {
+                System.out.println("The number of rounds has to be positive: " + arg);
+                System.out.println(USAGE);
+                return;
+            }
+        }
+
+        DifficultyCurve curve;
+        try
+        {
+            InputStream stream = new FileInputStream(file);
+            try
+            {
+                curve = DifficultyCurve.load(stream);
+            }
+            finally
+            {
+                stream.close();
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println("The curve " + file + " could not be loaded: " + e.getMessage());
+            System.out.println(USAGE);
+            return;
+        }
+
+        DifficultySimulation simulation = new DifficultySimulation(curve);
+        float[] survivalTimes = new float[rounds];
+        long totalObstacles = 0;
+        int survivors = 0;
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; ++round)
+        {
+            survivalTimes[round] = simulation.playRound();
+            totalObstacles += simulation.obstaclesPassed;
+            if (survivalTimes[round] >= MAX_ROUND_SECONDS)
+            {
+                survivors++;
+            }
+        }
+        long time = System.nanoTime() - start;
+
+        Arrays.sort(survivalTimes);
+        double sum = 0;
+        for (float survivalTime : survivalTimes)
+        {
+            sum += survivalTime;
+        }
+
+        System.out.println("Simulated " + rounds + " rounds of " + file + " (" + curve.getNumKeyframes() + " keyframes, " +
+                curve.getInterpolation().toString().toLowerCase() + ") in " + (time / 1000000) + " ms.");
+        System.out.println(String.format("survival time: mean %.1f s, p10 %.1f s, median %.1f s, p90 %.1f s, max %.1f s",
+                sum / rounds, percentile(survivalTimes, 0.1f), percentile(survivalTimes, 0.5f),
+                percentile(survivalTimes, 0.9f), survivalTimes[rounds - 1]));
+        System.out.println(String.format("obstacles avoided per round: %.1f, rounds survived to %.0f s: %d",
+                (float) totalObstacles / rounds, MAX_ROUND_SECONDS, survivors));
+
+        // share of the players which are still alive over the time of the curve
+        System.out.println();
+        System.out.println(String.format("%8s %8s %8s %8s", "seconds", "speed", "density", "alive"));
+        int failed = 0;
+        for (float seconds = 0.0f; seconds <= curve.getDuration() + 30.0f; seconds += 30.0f)
+        {
+            while (failed < rounds && survivalTimes[failed] < seconds)
+            {
+                failed++;
+            }
+            System.out.println(String.format("%8.0f %8.1f %8.2f %7.1f%%", seconds, curve.getSpeed(seconds),
+                    curve.getSpawnDensity(seconds), 100.0f * (rounds - failed) / rounds));
+        }
+    }
+
+    /**
+     * This method plays one round with a new player.
+     *
+     * @return the game time in seconds at which the player crashed
+     */
+    public float playRound()
+    {
+        float reaction = Math.max(REACTION_MIN, REACTION_MEAN + REACTION_DEVIATION * (float) random.nextGaussian());
+
+        boolean heroOnRightLane = random.nextBoolean();
+        boolean obstacleOnRightLane = random.nextBoolean();
+        float zValue = 0.0f;
+        float spawnDelay = 0.0f;
+        float reactionLeft = -1.0f;     // time until the player changes the lane, negative if nothing to do
+        float seconds = 0.0f;
+        obstaclesPassed = 0;
+
+        while (seconds < MAX_ROUND_SECONDS)
+        {
+            float speed = curve.getSpeed(seconds);
+            seconds += tickSeconds;
+
+            if (spawnDelay > 0.0f)
+            {
+                spawnDelay -= speed * tickSeconds;
+                continue;
+            }
+
+            float previousZValue = zValue;
+            if (zValue <= Obstacle.TRACK_LENGTH)
+            {
+                zValue += speed * tickSeconds;
+            }
+            else
+            {
+                // the obstacle passed the hero, the next one starts after the gap on a random lane
+                zValue = 0.0f;
+                spawnDelay = Obstacle.getSpawnGap(curve.getSpawnDensity(seconds));
+                obstacleOnRightLane = random.nextBoolean();
+                obstaclesPassed++;
+                continue;
+            }
+
+            // the player notices the obstacle on the own lane as soon as it is visible
+            if (previousZValue < Obstacle.VISIBLE_Z && zValue >= Obstacle.VISIBLE_Z && heroOnRightLane == obstacleOnRightLane)
+            {
+                reactionLeft = Math.max(REACTION_MIN, reaction + REACTION_JITTER * (float) random.nextGaussian());
+            }
+
+            if (reactionLeft >= 0.0f)
+            {
+                reactionLeft -= tickSeconds;
+                if (reactionLeft < 0.0f)
+                {
+                    heroOnRightLane = !heroOnRightLane;
+                }
+            }
+
+            if (heroOnRightLane == obstacleOnRightLane && previousZValue < Obstacle.HERO_BACK_Z && zValue >= Obstacle.HERO_FRONT_Z)
+            {
+                return seconds;
+            }
+        }
+
+        return MAX_ROUND_SECONDS;
+    }
+
+    private static float percentile(float[] sorted, float fraction)
+    {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+}
@@ -0,0 +1,176 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.game;
+
+import java.security.InvalidParameterException;
+
+/**
+ * This class divides the frame time of the main loop into ticks of a fixed length. The game is
+ * updated once per tick, so the simulation does not depend on the frame rate of the device. The
+ * time which is left over after the last tick is kept for the next frame and is used to
+ * interpolate the transforms between the last two ticks for rendering.
+ *
+ * The time is read from System.nanoTime, which is monotonic. Frames which take longer than
+ * MAX_FRAME_NANOS, for example after the app was paused, are cut, so the game does not try to
+ * catch up with many ticks at once.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class FixedTimestep
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    /** ticks per second of the game, the speeds of the game were tuned at this rate **/
+    public static final int DEFAULT_TICK_RATE = 60;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    /** longest frame time which is simulated, the rest is dropped **/
+    private static final long MAX_FRAME_NANOS = NANOS_PER_SECOND / 4;
+
+    private int tickRate;
+    private long tickNanos;
+    private float tickSeconds;
+
+    private boolean started;
+    private long lastTime;
+    private long accumulator;
+    private long frameNanos;
+    private long droppedNanos;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param tickRate the number of ticks per second
+     */
+    public FixedTimestep(int tickRate)
+    {
+        setTickRate(tickRate);
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method changes the number of ticks per second, for example to lower the cost of the
+     * simulation under load. The progress into the current tick is kept.
+     *
+     * @param tickRate the number of ticks per second
+     */
+    public void setTickRate(int tickRate)
+    {
+        if (tickRate <= 0)
+        {
+            throw new InvalidParameterException("The tick rate has to be positive!");
+        }
+
+        long newTickNanos = NANOS_PER_SECOND / tickRate;
+        if (tickNanos > 0)
+        {
+            accumulator = accumulator * newTickNanos / tickNanos;
+        }
+
+        this.tickRate = tickRate;
+        this.tickNanos = newTickNanos;
+        this.tickSeconds = (float) newTickNanos / NANOS_PER_SECOND;
+    }
+
+    public int getTickRate()
+    {
+        return tickRate;
+    }
+
+    /**
+     * @return the length of a tick in seconds, this is the delta of every update
+     */
+    public float getTickSeconds()
+    {
+        return tickSeconds;
+    }
+
+    /**
+     * This method restarts the clock without simulating the time since the last frame, for example
+     * after loading content.
+     *
+     * @param now the current time of System.nanoTime
+     */
+    public void reset(long now)
+    {
+        started = true;
+        lastTime = now;
+        accumulator = 0;
+        frameNanos = 0;
+    }
+
+    /**
+     * This method adds the time since the last call to the accumulator and takes the ticks out of it
+     * which are complete.
+     *
+     * @param now the current time of System.nanoTime
+     * @return the number of updates which have to be run in this frame
+     */
+    public int advance(long now)
+    {
+        if (!started)
+        {
+            reset(now);
+        }
+
+        frameNanos = Math.max(0, now - lastTime);
+        lastTime = now;
+
+        long simulated = frameNanos;
+        if (simulated > MAX_FRAME_NANOS)
+        {
+            droppedNanos += simulated - MAX_FRAME_NANOS;
+            simulated = MAX_FRAME_NANOS;
+        }
+
+        accumulator += simulated;
+        int ticks = (int) (accumulator / tickNanos);
+        accumulator -= ticks * tickNanos;
+
+        return ticks;
+    }
+
+    /**
+     * @return the elapsed part of the next tick between 0 and 1. Transforms are drawn at this
+     *         position between the previous and the current tick.
+     */
+    public float getInterpolation()
+    {
+        return (float) accumulator / tickNanos;
+    }
+
+    /**
+     * @return the real time of the last frame in seconds
+     */
+    public float getFrameSeconds()
+    {
+        return (float) frameNanos / NANOS_PER_SECOND;
+    }
+
+    /**
+     * @return the time in nanoseconds which was not simulated because frames took too long
+     */
+    public long getDroppedNanos()
+    {
+        return droppedNanos;
+    }
+}
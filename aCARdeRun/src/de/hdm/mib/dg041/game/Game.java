@@ -13,6 +13,7 @@
  * limitations under the License. */
 package de.hdm.mib.dg041.game;
 
+import java.io.File;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -21,6 +22,8 @@ import android.content.Context;
 import android.opengl.GLSurfaceView.Renderer;
 import android.view.View;
 
+import de.hdm.mib.dg041.graphics.FontAtlasCache;
+import de.hdm.mib.dg041.graphics.FontAtlasMode;
 import de.hdm.mib.dg041.graphics.GraphicDevice;
 import de.hdm.mib.dg041.input.InputSystem;
 
@@ -39,11 +42,27 @@ public abstract class Game implements Renderer
      */
     private boolean initialized;
     /**
-     * defines the timestamp for the last onDrawFrame call
+     * divides the frame time into updates of a fixed length
      */
-    private long lastTime;
+    protected FixedTimestep timestep = new FixedTimestep(FixedTimestep.DEFAULT_TICK_RATE);
+    /**
+     * set by the UI thread after a pause, the GL thread restarts the timestep at the next frame
+     */
+    private volatile boolean restartTimestep;
+    /**
+     * set to TRUE to report frames which allocate objects to the log, slows down the game
+     */
+    public static final boolean TRACK_ALLOCATIONS = false;
+    /**
+     * counts the allocations of the GL thread per frame
+     */
+    protected AllocationTracker allocationTracker = new AllocationTracker();
     
     protected GraphicDevice graphicDevice;
+    /**
+     * directory in the cache of the app with the rasterized fonts
+     */
+    private static final String FONT_CACHE_DIRECTORY = "fonts";
     /**
      * context attribute for the game context
      */
@@ -85,14 +104,35 @@ public abstract class Game implements Renderer
     @Override
     public void onDrawFrame(GL10 gl)
     {
-        // get current timestamp and calculate the delta to call update and draw methods periodically
-        long currentTime = System.currentTimeMillis();
-        float deltaSeconds = (currentTime - lastTime)/1000.0f;
+        // the number of fixed updates depends on the time since the last frame
+        long now = System.nanoTime();
+        if (restartTimestep)
+        {
+            restartTimestep = false;
+            timestep.reset(now);
+        }
+        int ticks = timestep.advance(now);
+
+        allocationTracker.beginFrame();
+
+        // the counters of the graphic device and the renderer show the state changes and culled meshes of the current frame
+        graphicDevice.resetStateCounters();
+        renderer.resetCounters();
+
+        // every update simulates the same time, the game runs at the same speed on every device
+        for (int i = 0; i < ticks; ++i)
+        {
+            update(timestep.getTickSeconds());
+        }
 
-        update(deltaSeconds);
-        draw(deltaSeconds);
+        // the transforms are drawn between the last two updates
+        draw(timestep.getInterpolation());
 
-        lastTime = currentTime;
+        // draw all queued meshes sorted by layer, state and depth
+        renderer.getRenderQueue().flush();
+
+        // a steady state frame must not allocate, see AllocationTracker
+        allocationTracker.endFrame();
     }
 
     @Override
@@ -112,12 +152,12 @@ public abstract class Game implements Renderer
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config)
     {
-        lastTime = System.currentTimeMillis();
-
         if(!initialized)
         {
             graphicDevice = new GraphicDevice();
             graphicDevice.onSurfaceCreated(gl);
+            graphicDevice.setFontAtlasCache(new FontAtlasCache(new File(context.getCacheDir(), FONT_CACHE_DIRECTORY)));
+            graphicDevice.setFontAtlasMode(FontAtlasMode.DISTANCE_FIELD_ALPHA_TEST);
 
             // renderer to draw the meshes
             renderer = new de.hdm.mib.dg041.graphics.Renderer(graphicDevice);
@@ -126,6 +166,8 @@ public abstract class Game implements Renderer
             initialized = true;
             // load content of the GameActitvity
             loadContent();
+
+            allocationTracker.setEnabled(TRACK_ALLOCATIONS);
         }
         else
         {
@@ -133,15 +175,40 @@ public abstract class Game implements Renderer
             // load content of the GameActitvity
             loadContent();
         }
+
+        // loading content allocates, the following frames are not checked
+        allocationTracker.reset();
+
+        // the time of loading the content is not simulated
+        timestep.reset(System.nanoTime());
     }
 
     public abstract void initialize();
 
     public abstract void loadContent();
 
+    /**
+     * This method is called once per tick of the fixed timestep.
+     *
+     * @param deltaseconds the length of a tick in seconds
+     */
     public abstract void update(float deltaseconds);
 
-    public abstract void draw(float deltaseconds);
+    /**
+     * This method is called once per frame after the updates.
+     *
+     * @param interpolation the elapsed part of the next tick between 0 and 1
+     */
+    public abstract void draw(float interpolation);
+
+    /**
+     * This method has to be called when the game is resumed. The time of the pause is not
+     * simulated, so the game and its clocks continue where they were paused.
+     */
+    protected void restartTimestep()
+    {
+        restartTimestep = true;
+    }
 
     public abstract void resize(int width, int height);
 
@@ -0,0 +1,88 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.game;
+
+/**
+ * This class measures the time of a round. It has no thread of its own, the main loop advances
+ * it once per tick by the length of the tick, so every component of the GL thread reads the same
+ * time without locking. While the clock is paused the ticks are ignored, after resuming it
+ * continues exactly where it stopped.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class GameClock
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private long elapsedNanos;
+    private boolean running;
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method stops the clock and sets the time back to zero.
+     */
+    public void reset()
+    {
+        elapsedNanos = 0;
+        running = false;
+    }
+
+    /**
+     * This method stops the clock, the time is kept.
+     */
+    public void pause()
+    {
+        running = false;
+    }
+
+    /**
+     * This method starts the clock or continues after a pause.
+     */
+    public void resume()
+    {
+        running = true;
+    }
+
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * This method has to be called once per tick by the main loop.
+     *
+     * @param deltaSeconds the length of the tick in seconds
+     */
+    public void advance(float deltaSeconds)
+    {
+        if (running)
+        {
+            elapsedNanos += (long) (deltaSeconds * 1.0e9 + 0.5);
+        }
+    }
+
+    /**
+     * @return the elapsed time in milliseconds
+     */
+    public int getMillis()
+    {
+        return (int) (elapsedNanos / 1000000L);
+    }
+}
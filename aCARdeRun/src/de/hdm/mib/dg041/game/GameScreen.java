@@ -13,6 +13,9 @@
  * limitations under the License. */
 package de.hdm.mib.dg041.game;
 
+import java.util.EnumSet;
+
+import de.hdm.mib.dg041.input.InputEvent.InputDevice;
 import de.hdm.mib.dg041.input.InputSystem;
 
 /**
@@ -24,6 +27,12 @@ import de.hdm.mib.dg041.input.InputSystem;
  */
 public abstract class GameScreen
 {
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final EnumSet<InputDevice> NO_SENSORS = EnumSet.noneOf(InputDevice.class);
+
     // --------------------------------------------------------
     // METHODS
     // --------------------------------------------------------
@@ -41,19 +50,30 @@ public abstract class GameScreen
 
     /**
      * The method updates the information, position, etc. of the screen components
-     * periodically.
+     * once per tick of the fixed timestep.
      *
-     * @param deltaSeconds the milliseconds for updating the screen periodically.
+     * @param deltaSeconds the length of a tick in seconds.
      * @param inputSystem InpustSystem
      *                      The kind of input system used by the game.
      */
     public abstract void update(float deltaSeconds, InputSystem inputSystem);
 
     /**
-     * The method redraw the screen periodically depending on the given milliseconds
-     * interval.
+     * The method redraws the screen once per frame. Moving components are drawn between
+     * their positions of the last two ticks.
+     *
+     * @param interpolation the elapsed part of the next tick between 0 and 1.
+     */
+    public abstract void draw(float interpolation);
+
+    /**
+     * The sensors of the screen are registered while it is shown, all other sensors are off.
+     * Touch screen and keyboard are always enabled.
      *
-     * @param deltaSeconds the milliseconds for redrawn the screen periodically.
+     * @return the sensors the screen reads, none by default
      */
-    public abstract void draw(float deltaSeconds);
+    public EnumSet<InputDevice> getSensors()
+    {
+        return NO_SENSORS;
+    }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ import de.hdm.mib.dg041.collision.Point;
 import de.hdm.mib.dg041.game.aCARdeRunGame.GameState;
 import de.hdm.mib.dg041.graphics.Camera;
 import de.hdm.mib.dg041.graphics.GraphicDevice;
+import de.hdm.mib.dg041.graphics.RenderQueue;
 import de.hdm.mib.dg041.graphics.Renderer;
 import de.hdm.mib.dg041.graphics.SpriteFont;
 import de.hdm.mib.dg041.graphics.TextBuffer;
@@ -47,10 +48,12 @@ public class HUD
     private SpriteFont fontTimeHUD, fontStartHUD, fontCrashHUD, fontAccident;
     private TextBuffer[] textTimeHUD, textStartHUD, textCrashHUD, textCrashHUDBest;
     private Matrix4x4[] matrixTimeHUD, matrixStartHUD, matrixCrashHUD, matrixCrashHUDBest;
-    private int timeElapsed;
+    private GameClock clock;
     private int totalTimeElapsed;
-    private String timer;
     private AxisAlignedBoundingBox[] aabbHUD;
+    private Vector3 screenTouchPosition = new Vector3();         // reused for every touch event
+    private Vector3 worldTouchPosition = new Vector3();
+    private Point touchPoint = new Point();
     private static boolean accidentHappened = false;
 
     private Context context;
@@ -66,11 +69,15 @@ public class HUD
     // CONSTRUCTOR
     // --------------------------------------------------------
 
-    public HUD(Context context, GraphicDevice graphicDevice, Renderer renderer)
+    /**
+     * @param clock the clock of the round, the countdown and the timer are read from it
+     */
+    public HUD(Context context, GraphicDevice graphicDevice, Renderer renderer, GameClock clock)
     {
         this.context = context;
         this.graphicDevice = graphicDevice;
         this.renderer = renderer;
+        this.clock = clock;
     }
 
     // --------------------------------------------------------
@@ -218,49 +225,57 @@ public class HUD
     }
     
     /**
-     * This method will be called in a certain period of time to update the display content.
+     * This method will be called once per tick to update the display content.
      *
-     * @param deltaseconds delta time to update the display content, in milliseconds
+     * @param deltaseconds the length of a tick in seconds
      */
     public void update(float deltaseconds)
     {
-         // if the game state == started update the timer time on HUD
-        if(InGameScreen.IsGameStarted())
-        {
-            textTimeHUD[1].setText(timer);
-        }
+        // the text buffers only change if the displayed second changes
+        totalTimeElapsed = Math.max(0, clock.getMillis() - InGameScreen.COUNTDOWN_MILLIS);
+        textTimeHUD[1].setTime(totalTimeElapsed);
 
-        // if the game state == stopped draw timer time to CRASHHUD
-        if (!InGameScreen.IsGameStarted() && accidentHappened)
-        {
-            textCrashHUD[2].setText(timer);
-        }
+        // the CRASHHUD shows the time at which the clock was stopped
+        textCrashHUD[2].setTime(totalTimeElapsed);
+    }
+
+    /**
+     * This method sets the best time which the CRASHHUD shows. It is called once after a
+     * collision, when the round was ranked.
+     *
+     * @param milliSec the best time in milliseconds
+     */
+    public void setBestTime(int milliSec)
+    {
+        textCrashHUDBest[0].setTime(milliSec);
     }
 
     /**
      * This method redraws all display content in a certain period of time.
      *
-     * @param deltaseconds delta time to redraw the display elements, in milliseconds
+     * @param interpolation the elapsed part of the next tick between 0 and 1
      */
-    public void draw(float deltaseconds)
+    public void draw(float interpolation)
     {
-	    // draw text on HUD
-	    graphicDevice.setCamera(hudCamera);
+	    // submit text on HUD
+	    RenderQueue renderQueue = renderer.getRenderQueue();
 
         // if the game wasn´t started already draw the start text
         if (!InGameScreen.IsGameStarted() && !accidentHappened)
         {
-            if (timeElapsed == 0 )
+            // countdown: "Ready?" for two seconds, then "Set" and "GO!!" for one second each
+            int countdown = clock.getMillis();
+            if (countdown < 2000)
             {
-                renderer.drawText(textStartHUD[0], matrixStartHUD[0]);
+                renderQueue.submitText(textStartHUD[0], matrixStartHUD[0], hudCamera, RenderQueue.LAYER_OVERLAY);
             }
-            if (timeElapsed == 1000)
+            else if (countdown < 3000)
             {
-                renderer.drawText(textStartHUD[1], matrixStartHUD[1]);
+                renderQueue.submitText(textStartHUD[1], matrixStartHUD[1], hudCamera, RenderQueue.LAYER_OVERLAY);
             }
-            if (timeElapsed > 1000 && timeElapsed < 3000)
+            else if (countdown < InGameScreen.COUNTDOWN_MILLIS)
             {
-                renderer.drawText(textStartHUD[2], matrixStartHUD[2]);
+                renderQueue.submitText(textStartHUD[2], matrixStartHUD[2], hudCamera, RenderQueue.LAYER_OVERLAY);
             }
         }
 
@@ -269,16 +284,11 @@ public class HUD
         {
             for (int i = 0; i < textCrashHUD.length; i++)
             {
-                renderer.drawText(textCrashHUD[i], matrixCrashHUD[i]);
+                renderQueue.submitText(textCrashHUD[i], matrixCrashHUD[i], hudCamera, RenderQueue.LAYER_OVERLAY);
             }
 
-            // consider if a best time was reached
-                Ranking.getInstance().pushRanking(totalTimeElapsed);
-            // collect the best time from resource
-                int bestTime = Ranking.getInstance().getBestTime();
-                textCrashHUDBest[0].setText(Ranking.getInstance().timeFormatter(bestTime));
-            // draw the best time on screen
-                renderer.drawText(textCrashHUDBest[0], matrixCrashHUDBest[0]);
+            // draw the best time on screen, see setBestTime
+            renderQueue.submitText(textCrashHUDBest[0], matrixCrashHUDBest[0], hudCamera, RenderQueue.LAYER_OVERLAY);
         }
 	
         // if game state == started draw timer content
@@ -286,7 +296,7 @@ public class HUD
         {
             for(int i = 0; i < textTimeHUD.length; i++ )
             {
-                renderer.drawText(textTimeHUD[i], matrixTimeHUD[i]);				// draw all HUD elements
+                renderQueue.submitText(textTimeHUD[i], matrixTimeHUD[i], hudCamera, RenderQueue.LAYER_OVERLAY);				// draw all HUD elements
             }
         }
     }
@@ -306,12 +316,12 @@ public class HUD
     public void handleInputEvent(InputEvent inputEvent, int screenWidth, int screenHeight)
     {
     
-        Vector3 screenTouchPosition = new Vector3((inputEvent.getValues()[0] / (screenWidth / 2) -1),
+        screenTouchPosition.set((inputEvent.getValues()[0] / (screenWidth / 2) -1),
                 -(inputEvent.getValues()[1] / (screenHeight / 2) - 1), 0);
 	
-	    Vector3 worldTouchPosition = hudCamera.unproject(screenTouchPosition, 1);
+	    hudCamera.unproject(screenTouchPosition, 1, worldTouchPosition);
 	    
-	    Point touchPoint = new Point(worldTouchPosition.getX(), worldTouchPosition.getY());
+	    touchPoint.setPosition(worldTouchPosition.getX(), worldTouchPosition.getY());
 	    
         for (int i = 0; i < aabbHUD.length; i++)
         {
@@ -321,7 +331,6 @@ public class HUD
                 {
                     InGameScreen.setIsGameStarted(false);
                     accidentHappened = false;
-                    Ranking.rankingPushed = false;
                 }
                 catch (Exception e)
                 {
@@ -371,39 +380,6 @@ public class HUD
     // GETTER & SETTER
     // --------------------------------------------------------
 
-    /**
-     * @param milliSec time to set to the timer HUD element
-     */
-    public void setTimerTime(int milliSec)
-    {
-        totalTimeElapsed = milliSec;
-        try
-        {
-            timer = Ranking.getInstance().timeFormatter(milliSec);
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
-            Log.e(TAG, "ERROR Integer overflow after 6 Minutes of Gameplay!");
-        }
-    }
-
-    /**
-     * @return method return the elapsed timer time as string
-     */
-    public String getTimerTime()
-    {
-	    return timer;
-    }
-
-    /**
-     * @param milliSec set the start timer time
-     */
-    public void setStartText(int milliSec)
-    {
-	    timeElapsed = milliSec;
-    }
-
     /**
      * @return TRUE if an accident happend, otherwise FALSE.
      */
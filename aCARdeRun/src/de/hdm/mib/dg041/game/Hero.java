@@ -24,11 +24,16 @@ import de.hdm.mib.dg041.graphics.CompareFunction;
 import de.hdm.mib.dg041.graphics.GraphicDevice;
 import de.hdm.mib.dg041.graphics.Material;
 import de.hdm.mib.dg041.graphics.Mesh;
+import de.hdm.mib.dg041.graphics.RenderQueue;
 import de.hdm.mib.dg041.graphics.Renderer;
 import de.hdm.mib.dg041.graphics.Texture;
+import de.hdm.mib.dg041.input.DeadZoneFilter;
 import de.hdm.mib.dg041.input.InputEvent;
+import de.hdm.mib.dg041.input.InputFilter;
+import de.hdm.mib.dg041.input.InputFilterChain;
+import de.hdm.mib.dg041.input.LaneIntentFilter;
+import de.hdm.mib.dg041.input.LowPassFilter;
 import de.hdm.mib.dg041.math.Matrix4x4;
-import de.hdm.mib.dg041.math.Vector3;
 
 /**
  *
@@ -49,6 +54,19 @@ public class Hero
     private static String TAG = Hero.class.getName();
     private static Hero heroInstance = null;
 
+    // *** STEERING WITH THE GRAVITY SENSOR *** //
+    /** the y-axis of the gravity points to the side in landscape mode **/
+    private static final int STEERING_AXIS = 1;
+    /** weight of a new gravity sample, a tilt of 5 m/s^2 crosses the threshold with the first sample **/
+    private static final float STEERING_SMOOTHING = 0.6f;
+    /** noise of a device which lies still **/
+    private static final float STEERING_DEAD_ZONE = 0.5f;
+    /** gravity in m/s^2 at which a tilt starts a lane change and below which it ends **/
+    private static final float STEERING_ENTER = 2.5f;
+    private static final float STEERING_EXIT = 1.5f;
+    /** ticks after a lane change in which no further change is accepted **/
+    private static final int STEERING_DEBOUNCE = 6;
+
     // *** MAIN COMPONENTS OF THE HERO *** //
     private Camera cameraMenu, cameraInGame;
     private Mesh meshHero;
@@ -59,6 +77,8 @@ public class Hero
     private boolean isOnRightLane = true;
     private boolean transitionToLeft = false;
     private boolean transitionToRight = false;
+    /** measures the time from the tilt until the hero is drawn on the new lane **/
+    private InputLatencyTracker latencyTracker;
     
     // *** COMPONENTS TO DISPLAY THE HERO *** //
     private Context context;
@@ -156,8 +176,7 @@ public class Hero
         try
         {
             // scene object: read the hero 3d model from assets folder
-            stream = context.getAssets().open("hero.obj");	// open hero.obj
-            meshHero = Mesh.loadFromOBJ(stream);		    // define the meshes dependend on the read 3d model data
+            meshHero = Mesh.load(context.getAssets(), "hero.obj");	// define the meshes dependend on the read 3d model data
         }
         catch (Exception e)
         {
@@ -192,15 +211,15 @@ public class Hero
 
     /**
      * This method draws the display in a certain period of time
+     *
+     * @param interpolation the elapsed part of the next tick between 0 and 1
      */
-    public void draw(float deltaseconds)
+    public void draw(float interpolation)
     {
         // if the game state == MENU, draw the hero using the CAMERAMENU
         if(aCARdeRunGame.getGameState() == GameState.MENU) {
-            // set scene camer
-                graphicDevice.setCamera(cameraMenu);
-            // draw scene objects
-                renderer.drawMesh(meshHero, matHero, worldHeroMenu);
+            // submit scene objects with the menu camera
+                renderer.getRenderQueue().submit(meshHero, matHero, worldHeroMenu, cameraMenu, RenderQueue.LAYER_SCENE);
         }
 	
         // if the game state == GAME, draw the hero using the CAMERAINGAME
@@ -208,32 +227,42 @@ public class Hero
              transition();
     }
 
+    /**
+     * This method creates the filters which turn the gravity samples into lane changes. The samples
+     * are smoothed, the noise around zero is removed and a lane change is recognized with a
+     * hysteresis, so a shaking device does not switch the lane several times.
+     *
+     * @return the filter for the GRAVITY device of the input system
+     */
+    public static InputFilter createSteeringFilter()
+    {
+        return new InputFilterChain(
+                new LowPassFilter(STEERING_SMOOTHING),
+                new DeadZoneFilter(STEERING_DEAD_ZONE),
+                new LaneIntentFilter(STEERING_AXIS, STEERING_ENTER, STEERING_EXIT, STEERING_DEBOUNCE));
+    }
+
+    /**
+     * @param inputEvent an event of the device LANE, see createSteeringFilter
+     */
     public void handleInputEvent(InputEvent inputEvent)
     {
-        /* detect the motion of the device using the gravity sensor
-         * this sensor detects motions on three axis. we are using the
-         * device in landscape mode, so we are only interested in y-axis values. */
-        Vector3 gravityValues = new Vector3(
-            inputEvent.getValues()[0],
-            inputEvent.getValues()[1],
-            inputEvent.getValues()[2]
-            );
-	
-	    // detect right motion
-	    if(gravityValues.getY() > 2.5f)
+        switch (inputEvent.getAction())
         {
-            Log.d(TAG, "RIGHT MOTION");
-            if(!isOnRightLane)
-                transitionToRight = true;
-	    }
-		
-        // detect left meotion
-	    if (gravityValues.getY() < -2.5f)
-        {
-            Log.d(TAG, "LEFT MOTION");
-            if(isOnRightLane)
-                transitionToLeft = true;
-	    }
+            // detect right motion
+            case RIGHT:
+                Log.d(TAG, "RIGHT MOTION");
+                if(!isOnRightLane)
+                    transitionToRight = true;
+                break;
+
+            // detect left motion
+            case LEFT:
+                Log.d(TAG, "LEFT MOTION");
+                if(isOnRightLane)
+                    transitionToLeft = true;
+                break;
+        }
     }
 
     /**
@@ -242,10 +271,9 @@ public class Hero
      */
     private void transition()
     {
-	    // set scene camera
-	    graphicDevice.setCamera(cameraInGame);
+        RenderQueue renderQueue = renderer.getRenderQueue();
 
-        // draw scene objects
+        // submit scene objects with the in game camera
 
         // hero is on right lane
         if(isOnRightLane)
@@ -257,8 +285,9 @@ public class Hero
                worldHeroGame.translate(-0.3f, -0.7f, -0.5f);		        // normal matrix if hero is on right lane
                worldHeroGame.rotateY(180);				                    // position the object
                worldHeroGame.scale(0.27f, 0.37f, 0.3f);		                // resize object
-               renderer.drawMesh(meshHero, matHero, worldHeroGame);		    // draw hero on the left lane
+               renderQueue.submit(meshHero, matHero, worldHeroGame, cameraInGame, RenderQueue.LAYER_SCENE);		    // draw hero on the left lane
                transitionToLeft = false;				                    // transition is finished
+               traceLaneChange();
                isOnRightLane = false;					                    // hero is on left lane
             }
             else                                                            // hero is already on right lane
@@ -267,7 +296,7 @@ public class Hero
                 worldHeroGame.translate(+0.3f, -0.7f, -0.5f);		        // normal matrix if hero is on right lane
                 worldHeroGame.rotateY(180);					                // position the object
                 worldHeroGame.scale(0.27f, 0.37f, 0.3f);			        // resize object
-                renderer.drawMesh(meshHero, matHero, worldHeroGame);	    // draw hero on the right lane
+                renderQueue.submit(meshHero, matHero, worldHeroGame, cameraInGame, RenderQueue.LAYER_SCENE);	    // draw hero on the right lane
             }
         }
 
@@ -281,8 +310,9 @@ public class Hero
                 worldHeroGame.translate(+0.3f, -0.7f, -0.5f);		        // normal matrix if hero is on right lane
                 worldHeroGame.rotateY(180);					                // position the object
                 worldHeroGame.scale(0.27f, 0.37f, 0.3f);			        // resize object
-                renderer.drawMesh(meshHero, matHero, worldHeroGame);	    // draw hero on the right lane
+                renderQueue.submit(meshHero, matHero, worldHeroGame, cameraInGame, RenderQueue.LAYER_SCENE);	    // draw hero on the right lane
                 transitionToRight = false;
+                traceLaneChange();
                 isOnRightLane = true;
            }
            else                                                             // hero is already on left lane
@@ -291,11 +321,27 @@ public class Hero
                 worldHeroGame.translate(-0.3f, -0.7f, -0.5f);		        // normal matrix because hero is on left lane
                 worldHeroGame.rotateY(180);					                // position the object
                 worldHeroGame.scale(0.27f, 0.37f, 0.3f);			        // resize object
-                renderer.drawMesh(meshHero, matHero, worldHeroGame);        // draw hero on the left lane
+                renderQueue.submit(meshHero, matHero, worldHeroGame, cameraInGame, RenderQueue.LAYER_SCENE);        // draw hero on the left lane
            }
         }
     }
 
+    /**
+     * @param latencyTracker the tracker which is told when a lane change is drawn, null for none
+     */
+    public void setLatencyTracker(InputLatencyTracker latencyTracker)
+    {
+        this.latencyTracker = latencyTracker;
+    }
+
+    private void traceLaneChange()
+    {
+        if (latencyTracker != null)
+        {
+            latencyTracker.drawn();
+        }
+    }
+
     /**
      * @return the position of the hero on lane. TRUE if hero is on the right lane,
      * otherwise FALSE.
@@ -13,71 +13,39 @@
  * limitations under the License. */
 package de.hdm.mib.dg041.game;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumSet;
 
 import android.content.Context;
 import android.util.Log;
 import de.hdm.mib.dg041.graphics.GraphicDevice;
 import de.hdm.mib.dg041.graphics.Renderer;
 import de.hdm.mib.dg041.input.InputEvent;
+import de.hdm.mib.dg041.input.InputEventConsumer;
+import de.hdm.mib.dg041.input.InputEvent.InputDevice;
 import de.hdm.mib.dg041.input.InputSystem;
 
 /**
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
  * Created on 23.02.2012.
  */
-public class InGameScreen extends GameScreen
+public class InGameScreen extends GameScreen implements InputEventConsumer
 {
     // --------------------------------------------------------
-    // INNERCLASS TIMER THREAD
+    // PROPERTIES
     // --------------------------------------------------------
 
-    /**
-     * This class defines a timer thread. This timer instance will be used to collect time information
-     * during the game like elapsed milliseconds, etc.
-     *
-     * @author dennis.grewe [dg041@hdm-stuttgart.de]
-     * Created on 23.02.2012.
-     */
-    private final class TimerThread extends TimerTask
-    {
-        public void run()
-        {
-            synchronized (monitorObject)
-            {
-                if (milliSec < 4000)
-                {
-                    // draw start text on HUD in the first four seconds
-                    hud.setStartText(milliSec);
-                    milliSec += 1000 ;
-                }
+    private static String TAG = InGameScreen.class.getName();
 
-                if (milliSec >= 4000)
-                {
-                    // start the game fter the first four seconds
-                    gameStarted = true;
-                    try
-                    {
-                        // increase elapsed second counter after each second
-                        milliSec += 1000;
-                        hud.setTimerTime(milliSec-4000);	// set elapsed time to the hud
-                    }
-                    catch (Exception e)
-                    {
-                        e.printStackTrace();
-                        Log.e(TAG, "Cannot write Time to HUD, because HUD == NULL!");
-                    }
-                }
-            }
-        }
-    }
+    /** length of the countdown "Ready? Set GO!!" before the round starts, in milliseconds **/
+    public static final int COUNTDOWN_MILLIS = 4000;
 
-    // --------------------------------------------------------
-    // PROPERTIES
-    // --------------------------------------------------------
+    /** asset with the keyframes of the difficulty, see DifficultyCurve **/
+    private static final String DIFFICULTY_CURVE = "difficulty.txt";
 
-    private static String TAG = InGameScreen.class.getName();
+    /** the hero is steered with the gravity sensor **/
+    private static final EnumSet<InputDevice> SENSORS = EnumSet.of(InputDevice.GRAVITY);
 
     /**
      * This flag indicates if the game can be started. Other components like the world
@@ -87,11 +55,15 @@ public class InGameScreen extends GameScreen
 
     private boolean isMediaPlayerStarted = false;
     
-    /** timer thread components **/
-    private final Object monitorObject = new Object();
-    private TimerThread timerThread;
-    private Timer timer;
-    private int milliSec = 0;
+    /** time of the round including the countdown, advanced once per tick **/
+    private GameClock clock = new GameClock();
+    /** time from a tilt until the hero is drawn on the new lane **/
+    private InputLatencyTracker latencyTracker = new InputLatencyTracker();
+    /** speed and spawn density of the obstacles over the game time **/
+    private DifficultyCurve difficultyCurve = DifficultyCurve.createDefault();
+    /** current speed of the world in units per second and the distance of the round in units **/
+    private float speed;
+    private float distance;
     
     /** references to game objects **/
     private World world;
@@ -133,7 +105,6 @@ public class InGameScreen extends GameScreen
         this.renderer = renderer;
         this.screenHeight = screenHeight;
         this.screenWidth = screenWidth;
-        this.timer = new Timer();			// init new timer object to schedule timer thread
     }
 
     // --------------------------------------------------------
@@ -148,8 +119,9 @@ public class InGameScreen extends GameScreen
     {
         // init all game componenst and pass the graphic device
         world = new World(context, graphicDevice, renderer);
-        hud = new HUD(context, graphicDevice, renderer);
+        hud = new HUD(context, graphicDevice, renderer, clock);
         hero = Hero.getInstance();
+        hero.setLatencyTracker(latencyTracker);
         obstacle = new Obstacle(context, graphicDevice, renderer);
 
         // call init method of each game component to init their required components
@@ -168,6 +140,18 @@ public class InGameScreen extends GameScreen
 		world.loadContent();
 		hud.loadContent();
 		obstacle.loadContent();
+
+	    // the default curve is kept if the asset is missing or invalid
+		try
+		{
+		    difficultyCurve = loadDifficultyCurve();
+		}
+		catch (IOException e)
+		{
+		    e.printStackTrace();
+		    Log.e(TAG, "ERROR - could not load " + DIFFICULTY_CURVE + ", using the default curve: " + e.getMessage());
+		}
+		applyDifficulty(0.0f);
     }
 
     /**
@@ -177,35 +161,9 @@ public class InGameScreen extends GameScreen
     public void update(float deltaSeconds, InputSystem inputSystem)
     {
 	    // process input events and delegate the game information to the correct component
-	    InputEvent inputEvent = inputSystem.peekEvent();
-	
-        while (inputEvent != null)
-        {
-            switch (inputEvent.getDevice())
-            {
-                // check for touch event
-                case TOUCHSCREEN:
-                    switch(inputEvent.getAction())
-                    {
-                        case DOWN:
-                        // call handle input method of hud class
-                        hud.handleInputEvent(inputEvent, screenWidth, screenHeight);
-                        break;
-                    }
-                    break;
+	    inputSystem.drain(this);
 
-                // check for gravity event
-                case GRAVITY:
-                    // call handle input method of hero class
-                    hero.handleInputEvent(inputEvent);
-                    break;
-            }
-
-            inputSystem.popEvent();                 // clear event queue of the input system for processed event
-            inputEvent = inputSystem.peekEvent();
-        }
-
-        // check if game state == started --> start timer task and pass time to hud
+        // check if game state == ready --> start a new round with the countdown
         if (!gameStarted && !HUD.getAccidentHappened())
         {
             if(!isMediaPlayerStarted)
@@ -215,52 +173,47 @@ public class InGameScreen extends GameScreen
                 isMediaPlayerStarted = true;
             }
 
-            try
-            {
-                if (timer == null)
-                {
-                    timer = new Timer();
-                }
-                if(timerThread == null)
-                {
-                    // start time thread and schedule it each 1000 ms
-                    synchronized (monitorObject) {
-                    timerThread = new TimerThread();
-                    timer.schedule(timerThread, 1000, 1000);
-                    }
-                }
-            }
-            catch (Exception e)
+            if (!clock.isRunning())
             {
-                e.printStackTrace();
-                Log.e(TAG, "Problem to start Timer AND/OR TimerThread!");
+                clock.reset();
+                clock.resume();
+                distance = 0.0f;
             }
         }
+
+        // the clock is advanced by the ticks of the main loop, the HUD reads the same time
+        clock.advance(deltaSeconds);
+
+        // start the game after the countdown
+        if (!gameStarted && !HUD.getAccidentHappened() && clock.getMillis() >= COUNTDOWN_MILLIS)
+        {
+            gameStarted = true;
+        }
 	
         // check if collision happened
         if (gameStarted && checkCollision())
         {
-            try
-            {
-                stopTimerTask();				    // stop timer thread
-                gameStarted = false;			    // set INGAMESTATE == false
-                isMediaPlayerStarted = false;
-                HUD.setAccidentHappend(true);		// call hud that collision was happened
-                milliSec = 0;				        // set timer milliSec == 0
-                world.setWorldSpeed(0.05f);			// reset world speed to default value
-                obstacle.setObstacleSpeed(0.05f);	// reset obstacle speed to default value
-                Log.d(TAG, "Collision detected!");
-            }
-            catch (Exception e)
-            {
-                e.printStackTrace();
-                Log.e(TAG, "Problem to stop TimerTask!");
-            }
+            clock.pause();				        // stop the clock, the crash HUD shows the time of the round
+            gameStarted = false;			    // set INGAMESTATE == false
+            isMediaPlayerStarted = false;
+            HUD.setAccidentHappend(true);		// call hud that collision was happened
+
+            // the round is ranked once, the leaderboard is saved in the background
+            Ranking ranking = Ranking.getInstance();
+            ranking.pushRanking(getGameTime(), distance);
+            hud.setBestTime(ranking.getBestTime());
+
+            applyDifficulty(0.0f);			    // reset world and obstacle speed to the start of the curve
+            Log.d(TAG, "Collision detected!");
         }
 	
 	
-	// check level of difficulty
-		levelOfDifficulty();
+	// follow the difficulty curve with the time of the round
+		if (gameStarted)
+		{
+		    applyDifficulty(getGameTime() / 1000.0f);
+		    distance += speed * deltaSeconds;
+		}
 		
 	
 	// call update methods of the game components
@@ -274,13 +227,50 @@ public class InGameScreen extends GameScreen
      * {@inheritDoc}
      */
     @Override
-    public void draw(float deltaSeconds)
+    public EnumSet<InputDevice> getSensors()
+    {
+        return SENSORS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onInputEvent(InputEvent inputEvent)
+    {
+        switch (inputEvent.getDevice())
+        {
+            // check for touch event
+            case TOUCHSCREEN:
+                switch(inputEvent.getAction())
+                {
+                    case DOWN:
+                    // call handle input method of hud class
+                    hud.handleInputEvent(inputEvent, screenWidth, screenHeight);
+                    break;
+                }
+                break;
+
+            // check for lane changes, the gravity events are filtered by the input system
+            case LANE:
+                latencyTracker.dequeued(inputEvent);
+                // call handle input method of hero class
+                hero.handleInputEvent(inputEvent);
+                break;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void draw(float interpolation)
     {
 	    // call draw method of the game components
-		world.draw(deltaSeconds);
-		hud.draw(deltaSeconds);
-		obstacle.draw(deltaSeconds);
-		hero.draw(deltaSeconds);
+		world.draw(interpolation);
+		hud.draw(interpolation);
+		obstacle.draw(interpolation);
+		hero.draw(interpolation);
     }
     
     /** Methode ueberprueft ob eine Kollision zwischen dem Fahrzeug 
@@ -291,7 +281,7 @@ public class InGameScreen extends GameScreen
         /* collision happens if the hero is on the same lane like the enemy and the bounding boxes of
          * the components are overlapped */
         if (hero.positionHeroIsRight() == obstacle.positionObstacleIsRight() &&
-            obstacle.getZValue() == 18.0f)
+            obstacle.hasReachedHero())
         {
             // collision detected - play crash sound - reset the hero position to pole position
             obstacle.resetZValue();
@@ -308,80 +298,40 @@ public class InGameScreen extends GameScreen
     }
     
 
-    /**
-     * This method increases the difficulty level depending on the elapsed time.
-     * This is evidenced by the faster moving of game objects in the game. The level
-     * of increasing is kind of log(x)
-     */
-    private void levelOfDifficulty() {
-	
-        switch (milliSec)
+    private DifficultyCurve loadDifficultyCurve() throws IOException
+    {
+        InputStream stream = context.getAssets().open(DIFFICULTY_CURVE);
+        try
         {
-            // 00:30 m have passed
-            case 35000:
-                world.setWorldSpeed(0.1f);		    // double speed
-                obstacle.setObstacleSpeed(0.1f);	// double speed
-                break;
-             // 01:00 m have passed
-            case 65000:
-                world.setWorldSpeed(0.20f);		    // double speed again
-                obstacle.setObstacleSpeed(0.20f);	// double speed again
-                break;
-            // 01:30  m have passed
-            case 95000:
-                world.setWorldSpeed(0.25f);		    // increase speed of 0.05f
-                obstacle.setObstacleSpeed(0.25f);	// increase speed of 0.05f
-                break;
-             // 02:00 m have passed
-            case 125000:
-                world.setWorldSpeed(0.35f);		    // increase speed of 0.1f
-                obstacle.setObstacleSpeed(0.35f);	// increase speed of 0.1f
-                break;
-             // 02:30 m have passed
-            case 155000:
-                world.setWorldSpeed(0.40f);		    // increase speed of 0.05f
-                obstacle.setObstacleSpeed(0.40f);	// increase speed of 0.05f
-                break;
-             // 03:00 m have passed
-            case 185000:
-                world.setWorldSpeed(0.55f);		    // increase speed of 0.15f
-                obstacle.setObstacleSpeed(0.55f);	// increase speed of 0.15f
-                break;
-             // 03:30 m have passed
-            case 215000:
-                world.setWorldSpeed(0.65f);		    // increase speed of 0.1f
-                obstacle.setObstacleSpeed(0.65f);	// increase speed of 0.1f
-                break;
-             // 04:00 m have passed
-            case 245000:
-                world.setWorldSpeed(0.75f);		    // increase speed of 0.1f
-                obstacle.setObstacleSpeed(0.75f);	// increase speed of 0.1f
-                break;
-            // 04:30 m have passed
-            case 275000:
-                world.setWorldSpeed(0.90f);		    // increase speed of 0.1f
-                obstacle.setObstacleSpeed(0.90f);	// increase speed of 0.1f
-                break;
-            default:
-                break;
+            return DifficultyCurve.load(stream);
+        }
+        finally
+        {
+            stream.close();
         }
     }
 
     /**
-     * This method stops the timer task if it was started and reset the references back to null values.
+     * This method sets the speed of the world and the obstacle and the spawn density of the
+     * obstacles to the values of the difficulty curve. It is called every tick and does not
+     * allocate.
+     *
+     * @param seconds the elapsed time of the round after the countdown in seconds
      */
-    private synchronized void stopTimerTask()
+    private void applyDifficulty(float seconds)
     {
-        if (timerThread != null)
-        {
-            timerThread.cancel();
-            timerThread = null;
-        }
-        if (timer != null)
-        {
-            timer.cancel();
-            timer = null;
-        }
+        speed = difficultyCurve.getSpeed(seconds);
+        world.setWorldSpeed(speed);
+        obstacle.setObstacleSpeed(speed);
+        obstacle.setSpawnDensity(difficultyCurve.getSpawnDensity(seconds));
+    }
+
+    /**
+     * @return the elapsed time of the round after the countdown in milliseconds
+     */
+    public int getGameTime()
+    {
+        return Math.max(0, clock.getMillis() - COUNTDOWN_MILLIS);
     }
 
     /**
@@ -0,0 +1,148 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.game;
+
+import java.util.Arrays;
+
+import android.util.Log;
+import de.hdm.mib.dg041.input.InputEvent;
+
+/**
+ * This class measures how long a lane change takes from the input until the hero is drawn on the
+ * new lane. Every traced event passes three points:
+ *
+ *   received  - the InputSystem got the event from android, see InputEvent.getReceiveTime
+ *   dequeued  - the game took the event out of the queue in InGameScreen.update
+ *   drawn     - the hero was submitted on the new lane in Hero.transition
+ *
+ * The latencies of the last WINDOW lane changes are kept, every REPORT_INTERVAL lane changes the
+ * percentiles are written to the log. The time until the frame is shown on the display is not
+ * included, it adds about one frame.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class InputLatencyTracker
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static String TAG = InputLatencyTracker.class.getName();
+
+    /** number of lane changes of which the latencies are kept **/
+    private static final int WINDOW = 64;
+    /** number of lane changes between two log messages **/
+    private static final int REPORT_INTERVAL = 16;
+
+    /** times of the event which waits to be drawn, 0 if there is none **/
+    private long pendingReceived;
+    private long pendingDequeued;
+
+    /** latencies in nanoseconds: received to dequeued and received to drawn **/
+    private long[] queueLatencies = new long[WINDOW];
+    private long[] totalLatencies = new long[WINDOW];
+    private long[] sorted = new long[WINDOW];
+    private int numSamples;
+    private int nextSample;
+    private int samplesSinceReport;
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method has to be called when the game takes an event out of the queue which may change
+     * the drawn frame. A previous event which did not change the frame is forgotten.
+     *
+     * @param inputEvent the dequeued event
+     */
+    public void dequeued(InputEvent inputEvent)
+    {
+        pendingReceived = inputEvent.getReceiveTime();
+        pendingDequeued = System.nanoTime();
+    }
+
+    /**
+     * This method has to be called when the reaction on the last dequeued event is submitted for
+     * drawing the first time.
+     */
+    public void drawn()
+    {
+        if (pendingReceived == 0)
+        {
+            return;
+        }
+
+        long now = System.nanoTime();
+        queueLatencies[nextSample] = pendingDequeued - pendingReceived;
+        totalLatencies[nextSample] = now - pendingReceived;
+        nextSample = (nextSample + 1) % WINDOW;
+        numSamples = Math.min(numSamples + 1, WINDOW);
+        pendingReceived = 0;
+
+        samplesSinceReport++;
+        if (samplesSinceReport >= REPORT_INTERVAL)
+        {
+            samplesSinceReport = 0;
+            Log.i(TAG, "Input latency of the last " + numSamples + " lane changes: total p50 " +
+                    toMillis(getPercentile(totalLatencies, 0.5f)) + " ms, p90 " +
+                    toMillis(getPercentile(totalLatencies, 0.9f)) + " ms, p99 " +
+                    toMillis(getPercentile(totalLatencies, 0.99f)) + " ms, in the queue p50 " +
+                    toMillis(getPercentile(queueLatencies, 0.5f)) + " ms, p90 " +
+                    toMillis(getPercentile(queueLatencies, 0.9f)) + " ms.");
+        }
+    }
+
+    /**
+     * @param fraction the share of lane changes which are faster, e.g. 0.9
+     * @return the latency from receiving the event until drawing in nanoseconds, 0 without samples
+     */
+    public long getTotalLatency(float fraction)
+    {
+        return getPercentile(totalLatencies, fraction);
+    }
+
+    /**
+     * @param fraction the share of lane changes which are faster, e.g. 0.9
+     * @return the latency from receiving the event until dequeuing in nanoseconds, 0 without samples
+     */
+    public long getQueueLatency(float fraction)
+    {
+        return getPercentile(queueLatencies, fraction);
+    }
+
+    public int getNumSamples()
+    {
+        return numSamples;
+    }
+
+    private long getPercentile(long[] latencies, float fraction)
+    {
+        if (numSamples == 0)
+        {
+            return 0;
+        }
+
+        System.arraycopy(latencies, 0, sorted, 0, numSamples);
+        Arrays.sort(sorted, 0, numSamples);
+        int index = Math.min(numSamples - 1, (int) (fraction * numSamples));
+        return sorted[index];
+    }
+
+    private static float toMillis(long nanos)
+    {
+        return Math.round(nanos / 10000.0f) / 100.0f;
+    }
+}
@@ -0,0 +1,257 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.game;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.InvalidParameterException;
+
+/**
+ * This class holds the best times of the game in descending order. Besides the time every entry
+ * stores the date of the round and the distance the hero drove. A new time is sorted in with a
+ * binary search, entries which fall out of the list are dropped.
+ *
+ * The entries are kept in arrays of primitives, so adding a time does not allocate. Every change
+ * increases the modification count, which tells the owner whether the leaderboard has to be saved
+ * or displayed again.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class Leaderboard
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    /** first bytes of a saved leaderboard: "RANK" **/
+    private static final int MAGIC = 0x52414e4b;
+    private static final int VERSION = 1;
+    /** size of an entry in a saved leaderboard: time, date and distance **/
+    private static final int ENTRY_SIZE = 4 + 8 + 4;
+
+    private int[] times;
+    private long[] dates;
+    private float[] distances;
+    private int size;
+    private int modCount;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param capacity the maximum number of entries
+     */
+    public Leaderboard(int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new InvalidParameterException("The capacity of the leaderboard has to be positive!");
+        }
+
+        times = new int[capacity];
+        dates = new long[capacity];
+        distances = new float[capacity];
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public int getCapacity()
+    {
+        return times.length;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return the number of changes since the leaderboard was created
+     */
+    public int getModCount()
+    {
+        return modCount;
+    }
+
+    /**
+     * This method sorts a new time into the leaderboard. A time which equals an existing entry is
+     * placed behind it, the older round keeps its rank.
+     *
+     * @param time the time of the round in milliseconds
+     * @param date the date of the round in milliseconds since 1970
+     * @param distance the distance the hero drove in units
+     * @return the rank of the new entry starting with 0, -1 if the time is not good enough
+     */
+    public int insert(int time, long date, float distance)
+    {
+        // binary search for the first entry which is slower than the new time
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (times[middle] >= time)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        int rank = low;
+        if (rank >= times.length)
+        {
+            return -1;
+        }
+
+        // move the slower entries one rank down, the last one falls out if the list is full
+        int moved = Math.min(size, times.length - 1) - rank;
+        if (moved > 0)
+        {
+            System.arraycopy(times, rank, times, rank + 1, moved);
+            System.arraycopy(dates, rank, dates, rank + 1, moved);
+            System.arraycopy(distances, rank, distances, rank + 1, moved);
+        }
+
+        times[rank] = time;
+        dates[rank] = date;
+        distances[rank] = distance;
+        size = Math.min(size + 1, times.length);
+        modCount++;
+        return rank;
+    }
+
+    /**
+     * @param rank the rank starting with 0
+     * @return the time of the entry in milliseconds
+     */
+    public int getTime(int rank)
+    {
+        checkRank(rank);
+        return times[rank];
+    }
+
+    /**
+     * @param rank the rank starting with 0
+     * @return the date of the entry in milliseconds since 1970
+     */
+    public long getDate(int rank)
+    {
+        checkRank(rank);
+        return dates[rank];
+    }
+
+    /**
+     * @param rank the rank starting with 0
+     * @return the distance the hero drove in units
+     */
+    public float getDistance(int rank)
+    {
+        checkRank(rank);
+        return distances[rank];
+    }
+
+    /**
+     * @return the best time in milliseconds, 0 if the leaderboard is empty
+     */
+    public int getBestTime()
+    {
+        return (size > 0) ? times[0] : 0;
+    }
+
+    public void clear()
+    {
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * This method writes the leaderboard in a compact binary format: a header with magic, version
+     * and number of entries followed by time, date and distance of every entry.
+     *
+     * @param stream the target stream
+     */
+    public void write(DataOutputStream stream) throws IOException
+    {
+        stream.writeInt(MAGIC);
+        stream.writeInt(VERSION);
+        stream.writeInt(size);
+        for (int i = 0; i < size; ++i)
+        {
+            stream.writeInt(times[i]);
+            stream.writeLong(dates[i]);
+            stream.writeFloat(distances[i]);
+        }
+    }
+
+    /**
+     * @return the number of bytes which write produces
+     */
+    public int getWriteSize()
+    {
+        return 3 * 4 + size * ENTRY_SIZE;
+    }
+
+    /**
+     * This method replaces the entries with the entries of a stream written by write. Entries which
+     * do not fit into the capacity are dropped.
+     *
+     * @param stream the source stream
+     * @throws IOException if the stream is no saved leaderboard
+     */
+    public void read(DataInputStream stream) throws IOException
+    {
+        if (stream.readInt() != MAGIC)
+        {
+            throw new IOException("The stream contains no leaderboard!");
+        }
+
+        int version = stream.readInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported leaderboard version " + version + "!");
+        }
+
+        int count = stream.readInt();
+        if (count < 0)
+        {
+            throw new IOException("Invalid number of leaderboard entries!");
+        }
+
+        size = 0;
+        for (int i = 0; i < count; ++i)
+        {
+            int time = stream.readInt();
+            long date = stream.readLong();
+            float distance = stream.readFloat();
+            insert(time, date, distance);
+        }
+        modCount++;
+    }
+
+    private void checkRank(int rank)
+    {
+        if (rank < 0 || rank >= size)
+        {
+            throw new InvalidParameterException("There is no entry with rank " + rank + "!");
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.game;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import android.util.Log;
+
+/**
+ * This class saves a Leaderboard to a file without blocking the calling thread. The leaderboard
+ * is copied into a byte array by the caller, the file is written by a background thread.
+ *
+ * The file is replaced atomically: the data is written to a temporary file next to it, flushed to
+ * the storage and renamed to the name of the file. If the app is killed while writing, the old
+ * file stays intact.
+ *
+ * Saves which are requested while a write is running are coalesced, only the latest state is
+ * written. A save is skipped if the leaderboard did not change since the last save.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class LeaderboardStore
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static String TAG = LeaderboardStore.class.getName();
+
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private File file;
+    private ExecutorService executor;
+
+    /** the latest data which is not written yet, null if there is none **/
+    private AtomicReference<byte[]> pendingData = new AtomicReference<byte[]>();
+    private AtomicBoolean writeScheduled = new AtomicBoolean(false);
+    /** modification count of the leaderboard at the last save **/
+    private int savedModCount;
+
+    private Runnable writeTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            // a save after this point schedules a new write
+            writeScheduled.set(false);
+
+            byte[] data = pendingData.getAndSet(null);
+            if (data != null)
+            {
+                writeFile(data);
+            }
+        }
+    };
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param file the file of the leaderboard
+     */
+    public LeaderboardStore(File file)
+    {
+        this.file = file;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "LeaderboardStore");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * @return TRUE if the file of the leaderboard exists
+     */
+    public boolean exists()
+    {
+        return file.exists();
+    }
+
+    /**
+     * This method reads the leaderboard from the file. It blocks, so it should be called while the
+     * content is loaded.
+     *
+     * @param leaderboard the leaderboard which receives the entries
+     */
+    public void load(Leaderboard leaderboard) throws IOException
+    {
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            leaderboard.read(stream);
+        }
+        finally
+        {
+            stream.close();
+        }
+        savedModCount = leaderboard.getModCount();
+    }
+
+    /**
+     * This method saves the leaderboard in the background if it changed since the last save.
+     *
+     * @param leaderboard the leaderboard, it may be changed again right after the call
+     */
+    public void save(Leaderboard leaderboard)
+    {
+        if (leaderboard.getModCount() == savedModCount)
+        {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(leaderboard.getWriteSize());
+        try
+        {
+            DataOutputStream stream = new DataOutputStream(bytes);
+            leaderboard.write(stream);
+            stream.flush();
+        }
+        catch (IOException e)
+        {
+            // not possible with a byte array
+            Log.e(TAG, "ERROR - could not serialize the leaderboard: " + e.getMessage());
+            return;
+        }
+
+        savedModCount = leaderboard.getModCount();
+        pendingData.set(bytes.toByteArray());
+        if (writeScheduled.compareAndSet(false, true))
+        {
+            executor.execute(writeTask);
+        }
+    }
+
+    private void writeFile(byte[] data)
+    {
+        File temporary = new File(file.getPath() + TEMPORARY_EXTENSION);
+        try
+        {
+            FileOutputStream stream = new FileOutputStream(temporary);
+            try
+            {
+                stream.write(data);
+                stream.flush();
+                stream.getFD().sync();
+            }
+            finally
+            {
+                stream.close();
+            }
+
+            if (!temporary.renameTo(file))
+            {
+                throw new IOException("Could not rename " + temporary + " to " + file + "!");
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            Log.e(TAG, "ERROR - could not save the leaderboard: " + e.getMessage());
+            temporary.delete();
+        }
+    }
+}
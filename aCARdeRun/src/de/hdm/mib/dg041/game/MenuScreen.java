@@ -21,10 +21,12 @@ import de.hdm.mib.dg041.collision.Point;
 import de.hdm.mib.dg041.game.aCARdeRunGame.GameState;
 import de.hdm.mib.dg041.graphics.Camera;
 import de.hdm.mib.dg041.graphics.GraphicDevice;
+import de.hdm.mib.dg041.graphics.RenderQueue;
 import de.hdm.mib.dg041.graphics.Renderer;
 import de.hdm.mib.dg041.graphics.SpriteFont;
 import de.hdm.mib.dg041.graphics.TextBuffer;
 import de.hdm.mib.dg041.input.InputEvent;
+import de.hdm.mib.dg041.input.InputEventConsumer;
 import de.hdm.mib.dg041.input.InputSystem;
 import de.hdm.mib.dg041.math.Matrix4x4;
 import de.hdm.mib.dg041.math.Vector3;
@@ -39,7 +41,7 @@ import de.hdm.mib.dg041.math.Vector3;
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
  * Created on 23.02.2012.
  */
-public class MenuScreen extends GameScreen
+public class MenuScreen extends GameScreen implements InputEventConsumer
 {
     // --------------------------------------------------------
     // PROPERTIES
@@ -79,6 +81,10 @@ public class MenuScreen extends GameScreen
     
     /** collision detection components **/
     private AxisAlignedBoundingBox[] aabbMainMenu, aabbCreditsMenu, aabbHighscoreMenu;
+    /** reused for every touch event **/
+    private Vector3 screenTouchPosition = new Vector3();
+    private Vector3 worldTouchPosition = new Vector3();
+    private Point touchPoint = new Point();
    
     /** defualt menu mode **/
     private MenuMode mode = MenuMode.MAINMENU;
@@ -273,62 +279,98 @@ public class MenuScreen extends GameScreen
     @Override
     public void update(float deltaSeconds, InputSystem inputSystem)
     {
-	
-	    InputEvent inputEvent = inputSystem.peekEvent();				// define new peek event from the input system
+	    inputSystem.drain(this);				// process the input events of the last tick, see onInputEvent
 
-        /**
-         * check for new input events using an infinite while loop
-         */
-        while(inputEvent != null)
-        {
+        // call update method of the hero
+        hero.update(deltaSeconds);
+    }
 
-            switch(inputEvent.getDevice())
-            {
-                case TOUCHSCREEN:
-                    switch(inputEvent.getAction()) {
-                        case DOWN:
-                            Vector3 screenTouchPosition = new Vector3(
-                                (inputEvent.getValues()[0] / (screenWidth / 2) -1),
-                                -(inputEvent.getValues()[1] / (screenHeight / 2) - 1), 0);
-
-                            Vector3 worldTouchPosition = camera.unproject(screenTouchPosition, 1);
-
-                            Point touchPoint = new Point(worldTouchPosition.getX(), worldTouchPosition.getY());
-
-                            switch (mode)
-                            {
-                                case MAINMENU:
-                                 for (int i = 0; i < aabbMainMenu.length; i++)
-                                 {
-                                    if(touchPoint.intersects(aabbMainMenu[0]))
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onInputEvent(InputEvent inputEvent)
+    {
+        switch(inputEvent.getDevice())
+        {
+            case TOUCHSCREEN:
+                switch(inputEvent.getAction()) {
+                    case DOWN:
+                        screenTouchPosition.set(
+                            (inputEvent.getValues()[0] / (screenWidth / 2) -1),
+                            -(inputEvent.getValues()[1] / (screenHeight / 2) - 1), 0);
+
+                        camera.unproject(screenTouchPosition, 1, worldTouchPosition);
+
+                        touchPoint.setPosition(worldTouchPosition.getX(), worldTouchPosition.getY());
+
+                        switch (mode)
+                        {
+                            case MAINMENU:
+                             for (int i = 0; i < aabbMainMenu.length; i++)
+                             {
+                                if(touchPoint.intersects(aabbMainMenu[0]))
+                                {
+                                    // create a new game instance and register it to the renderer
+                                    if(aCARdeRunGame.getGameState() == GameState.MENU && !InGameScreen.IsGameStarted())
                                     {
-                                        // create a new game instance and register it to the renderer
-                                        if(aCARdeRunGame.getGameState() == GameState.MENU && !InGameScreen.IsGameStarted())
+                                        try
                                         {
-                                            try
-                                            {
-                                                aCARdeRunGame.setGameState(GameState.GAME);
-                                                Ranking.rankingPushed = false;
-                                            }
-                                            catch (Exception e)
-                                            {
-                                                Log.e(TAG, "Can�t set GAMESTATE to GAME and create new game!");
-                                            }
+                                            aCARdeRunGame.setGameState(GameState.GAME);
                                         }
-
-                                        // play click sound once
-                                        if(aCARdeRunGame.getSoundpool() != null)
+                                        catch (Exception e)
                                         {
-                                            aCARdeRunGame.getSoundpool().play(aCARdeRunGame.getClickSound(), 1, 1, 0, 0, 1);
+                                            Log.e(TAG, "Can�t set GAMESTATE to GAME and create new game!");
                                         }
+                                    }
 
-                                        // vibriate 20 ms
-                                        vibrator.vibrate(20);
+                                    // play click sound once
+                                    if(aCARdeRunGame.getSoundpool() != null)
+                                    {
+                                        aCARdeRunGame.getSoundpool().play(aCARdeRunGame.getClickSound(), 1, 1, 0, 0, 1);
                                     }
-                                    else if(touchPoint.intersects(aabbMainMenu[1]))
+
+                                    // vibriate 20 ms
+                                    vibrator.vibrate(20);
+                                }
+                                else if(touchPoint.intersects(aabbMainMenu[1]))
+                                {
+                                    // set menu mode to HIGHSCOREMENU
+                                    mode = MenuMode.RANKINGMENU;
+
+                                    // play click sound once
+                                    if(aCARdeRunGame.getSoundpool() != null)
                                     {
-                                        // set menu mode to HIGHSCOREMENU
-                                        mode = MenuMode.RANKINGMENU;
+                                        aCARdeRunGame.getSoundpool().play(aCARdeRunGame.getClickSound(), 1, 1, 0, 0, 1);
+                                    }
+
+                                    // vibrate 20 ms
+                                    vibrator.vibrate(20);
+                                }
+                                else if(touchPoint.intersects(aabbMainMenu[2]))
+                                {
+                                    // set menu mode to CREDITSMENU
+                                    mode = MenuMode.CREDITSMENU;
+
+                                    // play click sound
+                                    if(aCARdeRunGame.getSoundpool() != null)
+                                    {
+                                        aCARdeRunGame.getSoundpool().play(aCARdeRunGame.getClickSound(), 1, 1, 0, 0, 1);
+                                    }
+
+                                    // vibrate 20 ms
+                                    vibrator.vibrate(20);
+                                }
+                             }
+                            break;
+
+                            case CREDITSMENU:
+                                for (int i = 0; i < aabbCreditsMenu.length; i++)
+                                {
+                                    if(touchPoint.intersects(aabbCreditsMenu[4]))
+                                    {
+                                        // menu mode back to MAINMENU
+                                        mode = MenuMode.MAINMENU;
 
                                         // play click sound once
                                         if(aCARdeRunGame.getSoundpool() != null)
@@ -339,12 +381,18 @@ public class MenuScreen extends GameScreen
                                         // vibrate 20 ms
                                         vibrator.vibrate(20);
                                     }
-                                    else if(touchPoint.intersects(aabbMainMenu[2]))
+                                }
+                            break;
+
+                            case RANKINGMENU:
+                                for (int i = 0; i < aabbHighscoreMenu.length; i++)
+                                {
+                                    if(touchPoint.intersects(aabbHighscoreMenu[6]))
                                     {
-                                        // set menu mode to CREDITSMENU
-                                        mode = MenuMode.CREDITSMENU;
+                                        // reset menu mode to MAINMENU
+                                        mode = MenuMode.MAINMENU;
 
-                                        // play click sound
+                                        // play click sound once
                                         if(aCARdeRunGame.getSoundpool() != null)
                                         {
                                             aCARdeRunGame.getSoundpool().play(aCARdeRunGame.getClickSound(), 1, 1, 0, 0, 1);
@@ -353,100 +401,50 @@ public class MenuScreen extends GameScreen
                                         // vibrate 20 ms
                                         vibrator.vibrate(20);
                                     }
-                                 }
+                                }
                                 break;
-
-                                case CREDITSMENU:
-                                    for (int i = 0; i < aabbCreditsMenu.length; i++)
-                                    {
-                                        if(touchPoint.intersects(aabbCreditsMenu[4]))
-                                        {
-                                            // menu mode back to MAINMENU
-                                            mode = MenuMode.MAINMENU;
-
-                                            // play click sound once
-                                            if(aCARdeRunGame.getSoundpool() != null)
-                                            {
-                                                aCARdeRunGame.getSoundpool().play(aCARdeRunGame.getClickSound(), 1, 1, 0, 0, 1);
-                                            }
-
-                                            // vibrate 20 ms
-                                            vibrator.vibrate(20);
-                                        }
-                                    }
-                                break;
-
-                                case RANKINGMENU:
-                                    for (int i = 0; i < aabbHighscoreMenu.length; i++)
-                                    {
-                                        if(touchPoint.intersects(aabbHighscoreMenu[6]))
-                                        {
-                                            // reset menu mode to MAINMENU
-                                            mode = MenuMode.MAINMENU;
-
-                                            // play click sound once
-                                            if(aCARdeRunGame.getSoundpool() != null)
-                                            {
-                                                aCARdeRunGame.getSoundpool().play(aCARdeRunGame.getClickSound(), 1, 1, 0, 0, 1);
-                                            }
-
-                                            // vibrate 20 ms
-                                            vibrator.vibrate(20);
-                                        }
-                                    }
-                                    break;
-                            }
                         }
-                        break;
-            }
-	    
-            inputSystem.popEvent();
-            inputEvent = inputSystem.peekEvent();
-	    }
-	
-        // call update method of the hero
-        hero.update(deltaSeconds);
+                    }
+                    break;
+        }
     }
 
     @Override
-    public void draw(float deltaSeconds)
+    public void draw(float interpolation)
     {
         // clear display
         graphicDevice.clear(0.0f, 0.0f, 0.0f, 0.0f, 1.0f);
+        RenderQueue renderQueue = renderer.getRenderQueue();
 
 	    switch (mode)
         {
 	        case MAINMENU:									                // if mode == MAINMENU
-	            graphicDevice.setCamera(sceneCamera);
-	            hero.draw(deltaSeconds);
+	            hero.draw(interpolation);
 	    
-	            // draw text on the display
-		        graphicDevice.setCamera(camera);						    // set camera
-		        renderer.drawText(textTitle, matrixTitle);					// draw title of the game
+	            // submit text on the display
+		        renderQueue.submitText(textTitle, matrixTitle, camera, RenderQueue.LAYER_OVERLAY);					// draw title of the game
 		        for(int i = 0; i < textMainMenu.length; i++ )               // draw all MAINMENU components
                 {
-		            renderer.drawText(textMainMenu[i], matrixMainMenu[i]);
+		            renderQueue.submitText(textMainMenu[i], matrixMainMenu[i], camera, RenderQueue.LAYER_OVERLAY);
 		        }
 	            break;
 
 	        case CREDITSMENU:                                               // if mode == CREDITSMENU
-		        graphicDevice.setCamera(camera);
-		        renderer.drawText(textTitle, matrixTitle);
+		        renderQueue.submitText(textTitle, matrixTitle, camera, RenderQueue.LAYER_OVERLAY);
 	            for(int i = 0; i < textCreditsMenu.length; i++ )
                 {
-		            renderer.drawText(textCreditsMenu[i], matrixCreditsMenu[i]);
+		            renderQueue.submitText(textCreditsMenu[i], matrixCreditsMenu[i], camera, RenderQueue.LAYER_OVERLAY);
 	            }
 	            break;
 
             case RANKINGMENU:                                                // if mode == HIGHSCOREMENU
-		        graphicDevice.setCamera(camera);
-		        renderer.drawText(textTitle, matrixTitle);
+		        renderQueue.submitText(textTitle, matrixTitle, camera, RenderQueue.LAYER_OVERLAY);
 
 	            for (int i = 0; i < textHighscoreMenu.length; i++)
                 {
-		            renderer.drawText(textHighscoreMenu[i], matrixHighscoreMenu[i]);
+		            renderQueue.submitText(textHighscoreMenu[i], matrixHighscoreMenu[i], camera, RenderQueue.LAYER_OVERLAY);
 	            }
-	            Ranking.getInstance().draw(deltaSeconds);
+	            Ranking.getInstance().draw(interpolation, camera);
 	            break;
 	    }
     }
@@ -22,6 +22,7 @@ import de.hdm.mib.dg041.graphics.Camera;
 import de.hdm.mib.dg041.graphics.GraphicDevice;
 import de.hdm.mib.dg041.graphics.Material;
 import de.hdm.mib.dg041.graphics.Mesh;
+import de.hdm.mib.dg041.graphics.RenderQueue;
 import de.hdm.mib.dg041.graphics.Renderer;
 import de.hdm.mib.dg041.graphics.Texture;
 import de.hdm.mib.dg041.math.Matrix4x4;
@@ -42,6 +43,14 @@ public class Obstacle
 
     private static final String TAG = Obstacle.class.getName();
 
+    /** distance an obstacle moves from its start until it is reset behind the hero **/
+    public static final float TRACK_LENGTH = 20.0f;
+    /** an obstacle becomes visible at this position, the far plane of the camera is at 16 **/
+    public static final float VISIBLE_Z = 4.0f;
+    /** the obstacle hits the hero between these positions **/
+    public static final float HERO_FRONT_Z = 18.0f;
+    public static final float HERO_BACK_Z = 19.0f;
+
     private Camera camera;					    // Camera of the obstacle
     private Mesh meshBaleofStone;				// mesh of the obstacle
     private Texture texBaleofStraw; 		    // texture of the obstacle
@@ -50,8 +59,11 @@ public class Obstacle
     private Random random;					    // random generator for the position of the obstacle
     private int randomPosition;					// random position of the obstacle in the world
     private float zValue = 0f;					// current position of the obstacle in the world
-    private float speed = 0.05f;				// speed of the obstacle
+    private float previousZValue = 0f;			// position of the obstacle at the previous tick
+    private float speed = 3.0f;				    // speed of the obstacle in units per second
     private float position = 0f;
+    private float spawnDensity = 1.0f;			// share of the track which is covered by obstacles
+    private float spawnDelay = 0f;				// distance the world moves before the next obstacle starts
     private boolean isOnRightLane;				// position of the obstacle on which lane
 
     private Context context;
@@ -88,12 +100,15 @@ public class Obstacle
 		camera.setProjection(projection);
 		camera.setView(view);
 		
+	    // one random generator for all positions of the obstacle
+		random = new Random();
+
 	    // meterial of the obstacle
 		matBaleofStraw = new Material();
 			
 	    // create the world for the obstacle
 		worldBaleofStraw = new Matrix4x4();
-		loadWorld();
+		loadWorld(zValue);
     }
 
     /**
@@ -107,8 +122,7 @@ public class Obstacle
 	    // stream methes
         try
         {
-            stream = context.getAssets().open("box.obj");	// open BOX.OBJ
-            meshBaleofStone = Mesh.loadFromOBJ(stream);		// create MESH
+            meshBaleofStone = Mesh.load(context.getAssets(), "box.obj");	// load BOX.OBJ and create MESH
             stream = null;
         }
         catch (Exception e)
@@ -135,16 +149,24 @@ public class Obstacle
     /**
      * Update the position of the obstacle in the world in a certain period of time.
      *
-     * @param deltaSeconds
+     * @param deltaSeconds the length of a tick in seconds
      */
     public void update(float deltaSeconds)
     {
+        previousZValue = zValue;
+
         if(InGameScreen.IsGameStarted() && !HUD.getAccidentHappened())
         {
+            // wait for the gap in front of the next obstacle
+            if (spawnDelay > 0)
+            {
+                spawnDelay -= speed * deltaSeconds;
+                return;
+            }
+
             // position of the obstacle
             if (zValue == 0)                        // if speed == 0 --> obstacle is not visible
             {
-                random = new Random();			    // create new random value
                 randomPosition = random.nextInt(2);	// get next value between 0 and 1
 
                 if (randomPosition == 0)            // if value == 0 --> display obstacle on right lane
@@ -160,26 +182,41 @@ public class Obstacle
             }
 
                 // realize the movement of the obstacle
-                if(zValue <= 20.0f)
-                    zValue += speed;
+                if(zValue <= TRACK_LENGTH)
+                    zValue += speed * deltaSeconds;
                 else
+                {
                     zValue = 0f;
-
-                // reload world matrix
-                loadWorld();
+                    previousZValue = 0f;
+                    spawnDelay = getSpawnGap(spawnDensity);
+                }
         }
     }
 
     /**
      * This method redraws an obstacle in a certain period of time.
-     * @param deltaSeconds
+     * @param interpolation the elapsed part of the next tick between 0 and 1
      */
-    public void draw(float deltaSeconds)
+    public void draw(float interpolation)
     {
-	    // set scene camera
-		graphicDevice.setCamera(camera);
-	    // draw scene objects
-		renderer.drawMesh(meshBaleofStone, matBaleofStraw, worldBaleofStraw);
+        // no obstacle on the track while waiting for the next one
+        if (spawnDelay > 0)
+        {
+            return;
+        }
+
+        // move the obstacle between the positions of the last two ticks, a new obstacle starts at its position
+        if (zValue >= previousZValue)
+        {
+            loadWorld(previousZValue + (zValue - previousZValue) * interpolation);
+        }
+        else
+        {
+            loadWorld(zValue);
+        }
+
+	    // submit scene objects
+		renderer.getRenderQueue().submit(meshBaleofStone, matBaleofStraw, worldBaleofStraw, camera, RenderQueue.LAYER_SCENE);
     }
 
     /**
@@ -195,26 +232,57 @@ public class Obstacle
 	    return (int)zValue;
     }  
 
+    /**
+     * @return TRUE if the obstacle reached the position of the hero during the last tick. The
+     *         check does not depend on the distance the obstacle moves per tick.
+     */
+    public boolean hasReachedHero()
+    {
+        return previousZValue < HERO_BACK_Z && zValue >= HERO_FRONT_Z;
+    }
+
     public void resetZValue()
     {
 	    this.zValue = 0.0f;
+	    this.previousZValue = 0.0f;
+	    this.spawnDelay = 0.0f;
     }
 
     /**
-     * @param value sets the speed of the obstacle. defualt value: +0.1f
+     * @param value sets the speed of the obstacle in units per second. default value: 3
      */
     public void setObstacleSpeed(float value)
     {
 	    this.speed = value;
     }
 
+    /**
+     * @param density the share of the track which is covered by obstacles, greater than 0 and at
+     *        most 1. With 1 the next obstacle starts as soon as the last one passed the hero.
+     */
+    public void setSpawnDensity(float density)
+    {
+        this.spawnDensity = Math.min(1.0f, Math.max(0.01f, density));
+    }
+
+    /**
+     * @param density the spawn density, see setSpawnDensity
+     * @return the distance the world moves between two obstacles
+     */
+    public static float getSpawnGap(float density)
+    {
+        return TRACK_LENGTH * (1.0f / Math.min(1.0f, Math.max(0.01f, density)) - 1.0f);
+    }
+
     /**
      * The method loads all the required content for an obstacle in a world.
+     *
+     * @param z the position of the obstacle on the lane
      */
-    private void loadWorld()
+    private void loadWorld(float z)
     {
         worldBaleofStraw.setIdentity();
-        worldBaleofStraw.translate(position, 0, zValue-20);
+        worldBaleofStraw.translate(position, 0, z-20);
         worldBaleofStraw.scale(0.20f, 0.20f, 0.20f);
         worldBaleofStraw.rotateY(45);
     }
@@ -13,9 +13,15 @@
  * limitations under the License. */
 package de.hdm.mib.dg041.game;
 
+import java.io.File;
+import java.io.IOException;
+
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Log;
+import de.hdm.mib.dg041.graphics.Camera;
 import de.hdm.mib.dg041.graphics.GraphicDevice;
+import de.hdm.mib.dg041.graphics.RenderQueue;
 import de.hdm.mib.dg041.graphics.Renderer;
 import de.hdm.mib.dg041.graphics.SpriteFont;
 import de.hdm.mib.dg041.graphics.TextBuffer;
@@ -23,9 +29,10 @@ import de.hdm.mib.dg041.math.Matrix4x4;
 
 /**
  * This class implements the logic of a ranking screen. The Ranking object
- * contains an array which contains all entries displayed in the ranking
- * menu and the crash hud. Also, the ranking object persists the rankung
- * values to the device.
+ * contains a Leaderboard with all entries displayed in the ranking
+ * menu and the crash hud. Also, the ranking object persists the ranking
+ * values to the device with a LeaderboardStore, the file is written in the
+ * background whenever a new time entered the leaderboard.
  *
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
  * Created on 23.02.2012.
@@ -36,16 +43,25 @@ public class Ranking
     // PROPERTIES
     // --------------------------------------------------------
 
+    private static String TAG = Ranking.class.getName();
+
+    /** number of times in the leaderboard, the ranking menu shows all of them **/
+    public static final int CAPACITY = 5;
+
     /** components to persist the ranking values  **/
+    public static final String FILE_NAME = "ranking.bin";
+    /** the rankings of older versions were stored in these shared preferences **/
     public static final String PREF_NAME = "Rankinglist";
-    public static boolean rankingPushed = false;
+    private static final String[] PREF_KEYS = { "1st", "2nd", "3rd", "4th", "5th" };
     public static Ranking rankingInstance = null;
 
-    private SharedPreferences settings;
-    private SharedPreferences.Editor editor = null;
+    /** the leaderboard in memory is the source of truth, it is read from the file only once **/
+    private Leaderboard leaderboard = new Leaderboard(CAPACITY);
+    private LeaderboardStore store;
+    private boolean loaded;
 
     /** components to display the ranking values **/
-    private int[] ranking = new int[5];
+    private int displayedModCount = -1;
     private SpriteFont fontHighscore;
     private TextBuffer[] textRanking;
     private Matrix4x4[] matHighscore;
@@ -88,8 +104,13 @@ public class Ranking
         this.graphicDevice = graphicDevice;
         this.renderer = renderer;
 
-        settings = context.getSharedPreferences(PREF_NAME, 0);
-        editor = settings.edit();
+        // the singleton survives a new activity, a pending save must not be overwritten by the file
+        if (!loaded)
+        {
+            store = new LeaderboardStore(new File(context.getFilesDir(), FILE_NAME));
+            loadLeaderboard();
+            loaded = true;
+        }
 
         // position of the RANKING strings
         matHighscore = new Matrix4x4[] {
@@ -102,9 +123,9 @@ public class Ranking
     }
 
     /**
-     * The method loads the required content of a ranking object.
-     * This includes a read operation to get the persisted ranking values from
-     * device.
+     * The method loads the required content of a ranking object. It is called again
+     * after every loss of the openGL context, so it only creates the font and the text
+     * buffers, the leaderboard was loaded by initialize.
      */
     public void loadContent()
     {
@@ -120,174 +141,124 @@ public class Ranking
             graphicDevice.createTextBuffer(fontHighscore, 8),			// 5th. place
         };
 
-        // load the content of the ranking values from shared preferences
-        loadPreferences();
+        // the new text buffers are empty
+        displayedModCount = -1;
     }
 
-    public void draw(float deltaSeconds)
+    /**
+     * This method submits the ranking values to the render queue.
+     *
+     * @param interpolation the elapsed part of the next tick between 0 and 1
+     * @param camera the camera of the screen which shows the ranking
+     */
+    public void draw(float interpolation, Camera camera)
     {
-        // call content of the ranking again
-        for (int i = 0; i < textRanking.length; i++)
+        // the texts only change if the leaderboard changed
+        if (displayedModCount != leaderboard.getModCount())
         {
-            textRanking[i].setText(timeFormatter(ranking[i]));
+            updateTexts();
         }
 	
         // draw the ranking content on screen
         for (int i = 0; i < textRanking.length; i++)
         {
-            renderer.drawText(textRanking[i], matHighscore[i]);
+            renderer.getRenderQueue().submitText(textRanking[i], matHighscore[i], camera, RenderQueue.LAYER_OVERLAY);
         }
     }
 
-    // --------------------------------------------------------
-    // SHARED PREFERENCES METHODS
-    // --------------------------------------------------------
-
-    /**
-     * This method loads the persisted ranking values from the android
-     * shared preferences. If the method was called the first time
-     * default values will be persists to device.
-     */
-    private void loadPreferences()
+    private void updateTexts()
     {
-	
-        ranking[0] = settings.getInt("1st", 0);	// default value -> 357539 = 00:00
-        ranking[1] = settings.getInt("2nd", 0);	// ...
-        ranking[2] = settings.getInt("3rd", 0);	// ...
-        ranking[3] = settings.getInt("4th", 0);	// ...
-        ranking[4] = settings.getInt("5th", 0);	// ...
-
-        // set initial string
+        displayedModCount = leaderboard.getModCount();
         for (int i = 0; i < textRanking.length; i++)
         {
-            textRanking[i].setText(timeFormatter(ranking[i]));
+            textRanking[i].setTime((i < leaderboard.getSize()) ? leaderboard.getTime(i) : 0);
         }
     }
 
-    /**
-     * The method persists the ranking values to the device using android shared preferences.
-     */
-    private void savePreferences()
-    {
-        editor.putInt("1st", ranking[0]);
-        editor.putInt("2nd", ranking[1]);
-        editor.putInt("3rd", ranking[2]);
-        editor.putInt("4th", ranking[3]);
-        editor.putInt("5th", ranking[4]);
-        editor.commit();
-    }
+    // --------------------------------------------------------
+    // PERSISTENCE METHODS
+    // --------------------------------------------------------
 
     /**
-     * This method sorts a certain time value into the ranking array
-     * if the value is one of the best fife entries.
-     *
-     * @param time The time value to add to the ranking array.
+     * This method loads the persisted ranking values from the file. If there
+     * is no file yet, the values of older versions are taken from the android
+     * shared preferences.
      */
-    public void pushRanking(int time)
+    private void loadLeaderboard()
     {
-        if(!rankingPushed) {
-            if(time > ranking[0])
-            {
-                ranking[4] = ranking[3];
-                ranking[3] = ranking[2];
-                ranking[2] = ranking[1];
-                ranking[1] = ranking[0];
-                ranking[0] = time;
-                rankingPushed = true;
-            }
-            else if(time > ranking[1])
-            {
-                ranking[4] = ranking[3];
-                ranking[3] = ranking[2];
-                ranking[2] = ranking[1];
-                ranking[1] = time;
-                rankingPushed = true;
-            }
-            else if(time > ranking[2])
+        if (store.exists())
+        {
+            try
             {
-                ranking[4] = ranking[3];
-                ranking[3] = ranking[2];
-                ranking[2] = time;
-                rankingPushed = true;
+                store.load(leaderboard);
             }
-            else if(time > ranking[3])
+            catch (IOException e)
             {
-                ranking[4] = ranking[3];
-                ranking[3] = time;
-                rankingPushed = true;
+                e.printStackTrace();
+                Log.e(TAG, "ERROR - could not load the ranking, starting with an empty one: " + e.getMessage());
+                leaderboard.clear();
             }
-            else if(time > ranking[4])
+        }
+        else
+        {
+            SharedPreferences settings = context.getSharedPreferences(PREF_NAME, 0);
+            for (String key : PREF_KEYS)
             {
-                ranking[4] = time;
-                rankingPushed = true;
+                int time = settings.getInt(key, 0);
+                if (time > 0)
+                {
+                    leaderboard.insert(time, 0, 0.0f);
+                }
             }
+            store.save(leaderboard);
         }
     }
 
     /**
-     * @return the best time value
-     */
-    public int getBestTime()
-    {
-	    return ranking[0];
-    }
-
-    /**
-     * This method formats the given milliseconds into the MM:SS format and returns the
-     * result as String.
+     * This method sorts a time into the leaderboard if it is one of the best
+     * entries and saves the leaderboard in the background. It has to be called
+     * once per round.
      *
-     * @param milliSec
-     *          The milliseconds value to format into the pattern MM:SS
-     * @return A string of the formatted milliseconds
+     * @param time the time of the round in milliseconds
+     * @param distance the distance the hero drove in units
+     * @return the rank of the time starting with 0, -1 if it is not in the leaderboard
      */
-    public String timeFormatter(int milliSec)
+    public int pushRanking(int time, float distance)
     {
-        String time = "";
-
-        if (milliSec > 357539)
+        if (time <= 0)
         {
-            throw new RuntimeException("Time value exceeds allowed format!");
+            return -1;
         }
-        else if(milliSec == 0)
+
+        int rank = leaderboard.insert(time, System.currentTimeMillis(), distance);
+        if (rank >= 0)
         {
-            return "00:00";
+            store.save(leaderboard);
         }
-        else
-        {
-
-            int constant = milliSec;
-            constant = constant / 1000;
-            int min = (constant / 60);
-            int sec = constant - min * 60;
+        return rank;
+    }
 
-            if (min < 10 && sec < 10)
-            {
-                time = "0" + min + ":" + "0" + sec;
-            }
-            if (min > 10 && sec < 10)
-            {
-                time = "" + min + ":" + "0" + sec;
-            }
-            if (min < 10 && sec >= 10)
-            {
-                time = "0" + min + ":" + sec;
-            }
-            if (min > 10 && sec > 10)
-            {
-                time = "" + min + ":" + sec;
-            }
-        }
+    public Leaderboard getLeaderboard()
+    {
+        return leaderboard;
+    }
 
-	    return time;
+    /**
+     * @return the best time value
+     */
+    public int getBestTime()
+    {
+	    return leaderboard.getBestTime();
     }
 
     /**
      * This method will be called if the application will be stopped by
      * the android os or the user. In this case the method stores the current changes
-     * to the ranking values.
+     * to the ranking values, if they were not saved yet. The GL thread is paused at
+     * this point, so the leaderboard does not change while it is copied.
      */
     public void onStop()
     {
-	    this.savePreferences();
+	    store.save(leaderboard);
     }
 }
\ No newline at end of file
@@ -20,6 +20,8 @@ import de.hdm.mib.dg041.graphics.CompareFunction;
 import de.hdm.mib.dg041.graphics.GraphicDevice;
 import de.hdm.mib.dg041.graphics.Material;
 import de.hdm.mib.dg041.graphics.Mesh;
+import de.hdm.mib.dg041.graphics.MeshBatcher;
+import de.hdm.mib.dg041.graphics.RenderQueue;
 import de.hdm.mib.dg041.graphics.Renderer;
 import de.hdm.mib.dg041.graphics.Texture;
 import de.hdm.mib.dg041.math.Matrix4x4;
@@ -51,10 +53,24 @@ public class World
     private Matrix4x4 worldRoad, worldGroundLeft, worldGroundRight, worldSky, 
     			worldRaceClock, worldCrashHUD;
     private Matrix4x4[] worldTreesSmall, worldTreesBig;
+
+    /**
+     * the trees of a kind are combined into static chunks along the track which are moved by a
+     * single world matrix. Every chunk has its own bounds, so a chunk which passed the camera is
+     * culled.
+     */
+    private Mesh[] meshTreesSmallChunks, meshTreesBigChunks;
+    private Matrix4x4 worldTrees;
     
-    /** values to perform the movement of trees **/
-    private float speed = 0.05f;
+    /** the trees repeat after this distance **/
+    private static final float TREE_PERIOD = 6.0f;
+    /** number of chunks per kind of tree, each chunk covers TREE_PERIOD units of the track **/
+    private static final int TREE_CHUNKS = 3;
+
+    /** values to perform the movement of trees, the speed is in units per second **/
+    private float speed = 3.0f;
     private float position = 0f;
+    private float previousPosition = 0f;
 
     private Context context;
     private GraphicDevice graphicDevice;
@@ -137,24 +153,28 @@ public class World
         worldCrashHUD.translate(-0.45f, 0.6f, -0.5f);					            // translate matrix to the center of the screen
 	
         	
-        // create matrix for all tree objects and translate their position to the left and right of the road
+        // create matrix for all tree objects and translate their position to the left and right of the road.
+        // the matrices define the layout of the tree batches, the movement is applied by worldTrees.
         worldTreesSmall = new Matrix4x4[] {
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-4), Matrix4x4.createRotationY(45)),	// 2nd tree left
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-10), Matrix4x4.createRotationY(45)),	// 4th tree left
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-16), Matrix4x4.createRotationY(45)),	// 6th tree left
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-1), Matrix4x4.createRotationY(35)),	// 1st tree right
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-7), Matrix4x4.createRotationY(35)),	// 3rd tree right
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-13), Matrix4x4.createRotationY(35)),	// 5th tree right
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, -4), Matrix4x4.createRotationY(45)),	// 2nd tree left
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, -10), Matrix4x4.createRotationY(45)),	// 4th tree left
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, -16), Matrix4x4.createRotationY(45)),	// 6th tree left
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, -1), Matrix4x4.createRotationY(45)),	// 1st tree right
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, -7), Matrix4x4.createRotationY(45)),	// 3rd tree right
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, -13), Matrix4x4.createRotationY(45)),	// 5th tree right
         };
         
         worldTreesBig = new Matrix4x4[] {
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-1), Matrix4x4.createRotationY(120)),	// 1st tree left
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-7), Matrix4x4.createRotationY(120)),	// 3rd tree left
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-13), Matrix4x4.createRotationY(120)),	// 5th tree left
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-4), Matrix4x4.createRotationY(120)),	// 2nd tree right
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-10), Matrix4x4.createRotationY(120)),	// 4th tree right
-        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-16), Matrix4x4.createRotationY(120)),	// 6th tree right
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, -1), Matrix4x4.createRotationY(120)),	// 1st tree left
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, -7), Matrix4x4.createRotationY(120)),	// 3rd tree left
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, -13), Matrix4x4.createRotationY(120)),	// 5th tree left
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, -4), Matrix4x4.createRotationY(120)),	// 2nd tree right
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, -10), Matrix4x4.createRotationY(120)),	// 4th tree right
+        	Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, -16), Matrix4x4.createRotationY(120)),	// 6th tree right
         };
+
+        worldTrees = new Matrix4x4();
+        worldTrees.translate(0, 0, position);
 	
     }
 
@@ -170,8 +190,7 @@ public class World
         try
         {
             // read scene object sky.obj
-            stream = context.getAssets().open("sky.obj");
-            meshSky = Mesh.loadFromOBJ(stream);
+            meshSky = Mesh.load(context.getAssets(), "sky.obj");
         }
         catch (IOException e)
         {
@@ -197,8 +216,7 @@ public class World
         try
         {
             // read mesh treesmall.obj
-            stream = context.getAssets().open("treesmall.obj");
-            meshTreeSmall = Mesh.loadFromOBJ(stream);
+            meshTreeSmall = Mesh.load(context.getAssets(), "treesmall.obj");
         }
         catch (IOException e)
         {
@@ -224,8 +242,7 @@ public class World
         try
         {
             // read mesh treebig.obj
-            stream = context.getAssets().open("treebig.obj");
-            meshTreeBig = Mesh.loadFromOBJ(stream);
+            meshTreeBig = Mesh.load(context.getAssets(), "treebig.obj");
         }
         catch (IOException e)
         {
@@ -247,12 +264,15 @@ public class World
             Log.e(TAG, "ERROR to load TREESMALL.PNG as Texture!");
         }
 
+        // combine the trees of a kind into a few chunks
+        meshTreesSmallChunks = createChunks(meshTreeSmall, worldTreesSmall);
+        meshTreesBigChunks = createChunks(meshTreeBig, worldTreesBig);
+
 	    // load the mesh for the scene object: road
         try
         {
             // read mesh road.obj
-            stream = context.getAssets().open("road.obj");
-            meshRoad = Mesh.loadFromOBJ(stream);
+            meshRoad = Mesh.load(context.getAssets(), "road.obj");
         }
         catch (IOException e)
         {
@@ -278,8 +298,7 @@ public class World
         try
         {
             // read mesh groundleft.obj
-            stream = context.getAssets().open("groundleft.obj");
-            meshGroundLeft = Mesh.loadFromOBJ(stream);
+            meshGroundLeft = Mesh.load(context.getAssets(), "groundleft.obj");
         }
         catch (IOException e)
         {
@@ -290,8 +309,7 @@ public class World
 	    // load the mesh for scene object: ground right
         try
         {
-            stream = context.getAssets().open("groundright.obj");
-            meshGroundRight = Mesh.loadFromOBJ(stream);
+            meshGroundRight = Mesh.load(context.getAssets(), "groundright.obj");
         }
         catch (IOException e)
         {
@@ -320,8 +338,7 @@ public class World
         try
         {
             // read raceclock.obj
-            stream = context.getAssets().open("raceclock.obj");
-            meshRaceClock = Mesh.loadFromOBJ(stream);
+            meshRaceClock = Mesh.load(context.getAssets(), "raceclock.obj");
         }
         catch (IOException e)
         {
@@ -347,8 +364,7 @@ public class World
         try
         {
             // read the mesh crashhud.obj
-            stream = context.getAssets().open("crashhud.obj");
-            meshCrashHUD = Mesh.loadFromOBJ(stream);
+            meshCrashHUD = Mesh.load(context.getAssets(), "crashhud.obj");
         }
         catch (Exception e)
         {
@@ -372,135 +388,138 @@ public class World
     }
 
     /**
-     * This method is called in a certain period of times to realize the impression of a fluid motion.
-     * @param deltaseconds
+     * This method is called once per tick to realize the impression of a fluid motion.
+     * @param deltaseconds the length of a tick in seconds
      */
     public void update(float deltaseconds)
     {
+        previousPosition = position;
+
         if(InGameScreen.IsGameStarted() && !HUD.getAccidentHappened())
         {
-            // realize the movement of the trees
-            if (position < 6.0f)
-            {
-                position += speed;
-            }
-            else
+            // realize the movement of the trees, the trees look the same after one period
+            position += speed * deltaseconds;
+            if (position >= TREE_PERIOD)
             {
-                position = 0f;
+                position -= TREE_PERIOD;
             }
-
-            // update the tree positions of the world
-            this.updateWorldTrees();
         }
     }
 
     /**
      * This method draws all components on the screen
-     * @param deltaseconds
+     * @param interpolation the elapsed part of the next tick between 0 and 1
      */
-    public void draw(float deltaseconds)
+    public void draw(float interpolation)
     {
+        // move the trees between the positions of the last two ticks
+        this.updateWorldTrees(interpolation);
+
         // clear screen
         graphicDevice.clear(0.0f, 0.2f, 1.0f, 1.0f, 1.0f);
 	
-	    graphicDevice.setCamera(sceneCamera);
+	    RenderQueue renderQueue = renderer.getRenderQueue();
 	
-        // draw the sky mesh before all other objects
-        renderer.drawMesh(meshSky, matSky, worldSky);
+        // submit the sky, the background layer is drawn after the scene, so the depth test rejects the sky behind the trees
+        renderQueue.submit(meshSky, matSky, worldSky, sceneCamera, RenderQueue.LAYER_BACKGROUND);
 	
-        // draw the road
-        renderer.drawMesh(meshRoad, matRoad, worldRoad);
+        // submit the road
+        renderQueue.submit(meshRoad, matRoad, worldRoad, sceneCamera, RenderQueue.LAYER_SCENE);
 	
-        // draw left and right ground
-        renderer.drawMesh(meshGroundLeft, matGroundLeft, worldGroundLeft);
-        renderer.drawMesh(meshGroundRight, matGroundRight, worldGroundRight);
+        // submit left and right ground
+        renderQueue.submit(meshGroundLeft, matGroundLeft, worldGroundLeft, sceneCamera, RenderQueue.LAYER_SCENE);
+        renderQueue.submit(meshGroundRight, matGroundRight, worldGroundRight, sceneCamera, RenderQueue.LAYER_SCENE);
 	
         if (InGameScreen.IsGameStarted())
         {
-            // draw race clock
-            renderer.drawMesh(meshRaceClock, matRaceClock, worldRaceClock);		// the race click should be drawn if the game was started
+            // submit race clock
+            renderQueue.submit(meshRaceClock, matRaceClock, worldRaceClock, sceneCamera, RenderQueue.LAYER_SCENE);		// the race click should be drawn if the game was started
         }
 	
         if(!InGameScreen.IsGameStarted() && HUD.getAccidentHappened())
         {
-            // draw chrash HUD
-            renderer.drawMesh(meshCrashHUD, matCrashHUD, worldCrashHUD);		// the race clock should be drawn if the game was stopped
+            // submit chrash HUD
+            renderQueue.submit(meshCrashHUD, matCrashHUD, worldCrashHUD, sceneCamera, RenderQueue.LAYER_SCENE);		// the race clock should be drawn if the game was stopped
         }
 	
-        // draw all small trees in the world
-        for(Matrix4x4 worldTree : worldTreesSmall)
+        // submit the chunks of all small and all big trees in the world
+        for (int i = 0; i < TREE_CHUNKS; ++i)
         {
-            renderer.drawMesh(meshTreeSmall, matTreeSmall, worldTree);
+            if (meshTreesSmallChunks != null && meshTreesSmallChunks[i] != null)
+            {
+                renderQueue.submit(meshTreesSmallChunks[i], matTreeSmall, worldTrees, sceneCamera, RenderQueue.LAYER_SCENE);
+            }
+            if (meshTreesBigChunks != null && meshTreesBigChunks[i] != null)
+            {
+                renderQueue.submit(meshTreesBigChunks[i], matTreeBig, worldTrees, sceneCamera, RenderQueue.LAYER_SCENE);
+            }
         }
-	
-        // draw all big trees in the world
-        for(Matrix4x4 worldTree : worldTreesBig)
+    }
+
+    /**
+     * This method updates all world trees depending on the given world speed.
+     * This gives the impression of a fluid motion. All trees move by the same distance, so only
+     * the world matrix of the tree chunks is changed.
+     *
+     * @param interpolation the elapsed part of the next tick between 0 and 1
+     */
+    private void updateWorldTrees(float interpolation)
+    {
+        // the position wraps around after a period, interpolate across the wrap
+        float current = (position < previousPosition) ? position + TREE_PERIOD : position;
+        float interpolated = previousPosition + (current - previousPosition) * interpolation;
+        if (interpolated >= TREE_PERIOD)
         {
-            renderer.drawMesh(meshTreeBig, matTreeBig, worldTree);
+            interpolated -= TREE_PERIOD;
         }
+
+        worldTrees.setTranslation(0, 0, interpolated);
     }
 
     /**
-     * This method updates all world trees depending on the given world speed.
-     * This gives the impression of a fluid motion.
+     * This method combines the instances of a tree mesh into TREE_CHUNKS static meshes, one for
+     * every TREE_PERIOD units of the track.
+     *
+     * @param mesh the mesh of the tree
+     * @param worlds the position of every tree
+     * @return the chunks, null for an empty chunk, or null if the mesh was not loaded
      */
-    private void updateWorldTrees()
+    private Mesh[] createChunks(Mesh mesh, Matrix4x4[] worlds)
     {
-        // update the positions of the small tress int the world matrix depending on the world speed
-        for(int i = 0; i < worldTreesSmall.length; i++ )
-        {
-            worldTreesSmall[i].setIdentity();
-            if (i == 0)
-            worldTreesSmall[0] = Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-4), Matrix4x4.createRotationY(45));
-            if (i == 1)
-            worldTreesSmall[1] = Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-10), Matrix4x4.createRotationY(45));
-            if (i == 2)
-            worldTreesSmall[2] = Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position-16), Matrix4x4.createRotationY(45));
-            if (i == 3)
-            worldTreesSmall[3] = Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-1), Matrix4x4.createRotationY(45));
-            if (i == 4)
-            worldTreesSmall[4] = Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-7), Matrix4x4.createRotationY(45));
-            if (i == 5)
-            worldTreesSmall[5] = Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position-13), Matrix4x4.createRotationY(45));
-        }
-
-        // update the positions of the big trees in the world matrix depending on the world speed
-        for(int i = 0; i < worldTreesBig.length; i++)
-        {
-            worldTreesBig[i].setIdentity();
-            if (i == 0)
-            {
-                worldTreesBig[0] = Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position - 1), Matrix4x4.createRotationY(120));
-            }
-            if (i == 1)
-            {
-                worldTreesBig[1] = Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position - 7), Matrix4x4.createRotationY(120));
-            }
-            if (i == 2)
-            {
-                worldTreesBig[2] = Matrix4x4.multiply(Matrix4x4.createTranslation(-1.2f, 0, position - 13), Matrix4x4.createRotationY(120));
-            }
-            if (i == 3)
-            {
-                worldTreesBig[3] = Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position - 4), Matrix4x4.createRotationY(120));
-            }
-            if (i == 4)
+        if (mesh == null)
+        {
+            return null;
+        }
+
+        MeshBatcher[] batchers = new MeshBatcher[TREE_CHUNKS];
+        for (Matrix4x4 world : worlds)
+        {
+            // the trees stand at negative z, the translation is in m[14]
+            int chunk = Math.min(TREE_CHUNKS - 1, Math.max(0, (int) (-world.m[14] / TREE_PERIOD)));
+            if (batchers[chunk] == null)
             {
-                worldTreesBig[4] = Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position - 10), Matrix4x4.createRotationY(120));
+                batchers[chunk] = new MeshBatcher(worlds.length);
             }
-            if (i == 5)
+            batchers[chunk].add(mesh, world);
+        }
+
+        Mesh[] chunks = new Mesh[TREE_CHUNKS];
+        for (int i = 0; i < TREE_CHUNKS; ++i)
+        {
+            if (batchers[i] != null)
             {
-                worldTreesBig[5] = Matrix4x4.multiply(Matrix4x4.createTranslation(+1.2f, 0, position - 16), Matrix4x4.createRotationY(120));
+                chunks[i] = batchers[i].build();
             }
         }
+        return chunks;
     }
 
     /**
      * This method increases the speed of the world to increase the level of difficulty.
-     * The default value is +0.05f.
+     * The default value is 3 units per second.
      *
      * @param value
-     *          The value to speed up the movement of the world.
+     *          The speed of the world in units per second.
      */
     public void setWorldSpeed(float value)
     {
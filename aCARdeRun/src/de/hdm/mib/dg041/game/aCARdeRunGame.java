@@ -14,6 +14,7 @@
 package de.hdm.mib.dg041.game;
 
 import de.hdm.mib.dg041.android.R;
+import de.hdm.mib.dg041.input.InputEvent.InputDevice;
 import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.media.SoundPool;
@@ -48,6 +49,8 @@ public class aCARdeRunGame extends Game
     private InGameScreen game;
     private Hero hero;
     private Ranking ranking;
+    /** the screen whose sensors are registered at the input system **/
+    private GameScreen sensorScreen;
     
     /** sound components **/
     private static MediaPlayer mediaPlayer;
@@ -79,6 +82,9 @@ public class aCARdeRunGame extends Game
         hero = Hero.getInstance();
         ranking = Ranking.getInstance();
 
+        // the gravity sensor steers the hero, see Hero.createSteeringFilter
+        inputSystem.setFilter(InputDevice.GRAVITY, Hero.createSteeringFilter());
+
         menu.initialize();
         game.initialize();
         hero.initialize(context, graphicDevice, renderer);
@@ -117,11 +123,19 @@ public class aCARdeRunGame extends Game
      * This method will be called in regular periods to update the state of the game.
      *
      * @param deltaseconds
-     *          time intervall in milliseconds
+     *          the length of a tick in seconds
      */
     @Override
     public void update(float deltaseconds)
     {
+        // register the sensors of the new screen after the game state changed
+        GameScreen screen = (currentGameState == GameState.GAME) ? game : menu;
+        if (screen != sensorScreen)
+        {
+            sensorScreen = screen;
+            inputSystem.setSensors(screen.getSensors());
+        }
+
         switch (currentGameState)
         {
         case MENU:
@@ -136,18 +150,18 @@ public class aCARdeRunGame extends Game
     /**
      * The method draws the game content on the display in regular period.
      *
-     * @param deltaseconds
-     *          time intervall in milliseconds
+     * @param interpolation
+     *          the elapsed part of the next tick between 0 and 1
      */
     @Override
-    public void draw(float deltaseconds)
+    public void draw(float interpolation)
     {
         switch (currentGameState) {
         case MENU:
-            menu.draw(deltaseconds);
+            menu.draw(interpolation);
             break;
         case GAME:
-            game.draw(deltaseconds);
+            game.draw(interpolation);
             break;
         }
     }
@@ -161,6 +175,9 @@ public class aCARdeRunGame extends Game
     @Override
     public void pause()
     {
+        // no sensor events while the game is not visible
+        inputSystem.pause();
+
         if(mediaPlayer != null && isPlaying)
             mediaPlayer.pause();
     }
@@ -168,6 +185,10 @@ public class aCARdeRunGame extends Game
     @Override
     public void resume()
     {
+        // the game continues where it was paused
+        restartTimestep();
+        inputSystem.resume();
+
         if(mediaPlayer != null && !isPlaying)
             mediaPlayer.start();
     }
@@ -0,0 +1,453 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import de.hdm.mib.dg041.math.Matrix4x4;
+
+/**
+ * This class builds reproducible scenes of the binary meshes of the assets directory for the
+ * tools which run the render path without a device:
+ *
+ *   - createGrid places all meshes sorted by file name in a grid in front of the camera, each
+ *     scaled to the same size
+ *   - createWorld places the meshes like World, Hero and Obstacle do in a running game and adds
+ *     the timer of the HUD
+ *   - createMenu places the hero and the texts like the main menu of the MenuScreen
+ *
+ * World, HUD and MenuScreen can not be drawn themselves without a device: they load their meshes,
+ * bitmaps and fonts through the android Context, AssetManager, BitmapFactory and Paint. The scenes
+ * submit the same meshes, matrices, cameras and layers instead.
+ *
+ * The bitmaps of the assets can only be decoded on a device, so every item gets a generated
+ * checker texture of its own. Materials which use the alpha test get transparent squares. The
+ * glyphs of the fonts are generated boxes of roughly the size of the android glyphs.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+class AssetScene
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int COLUMNS = 4;
+    private static final float SPACING = 1.5f;
+    private static final float DISTANCE = 3.5f;
+    private static final float SIZE = 0.6f;
+
+    private static final int TEXTURE_SIZE = 16;
+    private static final int CHECKER_SIZE = 4;
+
+    private static final int[] COLORS = {
+        0xffd04040, 0xff40a040, 0xff4060d0, 0xffd0a030, 0xff30b0b0, 0xffb040b0
+    };
+
+    /** x and z of the trees like in World **/
+    private static final float[] SMALL_TREES = { -1.2f, -4, -1.2f, -10, -1.2f, -16, 1.2f, -1, 1.2f, -7, 1.2f, -13 };
+    private static final float[] BIG_TREES = { -1.2f, -1, -1.2f, -7, -1.2f, -13, 1.2f, -4, 1.2f, -10, 1.2f, -16 };
+    /** length of the track covered by a chunk of trees and the number of chunks like in World **/
+    private static final float TREE_PERIOD = 6.0f;
+    private static final int TREE_CHUNKS = 3;
+
+    private GraphicDevice graphicDevice;
+    private Vector<String> names = new Vector<String>();
+    private Vector<Mesh> meshes = new Vector<Mesh>();
+    private Vector<Material> materials = new Vector<Material>();
+    private Vector<Matrix4x4> worlds = new Vector<Matrix4x4>();
+    private Vector<Camera> cameras = new Vector<Camera>();
+    private Vector<Integer> layers = new Vector<Integer>();
+    /** the fonts of the scene by their size **/
+    private Map<Float, SpriteFont> fonts = new HashMap<Float, SpriteFont>();
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    private AssetScene(GraphicDevice graphicDevice)
+    {
+        this.graphicDevice = graphicDevice;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method places all meshes of the directory in a grid. Every third material uses the alpha
+     * test and every third is blended, the remaining materials are opaque and cull their back faces.
+     *
+     * @param graphicDevice the device which creates the textures
+     * @param directory the directory of the binary meshes
+     * @param aspect the ratio of width and height of the viewport
+     */
+    public static AssetScene createGrid(GraphicDevice graphicDevice, File directory, float aspect) throws IOException
+    {
+        AssetScene scene = new AssetScene(graphicDevice);
+
+        Camera camera = createCamera(-0.1f * aspect, 0.1f * aspect, 0.1f, 16.0f, new Matrix4x4());
+
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            return scene;
+        }
+        Arrays.sort(files);
+
+        Vector<File> meshFiles = new Vector<File>();
+        for (File file : files)
+        {
+            if (file.getName().endsWith(BinaryMesh.FILE_EXTENSION))
+            {
+                meshFiles.add(file);
+            }
+        }
+
+        int rows = (meshFiles.size() + COLUMNS - 1) / COLUMNS;
+
+        for (int i = 0; i < meshFiles.size(); ++i)
+        {
+            Mesh mesh = readMesh(meshFiles.get(i));
+            int color = COLORS[i % COLORS.length];
+
+            Material material = new Material();
+            switch (i % 3)
+            {
+                case 0:
+                    material.setTexture(scene.createChecker(color, 0xffffffff));
+                    material.setCullSide(Side.BACK);
+                    break;
+
+                case 1:
+                    // the dark squares are transparent and cut out by the alpha test
+                    material.setTexture(scene.createChecker(color, 0x00000000));
+                    material.setTextureFilter(TextureFilter.NEAREST, TextureFilter.NEAREST);
+                    material.setAlphaTestFunction(CompareFunction.GREATER);
+                    material.setAlphaTestValue(0.5f);
+                    break;
+
+                default:
+                    material.setTexture(scene.createChecker(color & 0x80ffffff, 0x80ffffff));
+                    material.setBlendFactors(BlendFactor.SRC_ALPHA, BlendFactor.ONE_MINUS_SRC_ALPHA);
+                    material.setDepthWrite(false);
+                    break;
+            }
+
+            // scale the bounding sphere to the same size and move its center into the grid cell
+            float radius = mesh.hasBounds() ? Math.max(mesh.getBoundingSphereRadius(), 1e-3f) : 1.0f;
+            float[] center = mesh.hasBounds() ? mesh.getBoundingSphereCenter().v : new float[3];
+            float x = ((i % COLUMNS) - (COLUMNS - 1) * 0.5f) * SPACING;
+            float y = ((rows - 1) * 0.5f - (i / COLUMNS)) * SPACING;
+
+            Matrix4x4 world = new Matrix4x4().translate(x, y, -DISTANCE).rotateY(30.0f).rotateX(20.0f);
+            world.scale(SIZE / radius).translate(-center[0], -center[1], -center[2]);
+
+            scene.add(meshFiles.get(i).getName(), mesh, material, world, camera);
+        }
+
+        return scene;
+    }
+
+    /**
+     * This method places the meshes like a running game with the race clock, one obstacle on the
+     * right lane and the hero on the left lane. Missing meshes are skipped.
+     *
+     * @param graphicDevice the device which creates the textures
+     * @param directory the directory of the binary meshes
+     */
+    public static AssetScene createWorld(GraphicDevice graphicDevice, File directory) throws IOException
+    {
+        AssetScene scene = new AssetScene(graphicDevice);
+
+        // the cameras of World and Obstacle share these parameters, the hero has its own
+        Camera sceneCamera = createCamera(-0.1f, 0.1f, 0.1f, 16.0f, new Matrix4x4().translate(0, -1, 0));
+        Camera heroCamera = createCamera(-0.1f, 0.1f, 0.53f, 16.0f, new Matrix4x4().translate(0, 0, -5));
+
+        scene.add(directory, "sky", new Material(), new Matrix4x4().translate(-30, 0, -15), sceneCamera, COLORS[2], false);
+        scene.setLayer(scene.getNumItems() - 1, RenderQueue.LAYER_BACKGROUND);
+        scene.add(directory, "road", new Material(), new Matrix4x4().translate(0, 0, -1), sceneCamera, COLORS[3], false);
+        scene.add(directory, "groundleft", new Material(), new Matrix4x4().translate(-23, 0, -1), sceneCamera, COLORS[1], false);
+        scene.add(directory, "groundright", new Material(), new Matrix4x4().translate(2, 0, -1), sceneCamera, COLORS[1], false);
+        scene.add(directory, "raceclock", createAlphaTested(), new Matrix4x4().translate(0.35f, 2.1f, -1.5f), sceneCamera, COLORS[5], true);
+
+        File small = new File(directory, "treesmall" + BinaryMesh.FILE_EXTENSION);
+        File big = new File(directory, "treebig" + BinaryMesh.FILE_EXTENSION);
+        if (small.exists() && big.exists())
+        {
+            scene.addTreeChunks("treesmall", readMesh(small), SMALL_TREES, 45, sceneCamera, COLORS[1]);
+            scene.addTreeChunks("treebig", readMesh(big), BIG_TREES, 120, sceneCamera, COLORS[0]);
+        }
+
+        Matrix4x4 obstacle = new Matrix4x4().translate(0.4f, 0, -10.0f).scale(0.2f, 0.2f, 0.2f).rotateY(45);
+        scene.add(directory, "box", new Material(), obstacle, sceneCamera, COLORS[3], false);
+
+        Matrix4x4 hero = new Matrix4x4().translate(-0.3f, -0.7f, -0.5f).rotateY(180).scale(0.27f, 0.37f, 0.3f);
+        scene.add(directory, "hero", createAlphaTested(), hero, heroCamera, COLORS[0], true);
+
+        // the timer of the HUD while the game runs
+        Camera hudCamera = createOrthogonalCamera(-100, 100, -100, 100, new Matrix4x4().translate(0, -1, 0));
+        scene.addText("00:", 14, Matrix4x4.createTranslation(27, 79, 0), hudCamera);
+        scene.addText("00:00", 14, Matrix4x4.createTranslation(48, 79, 0), hudCamera);
+
+        return scene;
+    }
+
+    /**
+     * This method places the hero and the texts like the main menu of the MenuScreen.
+     *
+     * @param graphicDevice the device which creates the textures
+     * @param directory the directory of the binary meshes
+     */
+    public static AssetScene createMenu(GraphicDevice graphicDevice, File directory) throws IOException
+    {
+        AssetScene scene = new AssetScene(graphicDevice);
+
+        Camera heroCamera = createCamera(-0.1f, 0.1f, 0.1f, 100.0f, new Matrix4x4().translate(-2.5f, -2, -5));
+        scene.add(directory, "hero", createAlphaTested(), new Matrix4x4().translate(0, 0, -1), heroCamera, COLORS[0], true);
+
+        Camera camera = createOrthogonalCamera(-250, 350, -250, 250, new Matrix4x4());
+        scene.addText("aCARde Run", 64, Matrix4x4.createTranslation(-250, 160, 0), camera);
+        scene.addText("Start aCARde Run", 32, Matrix4x4.createTranslation(80, -50, 0), camera);
+        scene.addText("Ranking", 32, Matrix4x4.createTranslation(110, -120, 0), camera);
+        scene.addText("Credits", 32, Matrix4x4.createTranslation(110, -190, 0), camera);
+
+        return scene;
+    }
+
+    public int getNumItems()
+    {
+        return meshes.size();
+    }
+
+    public String getName(int item)
+    {
+        return names.get(item);
+    }
+
+    public Material getMaterial(int item)
+    {
+        return materials.get(item);
+    }
+
+    /**
+     * This method submits all items of the scene to the render queue. The submission index of an
+     * item is its index in the scene, if the queue was empty before.
+     */
+    public void submit(RenderQueue renderQueue)
+    {
+        for (int i = 0; i < meshes.size(); ++i)
+        {
+            renderQueue.submit(meshes.get(i), materials.get(i), worlds.get(i), cameras.get(i), layers.get(i));
+        }
+    }
+
+    private void setLayer(int item, int layer)
+    {
+        layers.set(item, layer);
+    }
+
+    private void add(String name, Mesh mesh, Material material, Matrix4x4 world, Camera camera)
+    {
+        add(name, mesh, material, world, camera, RenderQueue.LAYER_SCENE);
+    }
+
+    private void add(String name, Mesh mesh, Material material, Matrix4x4 world, Camera camera, int layer)
+    {
+        names.add(name);
+        meshes.add(mesh);
+        materials.add(material);
+        worlds.add(world);
+        cameras.add(camera);
+        layers.add(layer);
+    }
+
+    /**
+     * This method adds a text in the overlay layer like the HUD and the menu.
+     */
+    private void addText(String text, float fontSize, Matrix4x4 world, Camera camera)
+    {
+        SpriteFont font = fonts.get(fontSize);
+        if (font == null)
+        {
+            FontAtlas atlas = createFontAtlas(fontSize);
+            font = new SpriteFont(graphicDevice.createTexture(atlas.getSize(), atlas.getSize(), atlas.getPixels(), false), atlas.getMetrics());
+            fonts.put(fontSize, font);
+        }
+
+        TextBuffer textBuffer = graphicDevice.createTextBuffer(font, text.length());
+        textBuffer.setText(text);
+        add("\"" + text + "\"", textBuffer.getMesh(), font.getMaterial(), world, camera, RenderQueue.LAYER_OVERLAY);
+    }
+
+    /**
+     * @return an atlas with a box for every glyph, packed in rows like FontAtlas.bake
+     */
+    private static FontAtlas createFontAtlas(float fontSize)
+    {
+        int width = Math.max(1, Math.round(fontSize * 0.6f));
+        int height = Math.max(1, Math.round(fontSize * 0.75f));
+        int spacing = (int) Math.ceil(fontSize * 1.2f);
+
+        // double the texture until all glyphs fit into its rows
+        int glyphs = SpriteFont.NUM_GLYPHS - ' ' - 32;
+        int size = 1;
+        while ((size / (width + 1)) * (size / spacing) < glyphs)
+        {
+            size *= 2;
+        }
+
+        int[] metrics = new int[SpriteFont.NUM_GLYPHS * SpriteFont.GLYPH_METRICS];
+        Arrays.fill(metrics, -1);
+        byte[] alpha = new byte[size * size];
+
+        int x = 0;
+        int y = 0;
+        for (int c = ' '; c < SpriteFont.NUM_GLYPHS; ++c)
+        {
+            if (c == 128)
+            {
+                c = 160;
+            }
+            if (x + width > size)
+            {
+                x = 0;
+                y += spacing;
+            }
+
+            int index = c * SpriteFont.GLYPH_METRICS;
+            metrics[index] = width + 1;
+            metrics[index + 1] = x;
+            metrics[index + 2] = y;
+            metrics[index + 3] = x + width;
+            metrics[index + 4] = y + height;
+            metrics[index + 5] = 0;
+            metrics[index + 6] = -height;
+
+            for (int row = y; row < y + height; ++row)
+            {
+                Arrays.fill(alpha, row * size + x, row * size + x + width, (byte) 0xff);
+            }
+            x += width + 1;
+        }
+
+        return new FontAtlas(fontSize, size, 0, metrics, alpha);
+    }
+
+    private void add(String name, Mesh mesh, Material material, Matrix4x4 world, Camera camera, int color, boolean transparent)
+    {
+        material.setTexture(createChecker(color, transparent ? 0x00000000 : 0xffffffff));
+        add(name, mesh, material, world, camera);
+    }
+
+    private void add(File directory, String name, Material material, Matrix4x4 world, Camera camera, int color, boolean transparent) throws IOException
+    {
+        File file = new File(directory, name + BinaryMesh.FILE_EXTENSION);
+        if (file.exists())
+        {
+            add(name, readMesh(file), material, world, camera, color, transparent);
+        }
+    }
+
+    /**
+     * This method combines the trees into chunks along the track like World.createChunks. Every
+     * chunk is an item of its own, so OverdrawTool reports it in its own row although the chunks
+     * share the material and the texture.
+     *
+     * @param positions x and z of every tree
+     * @param rotation the rotation of every tree around the y axis
+     */
+    private void addTreeChunks(String name, Mesh tree, float[] positions, float rotation, Camera camera, int color)
+    {
+        // the chunks of a kind share the material like in World
+        Material material = createAlphaTested();
+        material.setTexture(createChecker(color, 0x00000000));
+
+        for (int chunk = 0; chunk < TREE_CHUNKS; ++chunk)
+        {
+            MeshBatcher batcher = new MeshBatcher(positions.length / 2);
+            for (int i = 0; i < positions.length; i += 2)
+            {
+                int treeChunk = Math.min(TREE_CHUNKS - 1, (int) (-positions[i + 1] / TREE_PERIOD));
+                if (treeChunk == chunk)
+                {
+                    batcher.add(tree, new Matrix4x4().translate(positions[i], 0, positions[i + 1]).rotateY(rotation));
+                }
+            }
+            add(name + " (chunk " + chunk + ")", batcher.build(), material, new Matrix4x4(), camera);
+        }
+    }
+
+    private Texture createChecker(int light, int dark)
+    {
+        int[] pixels = new int[TEXTURE_SIZE * TEXTURE_SIZE];
+        for (int y = 0; y < TEXTURE_SIZE; ++y)
+        {
+            for (int x = 0; x < TEXTURE_SIZE; ++x)
+            {
+                boolean even = ((x / CHECKER_SIZE) + (y / CHECKER_SIZE)) % 2 == 0;
+                pixels[y * TEXTURE_SIZE + x] = even ? light : dark;
+            }
+        }
+        return graphicDevice.createTexture(TEXTURE_SIZE, TEXTURE_SIZE, pixels);
+    }
+
+    /**
+     * @return a material with the alpha test of the trees, the race clock and the hero
+     */
+    private static Material createAlphaTested()
+    {
+        Material material = new Material();
+        material.setAlphaTestFunction(CompareFunction.GREATER_OR_EQUAL);
+        material.setAlphaTestValue(0.9f);
+        return material;
+    }
+
+    private static Camera createOrthogonalCamera(float left, float right, float bottom, float top, Matrix4x4 view)
+    {
+        Camera camera = new Camera();
+        camera.setProjection(new Matrix4x4().setOrthogonalProjection(left, right, bottom, top, 0.0f, 100.0f));
+        camera.setView(view);
+        return camera;
+    }
+
+    private static Camera createCamera(float left, float right, float near, float far, Matrix4x4 view)
+    {
+        Camera camera = new Camera();
+        camera.setProjection(new Matrix4x4().setPerspectiveProjection(left, right, -0.1f, 0.1f, near, far));
+        camera.setView(view);
+        return camera;
+    }
+
+    private static Mesh readMesh(File file) throws IOException
+    {
+        InputStream stream = new FileInputStream(file);
+        try
+        {
+            return BinaryMesh.read(stream);
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import de.hdm.mib.dg041.graphics.VertexElement.VertexSemantic;
+
+/**
+ * This class reads and writes meshes in a compact binary format. The file contains the vertex
+ * layout, the number of vertices, the primitive mode, the raw interleaved vertex data and the
+ * optional index data, so a mesh can be loaded with bulk copies instead of parsing every vertex.
+ *
+ * Layout of a file (all values are 32 bit little endian integers):
+ *
+ *   magic 'ACRM', version, primitive mode, number of elements,
+ *   per element: semantic, offset, stride, type, count,
+ *   number of vertices, length of the vertex data in bytes,
+ *   raw vertex data,
+ *   index type (0 for meshes without index buffer), number of indices, length of the index data in bytes,
+ *   raw index data
+ *
+ * Files of version 1 end after the vertex data and are still supported.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class BinaryMesh
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    /** file extension of binary meshes **/
+    public static final String FILE_EXTENSION = ".mesh";
+
+    private static final int MAGIC = 'A' | ('C' << 8) | ('R' << 16) | ('M' << 24);
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_INDICES = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int ELEMENT_SIZE = 20;
+    private static final int FOOTER_SIZE = 8;
+    private static final int INDEX_HEADER_SIZE = 12;
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    private BinaryMesh()
+    {}
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method writes the given mesh in the binary format to a stream. The stream is not closed.
+     *
+     * @param mesh
+     * @param stream
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(Mesh mesh, OutputStream stream) throws IOException
+    {
+        VertexBuffer vertexBuffer = mesh.getVertexBuffer();
+        VertexElement[] elements = vertexBuffer.getElements();
+
+        int stride = (elements.length > 0) ? elements[0].getStride() : 0;
+        int dataLength = stride * vertexBuffer.getNumVertices();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + ELEMENT_SIZE * elements.length + FOOTER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(mesh.getMode());
+        header.putInt(elements.length);
+
+        for (VertexElement element : elements)
+        {
+            header.putInt(element.getSemantic().ordinal());
+            header.putInt(element.getOffset());
+            header.putInt(element.getStride());
+            header.putInt(element.getType());
+            header.putInt(element.getCount());
+        }
+
+        header.putInt(vertexBuffer.getNumVertices());
+        header.putInt(dataLength);
+        stream.write(header.array());
+
+        // the vertex data is written in little endian order like the header
+        ByteBuffer data = vertexBuffer.getBuffer().duplicate();
+        data.order(vertexBuffer.getBuffer().order());
+        data.position(0);
+        data.limit(dataLength);
+
+        byte[] chunk = new byte[COPY_BUFFER_SIZE];
+
+        // all supported vertex elements consist of 32 bit values
+        writeData(data, 4, chunk, stream);
+
+        IndexBuffer indexBuffer = mesh.getIndexBuffer();
+        ByteBuffer indexHeader = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        indexHeader.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (indexBuffer == null)
+        {
+            indexHeader.putInt(0);
+            indexHeader.putInt(0);
+            indexHeader.putInt(0);
+            stream.write(indexHeader.array());
+            return;
+        }
+
+        int indexLength = indexBuffer.getIndexSize() * indexBuffer.getNumIndices();
+        indexHeader.putInt(indexBuffer.getType());
+        indexHeader.putInt(indexBuffer.getNumIndices());
+        indexHeader.putInt(indexLength);
+        stream.write(indexHeader.array());
+
+        ByteBuffer indices = indexBuffer.getBuffer().duplicate();
+        indices.order(indexBuffer.getBuffer().order());
+        indices.position(0);
+        indices.limit(indexLength);
+        writeData(indices, indexBuffer.getIndexSize(), chunk, stream);
+    }
+
+    /**
+     * This method reads a binary mesh from a stream. The vertex data is copied in chunks into the
+     * direct buffer of the vertex buffer. The stream is not closed.
+     *
+     * @param stream
+     * @return The loaded mesh
+     * @throws IOException if the stream does not contain a valid binary mesh
+     */
+    public static Mesh read(InputStream stream) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        readFully(stream, header.array(), 0, HEADER_SIZE);
+
+        int version = readVersion(header);
+        int mode = header.getInt();
+        int numElements = readNumElements(header);
+
+        ByteBuffer declaration = ByteBuffer.allocate(ELEMENT_SIZE * numElements + FOOTER_SIZE);
+        declaration.order(ByteOrder.LITTLE_ENDIAN);
+        readFully(stream, declaration.array(), 0, declaration.capacity());
+
+        VertexElement[] elements = readElements(declaration, numElements);
+        int numVertices = declaration.getInt();
+        int dataLength = declaration.getInt();
+
+        byte[] chunk = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer data = allocateData(dataLength);
+        readData(stream, chunk, data);
+
+        IndexBuffer indexBuffer = null;
+        if (version != VERSION_WITHOUT_INDICES)
+        {
+            ByteBuffer indexHeader = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+            indexHeader.order(ByteOrder.LITTLE_ENDIAN);
+            readFully(stream, indexHeader.array(), 0, INDEX_HEADER_SIZE);
+
+            indexBuffer = readIndexHeader(indexHeader);
+            if (indexBuffer != null)
+            {
+                ByteBuffer indices = allocateData(indexHeader.getInt());
+                readData(stream, chunk, indices);
+                indexBuffer.setBuffer(indices);
+            }
+        }
+
+        return createMesh(mode, elements, numVertices, data, indexBuffer);
+    }
+
+    /**
+     * This method maps a region of a file into memory and copies the vertex data with a single
+     * bulk operation into the direct buffer of the vertex buffer. This is used for uncompressed
+     * assets which can be opened as file descriptor.
+     *
+     * @param channel the channel of the file
+     * @param offset the start of the binary mesh in the file
+     * @param length the length of the binary mesh in bytes
+     * @return The loaded mesh
+     * @throws IOException if the region does not contain a valid binary mesh
+     */
+    public static Mesh map(FileChannel channel, long offset, long length) throws IOException
+    {
+        MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        file.order(ByteOrder.LITTLE_ENDIAN);
+
+        try
+        {
+            int version = readVersion(file);
+            int mode = file.getInt();
+            int numElements = readNumElements(file);
+            VertexElement[] elements = readElements(file, numElements);
+            int numVertices = file.getInt();
+            ByteBuffer data = copyData(file, file.getInt());
+
+            IndexBuffer indexBuffer = null;
+            if (version != VERSION_WITHOUT_INDICES)
+            {
+                indexBuffer = readIndexHeader(file);
+                if (indexBuffer != null)
+                {
+                    indexBuffer.setBuffer(copyData(file, file.getInt()));
+                }
+            }
+
+            return createMesh(mode, elements, numVertices, data, indexBuffer);
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new IOException("Binary mesh is truncated!");
+        }
+    }
+
+    private static int readVersion(ByteBuffer header) throws IOException
+    {
+        if (header.getInt() != MAGIC)
+        {
+            throw new IOException("Not a binary mesh file!");
+        }
+
+        int version = header.getInt();
+        if (version != VERSION && version != VERSION_WITHOUT_INDICES)
+        {
+            throw new IOException("Unsupported binary mesh version " + version + "!");
+        }
+
+        return version;
+    }
+
+    /**
+     * This method reads the type and the number of indices. The length of the index data is
+     * left in the buffer.
+     *
+     * @return the index buffer without data or null if the mesh is not indexed
+     */
+    private static IndexBuffer readIndexHeader(ByteBuffer header) throws IOException
+    {
+        int type = header.getInt();
+        int numIndices = header.getInt();
+
+        if (type == 0)
+        {
+            return null;
+        }
+        if (type != GL10.GL_UNSIGNED_SHORT && type != IndexBuffer.GL_UNSIGNED_INT)
+        {
+            throw new IOException("Unsupported index type " + type + "!");
+        }
+        if (numIndices < 0)
+        {
+            throw new IOException("Invalid number of indices " + numIndices + "!");
+        }
+
+        IndexBuffer indexBuffer = new IndexBuffer();
+        indexBuffer.setType(type);
+        indexBuffer.setNumIndices(numIndices);
+        return indexBuffer;
+    }
+
+    private static int readNumElements(ByteBuffer header) throws IOException
+    {
+        int numElements = header.getInt();
+        if (numElements < 0 || numElements > VertexSemantic.values().length)
+        {
+            throw new IOException("Invalid number of vertex elements " + numElements + "!");
+        }
+        return numElements;
+    }
+
+    private static VertexElement[] readElements(ByteBuffer declaration, int numElements) throws IOException
+    {
+        VertexSemantic[] semantics = VertexSemantic.values();
+        VertexElement[] elements = new VertexElement[numElements];
+
+        for (int i = 0; i < numElements; ++i)
+        {
+            int semantic = declaration.getInt();
+            if (semantic < 0 || semantic >= semantics.length)
+            {
+                throw new IOException("Unsupported vertex semantic " + semantic + "!");
+            }
+
+            int offset = declaration.getInt();
+            int stride = declaration.getInt();
+            int type = declaration.getInt();
+            int count = declaration.getInt();
+            elements[i] = new VertexElement(offset, stride, type, count, semantics[semantic]);
+        }
+
+        return elements;
+    }
+
+    private static ByteBuffer allocateData(int dataLength) throws IOException
+    {
+        // the vertex and index data is stored in little endian order and is handed to openGL without conversion
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN)
+        {
+            throw new IOException("Binary meshes are only supported on little endian devices!");
+        }
+        if (dataLength < 0)
+        {
+            throw new IOException("Invalid length of the mesh data!");
+        }
+
+        ByteBuffer data = ByteBuffer.allocateDirect(dataLength);
+        data.order(ByteOrder.nativeOrder());
+        return data;
+    }
+
+    /**
+     * This method copies the next dataLength bytes of a mapped file into a new direct buffer.
+     */
+    private static ByteBuffer copyData(ByteBuffer file, int dataLength) throws IOException
+    {
+        if (dataLength > file.remaining())
+        {
+            throw new IOException("Binary mesh is truncated!");
+        }
+
+        ByteBuffer data = allocateData(dataLength);
+        int limit = file.limit();
+        file.limit(file.position() + dataLength);
+        data.put(file);
+        file.limit(limit);
+        data.position(0);
+        return data;
+    }
+
+    private static void readData(InputStream stream, byte[] chunk, ByteBuffer data) throws IOException
+    {
+        while (data.hasRemaining())
+        {
+            int length = Math.min(chunk.length, data.remaining());
+            readFully(stream, chunk, 0, length);
+            data.put(chunk, 0, length);
+        }
+        data.position(0);
+    }
+
+    /**
+     * This method writes the remaining bytes of the buffer in little endian order. Buffers in big
+     * endian order are swapped value by value with the given value size (2 or 4 bytes).
+     */
+    private static void writeData(ByteBuffer data, int valueSize, byte[] chunk, OutputStream stream) throws IOException
+    {
+        if (data.order() == ByteOrder.LITTLE_ENDIAN)
+        {
+            while (data.hasRemaining())
+            {
+                int length = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, length);
+                stream.write(chunk, 0, length);
+            }
+            return;
+        }
+
+        ByteBuffer swapped = ByteBuffer.wrap(chunk);
+        swapped.order(ByteOrder.LITTLE_ENDIAN);
+        while (data.hasRemaining())
+        {
+            swapped.clear();
+            while (swapped.hasRemaining() && data.hasRemaining())
+            {
+                if (valueSize == 2)
+                {
+                    swapped.putShort(data.getShort());
+                }
+                else
+                {
+                    swapped.putInt(data.getInt());
+                }
+            }
+            stream.write(chunk, 0, swapped.position());
+        }
+    }
+
+    private static Mesh createMesh(int mode, VertexElement[] elements, int numVertices, ByteBuffer data, IndexBuffer indexBuffer)
+    {
+        VertexBuffer vertexBuffer = new VertexBuffer();
+        vertexBuffer.setElements(elements);
+        vertexBuffer.setBuffer(data);
+        vertexBuffer.setNumVertices(numVertices);
+
+        if (indexBuffer != null)
+        {
+            return new Mesh(vertexBuffer, indexBuffer, mode);
+        }
+        return new Mesh(vertexBuffer, mode);
+    }
+
+    private static void readFully(InputStream stream, byte[] buffer, int offset, int length) throws IOException
+    {
+        while (length > 0)
+        {
+            int read = stream.read(buffer, offset, length);
+            if (read < 0)
+            {
+                throw new IOException("Binary mesh is truncated!");
+            }
+            offset += read;
+            length -= read;
+        }
+    }
+}
@@ -15,7 +15,6 @@ package de.hdm.mib.dg041.graphics;
 
 import de.hdm.mib.dg041.math.Matrix4x4;
 import de.hdm.mib.dg041.math.Vector3;
-import de.hdm.mib.dg041.math.Vector4;
 
 /**
  * This class defines a camera object to realize the projection of the different matrix
@@ -33,6 +32,21 @@ public class Camera
     private Matrix4x4 projection;
     private Matrix4x4 view;
 
+    /** number of frustum planes: left, right, bottom, top, near, far **/
+    public static final int NUM_FRUSTUM_PLANES = 6;
+
+    /**
+     * planes (a, b, c, d) of the view frustum in world space with normals pointing inside. They
+     * are recomputed if the projection or the view was changed since the last query.
+     */
+    private float[] frustumPlanes = new float[4 * NUM_FRUSTUM_PLANES];
+    private Matrix4x4 viewProjection = new Matrix4x4();
+    private Matrix4x4 inverseViewProjection = new Matrix4x4();
+    private boolean inverseValid;
+    private float[] cachedProjection = new float[16];
+    private float[] cachedView = new float[16];
+    private boolean frustumValid;
+
     // --------------------------------------------------------
     // CONSTRUCTOR
     // --------------------------------------------------------
@@ -70,6 +84,7 @@ public class Camera
     public void setProjection(Matrix4x4 projection)
     {
 	    this.projection = projection;
+	    this.frustumValid = false;
     }
 
     /**
@@ -79,6 +94,150 @@ public class Camera
     public void setView(Matrix4x4 view)
     {
 	    this.view = view;
+	    this.frustumValid = false;
+    }
+
+    /**
+     * @return projection * view. The matrix is owned by the camera and must not be changed.
+     */
+    public Matrix4x4 getViewProjection()
+    {
+        updateFrustum();
+        return viewProjection;
+    }
+
+    /**
+     * @return the planes (a, b, c, d) of the view frustum in world space. A point is inside a plane
+     *         if a * x + b * y + c * z + d >= 0. The array is owned by the camera and must not be changed.
+     */
+    public float[] getFrustumPlanes()
+    {
+        updateFrustum();
+        return frustumPlanes;
+    }
+
+    /**
+     * This method tests the bounds of a mesh against the view frustum. The bounding sphere is
+     * tested first, the axis aligned bounding box transformed into world space is tested only if
+     * the sphere intersects a plane.
+     *
+     * @param mesh
+     * @param world the world matrix of the mesh
+     * @return FALSE if the mesh is completely outside of the view frustum, TRUE if it is visible or has no bounds
+     */
+    public boolean isVisible(Mesh mesh, Matrix4x4 world)
+    {
+        if (!mesh.hasBounds())
+        {
+            return true;
+        }
+
+        updateFrustum();
+
+        float[] m = world.m;
+        float[] center = mesh.getBoundingSphereCenter().v;
+        float[] min = mesh.getBoundingBoxMin().v;
+        float[] max = mesh.getBoundingBoxMax().v;
+
+        // center of the bounds in world space, the box center equals the sphere center
+        float cx = m[0] * center[0] + m[4] * center[1] + m[8]  * center[2] + m[12];
+        float cy = m[1] * center[0] + m[5] * center[1] + m[9]  * center[2] + m[13];
+        float cz = m[2] * center[0] + m[6] * center[1] + m[10] * center[2] + m[14];
+
+        // the radius grows with the largest scale of the world matrix
+        float scaleX = m[0] * m[0] + m[1] * m[1] + m[2]  * m[2];
+        float scaleY = m[4] * m[4] + m[5] * m[5] + m[6]  * m[6];
+        float scaleZ = m[8] * m[8] + m[9] * m[9] + m[10] * m[10];
+        float radius = mesh.getBoundingSphereRadius() * (float) Math.sqrt(Math.max(scaleX, Math.max(scaleY, scaleZ)));
+
+        // half extents of the box in world space
+        float hx = (max[0] - min[0]) * 0.5f;
+        float hy = (max[1] - min[1]) * 0.5f;
+        float hz = (max[2] - min[2]) * 0.5f;
+        float ex = Math.abs(m[0]) * hx + Math.abs(m[4]) * hy + Math.abs(m[8])  * hz;
+        float ey = Math.abs(m[1]) * hx + Math.abs(m[5]) * hy + Math.abs(m[9])  * hz;
+        float ez = Math.abs(m[2]) * hx + Math.abs(m[6]) * hy + Math.abs(m[10]) * hz;
+
+        float[] p = frustumPlanes;
+        for (int i = 0; i < 4 * NUM_FRUSTUM_PLANES; i += 4)
+        {
+            float distance = p[i] * cx + p[i + 1] * cy + p[i + 2] * cz + p[i + 3];
+            if (distance >= radius)
+            {
+                continue;
+            }
+            if (distance < -radius)
+            {
+                return false;
+            }
+
+            float extent = Math.abs(p[i]) * ex + Math.abs(p[i + 1]) * ey + Math.abs(p[i + 2]) * ez;
+            if (distance < -extent)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * This method extracts the frustum planes from projection * view if one of the matrices was
+     * replaced or changed since the last extraction.
+     */
+    private void updateFrustum()
+    {
+        float[] p = projection.m;
+        float[] v = view.m;
+
+        if (frustumValid)
+        {
+            for (int i = 0; i < 16; ++i)
+            {
+                if (p[i] != cachedProjection[i] || v[i] != cachedView[i])
+                {
+                    frustumValid = false;
+                    break;
+                }
+            }
+        }
+        if (frustumValid)
+        {
+            return;
+        }
+
+        System.arraycopy(p, 0, cachedProjection, 0, 16);
+        System.arraycopy(v, 0, cachedView, 0, 16);
+        Matrix4x4.multiply(projection, view, viewProjection);
+        inverseValid = false;
+
+        // rows of the column major view projection matrix
+        float[] m = viewProjection.m;
+        setPlane(0, m[3] + m[0], m[7] + m[4], m[11] + m[8],  m[15] + m[12]);    // left
+        setPlane(1, m[3] - m[0], m[7] - m[4], m[11] - m[8],  m[15] - m[12]);    // right
+        setPlane(2, m[3] + m[1], m[7] + m[5], m[11] + m[9],  m[15] + m[13]);    // bottom
+        setPlane(3, m[3] - m[1], m[7] - m[5], m[11] - m[9],  m[15] - m[13]);    // top
+        setPlane(4, m[3] + m[2], m[7] + m[6], m[11] + m[10], m[15] + m[14]);    // near
+        setPlane(5, m[3] - m[2], m[7] - m[6], m[11] - m[10], m[15] - m[14]);    // far
+
+        frustumValid = true;
+    }
+
+    private void setPlane(int index, float a, float b, float c, float d)
+    {
+        float length = (float) Math.sqrt(a * a + b * b + c * c);
+        if (length > 0.0f)
+        {
+            a /= length;
+            b /= length;
+            c /= length;
+            d /= length;
+        }
+
+        frustumPlanes[4 * index]     = a;
+        frustumPlanes[4 * index + 1] = b;
+        frustumPlanes[4 * index + 2] = c;
+        frustumPlanes[4 * index + 3] = d;
     }
 
     /**
@@ -91,25 +250,65 @@ public class Camera
      */
     public Vector3 project(Vector3 v, float w)
     {
-        Matrix4x4 viewProjection = projection.multiply(view);
-        Vector4 result = viewProjection.multiply(new Vector4(v, w));
-	
-	    // create a new result vector
-        return new Vector3(
-            result.getX() / result.getW(),
-            result.getY() / result.getW(),
-            result.getZ() / result.getW());
+        return project(v, w, new Vector3());
+    }
+
+    /**
+     * This method projects the given vector with projection * view without creating a new instance.
+     *
+     * @param v
+     * @param w
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public Vector3 project(Vector3 v, float w, Vector3 out)
+    {
+        return transform(getViewProjection(), v, w, out);
     }
 
     public Vector3 unproject(Vector3 v, float w)
     {
-        Matrix4x4 viewProjection = projection.multiply(view);
-        Matrix4x4 inverse = viewProjection.getInverse();
-        Vector4 result = inverse.multiply(new Vector4(v, w));
-	
-	    return new Vector3(
-		    result.getX() / result.getW(),
-		    result.getY() / result.getW(),
-		    result.getZ() / result.getW());
-    }  
-}
\ No newline at end of file
+        return unproject(v, w, new Vector3());
+    }
+
+    /**
+     * This method transforms the given vector with the inverse of projection * view without creating
+     * a new instance. The inverse is only recomputed if the projection or the view has changed.
+     *
+     * @param v
+     * @param w
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public Vector3 unproject(Vector3 v, float w, Vector3 out)
+    {
+        updateFrustum();
+        if (!inverseValid)
+        {
+            viewProjection.getInverse(inverseViewProjection);
+            inverseValid = true;
+        }
+        return transform(inverseViewProjection, v, w, out);
+    }
+
+    /**
+     * This method multiplies the matrix with (v, w) and divides the result by its w value.
+     */
+    private static Vector3 transform(Matrix4x4 matrix, Vector3 v, float w, Vector3 out)
+    {
+        float[] m = matrix.m;
+        float x = v.v[0];
+        float y = v.v[1];
+        float z = v.v[2];
+
+        float rx = m[0] * x + m[4] * y + m[8]  * z + m[12] * w;
+        float ry = m[1] * x + m[5] * y + m[9]  * z + m[13] * w;
+        float rz = m[2] * x + m[6] * y + m[10] * z + m[14] * w;
+        float rw = m[3] * x + m[7] * y + m[11] * z + m[15] * w;
+
+        out.v[0] = rx / rw;
+        out.v[1] = ry / rw;
+        out.v[2] = rz / rw;
+        return out;
+    }
+}
@@ -0,0 +1,451 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+ * This class holds the glyphs of a font as rasterized by android: the coverage of every pixel of
+ * a square texture and the metrics of the glyphs, see SpriteFont.GLYPH_METRICS. Baking an atlas
+ * is expensive, so the atlases are saved with write and loaded with read by the FontAtlasCache.
+ *
+ * A distance field atlas holds the signed distance of every pixel to the outline of the glyphs
+ * instead of the coverage: 0.5 is the outline, larger values are inside. The distance is linear
+ * between the pixels, so the outline stays sharp if the glyphs are scaled and the alpha test cuts
+ * at 0.5. One distance field atlas serves every font size.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class FontAtlas
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int MAGIC = 0x464f4e54;
+    private static final int VERSION = 2;
+
+    /** size of the glyphs in a distance field atlas **/
+    public static final float DISTANCE_FIELD_FONT_SIZE = 32.0f;
+    /** distance in pixels of the atlas which is covered by the values between 0 and 1 **/
+    public static final int DISTANCE_FIELD_SPREAD = 4;
+
+    /** the largest texture which is read, protects against broken files **/
+    private static final int MAX_SIZE = 4096;
+
+    private float fontSize;
+    private int size;
+    /** 0 for a coverage atlas, the spread of a distance field atlas **/
+    private int spread;
+    private int[] metrics;
+    /** the coverage or distance of the pixels, row by row from the top **/
+    private byte[] alpha;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    FontAtlas(float fontSize, int size, int spread, int[] metrics, byte[] alpha)
+    {
+        this.fontSize = fontSize;
+        this.size = size;
+        this.spread = spread;
+        this.metrics = metrics;
+        this.alpha = alpha;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method rasterizes the code points ' ' to 255 without the control characters 128 to 159
+     * into the smallest square texture with a power of two size which holds all of them.
+     *
+     * @param typeface the typeface, null for the default typeface
+     * @param fontSize the size of the font in pixels
+     * @return the new atlas
+     */
+    public static FontAtlas bake(Typeface typeface, float fontSize)
+    {
+        return bake(typeface, fontSize, 0);
+    }
+
+    /**
+     * This method rasterizes the code points like bake in DISTANCE_FIELD_FONT_SIZE and converts the
+     * coverage into distances. The glyphs get a border of DISTANCE_FIELD_SPREAD pixels, so the
+     * distances outside of the outline do not overlap the next glyph.
+     *
+     * @param typeface the typeface, null for the default typeface
+     * @return the new atlas
+     */
+    public static FontAtlas bakeDistanceField(Typeface typeface)
+    {
+        FontAtlas atlas = bake(typeface, DISTANCE_FIELD_FONT_SIZE, DISTANCE_FIELD_SPREAD);
+        atlas.alpha = toDistanceField(atlas.alpha, atlas.size, DISTANCE_FIELD_SPREAD);
+        atlas.spread = DISTANCE_FIELD_SPREAD;
+        return atlas;
+    }
+
+    /**
+     * @param padding the free pixels around every glyph
+     */
+    private static FontAtlas bake(Typeface typeface, float fontSize, int padding)
+    {
+        Paint paint = new Paint();				                                // create new drawing object
+        paint.setTypeface(typeface);				                            // set the type face
+        paint.setTextSize(fontSize);				                            // define the text size
+        paint.setARGB(255, 255, 255, 255);			                            // set RGB color and alpha -> here: white
+        paint.setFlags(Paint.ANTI_ALIAS_FLAG);			                        // setting: --> here ANTIALIASING
+
+        int spacing = (int)Math.ceil(paint.getFontSpacing()) + 2 * padding;	// get recomendet space
+
+        char[] c = new char[]{' '};
+        int x = 0;
+        int y = 0;
+        Rect charBounds = new Rect();
+        int bitmapSize = 1;
+        boolean doesFit = false;
+
+        // check if characters fit into texture
+        while (!doesFit)
+        {
+            while (c[0] < 256)
+            {
+                paint.getTextBounds(c, 0, 1, charBounds);
+
+                // check if width of area is larger than bitmap -> increase space
+                if (x + charBounds.width() + 2 * padding > bitmapSize)
+                {
+                    x = 0;
+                    y += spacing;
+                }
+                x += charBounds.width() + 2 * padding + 1;
+                c[0]++;
+                if (c[0] == 128)
+                {
+                    c[0] = 160;
+                }
+            }
+
+            // check if we are in range of the bitmap
+            if (y + spacing < bitmapSize)
+            {
+                doesFit = true;
+            }
+            else
+            {
+                // double bitmap and start again
+                bitmapSize *= 2;
+                x = 0;
+                y = 0;
+                c[0] = ' ';
+            }
+        }
+
+        // create a new bitmap object and define a canvas object to draw on bitmap
+        Bitmap bitmap = Bitmap.createBitmap(bitmapSize, bitmapSize, Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        x = 0;
+        y = 0;
+        c[0] = ' ';
+        int[] metrics = new int[SpriteFont.NUM_GLYPHS * SpriteFont.GLYPH_METRICS];
+        Arrays.fill(metrics, -1);
+
+        // draw the characters on bitmap and set meta data
+        while (c[0] < 256)
+        {
+            paint.getTextBounds(c, 0, 1, charBounds);
+
+            // check if width of the area is larger than the bitmap -> increase space
+            if (x + charBounds.width() + 2 * padding > bitmap.getWidth())
+            {
+                x = 0;
+                y += spacing;
+            }
+
+            int drawPosX = x + padding - charBounds.left;
+            int drawPosY = y + padding - charBounds.top;
+            canvas.drawText(c, 0, 1, drawPosX, drawPosY, paint);
+
+            // the area and the offset include the padding
+            int index = c[0] * SpriteFont.GLYPH_METRICS;
+            metrics[index] = (int) Math.ceil(paint.measureText(c, 0, 1));
+            metrics[index + 1] = charBounds.left + drawPosX - padding;
+            metrics[index + 2] = charBounds.top + drawPosY - padding;
+            metrics[index + 3] = charBounds.right + drawPosX + padding;
+            metrics[index + 4] = charBounds.bottom + drawPosY + padding;
+            metrics[index + 5] = charBounds.left - padding;
+            metrics[index + 6] = charBounds.top - padding;
+
+            x += charBounds.width() + 2 * padding + 1;
+
+            c[0]++;
+
+            if (c[0] == 128)
+            {
+                c[0] = 160;
+            }
+        }
+
+        // the glyphs are white, only the coverage is kept
+        int[] pixels = new int[bitmapSize * bitmapSize];
+        bitmap.getPixels(pixels, 0, bitmapSize, 0, 0, bitmapSize, bitmapSize);
+        bitmap.recycle();
+
+        byte[] alpha = new byte[pixels.length];
+        for (int i = 0; i < pixels.length; ++i)
+        {
+            alpha[i] = (byte) (pixels[i] >>> 24);
+        }
+
+        return new FontAtlas(fontSize, bitmapSize, 0, metrics, alpha);
+    }
+
+    /**
+     * This method converts the coverage of the pixels into signed distances to the outline. A
+     * pixel with a coverage of at least 50% is inside. The distances to the nearest pixel on the
+     * other side are calculated with two passes of the 8SSEDT algorithm, every pixel takes the
+     * nearest pixel of its neighbours and the offset to it.
+     *
+     * @return the distances, 128 is the outline and spread pixels map to 127
+     */
+    static byte[] toDistanceField(byte[] coverage, int size, int spread)
+    {
+        int[] insideX = new int[coverage.length];
+        int[] insideY = new int[coverage.length];
+        int[] outsideX = new int[coverage.length];
+        int[] outsideY = new int[coverage.length];
+
+        // every pixel is its own nearest pixel of its side, the other side is unknown
+        int unknown = 2 * size;
+        for (int i = 0; i < coverage.length; ++i)
+        {
+            boolean inside = (coverage[i] & 0xff) >= 128;
+            insideX[i] = inside ? 0 : unknown;
+            insideY[i] = inside ? 0 : unknown;
+            outsideX[i] = inside ? unknown : 0;
+            outsideY[i] = inside ? unknown : 0;
+        }
+
+        propagate(insideX, insideY, size);
+        propagate(outsideX, outsideY, size);
+
+        byte[] distances = new byte[coverage.length];
+        for (int i = 0; i < coverage.length; ++i)
+        {
+            // the outline lies between the pixels, half a pixel from each side
+            float toInside = (float) Math.sqrt(insideX[i] * insideX[i] + insideY[i] * insideY[i]);
+            float toOutside = (float) Math.sqrt(outsideX[i] * outsideX[i] + outsideY[i] * outsideY[i]);
+            float distance = (toInside > 0) ? 0.5f - toInside : toOutside - 0.5f;
+
+            int value = Math.round(127.5f + 127.5f * distance / spread);
+            distances[i] = (byte) Math.max(0, Math.min(255, value));
+        }
+        return distances;
+    }
+
+    /**
+     * This method sets the offset of every pixel to the nearest seed, a pixel with the offset 0.
+     */
+    private static void propagate(int[] offsetX, int[] offsetY, int size)
+    {
+        for (int y = 0; y < size; ++y)
+        {
+            for (int x = 0; x < size; ++x)
+            {
+                compare(offsetX, offsetY, size, x, y, -1, 0);
+                compare(offsetX, offsetY, size, x, y, 0, -1);
+                compare(offsetX, offsetY, size, x, y, -1, -1);
+                compare(offsetX, offsetY, size, x, y, 1, -1);
+            }
+            for (int x = size - 1; x >= 0; --x)
+            {
+                compare(offsetX, offsetY, size, x, y, 1, 0);
+            }
+        }
+
+        for (int y = size - 1; y >= 0; --y)
+        {
+            for (int x = size - 1; x >= 0; --x)
+            {
+                compare(offsetX, offsetY, size, x, y, 1, 0);
+                compare(offsetX, offsetY, size, x, y, 0, 1);
+                compare(offsetX, offsetY, size, x, y, -1, 1);
+                compare(offsetX, offsetY, size, x, y, 1, 1);
+            }
+            for (int x = 0; x < size; ++x)
+            {
+                compare(offsetX, offsetY, size, x, y, -1, 0);
+            }
+        }
+    }
+
+    /**
+     * This method takes the nearest seed of the neighbour at dx, dy if it is nearer.
+     */
+    private static void compare(int[] offsetX, int[] offsetY, int size, int x, int y, int dx, int dy)
+    {
+        int nx = x + dx;
+        int ny = y + dy;
+        if (nx < 0 || ny < 0 || nx >= size || ny >= size)
+        {
+            return;
+        }
+
+        int i = y * size + x;
+        int n = ny * size + nx;
+        int candidateX = offsetX[n] + dx;
+        int candidateY = offsetY[n] + dy;
+        if (candidateX * candidateX + candidateY * candidateY < offsetX[i] * offsetX[i] + offsetY[i] * offsetY[i])
+        {
+            offsetX[i] = candidateX;
+            offsetY[i] = candidateY;
+        }
+    }
+
+    /**
+     * @return the size of the font in pixels
+     */
+    public float getFontSize()
+    {
+        return fontSize;
+    }
+
+    /**
+     * @return the width and height of the texture
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return 0 for a coverage atlas, otherwise the distance in pixels which is covered by the values
+     *         of the distance field
+     */
+    public int getSpread()
+    {
+        return spread;
+    }
+
+    /**
+     * @return TRUE if the atlas holds a distance field
+     */
+    public boolean isDistanceField()
+    {
+        return spread > 0;
+    }
+
+    /**
+     * @return the metrics of the glyphs, see SpriteFont.GLYPH_METRICS
+     */
+    public int[] getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @return the pixels of the texture as ARGB values. Like the bitmaps of android the colors of a
+     *         coverage atlas are premultiplied with the alpha, so the texture equals the rasterized
+     *         bitmap. A distance field is white, the alpha test cuts the outline.
+     */
+    public int[] getPixels()
+    {
+        int[] pixels = new int[alpha.length];
+        for (int i = 0; i < alpha.length; ++i)
+        {
+            int a = alpha[i] & 0xff;
+            pixels[i] = isDistanceField() ? (a << 24) | 0x00ffffff : (a << 24) | (a << 16) | (a << 8) | a;
+        }
+        return pixels;
+    }
+
+    /**
+     * This method writes the atlas in a binary format: a header with magic, version, font size,
+     * texture size and spread followed by the metrics and the coverage or distance of the pixels.
+     *
+     * @param stream the target stream
+     */
+    public void write(DataOutputStream stream) throws IOException
+    {
+        stream.writeInt(MAGIC);
+        stream.writeInt(VERSION);
+        stream.writeFloat(fontSize);
+        stream.writeInt(size);
+        stream.writeInt(spread);
+        for (int value : metrics)
+        {
+            stream.writeInt(value);
+        }
+        stream.write(alpha);
+    }
+
+    /**
+     * This method reads an atlas written by write.
+     *
+     * @param stream the source stream
+     * @return the atlas
+     * @throws IOException if the stream is no saved atlas
+     */
+    public static FontAtlas read(DataInputStream stream) throws IOException
+    {
+        if (stream.readInt() != MAGIC)
+        {
+            throw new IOException("The stream contains no font atlas!");
+        }
+
+        int version = stream.readInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported font atlas version " + version + "!");
+        }
+
+        float fontSize = stream.readFloat();
+        int size = stream.readInt();
+        if (size <= 0 || size > MAX_SIZE || (size & (size - 1)) != 0)
+        {
+            throw new IOException("Invalid font atlas size " + size + "!");
+        }
+
+        int spread = stream.readInt();
+        if (spread < 0)
+        {
+            throw new IOException("Invalid font atlas spread " + spread + "!");
+        }
+
+        int[] metrics = new int[SpriteFont.NUM_GLYPHS * SpriteFont.GLYPH_METRICS];
+        for (int i = 0; i < metrics.length; ++i)
+        {
+            metrics[i] = stream.readInt();
+        }
+
+        byte[] alpha = new byte[size * size];
+        stream.readFully(alpha);
+
+        return new FontAtlas(fontSize, size, spread, metrics, alpha);
+    }
+}
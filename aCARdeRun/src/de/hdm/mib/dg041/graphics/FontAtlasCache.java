@@ -0,0 +1,217 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import android.graphics.Typeface;
+import android.util.Log;
+
+/**
+ * This class caches the FontAtlas of every typeface and size, so a font is rasterized only once
+ * after the installation. An atlas is looked up in memory first, then in the directory of the
+ * cache and baked only if neither has it. Baked atlases are saved compressed to the directory:
+ * written to a temporary file and renamed, so a killed app does not leave a broken atlas.
+ *
+ * The atlases in memory stay valid after a loss of the openGL context, only the textures have to
+ * be uploaded again.
+ *
+ * A typeface has one distance field atlas for all sizes, see getDistanceField.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class FontAtlasCache
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static String TAG = FontAtlasCache.class.getName();
+
+    private static final String EXTENSION = ".font";
+    private static final String DISTANCE_FIELD_SUFFIX = "-distance";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    /** directory of the saved atlases, null to keep them in memory only **/
+    private File directory;
+    private Map<String, FontAtlas> atlases = new HashMap<String, FontAtlas>();
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param directory the directory of the saved atlases, for example in the cache directory of
+     *                  the app. null keeps the atlases in memory only.
+     */
+    public FontAtlasCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method returns the atlas of a font and bakes it if it is not cached yet.
+     *
+     * @param typeface the typeface, null for the default typeface
+     * @param name the name of the typeface, it has to be unique for every typeface and a valid
+     *             part of a file name
+     * @param fontSize the size of the font in pixels
+     * @return the atlas
+     */
+    public FontAtlas get(Typeface typeface, String name, float fontSize)
+    {
+        return get(name + "-" + fontSize, typeface, fontSize, false);
+    }
+
+    /**
+     * This method returns the distance field atlas of a typeface and bakes it if it is not cached
+     * yet.
+     *
+     * @param typeface the typeface, null for the default typeface
+     * @param name the name of the typeface, see get
+     * @return the atlas
+     */
+    public FontAtlas getDistanceField(Typeface typeface, String name)
+    {
+        return get(name + DISTANCE_FIELD_SUFFIX, typeface, FontAtlas.DISTANCE_FIELD_FONT_SIZE, true);
+    }
+
+    private FontAtlas get(String key, Typeface typeface, float fontSize, boolean distanceField)
+    {
+        FontAtlas atlas = atlases.get(key);
+        if (atlas != null)
+        {
+            return atlas;
+        }
+
+        File file = (directory != null) ? new File(directory, key + EXTENSION) : null;
+        if (file != null && file.exists())
+        {
+            try
+            {
+                atlas = load(file);
+                if (atlas.getFontSize() != fontSize || atlas.isDistanceField() != distanceField)
+                {
+                    throw new IOException(file + " contains another kind of font atlas!");
+                }
+            }
+            catch (IOException e)
+            {
+                Log.e(TAG, "ERROR - could not load the font atlas, it is baked again: " + e.getMessage());
+                atlas = null;
+            }
+        }
+
+        if (atlas == null)
+        {
+            atlas = distanceField ? FontAtlas.bakeDistanceField(typeface) : FontAtlas.bake(typeface, fontSize);
+            if (file != null)
+            {
+                save(atlas, file);
+            }
+        }
+
+        atlases.put(key, atlas);
+        return atlas;
+    }
+
+    /**
+     * This method removes all atlases from memory and from the directory, for example after the
+     * system fonts changed.
+     */
+    public void clear()
+    {
+        atlases.clear();
+
+        File[] files = (directory != null) ? directory.listFiles() : null;
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                if (file.getName().endsWith(EXTENSION))
+                {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private static FontAtlas load(File file) throws IOException
+    {
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(file))));
+        try
+        {
+            return FontAtlas.read(stream);
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    private void save(FontAtlas atlas, File file)
+    {
+        File temporary = new File(file.getPath() + TEMPORARY_EXTENSION);
+        try
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                throw new IOException("Could not create " + directory + "!");
+            }
+
+            FileOutputStream fileStream = new FileOutputStream(temporary);
+            DeflaterOutputStream deflater = new DeflaterOutputStream(new BufferedOutputStream(fileStream));
+            DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(deflater));
+            try
+            {
+                atlas.write(stream);
+                stream.flush();
+                deflater.finish();
+                deflater.flush();
+                fileStream.getFD().sync();
+            }
+            finally
+            {
+                stream.close();
+            }
+
+            if (!temporary.renameTo(file))
+            {
+                throw new IOException("Could not rename " + temporary + " to " + file + "!");
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            Log.e(TAG, "ERROR - could not save the font atlas: " + e.getMessage());
+            temporary.delete();
+        }
+    }
+}
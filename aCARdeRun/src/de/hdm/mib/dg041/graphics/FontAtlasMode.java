@@ -0,0 +1,30 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+/**
+ * This enumeration defines how the glyphs of a SpriteFont are stored and drawn. BITMAP rasterizes
+ * every font size into its own texture. The distance field modes share one FontAtlas for every
+ * size: DISTANCE_FIELD_ALPHA_TEST cuts the outline sharply, DISTANCE_FIELD_BLEND cuts a little
+ * outside of it and blends the edge for smoother but slightly lighter glyphs.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public enum FontAtlasMode
+{
+    BITMAP,
+    DISTANCE_FIELD_ALPHA_TEST,
+    DISTANCE_FIELD_BLEND
+}
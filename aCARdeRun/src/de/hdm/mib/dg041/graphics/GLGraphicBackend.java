@@ -0,0 +1,305 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+
+import android.graphics.Bitmap;
+import android.opengl.GLUtils;
+import android.util.Log;
+
+/**
+ * This backend passes the commands of the GraphicDevice to a live openGL ES context.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class GLGraphicBackend implements GraphicBackend
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static String TAG = GLGraphicBackend.class.getName();
+
+    private GL10 gl;
+
+    /** null if the context does not support buffer objects (openGL ES 1.1) **/
+    private GL11 gl11;
+
+    private int[] handles = new int[1];
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param gl the context of the GL thread
+     */
+    public GLGraphicBackend(GL10 gl)
+    {
+        this.gl = gl;
+        gl.glHint(GL10.GL_PERSPECTIVE_CORRECTION_HINT, GL10.GL_NICEST);
+
+        // the GL object implements GL11 even on 1.0 contexts, so the version has to be checked
+        String version = gl.glGetString(GL10.GL_VERSION);
+        if (gl instanceof GL11 && version != null && !version.contains("1.0"))
+        {
+            gl11 = (GL11) gl;
+        }
+        else
+        {
+            Log.w(TAG, "Buffer objects are not supported, using client side vertex arrays!");
+        }
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    @Override
+    public boolean isBufferObjectSupported()
+    {
+        return gl11 != null;
+    }
+
+    @Override
+    public void clearColor(float red, float green, float blue, float alpha)
+    {
+        gl.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void clearDepth(float depth)
+    {
+        gl.glClearDepthf(depth);
+    }
+
+    @Override
+    public void clear(int mask)
+    {
+        gl.glClear(mask);
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height)
+    {
+        gl.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void loadProjectionMatrix(float[] m)
+    {
+        gl.glMatrixMode(GL10.GL_PROJECTION);
+        gl.glLoadMatrixf(m, 0);
+        gl.glMatrixMode(GL10.GL_MODELVIEW);
+    }
+
+    @Override
+    public void loadWorldMatrix(float[] m)
+    {
+        gl.glLoadMatrixf(m, 0);
+    }
+
+    @Override
+    public void enable(int capability)
+    {
+        gl.glEnable(capability);
+    }
+
+    @Override
+    public void disable(int capability)
+    {
+        gl.glDisable(capability);
+    }
+
+    @Override
+    public void alphaFunc(int function, float value)
+    {
+        gl.glAlphaFunc(function, value);
+    }
+
+    @Override
+    public void blendFunc(int srcFactor, int dstFactor)
+    {
+        gl.glBlendFunc(srcFactor, dstFactor);
+    }
+
+    @Override
+    public void cullFace(int side)
+    {
+        gl.glCullFace(side);
+    }
+
+    @Override
+    public void depthFunc(int function)
+    {
+        gl.glDepthFunc(function);
+    }
+
+    @Override
+    public void depthMask(boolean enabled)
+    {
+        gl.glDepthMask(enabled);
+    }
+
+    @Override
+    public void color(float red, float green, float blue, float alpha)
+    {
+        gl.glColor4f(red, green, blue, alpha);
+    }
+
+    @Override
+    public void textureEnvColor(float[] color)
+    {
+        gl.glTexEnvfv(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_COLOR, color, 0);
+    }
+
+    @Override
+    public void textureEnvMode(int mode)
+    {
+        gl.glTexEnvx(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_MODE, mode);
+    }
+
+    @Override
+    public int genTexture()
+    {
+        gl.glGenTextures(1, handles, 0);
+        return handles[0];
+    }
+
+    @Override
+    public void bindTexture(int handle)
+    {
+        gl.glBindTexture(GL10.GL_TEXTURE_2D, handle);
+    }
+
+    @Override
+    public void texImage2D(int level, Bitmap bitmap)
+    {
+        GLUtils.texImage2D(GL10.GL_TEXTURE_2D, level, bitmap, 0);
+    }
+
+    @Override
+    public void texImage2D(int level, int width, int height, int[] pixels)
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * width * height);
+        for (int i = 0; i < width * height; ++i)
+        {
+            int argb = pixels[i];
+            buffer.put((byte) (argb >> 16));
+            buffer.put((byte) (argb >> 8));
+            buffer.put((byte) argb);
+            buffer.put((byte) (argb >>> 24));
+        }
+        buffer.position(0);
+
+        gl.glTexImage2D(GL10.GL_TEXTURE_2D, level, GL10.GL_RGBA, width, height, 0, GL10.GL_RGBA, GL10.GL_UNSIGNED_BYTE, buffer);
+    }
+
+    @Override
+    public void texParameter(int parameter, int value)
+    {
+        gl.glTexParameterx(GL10.GL_TEXTURE_2D, parameter, value);
+    }
+
+    @Override
+    public int genBuffer()
+    {
+        gl11.glGenBuffers(1, handles, 0);
+        return handles[0];
+    }
+
+    @Override
+    public void bindBuffer(int target, int handle)
+    {
+        gl11.glBindBuffer(target, handle);
+    }
+
+    @Override
+    public void bufferData(int target, int size, Buffer data, int usage)
+    {
+        gl11.glBufferData(target, size, data, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, int offset, int size, Buffer data)
+    {
+        gl11.glBufferSubData(target, offset, size, data);
+    }
+
+    @Override
+    public void enableClientState(int array)
+    {
+        gl.glEnableClientState(array);
+    }
+
+    @Override
+    public void disableClientState(int array)
+    {
+        gl.glDisableClientState(array);
+    }
+
+    @Override
+    public void pointer(int array, int count, int type, int stride, ByteBuffer buffer, int offset)
+    {
+        if (buffer != null)
+        {
+            // client side arrays start at the position of the buffer
+            buffer.position(offset);
+        }
+
+        switch (array)
+        {
+            case GL10.GL_VERTEX_ARRAY:
+                if (buffer != null) gl.glVertexPointer(count, type, stride, buffer);
+                else gl11.glVertexPointer(count, type, stride, offset);
+                break;
+
+            case GL10.GL_COLOR_ARRAY:
+                if (buffer != null) gl.glColorPointer(count, type, stride, buffer);
+                else gl11.glColorPointer(count, type, stride, offset);
+                break;
+
+            case GL10.GL_TEXTURE_COORD_ARRAY:
+                if (buffer != null) gl.glTexCoordPointer(count, type, stride, buffer);
+                else gl11.glTexCoordPointer(count, type, stride, offset);
+                break;
+        }
+    }
+
+    @Override
+    public void drawArrays(int mode, int first, int count)
+    {
+        gl.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, ByteBuffer indices)
+    {
+        if (indices != null)
+        {
+            indices.position(0);
+            gl.glDrawElements(mode, count, type, indices);
+        }
+        else
+        {
+            gl11.glDrawElements(mode, count, type, 0);
+        }
+    }
+}
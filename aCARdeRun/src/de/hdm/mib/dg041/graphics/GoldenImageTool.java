@@ -0,0 +1,182 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This class renders the AssetScene with the SoftwareGraphicBackend and compares the frame with a
+ * golden image. A difference means that a change of the draw order or the state handling changed
+ * the rendered pixels:
+ *
+ *   java de.hdm.mib.dg041.graphics.GoldenImageTool [check|update] [asset directory] [golden image]
+ *
+ * With update the golden image is replaced by the current frame, this has to be done on purpose
+ * after a wanted change. Otherwise the frame is compared and written next to the golden image as
+ * .actual.ppm if it differs, the tool exits with 1 in this case.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class GoldenImageTool
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 120;
+
+    /** allowed difference per color channel, covers rounding differences of the float math **/
+    private static final int TOLERANCE = 2;
+
+    private static final String DEFAULT_ASSET_DIRECTORY = "assets";
+    private static final String DEFAULT_GOLDEN_IMAGE = "golden/asset_scene.ppm";
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public static void main(String[] args) throws IOException
+    {
+        boolean update = args.length > 0 && args[0].equals("update");
+        File directory = new File((args.length > 1) ? args[1] : DEFAULT_ASSET_DIRECTORY);
+        File golden = new File((args.length > 2) ? args[2] : DEFAULT_GOLDEN_IMAGE);
+
+        SoftwareGraphicBackend backend = new SoftwareGraphicBackend(WIDTH, HEIGHT);
+        GraphicDevice graphicDevice = new GraphicDevice();
+        graphicDevice.onSurfaceCreated(backend);
+        graphicDevice.resize(WIDTH, HEIGHT);
+        Renderer renderer = new Renderer(graphicDevice);
+
+        AssetScene scene = AssetScene.createGrid(graphicDevice, directory, (float) WIDTH / HEIGHT);
+
+        long start = System.nanoTime();
+        graphicDevice.clear(0.2f, 0.2f, 0.25f, 1.0f, 1.0f);
+        scene.submit(renderer.getRenderQueue());
+        renderer.getRenderQueue().flush();
+        long time = System.nanoTime() - start;
+
+        System.out.println("Rendered " + renderer.getNumDrawn() + " of " + scene.getNumItems() + " meshes in " +
+                (time / 1000000.0f) + " ms.");
+
+        if (update)
+        {
+            File parent = golden.getAbsoluteFile().getParentFile();
+            if (parent != null)
+            {
+                parent.mkdirs();
+            }
+            writeImage(backend, golden);
+            System.out.println("Updated " + golden + ".");
+            return;
+        }
+
+        int[] expected = readImage(golden, WIDTH, HEIGHT);
+        int differences = SoftwareGraphicBackend.compareImages(expected, backend.getColorBuffer(), TOLERANCE);
+        if (differences == 0)
+        {
+            System.out.println("The frame matches " + golden + ".");
+            return;
+        }
+
+        File actual = new File(golden.getPath().replace(".ppm", ".actual.ppm"));
+        writeImage(backend, actual);
+        System.out.println(differences + " pixels differ from " + golden + ", the frame was written to " + actual + ".");
+        System.exit(1);
+    }
+
+    private static void writeImage(SoftwareGraphicBackend backend, File file) throws IOException
+    {
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(file));
+        try
+        {
+            backend.writeImage(stream);
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * This method reads a binary PPM image as written by SoftwareGraphicBackend.writeImage.
+     *
+     * @return the pixels with the bottom row first like the color buffer
+     */
+    private static int[] readImage(File file, int width, int height) throws IOException
+    {
+        InputStream stream = new BufferedInputStream(new FileInputStream(file));
+        try
+        {
+            if (!readToken(stream).equals("P6") || Integer.parseInt(readToken(stream)) != width ||
+                Integer.parseInt(readToken(stream)) != height || !readToken(stream).equals("255"))
+            {
+                throw new IOException(file + " is no binary PPM image of " + width + "x" + height + " pixels!");
+            }
+
+            int[] pixels = new int[width * height];
+            for (int y = height - 1; y >= 0; --y)
+            {
+                for (int x = 0; x < width; ++x)
+                {
+                    int r = stream.read();
+                    int g = stream.read();
+                    int b = stream.read();
+                    if (b < 0)
+                    {
+                        throw new IOException(file + " ends unexpectedly!");
+                    }
+                    pixels[y * width + x] = 0xff000000 | (r << 16) | (g << 8) | b;
+                }
+            }
+            return pixels;
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * @return the next token of the header, the single whitespace after it is consumed
+     */
+    private static String readToken(InputStream stream) throws IOException
+    {
+        StringBuilder token = new StringBuilder();
+        int c;
+        while ((c = stream.read()) >= 0)
+        {
+            if (Character.isWhitespace(c))
+            {
+                if (token.length() > 0)
+                {
+                    break;
+                }
+            }
+            else
+            {
+                token.append((char) c);
+            }
+        }
+        return token.toString();
+    }
+}
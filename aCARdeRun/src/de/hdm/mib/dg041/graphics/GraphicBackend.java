@@ -0,0 +1,158 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import android.graphics.Bitmap;
+
+/**
+ * This interface defines the commands which the GraphicDevice passes to the graphics hardware.
+ * The GraphicDevice keeps the shadow state and the buffer handling, the backend only executes
+ * the commands. Constants are the openGL ES constants of GL10 and GL11, so a backend which does
+ * not talk to openGL, like the RecordingGraphicBackend, can run without a GL context.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public interface GraphicBackend
+{
+    /**
+     * @return TRUE if buffer objects of openGL ES 1.1 are supported
+     */
+    public boolean isBufferObjectSupported();
+
+    // ****************** FRAME ****************** //
+
+    public void clearColor(float red, float green, float blue, float alpha);
+
+    public void clearDepth(float depth);
+
+    /**
+     * @param mask GL_COLOR_BUFFER_BIT and / or GL_DEPTH_BUFFER_BIT
+     */
+    public void clear(int mask);
+
+    public void viewport(int x, int y, int width, int height);
+
+    // ****************** TRANSFORMATION ****************** //
+
+    /**
+     * @param m the column major projection * view matrix
+     */
+    public void loadProjectionMatrix(float[] m);
+
+    /**
+     * @param m the column major world matrix
+     */
+    public void loadWorldMatrix(float[] m);
+
+    // ****************** STATE ****************** //
+
+    /**
+     * @param capability for example GL_BLEND or GL_DEPTH_TEST
+     */
+    public void enable(int capability);
+
+    public void disable(int capability);
+
+    public void alphaFunc(int function, float value);
+
+    public void blendFunc(int srcFactor, int dstFactor);
+
+    public void cullFace(int side);
+
+    public void depthFunc(int function);
+
+    public void depthMask(boolean enabled);
+
+    public void color(float red, float green, float blue, float alpha);
+
+    public void textureEnvColor(float[] color);
+
+    public void textureEnvMode(int mode);
+
+    // ****************** TEXTURES ****************** //
+
+    /**
+     * @return the handle of a new texture object
+     */
+    public int genTexture();
+
+    public void bindTexture(int handle);
+
+    /**
+     * This method uploads a mipmap level of the bound texture.
+     */
+    public void texImage2D(int level, Bitmap bitmap);
+
+    /**
+     * This method uploads a mipmap level of the bound texture.
+     *
+     * @param pixels ARGB values, the first row is the bottom row of the texture (t = 0)
+     */
+    public void texImage2D(int level, int width, int height, int[] pixels);
+
+    /**
+     * @param parameter for example GL_TEXTURE_MIN_FILTER or GL_TEXTURE_WRAP_S
+     * @param value
+     */
+    public void texParameter(int parameter, int value);
+
+    // ****************** BUFFER OBJECTS ****************** //
+
+    /**
+     * @return the handle of a new buffer object
+     */
+    public int genBuffer();
+
+    /**
+     * @param target GL_ARRAY_BUFFER or GL_ELEMENT_ARRAY_BUFFER
+     * @param handle the buffer object or 0
+     */
+    public void bindBuffer(int target, int handle);
+
+    public void bufferData(int target, int size, Buffer data, int usage);
+
+    public void bufferSubData(int target, int offset, int size, Buffer data);
+
+    // ****************** DRAWING ****************** //
+
+    /**
+     * @param array GL_VERTEX_ARRAY, GL_COLOR_ARRAY or GL_TEXTURE_COORD_ARRAY
+     */
+    public void enableClientState(int array);
+
+    public void disableClientState(int array);
+
+    /**
+     * This method sets the source of a vertex attribute.
+     *
+     * @param array GL_VERTEX_ARRAY, GL_COLOR_ARRAY or GL_TEXTURE_COORD_ARRAY
+     * @param count the number of components
+     * @param type the type of the components
+     * @param stride
+     * @param buffer the client side vertices or null if the bound buffer object is used
+     * @param offset the offset of the attribute in bytes
+     */
+    public void pointer(int array, int count, int type, int stride, ByteBuffer buffer, int offset);
+
+    public void drawArrays(int mode, int first, int count);
+
+    /**
+     * @param indices the client side indices or null if the bound index buffer object is used
+     */
+    public void drawElements(int mode, int count, int type, ByteBuffer indices);
+}
@@ -16,19 +16,23 @@ package de.hdm.mib.dg041.graphics;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.security.InvalidParameterException;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Matrix;
 import android.graphics.Typeface;
-import android.opengl.GLUtils;
 import android.util.Log;
 
 import de.hdm.mib.dg041.math.Matrix4x4;
 
 /**
- * This class defines a graphical device depending on the openGL ES 1.0 framework.
+ * This class defines a graphical device depending on the openGL ES 1.0 framework. The commands
+ * are executed by a GraphicBackend, usually the GLGraphicBackend of the GL thread. A
+ * RecordingGraphicBackend records them instead, so the render path also runs without a GPU.
  *
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
  * Created on 23.02.2012.
@@ -39,9 +43,60 @@ public class GraphicDevice
     // PROPERTIES
     // --------------------------------------------------------
 
-    private GL10 gl;
+    private GraphicBackend backend;
     private static String TAG = GraphicDevice.class.getName();
 
+    /** FALSE if the context does not support buffer objects (openGL ES 1.1) **/
+    private boolean bufferObjects;
+
+    /** incremented for every new context, buffer objects of older contexts are invalid **/
+    private int contextGeneration;
+
+    // shadow copy of the GL state to skip redundant state changes, null / UNKNOWN / NaN are unknown values
+    private static final int UNKNOWN = -1;
+
+    private static final int CAPABILITY_ALPHA_TEST = 0;
+    private static final int CAPABILITY_BLEND = 1;
+    private static final int CAPABILITY_CULL_FACE = 2;
+    private static final int CAPABILITY_DEPTH_TEST = 3;
+    private static final int CAPABILITY_TEXTURE_2D = 4;
+    private static final int[] CAPABILITIES = {
+        GL10.GL_ALPHA_TEST, GL10.GL_BLEND, GL10.GL_CULL_FACE, GL10.GL_DEPTH_TEST, GL10.GL_TEXTURE_2D
+    };
+
+    private static final int CLIENT_ARRAY_VERTEX = 0;
+    private static final int CLIENT_ARRAY_COLOR = 1;
+    private static final int CLIENT_ARRAY_TEXTURE_COORD = 2;
+    private static final int[] CLIENT_ARRAYS = {
+        GL10.GL_VERTEX_ARRAY, GL10.GL_COLOR_ARRAY, GL10.GL_TEXTURE_COORD_ARRAY
+    };
+
+    private int[] capabilityStates = new int[CAPABILITIES.length];
+    private int[] clientArrayStates = new int[CLIENT_ARRAYS.length];
+    private int boundTextureHandle;
+    private Texture boundTexture;
+    private CompareFunction alphaTestFunction;
+    private float alphaTestValue;
+    private BlendFactor blendFactorSrc, blendFactorDst;
+    private Side cullSide;
+    private CompareFunction depthTestFunction;
+    private int depthWrite;
+    private float[] materialColor = new float[4];
+    private float[] textureBlendColor = new float[4];
+    private TextureBlendMode textureBlendMode;
+
+    private int stateChangesIssued;
+    private int stateChangesSkipped;
+
+    private Camera camera;
+
+    /** name of the default typeface in the font atlas cache **/
+    private static final String DEFAULT_TYPEFACE_NAME = "default";
+    private FontAtlasCache fontAtlasCache = new FontAtlasCache(null);
+    private FontAtlasMode fontAtlasMode = FontAtlasMode.BITMAP;
+    /** the uploaded textures of the font atlases in the current context **/
+    private Map<FontAtlas, Texture> fontTextures = new HashMap<FontAtlas, Texture>();
+
     // --------------------------------------------------------
     // METHODS
     // --------------------------------------------------------
@@ -52,8 +107,99 @@ public class GraphicDevice
      */
     public void onSurfaceCreated(GL10 gl)
     {
-        this.gl = gl;
-        gl.glHint(GL10.GL_PERSPECTIVE_CORRECTION_HINT, GL10.GL_NICEST);
+        onSurfaceCreated(new GLGraphicBackend(gl));
+    }
+
+    /**
+     * This method connects the device with a new backend, for example a new GL context or a
+     * RecordingGraphicBackend.
+     *
+     * @param backend
+     */
+    public void onSurfaceCreated(GraphicBackend backend)
+    {
+        this.backend = backend;
+        this.bufferObjects = backend.isBufferObjectSupported();
+
+        // the handles of all buffer objects and textures died with the previous context
+        contextGeneration++;
+        fontTextures.clear();
+        invalidateState();
+    }
+
+    /**
+     * @return the backend which executes the commands of the device
+     */
+    public GraphicBackend getBackend()
+    {
+        return backend;
+    }
+
+    /**
+     * This method forgets the shadow copy of the GL state, so the next call of every state method
+     * is passed to openGL. This has to be called if the GL state was changed without this device.
+     */
+    public void invalidateState()
+    {
+        for (int i = 0; i < capabilityStates.length; ++i)
+        {
+            capabilityStates[i] = UNKNOWN;
+        }
+        for (int i = 0; i < clientArrayStates.length; ++i)
+        {
+            clientArrayStates[i] = UNKNOWN;
+        }
+
+        boundTextureHandle = UNKNOWN;
+        boundTexture = null;
+        alphaTestFunction = null;
+        alphaTestValue = Float.NaN;
+        blendFactorSrc = null;
+        blendFactorDst = null;
+        cullSide = null;
+        depthTestFunction = null;
+        depthWrite = UNKNOWN;
+        textureBlendMode = null;
+
+        for (int i = 0; i < 4; ++i)
+        {
+            materialColor[i] = Float.NaN;
+            textureBlendColor[i] = Float.NaN;
+        }
+    }
+
+    /**
+     * @return the number of state changes passed to openGL since the last reset
+     */
+    public int getStateChangesIssued()
+    {
+        return stateChangesIssued;
+    }
+
+    /**
+     * @return the number of redundant state changes skipped since the last reset
+     */
+    public int getStateChangesSkipped()
+    {
+        return stateChangesSkipped;
+    }
+
+    /**
+     * This method resets the state change counters, for example at the beginning of a frame.
+     */
+    public void resetStateCounters()
+    {
+        stateChangesIssued = 0;
+        stateChangesSkipped = 0;
+    }
+
+    /**
+     * @return TRUE if vertex and index data is uploaded into buffer objects, FALSE if client side
+     *         arrays are used
+     */
+    public boolean isBufferObjectSupported()
+    {
+        return bufferObjects;
     }
 
 
@@ -67,8 +213,8 @@ public class GraphicDevice
      */
     public void clear(float red, float green, float blue)
     {
-        gl.glClearColor(red, green, blue, 1.0f);
-	    gl.glClear(GL10.GL_COLOR_BUFFER_BIT);
+        backend.clearColor(red, green, blue, 1.0f);
+	    backend.clear(GL10.GL_COLOR_BUFFER_BIT);
     }
 
     /**
@@ -82,8 +228,8 @@ public class GraphicDevice
      */
     public void clear(float red, float green, float blue, float alpha)
     {
-        gl.glClearColor(red, green, blue, alpha);
-        gl.glClear(GL10.GL_COLOR_BUFFER_BIT);
+        backend.clearColor(red, green, blue, alpha);
+        backend.clear(GL10.GL_COLOR_BUFFER_BIT);
     }
     
     /** Methode zum Zeichnen von RGB + Alpha + Tiefe**/
@@ -99,14 +245,34 @@ public class GraphicDevice
      */
     public void clear(float red, float green, float blue, float alpha, float depth)
     {
-	    gl.glClearColor(red, green, blue, alpha);
-	    gl.glClearDepthf(depth);
-	    gl.glClear(GL10.GL_COLOR_BUFFER_BIT | GL10.GL_DEPTH_BUFFER_BIT);
+	    backend.clearColor(red, green, blue, alpha);
+	    backend.clearDepth(depth);
+	    backend.clear(GL10.GL_COLOR_BUFFER_BIT | GL10.GL_DEPTH_BUFFER_BIT);
     }
 
     public void draw(int mode, int first, int count)
     {
-	    gl.glDrawArrays(mode, first, count);
+	    backend.drawArrays(mode, first, count);
+    }
+
+    /**
+     * This method draws the primitives referenced by the given index buffer. The vertex buffer
+     * has to be bound before.
+     *
+     * @param mode
+     * @param indexBuffer
+     */
+    public void drawIndexed(int mode, IndexBuffer indexBuffer)
+    {
+        if (bufferObjects)
+        {
+            uploadIndexBuffer(indexBuffer);
+            backend.drawElements(mode, indexBuffer.getNumIndices(), indexBuffer.getType(), null);
+            backend.bindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, 0);
+            return;
+        }
+
+	    backend.drawElements(mode, indexBuffer.getNumIndices(), indexBuffer.getType(), indexBuffer.getBuffer());
     }
 
     /**
@@ -116,7 +282,7 @@ public class GraphicDevice
      */
     public void resize(int width, int height)
     {
-	    gl.glViewport(0, 0, width, height);
+	    backend.viewport(0, 0, width, height);
     }
 
     /**
@@ -125,11 +291,18 @@ public class GraphicDevice
      */
     public void setCamera(Camera camera)
     {
-        Matrix4x4 viewCamera = Matrix4x4.multiply(camera.getProjection(), camera.getView());
+        this.camera = camera;
+
+        // projection * view is cached by the camera until one of them changes
+        backend.loadProjectionMatrix(camera.getViewProjection().m);
+    }
 
-        gl.glMatrixMode(GL10.GL_PROJECTION);
-        gl.glLoadMatrixf(viewCamera.m, 0);
-        gl.glMatrixMode(GL10.GL_MODELVIEW);
+    /**
+     * @return the camera which was set last or null
+     */
+    public Camera getCamera()
+    {
+        return camera;
     }
 
     /**
@@ -139,68 +312,140 @@ public class GraphicDevice
      */
     public void setWorldMatrix(Matrix4x4 world)
     {
-	    gl.glLoadMatrixf(world.m, 0);
+	    backend.loadWorldMatrix(world.m);
     }
 
     // extended methods to use the vertex buffer to display vertices
 
     /**
      * This method collects the vertex declaraion and iterates over all collected vertex elements.
+     * The client arrays stay enabled after the draw call, only arrays which the vertex buffer does
+     * not use are disabled, so consecutive meshes with the same elements enable nothing.
      *
      * @param vertexBuffer
      */
     public void bindVertexBuffer(VertexBuffer vertexBuffer)
     {
-	    ByteBuffer buffer = vertexBuffer.getBuffer();
-	
+        // with buffer objects the pointers are offsets into the bound buffer object
+        ByteBuffer buffer = null;
+        if (bufferObjects)
+        {
+            uploadVertexBuffer(vertexBuffer);
+        }
+        else
+        {
+            buffer = vertexBuffer.getBuffer();
+        }
+
+        int usedArrays = 0;
         for (VertexElement element : vertexBuffer.getElements())
         {
-            int offset = element.getOffset();
-            int stride = element.getStride();
-            int type = element.getType();
-            int count = element.getCount();
+            int clientArray = getClientArray(element.getSemantic());
+            if (clientArray == UNKNOWN)
+            {
+                continue;
+            }
+            setClientArray(clientArray, true);
+            backend.pointer(CLIENT_ARRAYS[clientArray], element.getCount(), element.getType(), element.getStride(), buffer, element.getOffset());
+            usedArrays |= 1 << clientArray;
+        }
+
+        // an array of the previous vertex buffer would be read beyond the end of this one
+        for (int clientArray = 0; clientArray < CLIENT_ARRAYS.length; ++clientArray)
+        {
+            if ((usedArrays & (1 << clientArray)) == 0)
+            {
+                setClientArray(clientArray, false);
+            }
+        }
+    }
+
+    /**
+     * This method creates the buffer object of a vertex buffer if necessary, binds it and uploads
+     * changed data. Buffer objects are created with the full capacity of the byte buffer, later
+     * changes only upload the used vertices.
+     *
+     * @param vertexBuffer
+     */
+    private void uploadVertexBuffer(VertexBuffer vertexBuffer)
+    {
+        ByteBuffer buffer = vertexBuffer.getBuffer();
+        buffer.position(0);
+
+        if (vertexBuffer.getHandleGeneration() != contextGeneration)
+        {
+            int handle = backend.genBuffer();
+            vertexBuffer.setHandle(handle, contextGeneration);
+
+            backend.bindBuffer(GL11.GL_ARRAY_BUFFER, handle);
+            backend.bufferData(GL11.GL_ARRAY_BUFFER, buffer.capacity(), buffer, getGLConstant(vertexBuffer.getUsage()));
+            vertexBuffer.setDirty(false);
+            return;
+        }
 
-            buffer.position(offset);
+        backend.bindBuffer(GL11.GL_ARRAY_BUFFER, vertexBuffer.getHandle());
 
-            switch (element.getSemantic())
+        if (vertexBuffer.isDirty())
+        {
+            VertexElement[] elements = vertexBuffer.getElements();
+            int stride = (elements.length > 0) ? elements[0].getStride() : 0;
+            int size = Math.min(stride * vertexBuffer.getNumVertices(), buffer.capacity());
+
+            if (size > 0)
             {
-                case VERTEX_ELEMENT_POSITION:
-                    gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-                    gl.glVertexPointer(count, type, stride, buffer);
-                    break;
-
-                case VERTEX_ELEMENT_COLOR:
-                    gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
-                    gl.glColorPointer(count, type, stride, buffer);
-                    break;
-
-                case VERTEX_ELEMENT_TEXCOORD:
-                    gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
-                    gl.glTexCoordPointer(count, type, stride, buffer);
-                    break;
+                backend.bufferSubData(GL11.GL_ARRAY_BUFFER, 0, size, buffer);
             }
+            vertexBuffer.setDirty(false);
+        }
+    }
+
+    /**
+     * This method creates the buffer object of an index buffer if necessary, binds it and uploads
+     * changed data.
+     *
+     * @param indexBuffer
+     */
+    private void uploadIndexBuffer(IndexBuffer indexBuffer)
+    {
+        ByteBuffer buffer = indexBuffer.getBuffer();
+        buffer.position(0);
+
+        if (indexBuffer.getHandleGeneration() != contextGeneration)
+        {
+            indexBuffer.setHandle(backend.genBuffer(), contextGeneration);
+            indexBuffer.setDirty(true);
+        }
+
+        backend.bindBuffer(GL11.GL_ELEMENT_ARRAY_BUFFER, indexBuffer.getHandle());
+
+        if (indexBuffer.isDirty())
+        {
+            backend.bufferData(GL11.GL_ELEMENT_ARRAY_BUFFER, buffer.capacity(), buffer, GL11.GL_STATIC_DRAW);
+            indexBuffer.setDirty(false);
         }
     }
 
+    /**
+     * This method disables the client arrays of a vertex buffer and unbinds its buffer object. It
+     * is not needed between draw calls, only if openGL is used without this device afterwards.
+     *
+     * @param vertexBuffer
+     */
     public void unbindVertexBuffer(VertexBuffer vertexBuffer)
     {
         for (VertexElement element : vertexBuffer.getElements())
         {
-            switch (element.getSemantic())
+            int clientArray = getClientArray(element.getSemantic());
+            if (clientArray != UNKNOWN)
             {
-                case VERTEX_ELEMENT_POSITION:
-                    gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
-                    break;
-
-                case VERTEX_ELEMENT_COLOR:
-                    gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
-                    break;
-
-                case VERTEX_ELEMENT_TEXCOORD:
-                    gl.glDisableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
-                    break;
+                setClientArray(clientArray, false);
             }
         }
+
+        if (bufferObjects)
+        {
+            backend.bindBuffer(GL11.GL_ARRAY_BUFFER, 0);
+        }
     }
 
     // extended methods to support textures
@@ -246,14 +491,13 @@ public class GraphicDevice
         int width = bitmap.getWidth();
         int height = bitmap.getHeight();
 
-        int[] handles = new int[1];
-        gl.glGenTextures(1, handles, 0);
-
         // bind texture
-        int handle = handles[0];
-        gl.glBindTexture(GL10.GL_TEXTURE_2D, handle);
+        int handle = backend.genTexture();
+        backend.bindTexture(handle);
 
         Texture texture = new Texture(handle, width, height);
+        boundTextureHandle = handle;
+        boundTexture = texture;
 
         // mirror bitmap on y-axis
         Matrix matrix = new Matrix();
@@ -263,7 +507,7 @@ public class GraphicDevice
         // if nacessary create mipmaps from the texture and load it
         while (width >= 1 && height >= 1)
         {
-            GLUtils.texImage2D(GL10.GL_TEXTURE_2D, level, bitmap, 0);
+            backend.texImage2D(level, bitmap);
 
             if(height == 1 || width == 1)
             {
@@ -280,6 +524,102 @@ public class GraphicDevice
         return texture;
     }
 
+    /**
+     * This method creates a texture from ARGB pixels, for example a texture which was generated
+     * in code. The mipmaps are calculated by averaging 2x2 pixels.
+     *
+     * @param width
+     * @param height
+     * @param pixels ARGB values, row by row from the top like the pixels of a bitmap
+     * @return
+     */
+    public Texture createTexture(int width, int height, int[] pixels)
+    {
+        return createTexture(width, height, pixels, true);
+    }
+
+    /**
+     * This method creates a texture from ARGB pixels.
+     *
+     * @param width
+     * @param height
+     * @param pixels ARGB values, row by row from the top like the pixels of a bitmap
+     * @param mipmaps FALSE to upload only the texture itself, for textures which are never minified
+     * @return
+     */
+    public Texture createTexture(int width, int height, int[] pixels, boolean mipmaps)
+    {
+        if (pixels.length < width * height)
+        {
+            throw new InvalidParameterException("The texture needs width * height pixels!");
+        }
+
+        int handle = backend.genTexture();
+        backend.bindTexture(handle);
+
+        Texture texture = new Texture(handle, width, height);
+        boundTextureHandle = handle;
+        boundTexture = texture;
+
+        // mirror the rows on the y-axis like the bitmaps
+        int[] level = new int[width * height];
+        for (int y = 0; y < height; ++y)
+        {
+            System.arraycopy(pixels, (height - 1 - y) * width, level, y * width, width);
+        }
+
+        int levelIndex = 0;
+        while (true)
+        {
+            backend.texImage2D(levelIndex, width, height, level);
+
+            if (!mipmaps || height == 1 || width == 1)
+            {
+                break;
+            }
+
+            level = downsample(level, width, height);
+            levelIndex++;
+            width /= 2;
+            height /= 2;
+        }
+
+        return texture;
+    }
+
+    /**
+     * @return the pixels of the next smaller mipmap level, every pixel is the average of 2x2 pixels
+     */
+    private static int[] downsample(int[] pixels, int width, int height)
+    {
+        int w = width / 2;
+        int h = height / 2;
+        int[] result = new int[w * h];
+
+        for (int y = 0; y < h; ++y)
+        {
+            for (int x = 0; x < w; ++x)
+            {
+                int i = 2 * y * width + 2 * x;
+                int p0 = pixels[i];
+                int p1 = pixels[i + 1];
+                int p2 = pixels[i + width];
+                int p3 = pixels[i + width + 1];
+
+                int argb = 0;
+                for (int shift = 0; shift < 32; shift += 8)
+                {
+                    int sum = ((p0 >>> shift) & 0xff) + ((p1 >>> shift) & 0xff) +
+                              ((p2 >>> shift) & 0xff) + ((p3 >>> shift) & 0xff);
+                    argb |= ((sum + 2) / 4) << shift;
+                }
+                result[y * w + x] = argb;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * This method binds a texture to an object in the draw methods.
      * @param texture
@@ -288,8 +628,19 @@ public class GraphicDevice
     {
         try
         {
-            gl.glBindTexture(GL10.GL_TEXTURE_2D, texture.getHandle());
-            gl.glEnable(GL10.GL_TEXTURE_2D);
+            int handle = texture.getHandle();
+            if (handle != boundTextureHandle)
+            {
+                backend.bindTexture(handle);
+                boundTextureHandle = handle;
+                stateChangesIssued++;
+            }
+            else
+            {
+                stateChangesSkipped++;
+            }
+            boundTexture = texture;
+            setCapability(CAPABILITY_TEXTURE_2D, true);
         }
         catch (Exception e)
         {
@@ -304,8 +655,18 @@ public class GraphicDevice
     {
         try
         {
-            gl.glBindTexture(GL10.GL_TEXTURE_2D, 0);
-            gl.glDisable(GL10.GL_TEXTURE_2D);
+            if (boundTextureHandle != 0)
+            {
+                backend.bindTexture(0);
+                boundTextureHandle = 0;
+                stateChangesIssued++;
+            }
+            else
+            {
+                stateChangesSkipped++;
+            }
+            boundTexture = null;
+            setCapability(CAPABILITY_TEXTURE_2D, false);
         }
         catch (Exception e)
         {
@@ -320,12 +681,22 @@ public class GraphicDevice
     {
         if (function == CompareFunction.ALWAYS)
         {
-            gl.glDisable(GL10.GL_ALPHA_TEST);
+            setCapability(CAPABILITY_ALPHA_TEST, false);
         }
         else
         {
-            gl.glEnable(GL10.GL_ALPHA_TEST);
-            gl.glAlphaFunc(getGLConstant(function), value);
+            setCapability(CAPABILITY_ALPHA_TEST, true);
+            if (function != alphaTestFunction || value != alphaTestValue)
+            {
+                backend.alphaFunc(getGLConstant(function), value);
+                alphaTestFunction = function;
+                alphaTestValue = value;
+                stateChangesIssued++;
+            }
+            else
+            {
+                stateChangesSkipped++;
+            }
         }
     }
 
@@ -338,12 +709,22 @@ public class GraphicDevice
     {
         if (srcFactor == BlendFactor.ONE && dstFactor == BlendFactor.ZERO)
         {
-            gl.glDisable(GL10.GL_BLEND);
+            setCapability(CAPABILITY_BLEND, false);
         }
         else
         {
-            gl.glEnable(GL10.GL_BLEND);
-            gl.glBlendFunc(getGLConstant(srcFactor), getGLConstant(dstFactor));
+            setCapability(CAPABILITY_BLEND, true);
+            if (srcFactor != blendFactorSrc || dstFactor != blendFactorDst)
+            {
+                backend.blendFunc(getGLConstant(srcFactor), getGLConstant(dstFactor));
+                blendFactorSrc = srcFactor;
+                blendFactorDst = dstFactor;
+                stateChangesIssued++;
+            }
+            else
+            {
+                stateChangesSkipped++;
+            }
         }
     }
 
@@ -355,12 +736,21 @@ public class GraphicDevice
     {
         if (side == Side.NONE)
         {
-            gl.glDisable(GL10.GL_CULL_FACE);
+            setCapability(CAPABILITY_CULL_FACE, false);
         }
         else
         {
-            gl.glEnable(GL10.GL_CULL_FACE);
-            gl.glCullFace(getGLConstant(side));
+            setCapability(CAPABILITY_CULL_FACE, true);
+            if (side != cullSide)
+            {
+                backend.cullFace(getGLConstant(side));
+                cullSide = side;
+                stateChangesIssued++;
+            }
+            else
+            {
+                stateChangesSkipped++;
+            }
         }
     }
 
@@ -368,12 +758,21 @@ public class GraphicDevice
     {
         if (function == CompareFunction.ALWAYS)
         {
-            gl.glDisable(GL10.GL_DEPTH_TEST);
+            setCapability(CAPABILITY_DEPTH_TEST, false);
         }
         else
         {
-            gl.glEnable(GL10.GL_DEPTH_TEST);
-            gl.glDepthFunc(getGLConstant(function));
+            setCapability(CAPABILITY_DEPTH_TEST, true);
+            if (function != depthTestFunction)
+            {
+                backend.depthFunc(getGLConstant(function));
+                depthTestFunction = function;
+                stateChangesIssued++;
+            }
+            else
+            {
+                stateChangesSkipped++;
+            }
         }
     }
 
@@ -384,7 +783,17 @@ public class GraphicDevice
      */
     public void setDepthWrite(boolean enabled)
     {
-	    gl.glDepthMask(enabled);
+        int state = enabled ? 1 : 0;
+        if (state != depthWrite)
+        {
+            backend.depthMask(enabled);
+            depthWrite = state;
+            stateChangesIssued++;
+        }
+        else
+        {
+            stateChangesSkipped++;
+        }
     }
 
     public void setMaterialColor(float[] color)
@@ -402,7 +811,10 @@ public class GraphicDevice
      */
     public void setMaterialColor(float red, float green, float blue, float alpha)
     {
-	    gl.glColor4f(red, green, blue, alpha);
+        if (updateColor(materialColor, red, green, blue, alpha))
+        {
+            backend.color(red, green, blue, alpha);
+        }
     }
 
     /**
@@ -412,7 +824,7 @@ public class GraphicDevice
      */
     public void setTextureBlendColor(float[] color)
     {
-	    gl.glTexEnvfv(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_COLOR, color, 0);
+	    setTextureBlendColor(color[0], color[1], color[2], color[3]);
     }
 
     /**
@@ -425,7 +837,10 @@ public class GraphicDevice
      */
     public void setTextureBlendColor(float red, float green, float blue, float alpha)
     {
-	    setTextureBlendColor(new float[] {red, green, blue, alpha});
+        if (updateColor(textureBlendColor, red, green, blue, alpha))
+        {
+            backend.textureEnvColor(textureBlendColor);
+        }
     }
 
     /**
@@ -435,7 +850,16 @@ public class GraphicDevice
      */
     public void setTextureBlendMode(TextureBlendMode blendMode)
     {
-	    gl.glTexEnvx(GL10.GL_TEXTURE_ENV, GL10.GL_TEXTURE_ENV_MODE, getGLConstant(blendMode));
+        if (blendMode != textureBlendMode)
+        {
+            backend.textureEnvMode(getGLConstant(blendMode));
+            textureBlendMode = blendMode;
+            stateChangesIssued++;
+        }
+        else
+        {
+            stateChangesSkipped++;
+        }
     }
 
     /**
@@ -446,8 +870,34 @@ public class GraphicDevice
      */
     public void setTextureFilters(TextureFilter filterMin, TextureFilter filterMag)
     {
-        gl.glTexParameterx(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, getGLConstant(filterMin));
-        gl.glTexParameterx(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, getGLConstant(filterMag));
+        // texture parameters are part of the texture object, so they are cached per texture
+        Texture texture = boundTexture;
+
+        if (texture == null || filterMin != texture.filterMin)
+        {
+            backend.texParameter(GL10.GL_TEXTURE_MIN_FILTER, getGLConstant(filterMin));
+            stateChangesIssued++;
+        }
+        else
+        {
+            stateChangesSkipped++;
+        }
+
+        if (texture == null || filterMag != texture.filterMag)
+        {
+            backend.texParameter(GL10.GL_TEXTURE_MAG_FILTER, getGLConstant(filterMag));
+            stateChangesIssued++;
+        }
+        else
+        {
+            stateChangesSkipped++;
+        }
+
+        if (texture != null)
+        {
+            texture.filterMin = filterMin;
+            texture.filterMag = filterMag;
+        }
     }
 
     /**
@@ -458,14 +908,127 @@ public class GraphicDevice
      */
     public void setTextureWrapMode(TextureWrapMode wrapU, TextureWrapMode wrapV)
     {
-        gl.glTexParameterx(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_S, getGLConstant(wrapU));
-        gl.glTexParameterx(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_WRAP_T, getGLConstant(wrapV));
+        Texture texture = boundTexture;
+
+        if (texture == null || wrapU != texture.wrapU)
+        {
+            backend.texParameter(GL10.GL_TEXTURE_WRAP_S, getGLConstant(wrapU));
+            stateChangesIssued++;
+        }
+        else
+        {
+            stateChangesSkipped++;
+        }
+
+        if (texture == null || wrapV != texture.wrapV)
+        {
+            backend.texParameter(GL10.GL_TEXTURE_WRAP_T, getGLConstant(wrapV));
+            stateChangesIssued++;
+        }
+        else
+        {
+            stateChangesSkipped++;
+        }
+
+        if (texture != null)
+        {
+            texture.wrapU = wrapU;
+            texture.wrapV = wrapV;
+        }
+    }
+
+    /**
+     * This method enables or disables a GL capability if its cached state differs.
+     */
+    private void setCapability(int capability, boolean enabled)
+    {
+        int state = enabled ? 1 : 0;
+        if (capabilityStates[capability] == state)
+        {
+            stateChangesSkipped++;
+            return;
+        }
+
+        if (enabled)
+        {
+            backend.enable(CAPABILITIES[capability]);
+        }
+        else
+        {
+            backend.disable(CAPABILITIES[capability]);
+        }
+        capabilityStates[capability] = state;
+        stateChangesIssued++;
+    }
+
+    /**
+     * This method enables or disables a client array if its cached state differs.
+     */
+    private void setClientArray(int clientArray, boolean enabled)
+    {
+        int state = enabled ? 1 : 0;
+        if (clientArrayStates[clientArray] == state)
+        {
+            stateChangesSkipped++;
+            return;
+        }
+
+        if (enabled)
+        {
+            backend.enableClientState(CLIENT_ARRAYS[clientArray]);
+        }
+        else
+        {
+            backend.disableClientState(CLIENT_ARRAYS[clientArray]);
+        }
+        clientArrayStates[clientArray] = state;
+        stateChangesIssued++;
+    }
+
+    /**
+     * This method stores a color in the given cache.
+     *
+     * @return TRUE if the color differs from the cached color and has to be passed to openGL
+     */
+    private boolean updateColor(float[] cache, float red, float green, float blue, float alpha)
+    {
+        if (cache[0] == red && cache[1] == green && cache[2] == blue && cache[3] == alpha)
+        {
+            stateChangesSkipped++;
+            return false;
+        }
+
+        cache[0] = red;
+        cache[1] = green;
+        cache[2] = blue;
+        cache[3] = alpha;
+        stateChangesIssued++;
+        return true;
     }
 
         // extended methods to display text on screen
 
     /**
-     * This method creates a new sprite font which can be display on screen.
+     * @param fontAtlasCache the cache of the rasterized fonts, see createSpriteFont
+     */
+    public void setFontAtlasCache(FontAtlasCache fontAtlasCache)
+    {
+        this.fontAtlasCache = fontAtlasCache;
+    }
+
+    /**
+     * @param fontAtlasMode BITMAP for a texture per font size, otherwise one distance field texture
+     *                      is shared by all sizes of a typeface. It is used for the fonts which are
+     *                      created afterwards.
+     */
+    public void setFontAtlasMode(FontAtlasMode fontAtlasMode)
+    {
+        this.fontAtlasMode = fontAtlasMode;
+    }
+
+    /**
+     * This method creates a new sprite font which can be display on screen. The default typeface
+     * is rasterized only once, other typefaces need a name to be cached.
      *
      * @param typeface
      * @param size
@@ -473,9 +1036,73 @@ public class GraphicDevice
      */
     public SpriteFont createSpriteFont(Typeface typeface, float size)
     {
-	    return new SpriteFont(this, typeface, size);
+        if (typeface == null || typeface == Typeface.DEFAULT)
+        {
+            return createSpriteFont(null, DEFAULT_TYPEFACE_NAME, size);
+        }
+        return createSpriteFont(FontAtlas.bake(typeface, size), 1.0f, FontAtlasMode.BITMAP);
+    }
+
+    /**
+     * This method creates a new sprite font of a typeface which is cached by the FontAtlasCache.
+     * After the first time the glyphs are loaded instead of rasterized and uploaded at once. Fonts
+     * with the same atlas share its texture.
+     *
+     * @param typeface
+     * @param name the name of the typeface in the cache
+     * @param size
+     * @return
+     */
+    public SpriteFont createSpriteFont(Typeface typeface, String name, float size)
+    {
+        if (fontAtlasMode == FontAtlasMode.BITMAP)
+        {
+            return createSpriteFont(fontAtlasCache.get(typeface, name, size), 1.0f, fontAtlasMode);
+        }
+
+        FontAtlas atlas = fontAtlasCache.getDistanceField(typeface, name);
+        return createSpriteFont(atlas, size / atlas.getFontSize(), fontAtlasMode);
+    }
+
+    private SpriteFont createSpriteFont(FontAtlas atlas, float scale, FontAtlasMode mode)
+    {
+        Texture texture = fontTextures.get(atlas);
+        if (texture == null)
+        {
+            // a distance field is minified for small fonts, a coverage atlas is drawn in its size
+            texture = createTexture(atlas.getSize(), atlas.getSize(), atlas.getPixels(), atlas.isDistanceField());
+            fontTextures.put(atlas, texture);
+        }
+        return new SpriteFont(texture, atlas.getMetrics(), scale, mode);
     }
     
+    /**
+     * @return the client array of the vertex element or 0 if the element is not passed to openGL
+     */
+    /**
+     * @return the index of the client array in CLIENT_ARRAYS or UNKNOWN
+     */
+    private static int getClientArray(VertexElement.VertexSemantic semantic)
+    {
+        switch (semantic)
+        {
+            case VERTEX_ELEMENT_POSITION:   return CLIENT_ARRAY_VERTEX;
+            case VERTEX_ELEMENT_COLOR:      return CLIENT_ARRAY_COLOR;
+            case VERTEX_ELEMENT_TEXCOORD:   return CLIENT_ARRAY_TEXTURE_COORD;
+            default:                        return UNKNOWN;
+        }
+    }
+
+    private static int getGLConstant(BufferUsage usage)
+    {
+        switch (usage)
+        {
+            case STATIC:            return GL11.GL_STATIC_DRAW;
+            case DYNAMIC:           return GL11.GL_DYNAMIC_DRAW;
+            default:                throw new InvalidParameterException("Illegal BufferUsage value!");
+        }
+    }
+
     private static int getGLConstant(BlendFactor factor)
     {
         switch (factor)
@@ -0,0 +1,136 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.nio.ByteBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * This class defines a buffer of vertex indices. Meshes with an index buffer share vertices
+ * between their primitives and are drawn with glDrawElements.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class IndexBuffer
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    /**
+     * 32 bit indices are not part of openGL ES 1.0 and require the extension OES_element_index_uint.
+     * They are only used for meshes with more than 65536 vertices.
+     */
+    public static final int GL_UNSIGNED_INT = 0x1405;
+
+    private int numberOfIndices;
+    private int type = GL10.GL_UNSIGNED_SHORT;
+    private ByteBuffer buffer;
+
+    /** state of the buffer object in video memory **/
+    private int handle;
+    private int handleGeneration = -1;
+    private boolean dirty = true;
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * @return the number of indices in the buffer
+     */
+    public int getNumIndices()
+    {
+        return numberOfIndices;
+    }
+
+    /**
+     * @return the type of the indices, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     */
+    public int getType()
+    {
+        return type;
+    }
+
+    /**
+     * @return the size of a single index in bytes
+     */
+    public int getIndexSize()
+    {
+        return (type == GL_UNSIGNED_INT) ? 4 : 2;
+    }
+
+    /**
+     * @return the allocated byte buffer
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * @param number set the number of indices in the buffer
+     */
+    public void setNumIndices(int number)
+    {
+        this.numberOfIndices = number;
+    }
+
+    /**
+     * @param type set the type of the indices, GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+     */
+    public void setType(int type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * @param buffer set the byte buffer
+     */
+    public void setBuffer(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.dirty = true;
+    }
+
+    // ****************** BUFFER OBJECT ****************** //
+
+    int getHandle()
+    {
+        return handle;
+    }
+
+    int getHandleGeneration()
+    {
+        return handleGeneration;
+    }
+
+    boolean isDirty()
+    {
+        return dirty;
+    }
+
+    void setHandle(int handle, int generation)
+    {
+        this.handle = handle;
+        this.handleGeneration = generation;
+    }
+
+    void setDirty(boolean dirty)
+    {
+        this.dirty = dirty;
+    }
+}
@@ -13,18 +13,21 @@
  * limitations under the License. */
 package de.hdm.mib.dg041.graphics;
 
-import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.StringTokenizer;
-import java.util.Vector;
 
 import javax.microedition.khronos.opengles.GL10;
 
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
 import de.hdm.mib.dg041.graphics.VertexElement.VertexSemantic;
+import de.hdm.mib.dg041.math.Vector3;
 
 /**
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
@@ -36,8 +39,18 @@ public class Mesh
     // PROPERTIES
     // --------------------------------------------------------
 
+    private static String TAG = Mesh.class.getName();
+
     private int mode;
     private VertexBuffer vertexBuffer;
+    private IndexBuffer indexBuffer;
+
+    /** bounds of the vertex positions in object space, computed when the mesh is created **/
+    private boolean hasBounds;
+    private Vector3 boundingBoxMin = new Vector3();
+    private Vector3 boundingBoxMax = new Vector3();
+    private Vector3 boundingSphereCenter = new Vector3();
+    private float boundingSphereRadius;
 
     // --------------------------------------------------------
     // CONSTRUCTOR
@@ -50,6 +63,15 @@ public class Mesh
     {
         this.vertexBuffer = vertexBuffer;
         this.mode = mode;
+        computeBounds();
+    }
+
+    public Mesh(VertexBuffer vertexBuffer, IndexBuffer indexBuffer, int mode)
+    {
+        this.vertexBuffer = vertexBuffer;
+        this.indexBuffer = indexBuffer;
+        this.mode = mode;
+        computeBounds();
     }
 
     // --------------------------------------------------------
@@ -72,6 +94,136 @@ public class Mesh
 		return vertexBuffer;
     }
 
+    /**
+     * @return the index buffer of the mesh or null if the vertices are not indexed
+     */
+    public IndexBuffer getIndexBuffer()
+    {
+        return indexBuffer;
+    }
+
+    /**
+     * @return TRUE if the mesh has bounds. Meshes with dynamic vertex data like text have no
+     *         bounds and are never culled.
+     */
+    public boolean hasBounds()
+    {
+        return hasBounds;
+    }
+
+    /**
+     * @return the minimum corner of the axis aligned bounding box in object space
+     */
+    public Vector3 getBoundingBoxMin()
+    {
+        return boundingBoxMin;
+    }
+
+    /**
+     * @return the maximum corner of the axis aligned bounding box in object space
+     */
+    public Vector3 getBoundingBoxMax()
+    {
+        return boundingBoxMax;
+    }
+
+    /**
+     * @return the center of the bounding sphere in object space
+     */
+    public Vector3 getBoundingSphereCenter()
+    {
+        return boundingSphereCenter;
+    }
+
+    /**
+     * @return the radius of the bounding sphere in object space
+     */
+    public float getBoundingSphereRadius()
+    {
+        return boundingSphereRadius;
+    }
+
+    /**
+     * This method computes the axis aligned bounding box and the bounding sphere around the center
+     * of the box from the vertex positions. Meshes with dynamic vertex data get no bounds.
+     */
+    private void computeBounds()
+    {
+        hasBounds = false;
+
+        if (vertexBuffer == null || vertexBuffer.getBuffer() == null || vertexBuffer.getElements() == null ||
+            vertexBuffer.getUsage() == BufferUsage.DYNAMIC || vertexBuffer.getNumVertices() == 0)
+        {
+            return;
+        }
+
+        VertexElement position = null;
+        for (VertexElement element : vertexBuffer.getElements())
+        {
+            if (element.getSemantic() == VertexSemantic.VERTEX_ELEMENT_POSITION && element.getType() == GL10.GL_FLOAT)
+            {
+                position = element;
+            }
+        }
+        if (position == null)
+        {
+            return;
+        }
+
+        ByteBuffer buffer = vertexBuffer.getBuffer();
+        int count = Math.min(position.getCount(), 3);
+        float[] min = boundingBoxMin.v;
+        float[] max = boundingBoxMax.v;
+
+        for (int i = 0; i < 3; ++i)
+        {
+            min[i] = (i < count) ? Float.MAX_VALUE : 0.0f;
+            max[i] = (i < count) ? -Float.MAX_VALUE : 0.0f;
+        }
+
+        for (int n = 0; n < vertexBuffer.getNumVertices(); ++n)
+        {
+            int offset = n * position.getStride() + position.getOffset();
+            for (int i = 0; i < count; ++i)
+            {
+                float value = buffer.getFloat(offset + 4 * i);
+                min[i] = Math.min(min[i], value);
+                max[i] = Math.max(max[i], value);
+            }
+        }
+
+        float[] center = boundingSphereCenter.v;
+        for (int i = 0; i < 3; ++i)
+        {
+            center[i] = (min[i] + max[i]) * 0.5f;
+        }
+
+        // the sphere encloses all vertices, it is usually tighter than the sphere around the box
+        float radiusSquared = 0.0f;
+        for (int n = 0; n < vertexBuffer.getNumVertices(); ++n)
+        {
+            int offset = n * position.getStride() + position.getOffset();
+            float distanceSquared = 0.0f;
+            for (int i = 0; i < count; ++i)
+            {
+                float d = buffer.getFloat(offset + 4 * i) - center[i];
+                distanceSquared += d * d;
+            }
+            radiusSquared = Math.max(radiusSquared, distanceSquared);
+        }
+
+        boundingSphereRadius = (float) Math.sqrt(radiusSquared);
+        hasBounds = true;
+    }
+
+    /**
+     * @return the number of vertices which are processed to draw the mesh
+     */
+    public int getNumDrawnVertices()
+    {
+        return (indexBuffer != null) ? indexBuffer.getNumIndices() : vertexBuffer.getNumVertices();
+    }
+
 
     /**
      * This methods loads an 3D model from a given OBJ file using an input stream. The method
@@ -80,198 +232,116 @@ public class Mesh
      * @param stream
      * @return The loaded mesh
      * @throws IOException if the file does not exists
+     * @see OBJParser
      */
     public static Mesh loadFromOBJ(InputStream stream) throws IOException
     {
-		Vector<float[]> positions = null;
-		Vector<float[]> texCoords = null;
-		Vector<short[]> indexGroups = null;
-		
-		BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-		
-		for (String line = reader.readLine(); line != null; line = reader.readLine())
+        return new OBJParser().parse(stream);
+    }
+
+    /**
+     * This method loads a mesh from the assets. If a precompiled binary mesh with the same name
+     * exists (e.g. hero.mesh for hero.obj), the binary file is loaded without parsing any vertex.
+     * Otherwise the OBJ file is parsed.
+     *
+     * @param assets the asset manager of the application
+     * @param fileName the name of the OBJ file
+     * @return The loaded mesh
+     * @throws IOException if neither the binary nor the OBJ file can be loaded
+     * @see BinaryMesh
+     * @see OBJConverter
+     */
+    public static Mesh load(AssetManager assets, String fileName) throws IOException
+    {
+        String binaryFileName = getBinaryFileName(fileName);
+
+        try
         {
-			// skip comments
-			if (line.startsWith("#"))
+            Mesh mesh = loadBinary(assets, binaryFileName);
+            if (mesh != null)
             {
-                continue;
+                return mesh;
             }
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Invalid binary mesh " + binaryFileName + ", loading " + fileName + " instead: " + e.getMessage());
+        }
 
-			// split lines in tokens
-			StringTokenizer tokenizer = new StringTokenizer(line);
-			int numTokens = tokenizer.countTokens();
-			
-			// check if line is empty
-			if (numTokens < 1)
-            {
-                continue;
-            }
+        InputStream stream = assets.open(fileName);
+        try
+        {
+            return loadFromOBJ(stream);
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
 
-			String command = tokenizer.nextToken();
-			
-			// parse position data
-			if (command.equals("v"))
-            {
-				if (numTokens != 4)
-                {
-                    throw new IOException("Unsupported Line with v command. Only 3 coordinates (x y z) are supported!");
-                }
-
-				float[] position = new float[] {
-						Float.parseFloat(tokenizer.nextToken()),
-						Float.parseFloat(tokenizer.nextToken()),
-						Float.parseFloat(tokenizer.nextToken())
-				};
-				
-				if (positions == null)
-                {
-                    positions = new Vector<float[]>();
-                }
-
-				positions.add(position);				
-			}
-			
-			// parse texture coordinates
-			if (command.equals("vt"))
-            {
-				if (numTokens != 3)
-                {
-                    throw new IOException("Unsupported Line with vt command. Only 2 coordinates (u v) are supported!");
-                }
-
-				float[] texCoord = new float[] {
-						Float.parseFloat(tokenizer.nextToken()),
-						Float.parseFloat(tokenizer.nextToken())
-				};
-				
-				if (texCoords == null)
-                {
-                    texCoords = new Vector<float[]>();
-                }
-				
-				texCoords.add(texCoord);
-			}
-			
-			// Faces parsen
-			if (command.equals("f"))
-            {
-				if (numTokens != 4)
-                {
-                    throw new IOException("Unsupported Line with f command. Only triangles are supported!");
-                }
-
-				for (int i = 0; i < 3; ++i)
-                {
-					short[] indexGroup = new short[3];
-					
-					String[] indices = tokenizer.nextToken().split("/");
-					if (indices.length > 0)
-                    {
-                        indexGroup[0] = Short.parseShort(indices[0]);
-                    }
-
-					if (indices.length > 1)
-                    {
-                        indexGroup[1] = Short.parseShort(indices[1]);
-                    }
-
-					if (indices.length > 2)
-                    {
-                        indexGroup[2] = Short.parseShort(indices[2]);
-                    }
-
-					if (indexGroups == null)
-                    {
-                        indexGroups = new Vector<short[]>();
-                    }
-
-					indexGroups.add(indexGroup);
-				}
-			}
-		}
-		
-		int numElements = 0;
-		int vertexSize = 0;
-		boolean hasPositionData = (positions != null);
-		boolean hasTexCoordData = (texCoords != null);
-		
-		if (hasPositionData)
+    /**
+     * @param fileName the name of an OBJ file
+     * @return the name of the corresponding binary mesh file
+     */
+    public static String getBinaryFileName(String fileName)
+    {
+        int extension = fileName.lastIndexOf('.');
+        if (extension < 0)
         {
-			numElements++;
-			vertexSize += 12;
-		}
-		if (hasTexCoordData)
+            return fileName + BinaryMesh.FILE_EXTENSION;
+        }
+        return fileName.substring(0, extension) + BinaryMesh.FILE_EXTENSION;
+    }
+
+    /**
+     * This method loads a binary mesh from the assets. Uncompressed assets are mapped into memory,
+     * compressed assets are read as stream.
+     *
+     * @return the loaded mesh or null if the file does not exist
+     */
+    private static Mesh loadBinary(AssetManager assets, String fileName) throws IOException
+    {
+        AssetFileDescriptor descriptor = null;
+        try
         {
-			numElements++;
-			vertexSize += 8;
-		}
-		
-		int elementIndex = 0;
-		int elementOffset = 0;
-		VertexElement[] elements = new VertexElement[numElements];
-		if (hasPositionData) {
-			elements[elementIndex] = new VertexElement(elementOffset, vertexSize, GL10.GL_FLOAT, 3, VertexSemantic.VERTEX_ELEMENT_POSITION);
-			elementOffset += 12;
-			elementIndex++;
-		}
-		if (hasTexCoordData)
+            descriptor = assets.openFd(fileName);
+        }
+        catch (FileNotFoundException e)
         {
-			elements[elementIndex] = new VertexElement(elementOffset, vertexSize, GL10.GL_FLOAT, 2, VertexSemantic.VERTEX_ELEMENT_TEXCOORD);
-			elementOffset += 8;
-			elementIndex++;
-		}
-		
-		ByteBuffer buffer = ByteBuffer.allocateDirect(vertexSize * indexGroups.size());
-		buffer.order(ByteOrder.nativeOrder());
-		
-		for (short[] indexGroup : indexGroups)
+            // the asset does not exist or is compressed and cannot be mapped
+        }
+
+        if (descriptor != null)
         {
-		    if (hasPositionData)
+            FileInputStream stream = descriptor.createInputStream();
+            try
             {
-		        short vertexIndex = indexGroup[0];
-		        if (vertexIndex != 0)
-                {
-		            for (float f : positions.elementAt(vertexIndex - 1))
-                    {
-		                buffer.putFloat(f);
-		            }
-		        }
-                else
-                {
-		            buffer.putFloat(0); buffer.putFloat(0); buffer.putFloat(0);
-		        }
-		    }
-					
-		    if (hasTexCoordData)
+                return BinaryMesh.map(stream.getChannel(), descriptor.getStartOffset(), descriptor.getLength());
+            }
+            finally
             {
-		        short texCoordIndex = indexGroup[1];
-		        if (texCoordIndex != 0)
-                {
-		            for (float f : texCoords.elementAt(texCoordIndex - 1))
-                    {
-		                buffer.putFloat(f);
-		            }
-		        }
-                else
-                {
-		            buffer.putFloat(0); buffer.putFloat(0);
-		        }
-		    }
-		}
-
-		
-		buffer.position(0);
-		
-		VertexBuffer vertexBuffer = new VertexBuffer();
-		vertexBuffer.setElements(elements);
-		vertexBuffer.setBuffer(buffer);
-		vertexBuffer.setNumVertices(indexGroups.size());
-		
-		
-		Mesh mesh = new Mesh();
-		mesh.vertexBuffer = vertexBuffer;
-		mesh.mode = GL10.GL_TRIANGLES;
-		
-		return mesh;
-	}   
+                stream.close();
+                descriptor.close();
+            }
+        }
+
+        InputStream stream;
+        try
+        {
+            stream = assets.open(fileName);
+        }
+        catch (FileNotFoundException e)
+        {
+            return null;
+        }
+
+        try
+        {
+            return BinaryMesh.read(stream);
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
 }
@@ -0,0 +1,264 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.InvalidParameterException;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import de.hdm.mib.dg041.graphics.VertexElement.VertexSemantic;
+import de.hdm.mib.dg041.math.Matrix4x4;
+
+/**
+ * This class combines several instances of meshes into a single static mesh. The positions of
+ * every instance are transformed by its world matrix once, so all instances which share a
+ * material can be drawn with one draw call and one material setup.
+ *
+ * All meshes of a batch must have the same vertex layout and primitive mode. If the batch is
+ * moved as a whole, like the scrolling trees of the world, it is drawn with a world matrix
+ * which only contains the movement.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class MeshBatcher
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private Mesh[] meshes;
+    private Matrix4x4[] worlds;
+    private int numInstances;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param capacity the maximum number of instances of a batch
+     */
+    public MeshBatcher(int capacity)
+    {
+        meshes = new Mesh[capacity];
+        worlds = new Matrix4x4[capacity];
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method adds an instance of a mesh to the batch. The world matrix is read when the batch
+     * is built.
+     *
+     * @param mesh
+     * @param world
+     */
+    public void add(Mesh mesh, Matrix4x4 world)
+    {
+        if (numInstances == meshes.length)
+        {
+            throw new InvalidParameterException("The batch is full!");
+        }
+        if (numInstances > 0 && !isCompatible(meshes[0], mesh))
+        {
+            throw new InvalidParameterException("The vertex layout of the mesh differs from the batch!");
+        }
+
+        meshes[numInstances] = mesh;
+        worlds[numInstances] = world;
+        numInstances++;
+    }
+
+    /**
+     * This method removes all instances from the batch.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < numInstances; ++i)
+        {
+            meshes[i] = null;
+            worlds[i] = null;
+        }
+        numInstances = 0;
+    }
+
+    /**
+     * @return the number of instances added to the batch
+     */
+    public int getNumInstances()
+    {
+        return numInstances;
+    }
+
+    /**
+     * This method creates a mesh with the transformed vertices of all instances. The batch is
+     * indexed if the meshes are indexed.
+     *
+     * @return the combined mesh or null if the batch is empty
+     */
+    public Mesh build()
+    {
+        if (numInstances == 0)
+        {
+            return null;
+        }
+
+        VertexBuffer first = meshes[0].getVertexBuffer();
+        VertexElement[] elements = first.getElements();
+        int stride = (elements.length > 0) ? elements[0].getStride() : 0;
+
+        int numVertices = 0;
+        int numIndices = 0;
+        for (int i = 0; i < numInstances; ++i)
+        {
+            numVertices += meshes[i].getVertexBuffer().getNumVertices();
+            if (meshes[i].getIndexBuffer() != null)
+            {
+                numIndices += meshes[i].getIndexBuffer().getNumIndices();
+            }
+        }
+
+        ByteBuffer data = ByteBuffer.allocateDirect(stride * numVertices);
+        data.order(ByteOrder.nativeOrder());
+
+        int positionOffset = -1;
+        for (VertexElement element : elements)
+        {
+            if (element.getSemantic() == VertexSemantic.VERTEX_ELEMENT_POSITION &&
+                element.getType() == GL10.GL_FLOAT && element.getCount() == 3)
+            {
+                positionOffset = element.getOffset();
+            }
+        }
+
+        int vertexOffset = 0;
+        for (int i = 0; i < numInstances; ++i)
+        {
+            VertexBuffer vertexBuffer = meshes[i].getVertexBuffer();
+            ByteBuffer source = vertexBuffer.getBuffer();
+            float[] m = worlds[i].m;
+
+            for (int v = 0; v < vertexBuffer.getNumVertices(); ++v)
+            {
+                int sourceStart = v * stride;
+                int targetStart = (vertexOffset + v) * stride;
+
+                for (int b = 0; b < stride; ++b)
+                {
+                    data.put(targetStart + b, source.get(sourceStart + b));
+                }
+
+                if (positionOffset >= 0)
+                {
+                    float x = source.getFloat(sourceStart + positionOffset);
+                    float y = source.getFloat(sourceStart + positionOffset + 4);
+                    float z = source.getFloat(sourceStart + positionOffset + 8);
+
+                    data.putFloat(targetStart + positionOffset,     m[0] * x + m[4] * y + m[8]  * z + m[12]);
+                    data.putFloat(targetStart + positionOffset + 4, m[1] * x + m[5] * y + m[9]  * z + m[13]);
+                    data.putFloat(targetStart + positionOffset + 8, m[2] * x + m[6] * y + m[10] * z + m[14]);
+                }
+            }
+
+            vertexOffset += vertexBuffer.getNumVertices();
+        }
+        data.position(0);
+
+        VertexBuffer vertexBuffer = new VertexBuffer();
+        vertexBuffer.setElements(elements);
+        vertexBuffer.setBuffer(data);
+        vertexBuffer.setNumVertices(numVertices);
+
+        if (meshes[0].getIndexBuffer() == null)
+        {
+            return new Mesh(vertexBuffer, meshes[0].getMode());
+        }
+
+        return new Mesh(vertexBuffer, buildIndexBuffer(numVertices, numIndices), meshes[0].getMode());
+    }
+
+    /**
+     * This method concatenates the index buffers of all instances. The indices of every instance
+     * are moved behind the vertices of the previous instances.
+     */
+    private IndexBuffer buildIndexBuffer(int numVertices, int numIndices)
+    {
+        boolean shortIndices = (numVertices <= 65536);
+
+        ByteBuffer indices = ByteBuffer.allocateDirect((shortIndices ? 2 : 4) * numIndices);
+        indices.order(ByteOrder.nativeOrder());
+
+        int vertexOffset = 0;
+        for (int i = 0; i < numInstances; ++i)
+        {
+            IndexBuffer source = meshes[i].getIndexBuffer();
+            ByteBuffer sourceData = source.getBuffer();
+
+            for (int n = 0; n < source.getNumIndices(); ++n)
+            {
+                int index = (source.getType() == IndexBuffer.GL_UNSIGNED_INT) ?
+                        sourceData.getInt(4 * n) : (sourceData.getShort(2 * n) & 0xffff);
+
+                if (shortIndices)
+                {
+                    indices.putShort((short) (index + vertexOffset));
+                }
+                else
+                {
+                    indices.putInt(index + vertexOffset);
+                }
+            }
+
+            vertexOffset += meshes[i].getVertexBuffer().getNumVertices();
+        }
+        indices.position(0);
+
+        IndexBuffer indexBuffer = new IndexBuffer();
+        indexBuffer.setType(shortIndices ? GL10.GL_UNSIGNED_SHORT : IndexBuffer.GL_UNSIGNED_INT);
+        indexBuffer.setBuffer(indices);
+        indexBuffer.setNumIndices(numIndices);
+        return indexBuffer;
+    }
+
+    /**
+     * @return TRUE if both meshes have the same primitive mode, vertex layout and index usage
+     */
+    private static boolean isCompatible(Mesh a, Mesh b)
+    {
+        VertexElement[] ea = a.getVertexBuffer().getElements();
+        VertexElement[] eb = b.getVertexBuffer().getElements();
+
+        if (a.getMode() != b.getMode() || ea.length != eb.length ||
+            (a.getIndexBuffer() == null) != (b.getIndexBuffer() == null))
+        {
+            return false;
+        }
+
+        for (int i = 0; i < ea.length; ++i)
+        {
+            if (ea[i].getOffset() != eb[i].getOffset() || ea[i].getStride() != eb[i].getStride() ||
+                ea[i].getType() != eb[i].getType() || ea[i].getCount() != eb[i].getCount() ||
+                ea[i].getSemantic() != eb[i].getSemantic())
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This class converts OBJ files into precompiled binary meshes. The converter runs offline on a
+ * desktop JVM and writes the binary mesh next to the OBJ file:
+ *
+ *   java de.hdm.mib.dg041.graphics.OBJConverter [obj files or directories]
+ *
+ * Without any argument all OBJ files of the assets directory are converted. The binary meshes
+ * must be converted again whenever an OBJ file changes, because Mesh.load() prefers them.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class OBJConverter
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final String DEFAULT_ASSET_DIRECTORY = "assets";
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            args = new String[] { DEFAULT_ASSET_DIRECTORY };
+        }
+
+        OBJParser parser = new OBJParser();
+
+        for (String arg : args)
+        {
+            File file = new File(arg);
+            if (file.isDirectory())
+            {
+                File[] children = file.listFiles();
+                if (children == null)
+                {
+                    continue;
+                }
+                for (File child : children)
+                {
+                    if (child.getName().endsWith(".obj"))
+                    {
+                        convert(parser, child);
+                    }
+                }
+            }
+            else
+            {
+                convert(parser, file);
+            }
+        }
+    }
+
+    /**
+     * This method converts a single OBJ file into a binary mesh.
+     *
+     * @param parser
+     * @param objFile
+     * @throws IOException if the OBJ file cannot be parsed or the binary mesh cannot be written
+     */
+    public static void convert(OBJParser parser, File objFile) throws IOException
+    {
+        Mesh mesh;
+        InputStream input = new FileInputStream(objFile);
+        try
+        {
+            mesh = parser.parse(input);
+        }
+        finally
+        {
+            input.close();
+        }
+
+        File meshFile = new File(objFile.getParentFile(), Mesh.getBinaryFileName(objFile.getName()));
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(meshFile));
+        try
+        {
+            BinaryMesh.write(mesh, output);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        System.out.println(objFile.getName() + " -> " + meshFile.getName() + " (" +
+                parser.getNumIndexGroups() + " -> " + mesh.getVertexBuffer().getNumVertices() + " vertices, " +
+                objFile.length() + " -> " + meshFile.length() + " bytes)");
+    }
+}
@@ -0,0 +1,657 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import de.hdm.mib.dg041.graphics.VertexElement.VertexSemantic;
+
+/**
+ * This class implements a streaming parser for OBJ files. The parser scans the raw bytes of the
+ * stream line by line and collects the parsed values in growable primitive arrays. No string,
+ * tokenizer or boxed vertex object is created per line, so even large models like the hero can be
+ * loaded without flooding the garbage collector.
+ *
+ * The supported subset and the resulting vertex layout are the same as in the original
+ * line based loader: positions (v x y z), texture coordinates (vt u v) and triangle faces (f).
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class OBJParser
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /** powers of ten which can be represented exactly as float **/
+    private static final float[] POWERS_OF_TEN = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    /** largest mantissa which can be represented exactly as float (2^24) **/
+    private static final int MAX_EXACT_MANTISSA = 1 << 24;
+
+    private byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private int readLength;
+    private int readPosition;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    /** start and end offsets of the tokens of the current line **/
+    private int[] tokenStart = new int[8];
+    private int[] tokenEnd = new int[8];
+    private int numTokens;
+
+    private float[] positions = new float[3 * 256];
+    private int numPositions;
+    private float[] texCoords = new float[2 * 256];
+    private int numTexCoords;
+
+    /** every face corner is stored as a pair of (position index, texture coordinate index) **/
+    private int[] indexGroups = new int[2 * 3 * 256];
+    private int numIndexGroups;
+
+    /** number of vertices of the last created mesh **/
+    private int numVertices;
+    private boolean indexed;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * Creates a parser which de-duplicates the vertices and creates indexed meshes.
+     */
+    public OBJParser()
+    {
+        this(true);
+    }
+
+    /**
+     * @param indexed TRUE to create indexed meshes with de-duplicated vertices, FALSE to
+     *                create a separate vertex for every face corner like the original loader
+     */
+    public OBJParser(boolean indexed)
+    {
+        this.indexed = indexed;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method parses the given OBJ stream and creates a mesh from the parsed vertices.
+     * The stream is read completely but not closed.
+     *
+     * @param stream
+     * @return The loaded mesh
+     * @throws IOException if the stream cannot be read or contains unsupported data
+     */
+    public Mesh parse(InputStream stream) throws IOException
+    {
+        reset();
+
+        while (readLine(stream))
+        {
+            tokenize();
+
+            // skip empty lines and comments
+            if (numTokens < 1 || line[0] == '#')
+            {
+                continue;
+            }
+
+            int commandStart = tokenStart[0];
+            int commandLength = tokenEnd[0] - commandStart;
+
+            if (commandLength == 1 && line[commandStart] == 'v')
+            {
+                parsePosition();
+            }
+            else if (commandLength == 2 && line[commandStart] == 'v' && line[commandStart + 1] == 't')
+            {
+                parseTexCoord();
+            }
+            else if (commandLength == 1 && line[commandStart] == 'f')
+            {
+                parseFace();
+            }
+        }
+
+        return createMesh();
+    }
+
+    /**
+     * @return the number of positions parsed by the last call of parse()
+     */
+    public int getNumPositions()
+    {
+        return numPositions;
+    }
+
+    /**
+     * @return the number of texture coordinates parsed by the last call of parse()
+     */
+    public int getNumTexCoords()
+    {
+        return numTexCoords;
+    }
+
+    /**
+     * @return the number of face corners parsed by the last call of parse(). This is the number
+     *         of vertices without de-duplication.
+     */
+    public int getNumIndexGroups()
+    {
+        return numIndexGroups;
+    }
+
+    /**
+     * @return the number of vertices of the mesh created by the last call of parse()
+     */
+    public int getNumVertices()
+    {
+        return numVertices;
+    }
+
+    private void reset()
+    {
+        readLength = 0;
+        readPosition = 0;
+        numPositions = 0;
+        numTexCoords = 0;
+        numIndexGroups = 0;
+        numVertices = 0;
+    }
+
+    // ****************** LINE SCANNING ****************** //
+
+    /**
+     * This method copies the next line of the stream into the line buffer. Line breaks are
+     * not part of the line.
+     *
+     * @return FALSE if the end of the stream was reached, otherwise TRUE
+     */
+    private boolean readLine(InputStream stream) throws IOException
+    {
+        lineLength = 0;
+
+        while (true)
+        {
+            if (readPosition == readLength)
+            {
+                readLength = stream.read(readBuffer, 0, readBuffer.length);
+                readPosition = 0;
+
+                if (readLength <= 0)
+                {
+                    readLength = 0;
+                    return lineLength > 0;
+                }
+            }
+
+            byte b = readBuffer[readPosition++];
+            if (b == '\n' || b == '\r')
+            {
+                return true;
+            }
+
+            if (lineLength == line.length)
+            {
+                line = grow(line);
+            }
+            line[lineLength++] = b;
+        }
+    }
+
+    /**
+     * This method splits the current line at whitespaces and stores the bounds of each token.
+     */
+    private void tokenize()
+    {
+        numTokens = 0;
+
+        int i = 0;
+        while (i < lineLength)
+        {
+            while (i < lineLength && isWhitespace(line[i]))
+            {
+                i++;
+            }
+            if (i == lineLength)
+            {
+                break;
+            }
+
+            if (numTokens == tokenStart.length)
+            {
+                tokenStart = grow(tokenStart);
+                tokenEnd = grow(tokenEnd);
+            }
+
+            tokenStart[numTokens] = i;
+            while (i < lineLength && !isWhitespace(line[i]))
+            {
+                i++;
+            }
+            tokenEnd[numTokens] = i;
+            numTokens++;
+        }
+    }
+
+    private static boolean isWhitespace(byte b)
+    {
+        return b == ' ' || b == '\t' || b == '\f';
+    }
+
+    // ****************** COMMAND PARSING ****************** //
+
+    private void parsePosition() throws IOException
+    {
+        if (numTokens != 4)
+        {
+            throw new IOException("Unsupported Line with v command. Only 3 coordinates (x y z) are supported!");
+        }
+
+        if (3 * numPositions + 3 > positions.length)
+        {
+            positions = grow(positions);
+        }
+
+        int offset = 3 * numPositions;
+        positions[offset]     = parseFloat(tokenStart[1], tokenEnd[1]);
+        positions[offset + 1] = parseFloat(tokenStart[2], tokenEnd[2]);
+        positions[offset + 2] = parseFloat(tokenStart[3], tokenEnd[3]);
+        numPositions++;
+    }
+
+    private void parseTexCoord() throws IOException
+    {
+        if (numTokens != 3)
+        {
+            throw new IOException("Unsupported Line with vt command. Only 2 coordinates (u v) are supported!");
+        }
+
+        if (2 * numTexCoords + 2 > texCoords.length)
+        {
+            texCoords = grow(texCoords);
+        }
+
+        int offset = 2 * numTexCoords;
+        texCoords[offset]     = parseFloat(tokenStart[1], tokenEnd[1]);
+        texCoords[offset + 1] = parseFloat(tokenStart[2], tokenEnd[2]);
+        numTexCoords++;
+    }
+
+    private void parseFace() throws IOException
+    {
+        if (numTokens != 4)
+        {
+            throw new IOException("Unsupported Line with f command. Only triangles are supported!");
+        }
+
+        if (2 * numIndexGroups + 6 > indexGroups.length)
+        {
+            indexGroups = grow(indexGroups);
+        }
+
+        for (int i = 1; i < 4; ++i)
+        {
+            int start = tokenStart[i];
+            int end = tokenEnd[i];
+
+            // position index
+            int slash = indexOf('/', start, end);
+            int positionIndex = parseIndex(start, slash);
+
+            // texture coordinate index, the normal index is ignored
+            int texCoordIndex = 0;
+            if (slash < end)
+            {
+                int nextSlash = indexOf('/', slash + 1, end);
+                if (nextSlash > slash + 1)
+                {
+                    texCoordIndex = parseIndex(slash + 1, nextSlash);
+                }
+            }
+
+            indexGroups[2 * numIndexGroups]     = positionIndex;
+            indexGroups[2 * numIndexGroups + 1] = texCoordIndex;
+            numIndexGroups++;
+        }
+    }
+
+    private int indexOf(char c, int start, int end)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            if (line[i] == c)
+            {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * This method parses a non negative integer value of the current line.
+     */
+    private int parseIndex(int start, int end) throws IOException
+    {
+        if (start == end)
+        {
+            throw new IOException("Missing index in f command!");
+        }
+
+        int value = 0;
+        for (int i = start; i < end; ++i)
+        {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10)
+            {
+                throw new IOException("Unsupported index in f command: " + new String(line, start, end - start));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * This method parses a decimal float value of the current line. Values with up to seven
+     * significant digits and ten decimal places are calculated directly. Since the mantissa and
+     * the power of ten are exact float values and the division is correctly rounded, the result
+     * is bit identical to Float.parseFloat(). All other notations fall back to Float.parseFloat().
+     */
+    private float parseFloat(int start, int end) throws IOException
+    {
+        int i = start;
+        boolean negative = false;
+
+        if (i < end && (line[i] == '-' || line[i] == '+'))
+        {
+            negative = (line[i] == '-');
+            i++;
+        }
+
+        int mantissa = 0;
+        int decimals = 0;
+        boolean hasDigits = false;
+        boolean isFraction = false;
+
+        for (; i < end; ++i)
+        {
+            byte b = line[i];
+            if (b >= '0' && b <= '9')
+            {
+                mantissa = mantissa * 10 + (b - '0');
+                hasDigits = true;
+                if (isFraction)
+                {
+                    decimals++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA || decimals >= POWERS_OF_TEN.length)
+                {
+                    return parseFloatSlow(start, end);
+                }
+            }
+            else if (b == '.' && !isFraction)
+            {
+                isFraction = true;
+            }
+            else
+            {
+                return parseFloatSlow(start, end);
+            }
+        }
+
+        if (!hasDigits)
+        {
+            return parseFloatSlow(start, end);
+        }
+
+        float value = (float) mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    private float parseFloatSlow(int start, int end) throws IOException
+    {
+        String token = new String(line, start, end - start, "US-ASCII");
+        try
+        {
+            return Float.parseFloat(token);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Invalid number in OBJ file: " + token);
+        }
+    }
+
+    // ****************** MESH CREATION ****************** //
+
+    /**
+     * This method resolves all face corners and writes the interleaved vertex data in a single
+     * pass. The layout is equal to the layout of the original loader: the position (3 floats) is
+     * followed by the texture coordinate (2 floats) if the file contains any of them.
+     *
+     * If the parser creates indexed meshes, face corners with the same position and texture
+     * coordinate index are written only once and referenced by the index buffer.
+     */
+    private Mesh createMesh() throws IOException
+    {
+        boolean hasPositionData = (numPositions > 0);
+        boolean hasTexCoordData = (numTexCoords > 0);
+
+        int numElements = 0;
+        int vertexSize = 0;
+        if (hasPositionData)
+        {
+            numElements++;
+            vertexSize += 12;
+        }
+        if (hasTexCoordData)
+        {
+            numElements++;
+            vertexSize += 8;
+        }
+
+        int elementIndex = 0;
+        int elementOffset = 0;
+        VertexElement[] elements = new VertexElement[numElements];
+        if (hasPositionData)
+        {
+            elements[elementIndex] = new VertexElement(elementOffset, vertexSize, GL10.GL_FLOAT, 3, VertexSemantic.VERTEX_ELEMENT_POSITION);
+            elementOffset += 12;
+            elementIndex++;
+        }
+        if (hasTexCoordData)
+        {
+            elements[elementIndex] = new VertexElement(elementOffset, vertexSize, GL10.GL_FLOAT, 2, VertexSemantic.VERTEX_ELEMENT_TEXCOORD);
+        }
+
+        int floatsPerVertex = vertexSize / 4;
+        float[] vertices = new float[floatsPerVertex * numIndexGroups];
+        int[] indices = null;
+
+        if (indexed)
+        {
+            indices = new int[numIndexGroups];
+            numVertices = 0;
+
+            // open addressing hash table: index group -> vertex index
+            int capacity = Integer.highestOneBit(Math.max(numIndexGroups, 1) * 2 - 1) << 1;
+            long[] keys = new long[capacity];
+            int[] values = new int[capacity];
+            int mask = capacity - 1;
+
+            for (int i = 0; i < numIndexGroups; ++i)
+            {
+                // the stored keys are offset by one, so an empty slot can be detected by 0
+                long key = (((long) indexGroups[2 * i]) << 32 | indexGroups[2 * i + 1]) + 1;
+                int slot = hash(key) & mask;
+
+                while (keys[slot] != 0 && keys[slot] != key)
+                {
+                    slot = (slot + 1) & mask;
+                }
+
+                if (keys[slot] == 0)
+                {
+                    keys[slot] = key;
+                    values[slot] = numVertices;
+                    writeVertex(vertices, floatsPerVertex * numVertices, i, hasPositionData, hasTexCoordData);
+                    numVertices++;
+                }
+
+                indices[i] = values[slot];
+            }
+        }
+        else
+        {
+            for (int i = 0; i < numIndexGroups; ++i)
+            {
+                writeVertex(vertices, floatsPerVertex * i, i, hasPositionData, hasTexCoordData);
+            }
+            numVertices = numIndexGroups;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(vertexSize * numVertices);
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.asFloatBuffer().put(vertices, 0, floatsPerVertex * numVertices);
+        buffer.position(0);
+
+        VertexBuffer vertexBuffer = new VertexBuffer();
+        vertexBuffer.setElements(elements);
+        vertexBuffer.setBuffer(buffer);
+        vertexBuffer.setNumVertices(numVertices);
+
+        if (!indexed)
+        {
+            return new Mesh(vertexBuffer, GL10.GL_TRIANGLES);
+        }
+
+        return new Mesh(vertexBuffer, createIndexBuffer(indices, numVertices), GL10.GL_TRIANGLES);
+    }
+
+    /**
+     * This method writes the position and texture coordinate of a face corner into the vertex array.
+     */
+    private void writeVertex(float[] vertices, int offset, int indexGroup, boolean hasPositionData, boolean hasTexCoordData) throws IOException
+    {
+        if (hasPositionData)
+        {
+            int positionIndex = indexGroups[2 * indexGroup];
+            if (positionIndex > numPositions)
+            {
+                throw new IOException("Face references undefined position " + positionIndex + "!");
+            }
+            if (positionIndex != 0)
+            {
+                int p = 3 * (positionIndex - 1);
+                vertices[offset]     = positions[p];
+                vertices[offset + 1] = positions[p + 1];
+                vertices[offset + 2] = positions[p + 2];
+            }
+            offset += 3;
+        }
+
+        if (hasTexCoordData)
+        {
+            int texCoordIndex = indexGroups[2 * indexGroup + 1];
+            if (texCoordIndex > numTexCoords)
+            {
+                throw new IOException("Face references undefined texture coordinate " + texCoordIndex + "!");
+            }
+            if (texCoordIndex != 0)
+            {
+                int t = 2 * (texCoordIndex - 1);
+                vertices[offset]     = texCoords[t];
+                vertices[offset + 1] = texCoords[t + 1];
+            }
+        }
+    }
+
+    /**
+     * This method creates an index buffer with 16 bit indices if possible, otherwise with 32 bit indices.
+     */
+    private IndexBuffer createIndexBuffer(int[] indices, int numVertices)
+    {
+        IndexBuffer indexBuffer = new IndexBuffer();
+        ByteBuffer buffer;
+
+        if (numVertices <= 65536)
+        {
+            short[] shortIndices = new short[indices.length];
+            for (int i = 0; i < indices.length; ++i)
+            {
+                shortIndices[i] = (short) indices[i];
+            }
+
+            buffer = ByteBuffer.allocateDirect(2 * indices.length);
+            buffer.order(ByteOrder.nativeOrder());
+            buffer.asShortBuffer().put(shortIndices);
+            indexBuffer.setType(GL10.GL_UNSIGNED_SHORT);
+        }
+        else
+        {
+            buffer = ByteBuffer.allocateDirect(4 * indices.length);
+            buffer.order(ByteOrder.nativeOrder());
+            buffer.asIntBuffer().put(indices);
+            indexBuffer.setType(IndexBuffer.GL_UNSIGNED_INT);
+        }
+
+        buffer.position(0);
+        indexBuffer.setBuffer(buffer);
+        indexBuffer.setNumIndices(indices.length);
+        return indexBuffer;
+    }
+
+    private static int hash(long key)
+    {
+        int h = (int) (key ^ (key >>> 32));
+        return (h * 0x9E3779B9) ^ (h >>> 16);
+    }
+
+    // ****************** GROWABLE ARRAYS ****************** //
+
+    private static byte[] grow(byte[] array)
+    {
+        byte[] result = new byte[array.length * 2];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    private static int[] grow(int[] array)
+    {
+        int[] result = new int[array.length * 2];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    private static float[] grow(float[] array)
+    {
+        float[] result = new float[array.length * 2];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+}
@@ -0,0 +1,433 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.StringTokenizer;
+import java.util.Vector;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import de.hdm.mib.dg041.graphics.VertexElement.VertexSemantic;
+
+/**
+ * This class compares the throughput of the streaming OBJParser with the original line based
+ * OBJ loader. The benchmark runs on a desktop JVM and does not need a device:
+ *
+ *   java de.hdm.mib.dg041.graphics.OBJParserBenchmark [iterations] [obj files or directories]
+ *
+ * Without any file argument all OBJ files of the assets directory are measured. Before the
+ * timing starts, the output of both loaders is compared byte by byte. Indexed meshes are expanded
+ * through their index buffer for the comparison. The table also lists the number of vertices
+ * before and after the de-duplication of the indexed meshes.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class OBJParserBenchmark
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int DEFAULT_ITERATIONS = 200;
+    private static final String DEFAULT_ASSET_DIRECTORY = "assets";
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public static void main(String[] args) throws IOException
+    {
+        int iterations = DEFAULT_ITERATIONS;
+        Vector<File> files = new Vector<File>();
+
+        for (String arg : args)
+        {
+            if (arg.matches("\\d+"))
+            {
+                iterations = Integer.parseInt(arg);
+            }
+            else
+            {
+                collectFiles(new File(arg), files);
+            }
+        }
+
+        if (files.isEmpty())
+        {
+            collectFiles(new File(DEFAULT_ASSET_DIRECTORY), files);
+        }
+
+        System.out.println(String.format("%-18s %10s %12s %12s %8s %10s %10s", "file", "bytes", "legacy MB/s", "parser MB/s", "speedup", "vertices", "indexed"));
+
+        for (File file : files)
+        {
+            byte[] data = readFully(file);
+
+            OBJParser parser = new OBJParser();
+            Mesh legacyMesh = loadFromOBJLegacy(new ByteArrayInputStream(data));
+            if (!isEqual(legacyMesh, new OBJParser(false).parse(new ByteArrayInputStream(data))) ||
+                !isEqual(legacyMesh, expand(parser.parse(new ByteArrayInputStream(data)))))
+            {
+                throw new IllegalStateException("OBJParser output differs from the legacy loader for " + file.getName());
+            }
+
+            // warm up both loaders before measuring
+            measureLegacy(data, iterations / 4 + 1);
+            measureParser(data, iterations / 4 + 1);
+
+            double legacy = throughput(data.length, iterations, measureLegacy(data, iterations));
+            double parserThroughput = throughput(data.length, iterations, measureParser(data, iterations));
+
+            System.out.println(String.format("%-18s %10d %12.2f %12.2f %7.2fx %10d %10d", file.getName(), data.length,
+                    legacy, parserThroughput, parserThroughput / legacy, parser.getNumIndexGroups(), parser.getNumVertices()));
+        }
+    }
+
+    private static long measureLegacy(byte[] data, int iterations) throws IOException
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+        {
+            loadFromOBJLegacy(new ByteArrayInputStream(data));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long measureParser(byte[] data, int iterations) throws IOException
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+        {
+            new OBJParser().parse(new ByteArrayInputStream(data));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static double throughput(int bytes, int iterations, long nanos)
+    {
+        return ((double) bytes * iterations / (1024.0 * 1024.0)) / (nanos / 1e9);
+    }
+
+    /**
+     * @return TRUE if both meshes have the same layout and the same vertex bytes
+     */
+    private static boolean isEqual(Mesh expected, Mesh actual)
+    {
+        VertexBuffer a = expected.getVertexBuffer();
+        VertexBuffer b = actual.getVertexBuffer();
+
+        if (expected.getMode() != actual.getMode() ||
+            a.getNumVertices() != b.getNumVertices() ||
+            a.getElements().length != b.getElements().length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < a.getElements().length; ++i)
+        {
+            VertexElement ea = a.getElements()[i];
+            VertexElement eb = b.getElements()[i];
+            if (ea.getOffset() != eb.getOffset() || ea.getStride() != eb.getStride() ||
+                ea.getType() != eb.getType() || ea.getCount() != eb.getCount() ||
+                ea.getSemantic() != eb.getSemantic())
+            {
+                return false;
+            }
+        }
+
+        return a.getBuffer().equals(b.getBuffer());
+    }
+
+    /**
+     * This method resolves the index buffer of an indexed mesh and creates a mesh with a separate
+     * vertex for every index, as the legacy loader does.
+     */
+    private static Mesh expand(Mesh mesh)
+    {
+        IndexBuffer indexBuffer = mesh.getIndexBuffer();
+        if (indexBuffer == null)
+        {
+            return mesh;
+        }
+
+        VertexBuffer source = mesh.getVertexBuffer();
+        int stride = source.getElements()[0].getStride();
+        ByteBuffer indices = indexBuffer.getBuffer().duplicate();
+        indices.order(indexBuffer.getBuffer().order());
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(stride * indexBuffer.getNumIndices());
+        buffer.order(ByteOrder.nativeOrder());
+
+        for (int i = 0; i < indexBuffer.getNumIndices(); ++i)
+        {
+            int index = (indexBuffer.getType() == IndexBuffer.GL_UNSIGNED_INT) ? indices.getInt(4 * i) : (indices.getShort(2 * i) & 0xffff);
+            for (int b = 0; b < stride; ++b)
+            {
+                buffer.put(source.getBuffer().get(index * stride + b));
+            }
+        }
+        buffer.position(0);
+
+        VertexBuffer vertexBuffer = new VertexBuffer();
+        vertexBuffer.setElements(source.getElements());
+        vertexBuffer.setBuffer(buffer);
+        vertexBuffer.setNumVertices(indexBuffer.getNumIndices());
+
+        return new Mesh(vertexBuffer, mesh.getMode());
+    }
+
+    private static void collectFiles(File file, Vector<File> files)
+    {
+        if (file.isDirectory())
+        {
+            File[] children = file.listFiles();
+            if (children != null)
+            {
+                java.util.Arrays.sort(children);
+                for (File child : children)
+                {
+                    if (child.getName().endsWith(".obj"))
+                    {
+                        files.add(child);
+                    }
+                }
+            }
+        }
+        else if (file.isFile())
+        {
+            files.add(file);
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException
+    {
+        InputStream stream = new FileInputStream(file);
+        try
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = stream.read(buffer); read > 0; read = stream.read(buffer))
+            {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * The original OBJ loader of the Mesh class. It is kept here as the reference implementation
+     * for the output comparison and as the baseline of the throughput measurement.
+     */
+    private static Mesh loadFromOBJLegacy(InputStream stream) throws IOException
+    {
+        Vector<float[]> positions = null;
+        Vector<float[]> texCoords = null;
+        Vector<short[]> indexGroups = null;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine())
+        {
+            // skip comments
+            if (line.startsWith("#"))
+            {
+                continue;
+            }
+
+            // split lines in tokens
+            StringTokenizer tokenizer = new StringTokenizer(line);
+            int numTokens = tokenizer.countTokens();
+
+            // check if line is empty
+            if (numTokens < 1)
+            {
+                continue;
+            }
+
+            String command = tokenizer.nextToken();
+
+            // parse position data
+            if (command.equals("v"))
+            {
+                if (numTokens != 4)
+                {
+                    throw new IOException("Unsupported Line with v command. Only 3 coordinates (x y z) are supported!");
+                }
+
+                float[] position = new float[] {
+                        Float.parseFloat(tokenizer.nextToken()),
+                        Float.parseFloat(tokenizer.nextToken()),
+                        Float.parseFloat(tokenizer.nextToken())
+                };
+
+                if (positions == null)
+                {
+                    positions = new Vector<float[]>();
+                }
+
+                positions.add(position);
+            }
+
+            // parse texture coordinates
+            if (command.equals("vt"))
+            {
+                if (numTokens != 3)
+                {
+                    throw new IOException("Unsupported Line with vt command. Only 2 coordinates (u v) are supported!");
+                }
+
+                float[] texCoord = new float[] {
+                        Float.parseFloat(tokenizer.nextToken()),
+                        Float.parseFloat(tokenizer.nextToken())
+                };
+
+                if (texCoords == null)
+                {
+                    texCoords = new Vector<float[]>();
+                }
+
+                texCoords.add(texCoord);
+            }
+
+            // parse faces
+            if (command.equals("f"))
+            {
+                if (numTokens != 4)
+                {
+                    throw new IOException("Unsupported Line with f command. Only triangles are supported!");
+                }
+
+                for (int i = 0; i < 3; ++i)
+                {
+                    short[] indexGroup = new short[3];
+
+                    String[] indices = tokenizer.nextToken().split("/");
+                    if (indices.length > 0)
+                    {
+                        indexGroup[0] = Short.parseShort(indices[0]);
+                    }
+
+                    if (indices.length > 1)
+                    {
+                        indexGroup[1] = Short.parseShort(indices[1]);
+                    }
+
+                    if (indices.length > 2)
+                    {
+                        indexGroup[2] = Short.parseShort(indices[2]);
+                    }
+
+                    if (indexGroups == null)
+                    {
+                        indexGroups = new Vector<short[]>();
+                    }
+
+                    indexGroups.add(indexGroup);
+                }
+            }
+        }
+
+        int numElements = 0;
+        int vertexSize = 0;
+        boolean hasPositionData = (positions != null);
+        boolean hasTexCoordData = (texCoords != null);
+
+        if (hasPositionData)
+        {
+            numElements++;
+            vertexSize += 12;
+        }
+        if (hasTexCoordData)
+        {
+            numElements++;
+            vertexSize += 8;
+        }
+
+        int elementIndex = 0;
+        int elementOffset = 0;
+        VertexElement[] elements = new VertexElement[numElements];
+        if (hasPositionData)
+        {
+            elements[elementIndex] = new VertexElement(elementOffset, vertexSize, GL10.GL_FLOAT, 3, VertexSemantic.VERTEX_ELEMENT_POSITION);
+            elementOffset += 12;
+            elementIndex++;
+        }
+        if (hasTexCoordData)
+        {
+            elements[elementIndex] = new VertexElement(elementOffset, vertexSize, GL10.GL_FLOAT, 2, VertexSemantic.VERTEX_ELEMENT_TEXCOORD);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(vertexSize * indexGroups.size());
+        buffer.order(ByteOrder.nativeOrder());
+
+        for (short[] indexGroup : indexGroups)
+        {
+            if (hasPositionData)
+            {
+                short vertexIndex = indexGroup[0];
+                if (vertexIndex != 0)
+                {
+                    for (float f : positions.elementAt(vertexIndex - 1))
+                    {
+                        buffer.putFloat(f);
+                    }
+                }
+                else
+                {
+                    buffer.putFloat(0); buffer.putFloat(0); buffer.putFloat(0);
+                }
+            }
+
+            if (hasTexCoordData)
+            {
+                short texCoordIndex = indexGroup[1];
+                if (texCoordIndex != 0)
+                {
+                    for (float f : texCoords.elementAt(texCoordIndex - 1))
+                    {
+                        buffer.putFloat(f);
+                    }
+                }
+                else
+                {
+                    buffer.putFloat(0); buffer.putFloat(0);
+                }
+            }
+        }
+
+        buffer.position(0);
+
+        VertexBuffer vertexBuffer = new VertexBuffer();
+        vertexBuffer.setElements(elements);
+        vertexBuffer.setBuffer(buffer);
+        vertexBuffer.setNumVertices(indexGroups.size());
+
+        return new Mesh(vertexBuffer, GL10.GL_TRIANGLES);
+    }
+}
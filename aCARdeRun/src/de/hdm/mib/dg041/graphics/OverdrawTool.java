@@ -0,0 +1,163 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This class measures the overdraw of a frame with the SoftwareGraphicBackend. The in game scene
+ * of AssetScene.createWorld is drawn in the order of the RenderQueue:
+ *
+ *   java de.hdm.mib.dg041.graphics.OverdrawTool [world|menu|grid] [asset directory] [heat map]
+ *
+ * For every draw call the shaded fragments, the written fragments and the share of all fragments
+ * of the frame are printed. The scene item of a draw call is the item which the RenderQueue reports
+ * at the same position of its draw order, so items which share a texture are told apart. Fragments which are shaded but not written were rejected by the alpha
+ * test or the depth test, they cost fill rate without any visible result. Draws with many of them
+ * should be drawn earlier or trimmed.
+ *
+ * The heat map shows the number of color writes per pixel, see SoftwareGraphicBackend.writeHeatMap.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class OverdrawTool
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    /** the resolution of the game on the reference phone **/
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 480;
+
+    /** pixels with this number of writes or more are white in the heat map **/
+    private static final int MAX_HEAT = 6;
+
+    private static final String DEFAULT_ASSET_DIRECTORY = "assets";
+    private static final String DEFAULT_HEAT_MAP = "overdraw.ppm";
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public static void main(String[] args) throws IOException
+    {
+        String name = (args.length > 0) ? args[0] : "world";
+        File directory = new File((args.length > 1) ? args[1] : DEFAULT_ASSET_DIRECTORY);
+        File heatMap = new File((args.length > 2) ? args[2] : DEFAULT_HEAT_MAP);
+
+        SoftwareGraphicBackend backend = new SoftwareGraphicBackend(WIDTH, HEIGHT);
+        GraphicDevice graphicDevice = new GraphicDevice();
+        graphicDevice.onSurfaceCreated(backend);
+        graphicDevice.resize(WIDTH, HEIGHT);
+        Renderer renderer = new Renderer(graphicDevice);
+
+        AssetScene scene;
+        if (name.equals("grid"))
+        {
+            scene = AssetScene.createGrid(graphicDevice, directory, (float) WIDTH / HEIGHT);
+        }
+        else if (name.equals("menu"))
+        {
+            scene = AssetScene.createMenu(graphicDevice, directory);
+        }
+        else
+        {
+            scene = AssetScene.createWorld(graphicDevice, directory);
+        }
+
+        backend.setOverdrawEnabled(true);
+        graphicDevice.clear(0.0f, 0.2f, 1.0f, 1.0f, 1.0f);
+        RenderQueue renderQueue = renderer.getRenderQueue();
+        scene.submit(renderQueue);
+        renderQueue.flush();
+
+        // every drawn item of the queue issues exactly one draw call
+        if (renderQueue.getNumDrawnItems() != backend.getNumDraws())
+        {
+            System.out.println("The queue drew " + renderQueue.getNumDrawnItems() + " items, but the backend recorded " + backend.getNumDraws() + " draws!");
+        }
+
+        long totalFragments = 0;
+        long totalWrites = 0;
+        for (int draw = 0; draw < backend.getNumDraws(); ++draw)
+        {
+            totalFragments += backend.getDrawFragments(draw);
+            totalWrites += backend.getDrawWrites(draw);
+        }
+
+        System.out.println(String.format("%-5s %-20s %10s %10s %10s %7s", "draw", "item", "fragments", "written", "rejected", "share"));
+        boolean[] reported = new boolean[scene.getNumItems()];
+        int numAmbiguous = 0;
+        for (int draw = 0; draw < backend.getNumDraws(); ++draw)
+        {
+            int item = (draw < renderQueue.getNumDrawnItems()) ? renderQueue.getDrawnItem(draw) : -1;
+            int fragments = backend.getDrawFragments(draw);
+            int writes = backend.getDrawWrites(draw);
+
+            // items which share a mesh, a material or a texture, like the tree chunks, must still get a row of their own
+            if (item >= 0 && item < reported.length)
+            {
+                if (reported[item])
+                {
+                    numAmbiguous++;
+                }
+                reported[item] = true;
+            }
+
+            System.out.println(String.format("%-5d %-20s %10d %10d %10d %6.1f%%", draw, (item >= 0) ? scene.getName(item) : "?",
+                    fragments, writes, fragments - writes, (totalFragments > 0) ? 100.0f * fragments / totalFragments : 0.0f));
+        }
+        if (numAmbiguous > 0)
+        {
+            System.out.println(numAmbiguous + " draws were reported for an item which already had a row!");
+        }
+
+        // histogram of the writes per pixel
+        int[] writeCounts = backend.getWriteCounts();
+        int[] histogram = new int[MAX_HEAT + 1];
+        int maxCount = 0;
+        for (int count : writeCounts)
+        {
+            histogram[Math.min(count, MAX_HEAT)]++;
+            maxCount = Math.max(maxCount, count);
+        }
+
+        int pixels = WIDTH * HEIGHT;
+        System.out.println();
+        System.out.println(String.format("%d fragments shaded, %d written for %d pixels: %.2f shaded and %.2f written per pixel, at most %d writes.",
+                totalFragments, totalWrites, pixels, (float) totalFragments / pixels, (float) totalWrites / pixels, maxCount));
+        for (int count = 0; count <= MAX_HEAT; ++count)
+        {
+            System.out.println(String.format("  %s%d writes: %6.1f%% of the pixels", (count == MAX_HEAT) ? ">=" : "  ", count,
+                    100.0f * histogram[count] / pixels));
+        }
+
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(heatMap));
+        try
+        {
+            backend.writeHeatMap(stream, MAX_HEAT);
+        }
+        finally
+        {
+            stream.close();
+        }
+        System.out.println("The heat map was written to " + heatMap + ".");
+    }
+}
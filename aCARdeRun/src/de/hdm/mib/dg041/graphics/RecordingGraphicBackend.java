@@ -0,0 +1,561 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import android.graphics.Bitmap;
+
+/**
+ * This backend does not draw anything. It records every command of the GraphicDevice into a
+ * compact stream of ints, so the render path can run without a GPU. The stream is used to
+ * count the commands of a frame and to compare two frames, for example before and after a
+ * change of the renderer.
+ *
+ * Every command is stored as its opcode followed by a fixed number of arguments, floats are
+ * stored as their raw int bits. Matrices are recorded with all 16 values.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class RecordingGraphicBackend implements GraphicBackend
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    public static final int CLEAR_COLOR = 0;
+    public static final int CLEAR_DEPTH = 1;
+    public static final int CLEAR = 2;
+    public static final int VIEWPORT = 3;
+    public static final int LOAD_PROJECTION_MATRIX = 4;
+    public static final int LOAD_WORLD_MATRIX = 5;
+    public static final int ENABLE = 6;
+    public static final int DISABLE = 7;
+    public static final int ALPHA_FUNC = 8;
+    public static final int BLEND_FUNC = 9;
+    public static final int CULL_FACE = 10;
+    public static final int DEPTH_FUNC = 11;
+    public static final int DEPTH_MASK = 12;
+    public static final int COLOR = 13;
+    public static final int TEXTURE_ENV_COLOR = 14;
+    public static final int TEXTURE_ENV_MODE = 15;
+    public static final int GEN_TEXTURE = 16;
+    public static final int BIND_TEXTURE = 17;
+    public static final int TEX_IMAGE_2D = 18;
+    public static final int TEX_PARAMETER = 19;
+    public static final int GEN_BUFFER = 20;
+    public static final int BIND_BUFFER = 21;
+    public static final int BUFFER_DATA = 22;
+    public static final int BUFFER_SUB_DATA = 23;
+    public static final int ENABLE_CLIENT_STATE = 24;
+    public static final int DISABLE_CLIENT_STATE = 25;
+    public static final int POINTER = 26;
+    public static final int DRAW_ARRAYS = 27;
+    public static final int DRAW_ELEMENTS = 28;
+
+    public static final int NUM_OPCODES = 29;
+
+    private static final String[] NAMES = {
+        "clearColor", "clearDepth", "clear", "viewport", "loadProjectionMatrix", "loadWorldMatrix",
+        "enable", "disable", "alphaFunc", "blendFunc", "cullFace", "depthFunc", "depthMask", "color",
+        "textureEnvColor", "textureEnvMode", "genTexture", "bindTexture", "texImage2D", "texParameter",
+        "genBuffer", "bindBuffer", "bufferData", "bufferSubData", "enableClientState",
+        "disableClientState", "pointer", "drawArrays", "drawElements"
+    };
+
+    /** number of arguments which follow the opcode **/
+    private static final int[] NUM_ARGUMENTS = {
+        4, 1, 1, 4, 16, 16,
+        1, 1, 2, 2, 1, 1, 1, 4,
+        4, 1, 1, 1, 3, 2,
+        1, 2, 3, 3, 1,
+        1, 6, 3, 4
+    };
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private boolean bufferObjects;
+    private int nextTextureHandle = 1;
+    private int nextBufferHandle = 1;
+
+    private int[] commands = new int[INITIAL_CAPACITY];
+    private int length;
+    private int numCommands;
+    private int[] opcodeCounts = new int[NUM_OPCODES];
+    private int numDrawnVertices;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param bufferObjects TRUE to record the buffer object path of openGL ES 1.1, FALSE to record
+     *                      client side vertex arrays
+     */
+    public RecordingGraphicBackend(boolean bufferObjects)
+    {
+        this.bufferObjects = bufferObjects;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method empties the command stream and the counters, for example at the beginning of
+     * a frame. The handles of textures and buffer objects stay valid.
+     */
+    public void reset()
+    {
+        length = 0;
+        numCommands = 0;
+        numDrawnVertices = 0;
+        for (int i = 0; i < NUM_OPCODES; ++i)
+        {
+            opcodeCounts[i] = 0;
+        }
+    }
+
+    /**
+     * @return the recorded stream, only the first getLength() values are valid
+     */
+    public int[] getCommands()
+    {
+        return commands;
+    }
+
+    /**
+     * @return the number of ints in the recorded stream
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * @return a copy of the recorded stream, for example to compare it with a later frame
+     */
+    public int[] copyCommands()
+    {
+        int[] copy = new int[length];
+        System.arraycopy(commands, 0, copy, 0, length);
+        return copy;
+    }
+
+    /**
+     * @return the number of recorded commands
+     */
+    public int getNumCommands()
+    {
+        return numCommands;
+    }
+
+    /**
+     * @param opcode for example DRAW_ELEMENTS
+     * @return the number of recorded commands with the given opcode
+     */
+    public int getNumCommands(int opcode)
+    {
+        return opcodeCounts[opcode];
+    }
+
+    /**
+     * @return the number of recorded drawArrays and drawElements commands
+     */
+    public int getNumDrawCalls()
+    {
+        return opcodeCounts[DRAW_ARRAYS] + opcodeCounts[DRAW_ELEMENTS];
+    }
+
+    /**
+     * @return the number of vertices of all recorded draw commands
+     */
+    public int getNumDrawnVertices()
+    {
+        return numDrawnVertices;
+    }
+
+    /**
+     * @return the name of the command
+     */
+    public static String getName(int opcode)
+    {
+        return NAMES[opcode];
+    }
+
+    /**
+     * This method compares two recorded streams command by command.
+     *
+     * @return the index of the first command which differs or -1 if both streams are equal
+     */
+    public static int compare(int[] a, int lengthA, int[] b, int lengthB)
+    {
+        int command = 0;
+        int i = 0;
+
+        while (i < lengthA && i < lengthB)
+        {
+            int size = 1 + NUM_ARGUMENTS[a[i]];
+            if (a[i] != b[i] || i + size > lengthB)
+            {
+                return command;
+            }
+            for (int n = 1; n < size; ++n)
+            {
+                if (a[i + n] != b[i + n])
+                {
+                    return command;
+                }
+            }
+
+            i += size;
+            command++;
+        }
+
+        return (lengthA == lengthB) ? -1 : command;
+    }
+
+    /**
+     * @return a readable listing of the recorded stream, one command per line
+     */
+    public static String format(int[] stream, int length)
+    {
+        StringBuilder builder = new StringBuilder();
+        int i = 0;
+
+        while (i < length)
+        {
+            int opcode = stream[i];
+            builder.append(NAMES[opcode]).append('(');
+
+            boolean floats = isFloatCommand(opcode);
+            for (int n = 1; n <= NUM_ARGUMENTS[opcode]; ++n)
+            {
+                if (n > 1)
+                {
+                    builder.append(", ");
+                }
+                if (floats)
+                {
+                    builder.append(Float.intBitsToFloat(stream[i + n]));
+                }
+                else
+                {
+                    builder.append(stream[i + n]);
+                }
+            }
+
+            builder.append(")\n");
+            i += 1 + NUM_ARGUMENTS[opcode];
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return format(commands, length);
+    }
+
+    private static boolean isFloatCommand(int opcode)
+    {
+        switch (opcode)
+        {
+            case CLEAR_COLOR:
+            case CLEAR_DEPTH:
+            case LOAD_PROJECTION_MATRIX:
+            case LOAD_WORLD_MATRIX:
+            case COLOR:
+            case TEXTURE_ENV_COLOR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // ****************** RECORDING ****************** //
+
+    /**
+     * This method appends the opcode and reserves the space of its arguments.
+     *
+     * @return the index of the first argument
+     */
+    private int begin(int opcode)
+    {
+        int size = 1 + NUM_ARGUMENTS[opcode];
+        if (length + size > commands.length)
+        {
+            int[] grown = new int[Math.max(commands.length * 2, length + size)];
+            System.arraycopy(commands, 0, grown, 0, length);
+            commands = grown;
+        }
+
+        commands[length] = opcode;
+        int start = length + 1;
+        length += size;
+        numCommands++;
+        opcodeCounts[opcode]++;
+        return start;
+    }
+
+    private void record(int opcode, int a)
+    {
+        int i = begin(opcode);
+        commands[i] = a;
+    }
+
+    private void record(int opcode, int a, int b)
+    {
+        int i = begin(opcode);
+        commands[i] = a;
+        commands[i + 1] = b;
+    }
+
+    private void record(int opcode, int a, int b, int c)
+    {
+        int i = begin(opcode);
+        commands[i] = a;
+        commands[i + 1] = b;
+        commands[i + 2] = c;
+    }
+
+    private void record(int opcode, float a, float b, float c, float d)
+    {
+        int i = begin(opcode);
+        commands[i] = Float.floatToRawIntBits(a);
+        commands[i + 1] = Float.floatToRawIntBits(b);
+        commands[i + 2] = Float.floatToRawIntBits(c);
+        commands[i + 3] = Float.floatToRawIntBits(d);
+    }
+
+    private void recordMatrix(int opcode, float[] m)
+    {
+        int i = begin(opcode);
+        for (int n = 0; n < 16; ++n)
+        {
+            commands[i + n] = Float.floatToRawIntBits(m[n]);
+        }
+    }
+
+    // ****************** BACKEND ****************** //
+
+    @Override
+    public boolean isBufferObjectSupported()
+    {
+        return bufferObjects;
+    }
+
+    @Override
+    public void clearColor(float red, float green, float blue, float alpha)
+    {
+        record(CLEAR_COLOR, red, green, blue, alpha);
+    }
+
+    @Override
+    public void clearDepth(float depth)
+    {
+        record(CLEAR_DEPTH, Float.floatToRawIntBits(depth));
+    }
+
+    @Override
+    public void clear(int mask)
+    {
+        record(CLEAR, mask);
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height)
+    {
+        int i = begin(VIEWPORT);
+        commands[i] = x;
+        commands[i + 1] = y;
+        commands[i + 2] = width;
+        commands[i + 3] = height;
+    }
+
+    @Override
+    public void loadProjectionMatrix(float[] m)
+    {
+        recordMatrix(LOAD_PROJECTION_MATRIX, m);
+    }
+
+    @Override
+    public void loadWorldMatrix(float[] m)
+    {
+        recordMatrix(LOAD_WORLD_MATRIX, m);
+    }
+
+    @Override
+    public void enable(int capability)
+    {
+        record(ENABLE, capability);
+    }
+
+    @Override
+    public void disable(int capability)
+    {
+        record(DISABLE, capability);
+    }
+
+    @Override
+    public void alphaFunc(int function, float value)
+    {
+        record(ALPHA_FUNC, function, Float.floatToRawIntBits(value));
+    }
+
+    @Override
+    public void blendFunc(int srcFactor, int dstFactor)
+    {
+        record(BLEND_FUNC, srcFactor, dstFactor);
+    }
+
+    @Override
+    public void cullFace(int side)
+    {
+        record(CULL_FACE, side);
+    }
+
+    @Override
+    public void depthFunc(int function)
+    {
+        record(DEPTH_FUNC, function);
+    }
+
+    @Override
+    public void depthMask(boolean enabled)
+    {
+        record(DEPTH_MASK, enabled ? 1 : 0);
+    }
+
+    @Override
+    public void color(float red, float green, float blue, float alpha)
+    {
+        record(COLOR, red, green, blue, alpha);
+    }
+
+    @Override
+    public void textureEnvColor(float[] color)
+    {
+        record(TEXTURE_ENV_COLOR, color[0], color[1], color[2], color[3]);
+    }
+
+    @Override
+    public void textureEnvMode(int mode)
+    {
+        record(TEXTURE_ENV_MODE, mode);
+    }
+
+    @Override
+    public int genTexture()
+    {
+        int handle = nextTextureHandle++;
+        record(GEN_TEXTURE, handle);
+        return handle;
+    }
+
+    @Override
+    public void bindTexture(int handle)
+    {
+        record(BIND_TEXTURE, handle);
+    }
+
+    @Override
+    public void texImage2D(int level, Bitmap bitmap)
+    {
+        record(TEX_IMAGE_2D, level, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    @Override
+    public void texImage2D(int level, int width, int height, int[] pixels)
+    {
+        record(TEX_IMAGE_2D, level, width, height);
+    }
+
+    @Override
+    public void texParameter(int parameter, int value)
+    {
+        record(TEX_PARAMETER, parameter, value);
+    }
+
+    @Override
+    public int genBuffer()
+    {
+        int handle = nextBufferHandle++;
+        record(GEN_BUFFER, handle);
+        return handle;
+    }
+
+    @Override
+    public void bindBuffer(int target, int handle)
+    {
+        record(BIND_BUFFER, target, handle);
+    }
+
+    @Override
+    public void bufferData(int target, int size, Buffer data, int usage)
+    {
+        record(BUFFER_DATA, target, size, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, int offset, int size, Buffer data)
+    {
+        record(BUFFER_SUB_DATA, target, offset, size);
+    }
+
+    @Override
+    public void enableClientState(int array)
+    {
+        record(ENABLE_CLIENT_STATE, array);
+    }
+
+    @Override
+    public void disableClientState(int array)
+    {
+        record(DISABLE_CLIENT_STATE, array);
+    }
+
+    @Override
+    public void pointer(int array, int count, int type, int stride, ByteBuffer buffer, int offset)
+    {
+        int i = begin(POINTER);
+        commands[i] = array;
+        commands[i + 1] = count;
+        commands[i + 2] = type;
+        commands[i + 3] = stride;
+        commands[i + 4] = (buffer != null) ? 1 : 0;
+        commands[i + 5] = offset;
+    }
+
+    @Override
+    public void drawArrays(int mode, int first, int count)
+    {
+        record(DRAW_ARRAYS, mode, first, count);
+        numDrawnVertices += count;
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, ByteBuffer indices)
+    {
+        int i = begin(DRAW_ELEMENTS);
+        commands[i] = mode;
+        commands[i + 1] = count;
+        commands[i + 2] = type;
+        commands[i + 3] = (indices != null) ? 1 : 0;
+        numDrawnVertices += count;
+    }
+}
@@ -0,0 +1,119 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class runs the render path of the game without a GPU. An AssetScene is submitted to the
+ * RenderQueue and drawn by the Renderer into a RecordingGraphicBackend:
+ *
+ *   java de.hdm.mib.dg041.graphics.RenderPathProfiler [world|menu|grid] [frames] [asset directory]
+ *
+ *   - world submits what World.draw and HUD.draw submit in a running game
+ *   - menu submits what MenuScreen.draw submits in the main menu
+ *   - grid submits every binary mesh of the asset directory once
+ *
+ * World, HUD and MenuScreen can not be created without a device, because they load their content
+ * through the android Context, AssetManager, BitmapFactory and Paint. The scenes rebuild their
+ * meshes, matrices, cameras, layers and text buffers instead, so the same RenderQueue, Renderer,
+ * TextBuffer and SpriteFont code runs as on a device.
+ *
+ * For every frame the number of commands, draw calls, vertices and state changes is printed.
+ * The first frame uploads the buffer objects, every following frame of the unchanged scene has
+ * to record exactly the same commands, otherwise the first difference is reported.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class RenderPathProfiler
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int DEFAULT_FRAMES = 3;
+    private static final String DEFAULT_ASSET_DIRECTORY = "assets";
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public static void main(String[] args) throws IOException
+    {
+        String name = (args.length > 0) ? args[0] : "world";
+        int frames = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+        File directory = new File((args.length > 2) ? args[2] : DEFAULT_ASSET_DIRECTORY);
+
+        RecordingGraphicBackend backend = new RecordingGraphicBackend(true);
+        GraphicDevice graphicDevice = new GraphicDevice();
+        graphicDevice.onSurfaceCreated(backend);
+        graphicDevice.resize(800, 480);
+        Renderer renderer = new Renderer(graphicDevice);
+
+        AssetScene scene;
+        if (name.equals("grid"))
+        {
+            scene = AssetScene.createGrid(graphicDevice, directory, 800.0f / 480.0f);
+        }
+        else if (name.equals("menu"))
+        {
+            scene = AssetScene.createMenu(graphicDevice, directory);
+        }
+        else
+        {
+            scene = AssetScene.createWorld(graphicDevice, directory);
+        }
+
+        System.out.println(String.format("%-6s %9s %7s %9s %8s %8s %7s %7s", "frame", "commands", "draws", "vertices", "issued", "skipped", "drawn", "culled"));
+
+        int[] previous = null;
+        for (int frame = 0; frame < frames; ++frame)
+        {
+            backend.reset();
+            graphicDevice.resetStateCounters();
+            renderer.resetCounters();
+
+            graphicDevice.clear(0.0f, 0.0f, 0.0f, 1.0f, 1.0f);
+            scene.submit(renderer.getRenderQueue());
+            renderer.getRenderQueue().flush();
+
+            System.out.println(String.format("%-6d %9d %7d %9d %8d %8d %7d %7d", frame, backend.getNumCommands(),
+                    backend.getNumDrawCalls(), backend.getNumDrawnVertices(), graphicDevice.getStateChangesIssued(),
+                    graphicDevice.getStateChangesSkipped(), renderer.getNumDrawn(), renderer.getNumCulled()));
+
+            int[] commands = backend.copyCommands();
+            if (frame > 1)
+            {
+                int difference = RecordingGraphicBackend.compare(previous, previous.length, commands, commands.length);
+                if (difference >= 0)
+                {
+                    System.out.println("Frame " + frame + " differs from the previous frame at command " + difference + "!");
+                }
+            }
+            previous = commands;
+        }
+
+        System.out.println();
+        System.out.println("commands of the last frame:");
+        for (int opcode = 0; opcode < RecordingGraphicBackend.NUM_OPCODES; ++opcode)
+        {
+            if (backend.getNumCommands(opcode) > 0)
+            {
+                System.out.println(String.format("  %-22s %6d", RecordingGraphicBackend.getName(opcode), backend.getNumCommands(opcode)));
+            }
+        }
+    }
+}
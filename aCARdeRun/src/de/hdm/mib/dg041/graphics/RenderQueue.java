@@ -0,0 +1,362 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import android.util.Log;
+
+import de.hdm.mib.dg041.math.Matrix4x4;
+
+/**
+ * This class collects the draw calls of a frame and draws them sorted at the end of the frame.
+ * Every submitted item gets a 64 bit sort key:
+ *
+ *   layer (7 bits) | translucent (1 bit) | opaque:      depth bucket | camera | texture | material | depth
+ *                                        | translucent: camera | inverted depth | texture | material
+ *
+ * Layers are drawn in ascending order. Within a layer opaque items are drawn front to back in
+ * coarse depth buckets, so far objects like the sky fail the depth test behind the near ones.
+ * Inside a bucket they are grouped by camera, texture and material. Alpha tested and blended
+ * items are drawn back to front per camera, because the depths of different cameras can not be
+ * compared.
+ * All item arrays are allocated once, so submitting does not create any object.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class RenderQueue
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static String TAG = RenderQueue.class.getName();
+
+    /** layer of the 3D scene **/
+    public static final int LAYER_SCENE = 0;
+    /**
+     * layer of the sky and other backgrounds which are drawn after the scene, so the depth test
+     * rejects them behind the opaque and alpha tested objects. Blended scene objects would blend
+     * with the clear color, so the scene layer must not contain any.
+     **/
+    public static final int LAYER_BACKGROUND = 1;
+    /** layer of text and HUD elements which are drawn on top of the scene **/
+    public static final int LAYER_OVERLAY = 2;
+
+    private static final int MAX_LAYER = 127;
+    private static final int MAX_CAMERAS = 16;
+    private static final int MAX_MATERIALS = 256;
+    private static final int MAX_TEXTURE_HANDLE = 4095;
+
+    /** view space distance which is mapped to the largest depth value of the sort key **/
+    private static final float MAX_DEPTH = 256.0f;
+    private static final int DEPTH_MASK = 0xffffff;
+    /** the depth buckets double their size: [0, 1), [1, 2), [2, 4), ... [128, 256] **/
+    private static final int MAX_DEPTH_BUCKET = 15;
+
+    private Renderer renderer;
+
+    /** submitted items **/
+    private Mesh[] meshes;
+    private Material[] materials;
+    private Camera[] cameras;
+    private Matrix4x4[] worlds;
+    private long[] keys;
+    private int[] order;
+    private int numItems;
+    private boolean overflowReported;
+
+    /** submission indices of the items which were drawn by the last flush in draw order **/
+    private int[] drawnItems;
+    private int numDrawnItems;
+
+    /** cameras and materials of the current frame, their index is part of the sort key **/
+    private Camera[] frameCameras = new Camera[MAX_CAMERAS];
+    private int numFrameCameras;
+    private Material[] frameMaterials = new Material[MAX_MATERIALS];
+    private int numFrameMaterials;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param renderer the renderer which draws the items
+     * @param capacity the maximum number of items per frame
+     */
+    public RenderQueue(Renderer renderer, int capacity)
+    {
+        this.renderer = renderer;
+
+        meshes = new Mesh[capacity];
+        materials = new Material[capacity];
+        cameras = new Camera[capacity];
+        worlds = new Matrix4x4[capacity];
+        keys = new long[capacity];
+        order = new int[capacity];
+        drawnItems = new int[capacity];
+
+        for (int i = 0; i < capacity; ++i)
+        {
+            worlds[i] = new Matrix4x4();
+        }
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method adds a mesh to the queue. The world matrix is copied, so the caller may change
+     * it after the submission.
+     *
+     * @param mesh
+     * @param material
+     * @param world
+     * @param camera the camera which is used to draw the mesh
+     * @param layer the layer of the mesh, for example LAYER_SCENE or LAYER_OVERLAY
+     */
+    public void submit(Mesh mesh, Material material, Matrix4x4 world, Camera camera, int layer)
+    {
+        if (numItems == keys.length)
+        {
+            if (!overflowReported)
+            {
+                Log.e(TAG, "ERROR - The render queue is full, items are not drawn!");
+                overflowReported = true;
+            }
+            return;
+        }
+
+        int index = numItems++;
+        meshes[index] = mesh;
+        materials[index] = material;
+        cameras[index] = camera;
+        System.arraycopy(world.m, 0, worlds[index].m, 0, 16);
+        keys[index] = createKey(material, world, camera, layer);
+        order[index] = index;
+    }
+
+    /**
+     * This method adds a text to the queue.
+     *
+     * @param textBuffer
+     * @param world
+     * @param camera
+     * @param layer
+     */
+    public void submitText(TextBuffer textBuffer, Matrix4x4 world, Camera camera, int layer)
+    {
+        submit(textBuffer.getMesh(), textBuffer.getSpriteFont().getMaterial(), world, camera, layer);
+    }
+
+    /**
+     * This method sorts all submitted items, draws them and empties the queue. The camera and the
+     * material are only set if they differ from the previous drawn item.
+     */
+    public void flush()
+    {
+        sort();
+
+        GraphicDevice graphicsDevice = renderer.getGraphicsDevice();
+        Camera currentCamera = null;
+        Material currentMaterial = null;
+        numDrawnItems = 0;
+
+        for (int i = 0; i < numItems; ++i)
+        {
+            int index = order[i];
+
+            if (cameras[index] != currentCamera)
+            {
+                currentCamera = cameras[index];
+                graphicsDevice.setCamera(currentCamera);
+            }
+
+            boolean drawn;
+            if (materials[index] != currentMaterial)
+            {
+                // a culled mesh does not set up its material
+                drawn = renderer.drawMesh(meshes[index], materials[index], worlds[index]);
+                if (drawn)
+                {
+                    currentMaterial = materials[index];
+                }
+            }
+            else
+            {
+                drawn = renderer.drawMesh(meshes[index], worlds[index]);
+            }
+
+            if (drawn)
+            {
+                drawnItems[numDrawnItems++] = index;
+            }
+        }
+
+        clear();
+    }
+
+    /**
+     * This method empties the queue without drawing the items.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < numItems; ++i)
+        {
+            meshes[i] = null;
+            materials[i] = null;
+            cameras[i] = null;
+        }
+        for (int i = 0; i < numFrameCameras; ++i)
+        {
+            frameCameras[i] = null;
+        }
+        for (int i = 0; i < numFrameMaterials; ++i)
+        {
+            frameMaterials[i] = null;
+        }
+
+        numItems = 0;
+        numFrameCameras = 0;
+        numFrameMaterials = 0;
+    }
+
+    /**
+     * @return the number of items submitted since the last flush
+     */
+    public int getNumItems()
+    {
+        return numItems;
+    }
+
+    /**
+     * @return the number of items which were drawn by the last flush
+     */
+    public int getNumDrawnItems()
+    {
+        return numDrawnItems;
+    }
+
+    /**
+     * @param draw the position of the item in the draw order of the last flush
+     * @return the submission index of the item, 0 is the first item submitted after the previous flush
+     */
+    public int getDrawnItem(int draw)
+    {
+        return drawnItems[draw];
+    }
+
+    /**
+     * @return the maximum number of items per frame
+     */
+    public int getCapacity()
+    {
+        return keys.length;
+    }
+
+    private long createKey(Material material, Matrix4x4 world, Camera camera, int layer)
+    {
+        long cameraIndex = indexOf(frameCameras, camera, numFrameCameras, MAX_CAMERAS);
+        if (cameraIndex == numFrameCameras && numFrameCameras < MAX_CAMERAS)
+        {
+            frameCameras[numFrameCameras++] = camera;
+        }
+
+        long materialIndex = indexOf(frameMaterials, material, numFrameMaterials, MAX_MATERIALS);
+        if (materialIndex == numFrameMaterials && numFrameMaterials < MAX_MATERIALS)
+        {
+            frameMaterials[numFrameMaterials++] = material;
+        }
+
+        Texture texture = material.getTexture();
+        long textureHandle = (texture != null) ? Math.min(texture.getHandle(), MAX_TEXTURE_HANDLE) : 0;
+
+        // view space distance of the origin of the item
+        float[] v = camera.getView().m;
+        float[] w = world.m;
+        float distance = -(v[2] * w[12] + v[6] * w[13] + v[10] * w[14] + v[14]);
+        distance = Math.max(0.0f, Math.min(distance, MAX_DEPTH));
+        long depth = (long) (distance / MAX_DEPTH * DEPTH_MASK);
+        long depthBucket = Math.min(32 - Integer.numberOfLeadingZeros((int) distance), MAX_DEPTH_BUCKET);
+
+        long key = ((long) Math.max(0, Math.min(layer, MAX_LAYER))) << 56;
+
+        if (isTranslucent(material))
+        {
+            key |= 1L << 55;
+            key |= cameraIndex << 51;
+            key |= (DEPTH_MASK - depth) << 27;
+            key |= textureHandle << 15;
+            key |= materialIndex << 7;
+        }
+        else
+        {
+            key |= depthBucket << 51;
+            key |= cameraIndex << 47;
+            key |= textureHandle << 35;
+            key |= materialIndex << 27;
+            key |= depth << 3;
+        }
+
+        return key;
+    }
+
+    /**
+     * @return TRUE if the material uses the alpha test or blending
+     */
+    private static boolean isTranslucent(Material material)
+    {
+        return material.getAlphaTestFunction() != CompareFunction.ALWAYS ||
+               material.getBlendSourceFactor() != BlendFactor.ONE ||
+               material.getBlendDestFactor() != BlendFactor.ZERO;
+    }
+
+    /**
+     * @return the index of the object in the array or count if the object is not contained. If the
+     *         array is full, the last index is returned.
+     */
+    private static int indexOf(Object[] array, Object object, int count, int max)
+    {
+        for (int i = 0; i < count; ++i)
+        {
+            if (array[i] == object)
+            {
+                return i;
+            }
+        }
+        return (count < max) ? count : max - 1;
+    }
+
+    /**
+     * This method sorts the item order by the keys. Insertion sort is stable, keeps items with
+     * equal keys in submission order and is fast for the small and mostly presorted queues of
+     * consecutive frames.
+     */
+    private void sort()
+    {
+        for (int i = 1; i < numItems; ++i)
+        {
+            int index = order[i];
+            long key = keys[index];
+
+            int j = i - 1;
+            while (j >= 0 && keys[order[j]] > key)
+            {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = index;
+        }
+    }
+}
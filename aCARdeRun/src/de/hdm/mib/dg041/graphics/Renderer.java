@@ -28,6 +28,14 @@ public class Renderer
     // --------------------------------------------------------
 
     private GraphicDevice graphicsDevice;
+    private RenderQueue renderQueue;
+
+    /** meshes drawn and culled since the last reset **/
+    private int numDrawn;
+    private int numCulled;
+
+    /** maximum number of queued draw calls per frame **/
+    private static final int RENDER_QUEUE_CAPACITY = 256;
 
     // --------------------------------------------------------
     // CONSTRUCTOR
@@ -36,6 +44,7 @@ public class Renderer
     public Renderer(GraphicDevice graphicsDevice)
     {
 	    this.graphicsDevice = graphicsDevice;
+	    this.renderQueue = new RenderQueue(this, RENDER_QUEUE_CAPACITY);
     }
 
     // --------------------------------------------------------
@@ -50,22 +59,60 @@ public class Renderer
 	    return graphicsDevice;
     }
 
+    /**
+     * @return the queue which collects the draw calls of a frame, it is flushed at the end of every frame
+     */
+    public RenderQueue getRenderQueue()
+    {
+        return renderQueue;
+    }
+
+    /**
+     * @return the number of meshes drawn since the last reset
+     */
+    public int getNumDrawn()
+    {
+        return numDrawn;
+    }
+
+    /**
+     * @return the number of meshes skipped since the last reset, because they were outside of the view frustum
+     */
+    public int getNumCulled()
+    {
+        return numCulled;
+    }
+
+    /**
+     * This method resets the draw counters, for example at the beginning of a frame.
+     */
+    public void resetCounters()
+    {
+        numDrawn = 0;
+        numCulled = 0;
+    }
+
     /**
      * This method draws a loaded mesh and its corresponding material into a matrix (for example the world).
+     * Meshes which are completely outside of the view frustum of the current camera are skipped.
      *
      * @param mesh
      * @param material
      * @param world
+     * @return FALSE if the mesh was culled and the material was not set up
      */
-    public void drawMesh(Mesh mesh, Material material, Matrix4x4 world)
+    public boolean drawMesh(Mesh mesh, Material material, Matrix4x4 world)
     {
+        if (isCulled(mesh, world))
+        {
+            return false;
+        }
+
         graphicsDevice.setWorldMatrix(world);
         setupMaterial(material);
 
-        VertexBuffer vertexBuffer = mesh.getVertexBuffer();
-        graphicsDevice.bindVertexBuffer(vertexBuffer);
-        graphicsDevice.draw(mesh.getMode(), 0, vertexBuffer.getNumVertices());
-        graphicsDevice.unbindVertexBuffer(vertexBuffer);
+        drawGeometry(mesh);
+        return true;
     }
 
     /**
@@ -73,15 +120,56 @@ public class Renderer
      *
      * @param mesh
      * @param world
+     * @return FALSE if the mesh was culled
      */
-    public void drawMesh(Mesh mesh, Matrix4x4 world)
+    public boolean drawMesh(Mesh mesh, Matrix4x4 world)
     {
+        if (isCulled(mesh, world))
+        {
+            return false;
+        }
+
         graphicsDevice.setWorldMatrix(world);
 
+        drawGeometry(mesh);
+        return true;
+    }
+
+    /**
+     * @return TRUE if the mesh is outside of the view frustum of the current camera
+     */
+    private boolean isCulled(Mesh mesh, Matrix4x4 world)
+    {
+        Camera camera = graphicsDevice.getCamera();
+        if (camera != null && !camera.isVisible(mesh, world))
+        {
+            numCulled++;
+            return true;
+        }
+
+        numDrawn++;
+        return false;
+    }
+
+    /**
+     * This method draws the vertices of a mesh. Indexed meshes are drawn with their index buffer.
+     *
+     * @param mesh
+     */
+    private void drawGeometry(Mesh mesh)
+    {
         VertexBuffer vertexBuffer = mesh.getVertexBuffer();
+        IndexBuffer indexBuffer = mesh.getIndexBuffer();
+
         graphicsDevice.bindVertexBuffer(vertexBuffer);
-        graphicsDevice.draw(mesh.getMode(), 0, vertexBuffer.getNumVertices());
-        graphicsDevice.unbindVertexBuffer(vertexBuffer);
+        if (indexBuffer != null)
+        {
+            graphicsDevice.drawIndexed(mesh.getMode(), indexBuffer);
+        }
+        else
+        {
+            graphicsDevice.draw(mesh.getMode(), 0, vertexBuffer.getNumVertices());
+        }
     }
 
     /**
@@ -0,0 +1,1279 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.InvalidParameterException;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+
+import android.graphics.Bitmap;
+
+/**
+ * This backend rasterizes the commands of the GraphicDevice on the CPU. It implements the subset
+ * of the openGL ES 1.0 fixed function pipeline which the game uses:
+ *
+ *   - textured and colored triangles, triangle strips and fans, clipped at the near and far plane
+ *   - perspective correct texture coordinates and colors
+ *   - the texture environments REPLACE, MODULATE, DECAL, BLEND and ADD
+ *   - alpha test, depth test, depth write, blend factors and cull side
+ *
+ * Textures are sampled from their base level with the wrap modes and the magnification filter,
+ * NEAREST or LINEAR. The result is pixel exact and does not depend on a GPU, so frames can be
+ * rendered on a build machine and compared with golden images.
+ *
+ * If the overdraw counters are enabled, the backend counts the color writes of every pixel and
+ * the fragments of every draw call. A fragment is a covered pixel which is shaded, it costs fill
+ * rate even if the alpha test or the depth test rejects it afterwards. Clearing is not counted.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class SoftwareGraphicBackend implements GraphicBackend
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int GL_FIXED = 0x140C;
+
+    /** clip space vertex: x, y, z, w, s, t, r, g, b, a **/
+    private static final int VERTEX_SIZE = 10;
+    /** a triangle clipped at two planes has at most five vertices **/
+    private static final int MAX_CLIPPED_VERTICES = 8;
+
+    private static final int ARRAY_POSITION = 0;
+    private static final int ARRAY_COLOR = 1;
+    private static final int ARRAY_TEXCOORD = 2;
+
+    // frame buffer, the first row is the bottom row like in openGL
+    private int width;
+    private int height;
+    private int[] colorBuffer;
+    private float[] depthBuffer;
+    private int viewportX, viewportY, viewportWidth, viewportHeight;
+    private float[] clearColor = new float[4];
+    private float clearDepth = 1.0f;
+
+    // transformation
+    private float[] projection = new float[16];
+    private float[] world = new float[16];
+    private float[] transform = new float[16];
+    private boolean transformValid;
+
+    // state
+    private boolean alphaTest, blend, cullFace, depthTest, texture2D;
+    private int alphaFunction = GL10.GL_ALWAYS;
+    private float alphaValue;
+    private int blendSrc = GL10.GL_ONE;
+    private int blendDst = GL10.GL_ZERO;
+    private int cullSide = GL10.GL_BACK;
+    private int depthFunction = GL10.GL_LESS;
+    private boolean depthMask = true;
+    private float[] color = { 1, 1, 1, 1 };
+    private float[] envColor = new float[4];
+    private int envMode = GL10.GL_MODULATE;
+
+    // textures, indexed by handle
+    private SoftwareTexture[] textures = new SoftwareTexture[16];
+    private int numTextures;
+    private SoftwareTexture boundTexture;
+    private int boundTextureHandle;
+
+    // buffer objects, indexed by handle
+    private ByteBuffer[] buffers = new ByteBuffer[16];
+    private int numBuffers;
+    private int boundArrayBuffer;
+    private int boundElementBuffer;
+
+    // vertex arrays
+    private boolean[] arrayEnabled = new boolean[3];
+    private int[] arrayCount = new int[3];
+    private int[] arrayType = new int[3];
+    private int[] arrayStride = new int[3];
+    private int[] arrayOffset = new int[3];
+    private ByteBuffer[] arraySource = new ByteBuffer[3];
+
+    // scratch memory of the vertex processing
+    private float[] triangle = new float[3 * VERTEX_SIZE];
+    private float[] clipA = new float[MAX_CLIPPED_VERTICES * VERTEX_SIZE];
+    private float[] clipB = new float[MAX_CLIPPED_VERTICES * VERTEX_SIZE];
+    private float[] fragment = new float[4];
+    private float[] texel = new float[4];
+
+    // overdraw counters
+    private boolean overdrawEnabled;
+    private int[] writeCounts;
+    private int numDraws;
+    private int[] drawFragments = new int[64];
+    private int[] drawWrites = new int[64];
+    private int[] drawTextures = new int[64];
+    private int currentFragments;
+    private int currentWrites;
+
+    /**
+     * This class stores the base level of a texture and its sampler parameters.
+     */
+    private static class SoftwareTexture
+    {
+        int width;
+        int height;
+        int[] pixels;
+        int magFilter = GL10.GL_LINEAR;
+        int wrapS = GL10.GL_REPEAT;
+        int wrapT = GL10.GL_REPEAT;
+    }
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param width the width of the frame buffer in pixels
+     * @param height the height of the frame buffer in pixels
+     */
+    public SoftwareGraphicBackend(int width, int height)
+    {
+        if (width <= 0 || height <= 0)
+        {
+            throw new InvalidParameterException("The frame buffer needs at least one pixel!");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.colorBuffer = new int[width * height];
+        this.depthBuffer = new float[width * height];
+        this.viewportWidth = width;
+        this.viewportHeight = height;
+
+        setIdentity(projection);
+        setIdentity(world);
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * @return the ARGB pixels of the frame buffer, the first row is the bottom row
+     */
+    public int[] getColorBuffer()
+    {
+        return colorBuffer;
+    }
+
+    /**
+     * @return the depth values of the frame buffer, the first row is the bottom row
+     */
+    public float[] getDepthBuffer()
+    {
+        return depthBuffer;
+    }
+
+    /**
+     * This method writes the color buffer as binary PPM image (P6), the top row first.
+     *
+     * @param stream
+     * @throws IOException
+     */
+    public void writeImage(OutputStream stream) throws IOException
+    {
+        writeImage(stream, colorBuffer, width, height);
+    }
+
+    /**
+     * This method writes ARGB pixels with the bottom row first as binary PPM image (P6).
+     */
+    public static void writeImage(OutputStream stream, int[] pixels, int width, int height) throws IOException
+    {
+        stream.write(("P6\n" + width + " " + height + "\n255\n").getBytes("US-ASCII"));
+
+        byte[] row = new byte[3 * width];
+        for (int y = height - 1; y >= 0; --y)
+        {
+            for (int x = 0; x < width; ++x)
+            {
+                int argb = pixels[y * width + x];
+                row[3 * x]     = (byte) (argb >> 16);
+                row[3 * x + 1] = (byte) (argb >> 8);
+                row[3 * x + 2] = (byte) argb;
+            }
+            stream.write(row);
+        }
+    }
+
+    /**
+     * @param tolerance the allowed difference per color channel
+     * @return the number of pixels which differ by more than the tolerance in one channel
+     */
+    public static int compareImages(int[] a, int[] b, int tolerance)
+    {
+        if (a.length != b.length)
+        {
+            throw new InvalidParameterException("The images have different sizes!");
+        }
+
+        int differences = 0;
+        for (int i = 0; i < a.length; ++i)
+        {
+            for (int shift = 0; shift < 24; shift += 8)
+            {
+                int ca = (a[i] >> shift) & 0xff;
+                int cb = (b[i] >> shift) & 0xff;
+                if (Math.abs(ca - cb) > tolerance)
+                {
+                    differences++;
+                    break;
+                }
+            }
+        }
+        return differences;
+    }
+
+    // ****************** OVERDRAW ****************** //
+
+    /**
+     * @param enabled TRUE to count the writes per pixel and the fragments per draw call
+     */
+    public void setOverdrawEnabled(boolean enabled)
+    {
+        overdrawEnabled = enabled;
+        if (enabled && writeCounts == null)
+        {
+            writeCounts = new int[width * height];
+        }
+        resetOverdraw();
+    }
+
+    public boolean isOverdrawEnabled()
+    {
+        return overdrawEnabled;
+    }
+
+    /**
+     * This method resets the overdraw counters, usually at the beginning of a frame.
+     */
+    public void resetOverdraw()
+    {
+        numDraws = 0;
+        if (writeCounts != null)
+        {
+            for (int i = 0; i < writeCounts.length; ++i)
+            {
+                writeCounts[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * @return the number of color writes per pixel since the last reset, the first row is the bottom row
+     */
+    public int[] getWriteCounts()
+    {
+        return writeCounts;
+    }
+
+    /**
+     * @return the number of draw calls since the last reset
+     */
+    public int getNumDraws()
+    {
+        return numDraws;
+    }
+
+    /**
+     * @return the number of fragments which were shaded by the draw call
+     */
+    public int getDrawFragments(int draw)
+    {
+        return drawFragments[draw];
+    }
+
+    /**
+     * @return the number of fragments which were written into the color buffer by the draw call
+     */
+    public int getDrawWrites(int draw)
+    {
+        return drawWrites[draw];
+    }
+
+    /**
+     * @return the handle of the texture which was bound during the draw call or 0
+     */
+    public int getDrawTexture(int draw)
+    {
+        return drawTextures[draw];
+    }
+
+    /**
+     * This method writes the write counts of the pixels as binary PPM image (P6). Pixels which were
+     * never written are black, one write is blue and more writes go over green and yellow to red.
+     * Pixels with maxCount or more writes are white.
+     */
+    public void writeHeatMap(OutputStream stream, int maxCount) throws IOException
+    {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; ++i)
+        {
+            pixels[i] = getHeatColor((writeCounts != null) ? writeCounts[i] : 0, maxCount);
+        }
+        writeImage(stream, pixels, width, height);
+    }
+
+    private static int getHeatColor(int count, int maxCount)
+    {
+        if (count == 0)
+        {
+            return 0xff000000;
+        }
+        if (count >= maxCount)
+        {
+            return 0xffffffff;
+        }
+
+        // blue (1 write), cyan, green, yellow, red (maxCount - 1 writes)
+        float t = (maxCount > 2) ? (float) (count - 1) / (maxCount - 2) : 1.0f;
+        float r = clamp(2.0f * t - 0.5f);
+        float g = (t < 0.75f) ? clamp(4.0f * t) : clamp(4.0f - 4.0f * t);
+        float b = clamp(1.0f - 2.0f * t);
+        return pack(r, g, b, 1.0f);
+    }
+
+    // ****************** BACKEND ****************** //
+
+    @Override
+    public boolean isBufferObjectSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public void clearColor(float red, float green, float blue, float alpha)
+    {
+        clearColor[0] = clamp(red);
+        clearColor[1] = clamp(green);
+        clearColor[2] = clamp(blue);
+        clearColor[3] = clamp(alpha);
+    }
+
+    @Override
+    public void clearDepth(float depth)
+    {
+        clearDepth = clamp(depth);
+    }
+
+    @Override
+    public void clear(int mask)
+    {
+        if ((mask & GL10.GL_COLOR_BUFFER_BIT) != 0)
+        {
+            int argb = pack(clearColor[0], clearColor[1], clearColor[2], clearColor[3]);
+            for (int i = 0; i < colorBuffer.length; ++i)
+            {
+                colorBuffer[i] = argb;
+            }
+        }
+        if ((mask & GL10.GL_DEPTH_BUFFER_BIT) != 0)
+        {
+            for (int i = 0; i < depthBuffer.length; ++i)
+            {
+                depthBuffer[i] = clearDepth;
+            }
+        }
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height)
+    {
+        viewportX = x;
+        viewportY = y;
+        viewportWidth = width;
+        viewportHeight = height;
+    }
+
+    @Override
+    public void loadProjectionMatrix(float[] m)
+    {
+        System.arraycopy(m, 0, projection, 0, 16);
+        transformValid = false;
+    }
+
+    @Override
+    public void loadWorldMatrix(float[] m)
+    {
+        System.arraycopy(m, 0, world, 0, 16);
+        transformValid = false;
+    }
+
+    @Override
+    public void enable(int capability)
+    {
+        setCapability(capability, true);
+    }
+
+    @Override
+    public void disable(int capability)
+    {
+        setCapability(capability, false);
+    }
+
+    private void setCapability(int capability, boolean enabled)
+    {
+        switch (capability)
+        {
+            case GL10.GL_ALPHA_TEST:    alphaTest = enabled; break;
+            case GL10.GL_BLEND:         blend = enabled; break;
+            case GL10.GL_CULL_FACE:     cullFace = enabled; break;
+            case GL10.GL_DEPTH_TEST:    depthTest = enabled; break;
+            case GL10.GL_TEXTURE_2D:    texture2D = enabled; break;
+        }
+    }
+
+    @Override
+    public void alphaFunc(int function, float value)
+    {
+        alphaFunction = function;
+        alphaValue = clamp(value);
+    }
+
+    @Override
+    public void blendFunc(int srcFactor, int dstFactor)
+    {
+        blendSrc = srcFactor;
+        blendDst = dstFactor;
+    }
+
+    @Override
+    public void cullFace(int side)
+    {
+        cullSide = side;
+    }
+
+    @Override
+    public void depthFunc(int function)
+    {
+        depthFunction = function;
+    }
+
+    @Override
+    public void depthMask(boolean enabled)
+    {
+        depthMask = enabled;
+    }
+
+    @Override
+    public void color(float red, float green, float blue, float alpha)
+    {
+        color[0] = red;
+        color[1] = green;
+        color[2] = blue;
+        color[3] = alpha;
+    }
+
+    @Override
+    public void textureEnvColor(float[] color)
+    {
+        System.arraycopy(color, 0, envColor, 0, 4);
+    }
+
+    @Override
+    public void textureEnvMode(int mode)
+    {
+        envMode = mode;
+    }
+
+    @Override
+    public int genTexture()
+    {
+        numTextures++;
+        if (numTextures >= textures.length)
+        {
+            SoftwareTexture[] grown = new SoftwareTexture[textures.length * 2];
+            System.arraycopy(textures, 0, grown, 0, textures.length);
+            textures = grown;
+        }
+        textures[numTextures] = new SoftwareTexture();
+        return numTextures;
+    }
+
+    @Override
+    public void bindTexture(int handle)
+    {
+        boundTexture = (handle > 0 && handle <= numTextures) ? textures[handle] : null;
+        boundTextureHandle = (boundTexture != null) ? handle : 0;
+    }
+
+    @Override
+    public void texImage2D(int level, Bitmap bitmap)
+    {
+        if (level != 0)
+        {
+            return;
+        }
+
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        int[] pixels = new int[w * h];
+        bitmap.getPixels(pixels, 0, w, 0, 0, w, h);
+        texImage2D(level, w, h, pixels);
+    }
+
+    @Override
+    public void texImage2D(int level, int width, int height, int[] pixels)
+    {
+        // only the base level is sampled
+        if (level != 0 || boundTexture == null)
+        {
+            return;
+        }
+
+        boundTexture.width = width;
+        boundTexture.height = height;
+        boundTexture.pixels = new int[width * height];
+        System.arraycopy(pixels, 0, boundTexture.pixels, 0, width * height);
+    }
+
+    @Override
+    public void texParameter(int parameter, int value)
+    {
+        if (boundTexture == null)
+        {
+            return;
+        }
+
+        switch (parameter)
+        {
+            case GL10.GL_TEXTURE_MAG_FILTER:    boundTexture.magFilter = value; break;
+            case GL10.GL_TEXTURE_WRAP_S:        boundTexture.wrapS = value; break;
+            case GL10.GL_TEXTURE_WRAP_T:        boundTexture.wrapT = value; break;
+        }
+    }
+
+    @Override
+    public int genBuffer()
+    {
+        numBuffers++;
+        if (numBuffers >= buffers.length)
+        {
+            ByteBuffer[] grown = new ByteBuffer[buffers.length * 2];
+            System.arraycopy(buffers, 0, grown, 0, buffers.length);
+            buffers = grown;
+        }
+        return numBuffers;
+    }
+
+    @Override
+    public void bindBuffer(int target, int handle)
+    {
+        if (target == GL11.GL_ARRAY_BUFFER)
+        {
+            boundArrayBuffer = handle;
+        }
+        else if (target == GL11.GL_ELEMENT_ARRAY_BUFFER)
+        {
+            boundElementBuffer = handle;
+        }
+    }
+
+    @Override
+    public void bufferData(int target, int size, Buffer data, int usage)
+    {
+        int handle = (target == GL11.GL_ARRAY_BUFFER) ? boundArrayBuffer : boundElementBuffer;
+        if (handle <= 0)
+        {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.order(ByteOrder.nativeOrder());
+        buffers[handle] = buffer;
+        copy(data, buffer, 0, size);
+    }
+
+    @Override
+    public void bufferSubData(int target, int offset, int size, Buffer data)
+    {
+        int handle = (target == GL11.GL_ARRAY_BUFFER) ? boundArrayBuffer : boundElementBuffer;
+        if (handle > 0 && buffers[handle] != null)
+        {
+            copy(data, buffers[handle], offset, size);
+        }
+    }
+
+    /**
+     * This method copies the bytes of a byte buffer into a buffer object.
+     */
+    private static void copy(Buffer data, ByteBuffer target, int offset, int size)
+    {
+        if (!(data instanceof ByteBuffer))
+        {
+            return;
+        }
+
+        ByteBuffer source = (ByteBuffer) data;
+        target.order(source.order());
+        int count = Math.min(size, Math.min(source.capacity(), target.capacity() - offset));
+        for (int i = 0; i < count; ++i)
+        {
+            target.put(offset + i, source.get(i));
+        }
+    }
+
+    @Override
+    public void enableClientState(int array)
+    {
+        int index = getArrayIndex(array);
+        if (index >= 0)
+        {
+            arrayEnabled[index] = true;
+        }
+    }
+
+    @Override
+    public void disableClientState(int array)
+    {
+        int index = getArrayIndex(array);
+        if (index >= 0)
+        {
+            arrayEnabled[index] = false;
+        }
+    }
+
+    @Override
+    public void pointer(int array, int count, int type, int stride, ByteBuffer buffer, int offset)
+    {
+        int index = getArrayIndex(array);
+        if (index < 0)
+        {
+            return;
+        }
+
+        arrayCount[index] = count;
+        arrayType[index] = type;
+        arrayStride[index] = (stride != 0) ? stride : count * getTypeSize(type);
+        arrayOffset[index] = offset;
+        arraySource[index] = (buffer != null) ? buffer : buffers[boundArrayBuffer];
+    }
+
+    @Override
+    public void drawArrays(int mode, int first, int count)
+    {
+        drawPrimitives(mode, count, first, null, 0);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, ByteBuffer indices)
+    {
+        ByteBuffer source = (indices != null) ? indices : buffers[boundElementBuffer];
+        if (source != null)
+        {
+            drawPrimitives(mode, count, 0, source, type);
+        }
+    }
+
+    // ****************** RASTERIZATION ****************** //
+
+    /**
+     * This method assembles the triangles of a draw command and rasterizes them.
+     *
+     * @param indices the index buffer or null for consecutive vertices starting at first
+     */
+    private void drawPrimitives(int mode, int count, int first, ByteBuffer indices, int indexType)
+    {
+        if (!arrayEnabled[ARRAY_POSITION] || arraySource[ARRAY_POSITION] == null)
+        {
+            return;
+        }
+
+        if (!transformValid)
+        {
+            multiply(transform, projection, world);
+            transformValid = true;
+        }
+
+        currentFragments = 0;
+        currentWrites = 0;
+
+        switch (mode)
+        {
+            case GL10.GL_TRIANGLES:
+                for (int i = 0; i + 2 < count; i += 3)
+                {
+                    drawTriangle(index(indices, indexType, first, i), index(indices, indexType, first, i + 1),
+                                 index(indices, indexType, first, i + 2));
+                }
+                break;
+
+            case GL10.GL_TRIANGLE_STRIP:
+                for (int i = 0; i + 2 < count; ++i)
+                {
+                    // every second triangle of a strip is flipped to keep the winding
+                    int a = index(indices, indexType, first, i);
+                    int b = index(indices, indexType, first, i + 1);
+                    int c = index(indices, indexType, first, i + 2);
+                    if ((i & 1) == 0) drawTriangle(a, b, c);
+                    else drawTriangle(b, a, c);
+                }
+                break;
+
+            case GL10.GL_TRIANGLE_FAN:
+                for (int i = 1; i + 1 < count; ++i)
+                {
+                    drawTriangle(index(indices, indexType, first, 0), index(indices, indexType, first, i),
+                                 index(indices, indexType, first, i + 1));
+                }
+                break;
+
+            default:
+                // points and lines are not used by the game
+                break;
+        }
+
+        if (overdrawEnabled)
+        {
+            recordDraw();
+        }
+    }
+
+    private void recordDraw()
+    {
+        if (numDraws == drawFragments.length)
+        {
+            drawFragments = grow(drawFragments);
+            drawWrites = grow(drawWrites);
+            drawTextures = grow(drawTextures);
+        }
+
+        drawFragments[numDraws] = currentFragments;
+        drawWrites[numDraws] = currentWrites;
+        drawTextures[numDraws] = texture2D ? boundTextureHandle : 0;
+        numDraws++;
+    }
+
+    private static int[] grow(int[] array)
+    {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static int index(ByteBuffer indices, int type, int first, int i)
+    {
+        if (indices == null)
+        {
+            return first + i;
+        }
+
+        switch (type)
+        {
+            case GL10.GL_UNSIGNED_BYTE:     return indices.get(i) & 0xff;
+            case IndexBuffer.GL_UNSIGNED_INT: return indices.getInt(4 * i);
+            default:                        return indices.getShort(2 * i) & 0xffff;
+        }
+    }
+
+    /**
+     * This method transforms three vertices into clip space, clips the triangle at the near and
+     * the far plane and rasterizes the remaining polygon.
+     */
+    private void drawTriangle(int i0, int i1, int i2)
+    {
+        loadVertex(i0, triangle, 0);
+        loadVertex(i1, triangle, VERTEX_SIZE);
+        loadVertex(i2, triangle, 2 * VERTEX_SIZE);
+
+        System.arraycopy(triangle, 0, clipA, 0, 3 * VERTEX_SIZE);
+        int n = clip(clipA, 3, clipB, 1.0f);        // near: z + w >= 0
+        n = clip(clipB, n, clipA, -1.0f);           // far: w - z >= 0
+
+        for (int i = 1; i + 1 < n; ++i)
+        {
+            rasterize(clipA, 0, i * VERTEX_SIZE, (i + 1) * VERTEX_SIZE);
+        }
+    }
+
+    /**
+     * This method reads the attributes of a vertex and transforms its position into clip space.
+     */
+    private void loadVertex(int index, float[] target, int offset)
+    {
+        float x = readAttribute(ARRAY_POSITION, index, 0, 0.0f);
+        float y = readAttribute(ARRAY_POSITION, index, 1, 0.0f);
+        float z = readAttribute(ARRAY_POSITION, index, 2, 0.0f);
+        float w = readAttribute(ARRAY_POSITION, index, 3, 1.0f);
+
+        float[] m = transform;
+        target[offset]     = m[0] * x + m[4] * y + m[8]  * z + m[12] * w;
+        target[offset + 1] = m[1] * x + m[5] * y + m[9]  * z + m[13] * w;
+        target[offset + 2] = m[2] * x + m[6] * y + m[10] * z + m[14] * w;
+        target[offset + 3] = m[3] * x + m[7] * y + m[11] * z + m[15] * w;
+
+        boolean textured = arrayEnabled[ARRAY_TEXCOORD] && arraySource[ARRAY_TEXCOORD] != null;
+        target[offset + 4] = textured ? readAttribute(ARRAY_TEXCOORD, index, 0, 0.0f) : 0.0f;
+        target[offset + 5] = textured ? readAttribute(ARRAY_TEXCOORD, index, 1, 0.0f) : 0.0f;
+
+        boolean colored = arrayEnabled[ARRAY_COLOR] && arraySource[ARRAY_COLOR] != null;
+        for (int c = 0; c < 4; ++c)
+        {
+            target[offset + 6 + c] = colored ? readAttribute(ARRAY_COLOR, index, c, 1.0f) : color[c];
+        }
+    }
+
+    private float readAttribute(int array, int index, int component, float defaultValue)
+    {
+        if (component >= arrayCount[array])
+        {
+            return defaultValue;
+        }
+
+        ByteBuffer source = arraySource[array];
+        int type = arrayType[array];
+        int position = arrayOffset[array] + index * arrayStride[array] + component * getTypeSize(type);
+
+        switch (type)
+        {
+            case GL10.GL_FLOAT:             return source.getFloat(position);
+            case GL_FIXED:                  return source.getInt(position) / 65536.0f;
+            case GL10.GL_SHORT:             return source.getShort(position);
+            case GL10.GL_BYTE:              return source.get(position);
+            case GL10.GL_UNSIGNED_BYTE:     return (source.get(position) & 0xff) / 255.0f;
+            default:                        return defaultValue;
+        }
+    }
+
+    /**
+     * This method clips a polygon in clip space at the plane w + sign * z >= 0 (Sutherland-Hodgman).
+     *
+     * @return the number of vertices of the clipped polygon in target
+     */
+    private static int clip(float[] source, int count, float[] target, float sign)
+    {
+        int result = 0;
+
+        for (int i = 0; i < count; ++i)
+        {
+            int a = i * VERTEX_SIZE;
+            int b = ((i + 1) % count) * VERTEX_SIZE;
+            float da = source[a + 3] + sign * source[a + 2];
+            float db = source[b + 3] + sign * source[b + 2];
+
+            if (da >= 0)
+            {
+                System.arraycopy(source, a, target, result * VERTEX_SIZE, VERTEX_SIZE);
+                result++;
+            }
+            if ((da >= 0) != (db >= 0))
+            {
+                float t = da / (da - db);
+                int o = result * VERTEX_SIZE;
+                for (int c = 0; c < VERTEX_SIZE; ++c)
+                {
+                    target[o + c] = source[a + c] + t * (source[b + c] - source[a + c]);
+                }
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * This method rasterizes a triangle of clip space vertices. Pixels are covered if their center
+     * is inside the triangle, pixels on shared edges are only drawn once (top left rule).
+     */
+    private void rasterize(float[] v, int a, int b, int c)
+    {
+        float wa = 1.0f / v[a + 3];
+        float wb = 1.0f / v[b + 3];
+        float wc = 1.0f / v[c + 3];
+
+        // window coordinates
+        float xa = viewportX + (v[a] * wa + 1.0f) * 0.5f * viewportWidth;
+        float ya = viewportY + (v[a + 1] * wa + 1.0f) * 0.5f * viewportHeight;
+        float za = (v[a + 2] * wa + 1.0f) * 0.5f;
+        float xb = viewportX + (v[b] * wb + 1.0f) * 0.5f * viewportWidth;
+        float yb = viewportY + (v[b + 1] * wb + 1.0f) * 0.5f * viewportHeight;
+        float zb = (v[b + 2] * wb + 1.0f) * 0.5f;
+        float xc = viewportX + (v[c] * wc + 1.0f) * 0.5f * viewportWidth;
+        float yc = viewportY + (v[c + 1] * wc + 1.0f) * 0.5f * viewportHeight;
+        float zc = (v[c + 2] * wc + 1.0f) * 0.5f;
+
+        float area = (xb - xa) * (yc - ya) - (xc - xa) * (yb - ya);
+        if (area == 0.0f || Float.isNaN(area))
+        {
+            return;
+        }
+
+        // counter clockwise triangles are front facing
+        boolean front = area > 0.0f;
+        if (cullFace && (cullSide == GL10.GL_FRONT_AND_BACK ||
+                         (cullSide == GL10.GL_BACK && !front) || (cullSide == GL10.GL_FRONT && front)))
+        {
+            return;
+        }
+
+        // bring back facing triangles into counter clockwise order
+        if (!front)
+        {
+            int swap = b; b = c; c = swap;
+            float f;
+            f = wb; wb = wc; wc = f;
+            f = xb; xb = xc; xc = f;
+            f = yb; yb = yc; yc = f;
+            f = zb; zb = zc; zc = f;
+            area = -area;
+        }
+
+        int minX = Math.max(Math.max(0, viewportX), (int) Math.floor(Math.min(xa, Math.min(xb, xc))));
+        int maxX = Math.min(Math.min(width, viewportX + viewportWidth) - 1, (int) Math.ceil(Math.max(xa, Math.max(xb, xc))));
+        int minY = Math.max(Math.max(0, viewportY), (int) Math.floor(Math.min(ya, Math.min(yb, yc))));
+        int maxY = Math.min(Math.min(height, viewportY + viewportHeight) - 1, (int) Math.ceil(Math.max(ya, Math.max(yb, yc))));
+
+        float invArea = 1.0f / area;
+
+        // edges are opposite to the vertex whose weight they define
+        boolean topLeftA = isTopLeft(xb, yb, xc, yc);
+        boolean topLeftB = isTopLeft(xc, yc, xa, ya);
+        boolean topLeftC = isTopLeft(xa, ya, xb, yb);
+
+        for (int y = minY; y <= maxY; ++y)
+        {
+            float py = y + 0.5f;
+            for (int x = minX; x <= maxX; ++x)
+            {
+                float px = x + 0.5f;
+
+                float ea = (xc - xb) * (py - yb) - (yc - yb) * (px - xb);
+                float eb = (xa - xc) * (py - yc) - (ya - yc) * (px - xc);
+                float ec = (xb - xa) * (py - ya) - (yb - ya) * (px - xa);
+
+                if (!isInside(ea, topLeftA) || !isInside(eb, topLeftB) || !isInside(ec, topLeftC))
+                {
+                    continue;
+                }
+
+                float la = ea * invArea;
+                float lb = eb * invArea;
+                float lc = ec * invArea;
+
+                // depth is linear in window space, the attributes are perspective correct
+                float depth = la * za + lb * zb + lc * zc;
+                float pa = la * wa;
+                float pb = lb * wb;
+                float pc = lc * wc;
+                float normalize = 1.0f / (pa + pb + pc);
+                pa *= normalize;
+                pb *= normalize;
+                pc *= normalize;
+
+                shadeFragment(x, y, depth, v, a, b, c, pa, pb, pc);
+            }
+        }
+    }
+
+    private static boolean isTopLeft(float x0, float y0, float x1, float y1)
+    {
+        // counter clockwise with y up: top edges point left, left edges point down
+        return (y0 == y1 && x1 < x0) || (y1 < y0);
+    }
+
+    private static boolean isInside(float edge, boolean topLeft)
+    {
+        return edge > 0.0f || (edge == 0.0f && topLeft);
+    }
+
+    /**
+     * This method calculates the color of a fragment and passes it through alpha test, depth test
+     * and blending into the frame buffer.
+     */
+    private void shadeFragment(int x, int y, float depth, float[] v, int a, int b, int c, float pa, float pb, float pc)
+    {
+        int pixel = y * width + x;
+        float[] f = fragment;
+        currentFragments++;
+
+        for (int i = 0; i < 4; ++i)
+        {
+            f[i] = clamp(pa * v[a + 6 + i] + pb * v[b + 6 + i] + pc * v[c + 6 + i]);
+        }
+
+        if (texture2D && boundTexture != null && boundTexture.pixels != null)
+        {
+            float s = pa * v[a + 4] + pb * v[b + 4] + pc * v[c + 4];
+            float t = pa * v[a + 5] + pb * v[b + 5] + pc * v[c + 5];
+            sample(boundTexture, s, t, texel);
+            combine(f, texel);
+        }
+
+        if (alphaTest && !compare(alphaFunction, f[3], alphaValue))
+        {
+            return;
+        }
+
+        if (depthTest)
+        {
+            depth = clamp(depth);
+            if (!compare(depthFunction, depth, depthBuffer[pixel]))
+            {
+                return;
+            }
+            if (depthMask)
+            {
+                depthBuffer[pixel] = depth;
+            }
+        }
+
+        if (blend)
+        {
+            int dst = colorBuffer[pixel];
+            float dr = ((dst >> 16) & 0xff) / 255.0f;
+            float dg = ((dst >> 8) & 0xff) / 255.0f;
+            float db = (dst & 0xff) / 255.0f;
+            float da = ((dst >>> 24) & 0xff) / 255.0f;
+
+            float sr = f[0], sg = f[1], sb = f[2], sa = f[3];
+            f[0] = sr * factor(blendSrc, 0, sr, sg, sb, sa, dr, dg, db, da) + dr * factor(blendDst, 0, sr, sg, sb, sa, dr, dg, db, da);
+            f[1] = sg * factor(blendSrc, 1, sr, sg, sb, sa, dr, dg, db, da) + dg * factor(blendDst, 1, sr, sg, sb, sa, dr, dg, db, da);
+            f[2] = sb * factor(blendSrc, 2, sr, sg, sb, sa, dr, dg, db, da) + db * factor(blendDst, 2, sr, sg, sb, sa, dr, dg, db, da);
+            f[3] = sa * factor(blendSrc, 3, sr, sg, sb, sa, dr, dg, db, da) + da * factor(blendDst, 3, sr, sg, sb, sa, dr, dg, db, da);
+        }
+
+        colorBuffer[pixel] = pack(clamp(f[0]), clamp(f[1]), clamp(f[2]), clamp(f[3]));
+        currentWrites++;
+
+        if (overdrawEnabled)
+        {
+            writeCounts[pixel]++;
+        }
+    }
+
+    /**
+     * This method combines the fragment color with the texel depending on the texture environment.
+     */
+    private void combine(float[] f, float[] t)
+    {
+        switch (envMode)
+        {
+            case GL10.GL_REPLACE:
+                System.arraycopy(t, 0, f, 0, 4);
+                break;
+
+            case GL10.GL_DECAL:
+                for (int i = 0; i < 3; ++i)
+                {
+                    f[i] = f[i] * (1.0f - t[3]) + t[i] * t[3];
+                }
+                break;
+
+            case GL10.GL_BLEND:
+                for (int i = 0; i < 3; ++i)
+                {
+                    f[i] = f[i] * (1.0f - t[i]) + envColor[i] * t[i];
+                }
+                f[3] *= t[3];
+                break;
+
+            case GL10.GL_ADD:
+                for (int i = 0; i < 3; ++i)
+                {
+                    f[i] = clamp(f[i] + t[i]);
+                }
+                f[3] *= t[3];
+                break;
+
+            default:
+                // GL_MODULATE
+                for (int i = 0; i < 4; ++i)
+                {
+                    f[i] *= t[i];
+                }
+                break;
+        }
+    }
+
+    /**
+     * This method samples the base level of a texture at the texture coordinates.
+     */
+    private static void sample(SoftwareTexture texture, float s, float t, float[] result)
+    {
+        float u = s * texture.width - 0.5f;
+        float v = t * texture.height - 0.5f;
+
+        if (texture.magFilter == GL10.GL_NEAREST)
+        {
+            int x = wrap((int) Math.floor(u + 0.5f), texture.width, texture.wrapS);
+            int y = wrap((int) Math.floor(v + 0.5f), texture.height, texture.wrapT);
+            unpack(texture.pixels[y * texture.width + x], result, 0, 1.0f);
+            return;
+        }
+
+        int x0 = (int) Math.floor(u);
+        int y0 = (int) Math.floor(v);
+        float fx = u - x0;
+        float fy = v - y0;
+
+        int xa = wrap(x0, texture.width, texture.wrapS);
+        int xb = wrap(x0 + 1, texture.width, texture.wrapS);
+        int ya = wrap(y0, texture.height, texture.wrapT);
+        int yb = wrap(y0 + 1, texture.height, texture.wrapT);
+
+        result[0] = result[1] = result[2] = result[3] = 0.0f;
+        unpack(texture.pixels[ya * texture.width + xa], result, 1, (1 - fx) * (1 - fy));
+        unpack(texture.pixels[ya * texture.width + xb], result, 1, fx * (1 - fy));
+        unpack(texture.pixels[yb * texture.width + xa], result, 1, (1 - fx) * fy);
+        unpack(texture.pixels[yb * texture.width + xb], result, 1, fx * fy);
+    }
+
+    private static int wrap(int i, int size, int mode)
+    {
+        if (mode == GL10.GL_REPEAT)
+        {
+            i %= size;
+            return (i < 0) ? i + size : i;
+        }
+        return Math.max(0, Math.min(size - 1, i));
+    }
+
+    /**
+     * This method converts an ARGB value into RGBA floats.
+     *
+     * @param accumulate 0 to replace the result, 1 to add the weighted color
+     */
+    private static void unpack(int argb, float[] result, int accumulate, float weight)
+    {
+        float r = ((argb >> 16) & 0xff) / 255.0f * weight;
+        float g = ((argb >> 8) & 0xff) / 255.0f * weight;
+        float b = (argb & 0xff) / 255.0f * weight;
+        float a = ((argb >>> 24) & 0xff) / 255.0f * weight;
+
+        result[0] = result[0] * accumulate + r;
+        result[1] = result[1] * accumulate + g;
+        result[2] = result[2] * accumulate + b;
+        result[3] = result[3] * accumulate + a;
+    }
+
+    private static float factor(int factor, int channel, float sr, float sg, float sb, float sa, float dr, float dg, float db, float da)
+    {
+        switch (factor)
+        {
+            case GL10.GL_ZERO:                  return 0.0f;
+            case GL10.GL_ONE:                   return 1.0f;
+            case GL10.GL_SRC_COLOR:             return select(channel, sr, sg, sb, sa);
+            case GL10.GL_ONE_MINUS_SRC_COLOR:   return 1.0f - select(channel, sr, sg, sb, sa);
+            case GL10.GL_DST_COLOR:             return select(channel, dr, dg, db, da);
+            case GL10.GL_ONE_MINUS_DST_COLOR:   return 1.0f - select(channel, dr, dg, db, da);
+            case GL10.GL_SRC_ALPHA:             return sa;
+            case GL10.GL_ONE_MINUS_SRC_ALPHA:   return 1.0f - sa;
+            case GL10.GL_DST_ALPHA:             return da;
+            case GL10.GL_ONE_MINUS_DST_ALPHA:   return 1.0f - da;
+            default:                            return 1.0f;
+        }
+    }
+
+    private static float select(int channel, float r, float g, float b, float a)
+    {
+        switch (channel)
+        {
+            case 0:     return r;
+            case 1:     return g;
+            case 2:     return b;
+            default:    return a;
+        }
+    }
+
+    private static boolean compare(int function, float value, float reference)
+    {
+        switch (function)
+        {
+            case GL10.GL_NEVER:     return false;
+            case GL10.GL_LESS:      return value < reference;
+            case GL10.GL_LEQUAL:    return value <= reference;
+            case GL10.GL_EQUAL:     return value == reference;
+            case GL10.GL_GEQUAL:    return value >= reference;
+            case GL10.GL_GREATER:   return value > reference;
+            case GL10.GL_NOTEQUAL:  return value != reference;
+            default:                return true;
+        }
+    }
+
+    // ****************** HELPER ****************** //
+
+    private static int getArrayIndex(int array)
+    {
+        switch (array)
+        {
+            case GL10.GL_VERTEX_ARRAY:          return ARRAY_POSITION;
+            case GL10.GL_COLOR_ARRAY:           return ARRAY_COLOR;
+            case GL10.GL_TEXTURE_COORD_ARRAY:   return ARRAY_TEXCOORD;
+            default:                            return -1;
+        }
+    }
+
+    private static int getTypeSize(int type)
+    {
+        switch (type)
+        {
+            case GL10.GL_BYTE:
+            case GL10.GL_UNSIGNED_BYTE:     return 1;
+            case GL10.GL_SHORT:             return 2;
+            default:                        return 4;
+        }
+    }
+
+    private static float clamp(float value)
+    {
+        return (value < 0.0f) ? 0.0f : ((value > 1.0f) ? 1.0f : value);
+    }
+
+    private static int pack(float r, float g, float b, float a)
+    {
+        return ((int) (a * 255.0f + 0.5f) << 24) | ((int) (r * 255.0f + 0.5f) << 16) |
+               ((int) (g * 255.0f + 0.5f) << 8) | (int) (b * 255.0f + 0.5f);
+    }
+
+    private static void setIdentity(float[] m)
+    {
+        for (int i = 0; i < 16; ++i)
+        {
+            m[i] = (i % 5 == 0) ? 1.0f : 0.0f;
+        }
+    }
+
+    private static void multiply(float[] result, float[] lhs, float[] rhs)
+    {
+        for (int j = 0; j < 4; ++j)
+        {
+            for (int i = 0; i < 4; ++i)
+            {
+                result[4 * j + i] = lhs[i] * rhs[4 * j] + lhs[4 + i] * rhs[4 * j + 1] +
+                                    lhs[8 + i] * rhs[4 * j + 2] + lhs[12 + i] * rhs[4 * j + 3];
+            }
+        }
+    }
+}
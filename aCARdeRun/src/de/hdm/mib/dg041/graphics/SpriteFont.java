@@ -13,188 +13,152 @@
  * limitations under the License. */
 package de.hdm.mib.dg041.graphics;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.util.HashMap;
-import java.util.Map;
-
-import android.graphics.Bitmap;
-import android.graphics.Bitmap.CompressFormat;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Point;
-import android.graphics.Rect;
-import android.graphics.Typeface;
-import android.graphics.Bitmap.Config;
-import android.os.Environment;
-
 /**
  * The sprite font class defines an object to display sprite font on the graphical device.
  *
+ * The glyphs are stored in flat arrays indexed by the code point. For every glyph the two
+ * triangles of a character at the position 0 are prepared when the font is baked, including the
+ * texture coordinates, so the TextBuffer only copies them and moves them to the position of the
+ * character. Code points without a glyph are drawn as FALLBACK_CHARACTER.
+ *
+ * The glyphs are rasterized by a FontAtlas, see GraphicDevice.createSpriteFont. A coverage atlas
+ * is drawn in the size of the font, so the texture has no mipmaps. A distance field atlas is
+ * scaled to the size of the font and its outline is cut by the alpha test, see FontAtlasMode.
+ *
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
  * Created on 23.02.2012.
  */
 public class SpriteFont
 {
     // --------------------------------------------------------
-    // INNER CLASS CHARACTER INFO
+    // PROPERTIES
     // --------------------------------------------------------
 
-    /**
-     * This class defines an object to store meta data for a sprite font character.
-     *
-     * @author dennis.grewe [dg041@hdm-stuttgart.de]
-     * Created on 23.02.2012.
-     */
-    public class CharacterInfo
-    {
-        public int width;		// width of the character
-        public Rect area;		// area of the texture to display the charactor
-        public Point offset;    // offset to the position to display the character
-    }
+    /** the fonts contain the code points below this number **/
+    public static final int NUM_GLYPHS = 256;
+    /** floats per glyph: six vertices with x, y, u and v **/
+    public static final int GLYPH_FLOATS = 24;
+    /** ints per glyph in the metrics: advance, area left, top, right, bottom, offset x, y **/
+    static final int GLYPH_METRICS = 7;
+    /** character which is drawn for code points without a glyph **/
+    public static final char FALLBACK_CHARACTER = '?';
 
-    // --------------------------------------------------------
-    // PROPERTIES
-    // --------------------------------------------------------
+    /** alpha of the outline in a distance field **/
+    private static final float DISTANCE_FIELD_EDGE = 0.5f;
+    /** alpha test of DISTANCE_FIELD_BLEND, the spread / 4 pixels outside of the outline are blended **/
+    private static final float DISTANCE_FIELD_BLEND_CUTOFF = 0.375f;
 
     private Material material;
-    private Map<Character, CharacterInfo> characterInfos;
+
+    /** the vertices of the glyphs, GLYPH_FLOATS per code point **/
+    private float[] glyphVertices = new float[NUM_GLYPHS * GLYPH_FLOATS];
+    /** distance to the next character **/
+    private float[] advances = new float[NUM_GLYPHS];
+    /** TRUE for every code point which has a glyph **/
+    private boolean[] hasGlyph = new boolean[NUM_GLYPHS];
 
     // --------------------------------------------------------
     // CONSTRUCTOR
     // --------------------------------------------------------
 
     /**
-     * This constructor initializes a new SpriteFont object depending on the given
-     * graphic device, the font type and the size of the font.
+     * This constructor creates a font of a texture which already contains the glyphs.
      *
-     * @param graphicsDevice
-     * @param typeface
-     * @param size
+     * @param texture the texture with the glyphs
+     * @param metrics GLYPH_METRICS ints per code point, the advance of code points without a glyph is -1
      */
-    SpriteFont(GraphicDevice graphicsDevice, Typeface typeface, float size)
+    SpriteFont(Texture texture, int[] metrics)
     {
-        material = new Material();						                        // create a new material
-        characterInfos = new HashMap<Character, SpriteFont.CharacterInfo>();	// create a new map -> key = character, value = meta data
-
-        Paint paint = new Paint();				                                // create new drawing object
-        paint.setTypeface(typeface);				                            // set the type face
-        paint.setTextSize(size);				                                // define the text size
-        paint.setARGB(255, 255, 255, 255);			                            // set RGB color and alpha -> here: white
-        paint.setFlags(Paint.ANTI_ALIAS_FLAG);			                        // setting: --> here ANTIALIASING
-
-        int spacing = (int)Math.ceil(paint.getFontSpacing());	                // get recomendet space
-
-        char[] c = new char[]{' '};
-        int x = 0;
-        int y = 0;
-        Rect charBounds = new Rect();
-        int bitmapSize = 1;
-        boolean doesFit = false;
-	
-        // check if characters fit into texture
-        while (!doesFit)
-        {
-            while (c[0] < 256)
-            {
-                paint.getTextBounds(c, 0, 1, charBounds);
-
-                // check if width of area is larger than bitmap -> increase space
-                if (x + charBounds.width() > bitmapSize)
-                {
-                    x = 0;
-                    y += spacing;
-                }
-                x += charBounds.width() + 1;
-                c[0]++;
-                if (c[0] == 128)
-                {
-                    c[0] = 160;
-                }
-            }
-
-            // check if we are in range of the bitmap
-            if (y + spacing < bitmapSize)
-            {
-                doesFit = true;
-            }
-            else
-            {
-                // double bitmap and start again
-                bitmapSize *= 2;
-                x = 0;
-                y = 0;
-                c[0] = ' ';
-            }
-        }
-	
-        // create a new bitmap object and define a canvas object to draw on bitmap
-        Bitmap bitmap = Bitmap.createBitmap(bitmapSize, bitmapSize, Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
-
-        x = 0;
-        y = 0;
-        c[0] = ' ';
-        Point charOffset = new Point();
-
-        // draw the characters on bitmap and set meta data
-        while (c[0] < 256)
-        {
-            paint.getTextBounds(c, 0, 1, charBounds);
-            charOffset.set(charBounds.left, charBounds.top);
-
-            // check if width of the area is larger than the bitmap -> increase space
-            if (x + charBounds.width() > bitmap.getWidth())
-            {
-                x = 0;
-                y += spacing;
-            }
-
-            int drawPosX = x - charOffset.x;
-            int drawPosY = y - charOffset.y;
-            canvas.drawText(c, 0, 1, drawPosX, drawPosY, paint);
-
-            CharacterInfo info = new CharacterInfo();
-            info.width = (int) Math.ceil(paint.measureText(c, 0, 1));
-            info.area = new Rect(charBounds);
-            info.area.offset(drawPosX, drawPosY);
-            info.offset = new Point(charOffset);
-            characterInfos.put(c[0], info);
+        this(texture, metrics, 1.0f, FontAtlasMode.BITMAP);
+    }
 
-            x += charBounds.width() + 1;
+    /**
+     * @param texture the texture with the glyphs
+     * @param metrics GLYPH_METRICS ints per code point, the advance of code points without a glyph is -1
+     * @param scale the size of the font divided by the size of the glyphs in the texture
+     * @param mode BITMAP for a coverage texture, otherwise the way the distance field is cut
+     */
+    SpriteFont(Texture texture, int[] metrics, float scale, FontAtlasMode mode)
+    {
+        material = createMaterial(texture, mode);
+        setGlyphs(metrics, texture.getWidth(), texture.getHeight(), scale);
+    }
 
-            c[0]++;
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
 
-            if (c[0] == 128)
-            {
-                c[0] = 160;
-            }
-        }
-	
-        Texture texture = graphicsDevice.createTexture(bitmap);
+    private static Material createMaterial(Texture texture, FontAtlasMode mode)
+    {
+        Material material = new Material();
         material.setTexture(texture);
-        material.setTextureFilter(TextureFilter.LINEAR_MIPMAP_LINEAR, TextureFilter.LINEAR);
         material.setTextureWrap(TextureWrapMode.CLAMP, TextureWrapMode.CLAMP);
-        material.setBlendFactors(BlendFactor.SRC_ALPHA, BlendFactor.ONE_MINUS_SRC_ALPHA);
 
-        try
+        switch (mode)
         {
-            String path = Environment.getExternalStorageDirectory().toString();
-            File file = new File(path, "font.png");
-            FileOutputStream stream = new FileOutputStream(file);
-            bitmap.compress(CompressFormat.PNG, 100, stream);
+            case BITMAP:
+                material.setTextureFilter(TextureFilter.LINEAR, TextureFilter.LINEAR);
+                material.setBlendFactors(BlendFactor.SRC_ALPHA, BlendFactor.ONE_MINUS_SRC_ALPHA);
+                break;
+            case DISTANCE_FIELD_ALPHA_TEST:
+                material.setTextureFilter(TextureFilter.LINEAR_MIPMAP_LINEAR, TextureFilter.LINEAR);
+                material.setAlphaTestFunction(CompareFunction.GREATER_OR_EQUAL);
+                material.setAlphaTestValue(DISTANCE_FIELD_EDGE);
+                break;
+            case DISTANCE_FIELD_BLEND:
+                material.setTextureFilter(TextureFilter.LINEAR_MIPMAP_LINEAR, TextureFilter.LINEAR);
+                material.setAlphaTestFunction(CompareFunction.GREATER_OR_EQUAL);
+                material.setAlphaTestValue(DISTANCE_FIELD_BLEND_CUTOFF);
+                material.setBlendFactors(BlendFactor.SRC_ALPHA, BlendFactor.ONE_MINUS_SRC_ALPHA);
+                break;
         }
-        catch (FileNotFoundException e)
+        return material;
+    }
+
+    /**
+     * This method prepares the vertices of all glyphs. The texture coordinates are divided by the
+     * size of the texture once here instead of for every drawn character.
+     */
+    private void setGlyphs(int[] metrics, int textureWidth, int textureHeight, float scale)
+    {
+        for (int glyph = 0; glyph < NUM_GLYPHS; ++glyph)
         {
-            e.printStackTrace();
+            int index = glyph * GLYPH_METRICS;
+            if (metrics[index] < 0)
+            {
+                continue;
+            }
+
+            float width = scale * (metrics[index + 3] - metrics[index + 1]);
+            float height = scale * (metrics[index + 4] - metrics[index + 2]);
+
+            float posLeft = 	scale * metrics[index + 5];
+            float posRight = 	posLeft + width;
+            float posTop = 		-scale * metrics[index + 6];
+            float posBottom = 	posTop - height;
+            float texLeft = 	(float) metrics[index + 1] / (float) textureWidth;
+            float texRight = 	(float) metrics[index + 3] / (float) textureWidth;
+            float texTop = 		1.0f - (float) metrics[index + 2] / (float) textureHeight;
+            float texBottom = 	1.0f - (float) metrics[index + 4] / (float) textureHeight;
+
+            float[] v = glyphVertices;
+            int i = glyph * GLYPH_FLOATS;
+
+            // triangle 1
+            v[i++] = posLeft; 	v[i++] = posTop; 	v[i++] = texLeft; 	v[i++] = texTop;
+            v[i++] = posLeft; 	v[i++] = posBottom; v[i++] = texLeft; 	v[i++] = texBottom;
+            v[i++] = posRight; 	v[i++] = posTop; 	v[i++] = texRight; 	v[i++] = texTop;
+
+            // triangle 2
+            v[i++] = posRight; 	v[i++] = posTop; 	v[i++] = texRight; 	v[i++] = texTop;
+            v[i++] = posLeft; 	v[i++] = posBottom; v[i++] = texLeft; 	v[i++] = texBottom;
+            v[i++] = posRight; 	v[i++] = posBottom; v[i++] = texRight; 	v[i++] = texBottom;
+
+            advances[glyph] = scale * metrics[index];
+            hasGlyph[glyph] = true;
         }
     }
 
-    // --------------------------------------------------------
-    // METHODS
-    // --------------------------------------------------------
-
     /**
      * @return the material of the sprite font
      */
@@ -204,10 +168,29 @@ public class SpriteFont
     }
 
     /**
-     * @return a list of all meta data (chraracter info) of the sprite font
+     * @param c a character
+     * @return the code point of the glyph which is drawn for the character
      */
-    public Map<Character, CharacterInfo> getCharacterInfos()
+    public int getGlyph(char c)
     {
-	    return characterInfos;
-    }  
-}
\ No newline at end of file
+        return (c < NUM_GLYPHS && hasGlyph[c]) ? c : FALLBACK_CHARACTER;
+    }
+
+    /**
+     * @return the vertices of all glyphs, GLYPH_FLOATS per code point starting at
+     *         glyph * GLYPH_FLOATS. The array must not be changed.
+     */
+    public float[] getGlyphVertices()
+    {
+        return glyphVertices;
+    }
+
+    /**
+     * @param glyph the code point of a glyph, see getGlyph
+     * @return the distance to the next character
+     */
+    public float getAdvance(int glyph)
+    {
+        return advances[glyph];
+    }
+}
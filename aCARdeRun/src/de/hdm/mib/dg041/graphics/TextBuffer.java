@@ -15,14 +15,21 @@ package de.hdm.mib.dg041.graphics;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Map;
+import java.nio.FloatBuffer;
+import java.security.InvalidParameterException;
 
 import javax.microedition.khronos.opengles.GL10;
 
-import de.hdm.mib.dg041.graphics.SpriteFont.CharacterInfo;
 import de.hdm.mib.dg041.graphics.VertexElement.VertexSemantic;
 
 /**
+ * This class holds the vertices of a text which is drawn with a SpriteFont. The characters of the
+ * current text are kept, a new text which equals the current one does not rebuild the vertices.
+ * Numbers and times are written with setInt and setTime without allocating a String.
+ *
+ * The vertices of a character are copied from the prepared glyphs of the SpriteFont, only the x
+ * coordinates are moved to the position of the character, and written with one bulk put.
+ *
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
  * Created on 23.02.2012.
  */
@@ -32,8 +39,29 @@ public class TextBuffer
     // PROPERTIES
     // --------------------------------------------------------
 
+    /** kinds of the number which is shown, see setInt and setTime **/
+    private static final int NUMBER_NONE = 0;
+    private static final int NUMBER_INT = 1;
+    private static final int NUMBER_TIME = 2;
+
+    /** enough characters for every int and every time **/
+    private static final int MAX_NUMBER_LENGTH = 12;
+
     private SpriteFont spriteFont;
     private Mesh mesh;
+    /** float view of the vertex data **/
+    private FloatBuffer floats;
+    /** the vertices of the current character **/
+    private float[] glyph = new float[SpriteFont.GLYPH_FLOATS];
+
+    /** the characters of the current text **/
+    private char[] text;
+    private int length;
+
+    /** the number which is shown, so an unchanged number is not even formatted again **/
+    private int numberKind = NUMBER_NONE;
+    private int numberValue;
+    private char[] numberText = new char[MAX_NUMBER_LENGTH];
 
     // --------------------------------------------------------
     // CONSTRUCTOR
@@ -55,9 +83,12 @@ public class TextBuffer
         vertexBuffer.setElements(elements);
         vertexBuffer.setBuffer(data);
         vertexBuffer.setNumVertices(0);
+        vertexBuffer.setUsage(BufferUsage.DYNAMIC);
 
         this.spriteFont = spriteFont;
         this.mesh = new Mesh(vertexBuffer, GL10.GL_TRIANGLES);
+        this.floats = data.asFloatBuffer();
+        this.text = new char[capacity];
     }
 
     // --------------------------------------------------------
@@ -80,48 +111,250 @@ public class TextBuffer
 	    return mesh;
     }
 
+    /**
+     * @return the maximum number of characters
+     */
+    public int getCapacity()
+    {
+        return text.length;
+    }
+
     /**
      * @param text set the text to the text buffer
      */
     public void setText(String text)
     {
-        Map<Character, SpriteFont.CharacterInfo> characterInfos = spriteFont.getCharacterInfos();
-        Texture texture = spriteFont.getMaterial().getTexture();
-        ByteBuffer data = mesh.getVertexBuffer().getBuffer();
+        setText(text, 0, text.length());
+    }
 
-        data.position(0);
+    /**
+     * This method sets a part of a character sequence as text, for example of a StringBuilder which
+     * is reused.
+     *
+     * @param text the characters
+     * @param start the index of the first character
+     * @param end the index after the last character
+     */
+    public void setText(CharSequence text, int start, int end)
+    {
+        numberKind = NUMBER_NONE;
+        int newLength = end - start;
+        if (isCurrentText(text, start, newLength))
+        {
+            return;
+        }
+
+        checkLength(newLength);
+        for (int i = 0; i < newLength; ++i)
+        {
+            this.text[i] = text.charAt(start + i);
+        }
+        rebuild(newLength);
+    }
+
+    /**
+     * This method sets a part of a character array as text. Unlike setText(String) nothing has to
+     * be allocated to change the text, for example for a timer which changes every second.
+     *
+     * @param text the characters
+     * @param offset the index of the first character
+     * @param length the number of characters
+     */
+    public void setText(char[] text, int offset, int length)
+    {
+        numberKind = NUMBER_NONE;
+        setCharacters(text, offset, length);
+    }
+
+    /**
+     * This method shows a number. If the number did not change the method returns immediately.
+     *
+     * @param value the number
+     */
+    public void setInt(int value)
+    {
+        if (numberKind == NUMBER_INT && numberValue == value)
+        {
+            return;
+        }
+
+        int numberLength = formatInt(value, numberText, 0);
+        setCharacters(numberText, 0, numberLength);
+        numberKind = NUMBER_INT;
+        numberValue = value;
+    }
+
+    /**
+     * This method shows a time in the format MM:SS, see formatTime. If the displayed second did not
+     * change the method returns immediately, so it can be called every tick.
+     *
+     * @param milliSec the time in milliseconds
+     */
+    public void setTime(int milliSec)
+    {
+        int seconds = Math.max(0, milliSec) / 1000;
+        if (numberKind == NUMBER_TIME && numberValue == seconds)
+        {
+            return;
+        }
+
+        int numberLength = formatTime(milliSec, numberText, 0);
+        setCharacters(numberText, 0, numberLength);
+        numberKind = NUMBER_TIME;
+        numberValue = seconds;
+    }
+
+    /**
+     * This method writes a number in decimal digits into the array.
+     *
+     * @param value the number
+     * @param text the target array, at least 11 characters after the offset
+     * @param offset the index of the first character
+     * @return the number of written characters
+     */
+    public static int formatInt(int value, char[] text, int offset)
+    {
+        // a long, so the absolute value of Integer.MIN_VALUE fits
+        long rest = value;
+        int index = offset;
+        if (rest < 0)
+        {
+            text[index++] = '-';
+            rest = -rest;
+        }
+
+        int digits = 1;
+        for (long r = rest / 10; r > 0; r /= 10)
+        {
+            digits++;
+        }
+
+        for (int i = index + digits - 1; i >= index; --i)
+        {
+            text[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+
+        return index + digits - offset;
+    }
+
+    /**
+     * This method writes a time in the format MM:SS into the array. Minutes with more than two
+     * digits are written completely, so there is no upper limit.
+     *
+     * @param milliSec the time in milliseconds, negative times are written as 00:00
+     * @param text the target array, at least 12 characters after the offset
+     * @param offset the index of the first character
+     * @return the number of written characters
+     */
+    public static int formatTime(int milliSec, char[] text, int offset)
+    {
+        int seconds = Math.max(0, milliSec) / 1000;
+        int minutes = seconds / 60;
+        seconds -= minutes * 60;
+
+        int index = offset;
+        if (minutes < 10)
+        {
+            text[index++] = '0';
+        }
+        index += formatInt(minutes, text, index);
+
+        text[index++] = ':';
+        text[index++] = (char) ('0' + seconds / 10);
+        text[index++] = (char) ('0' + seconds % 10);
+
+        return index - offset;
+    }
+
+    /**
+     * This method copies the characters and rebuilds the vertices if they differ from the current
+     * text.
+     */
+    private void setCharacters(char[] text, int offset, int length)
+    {
+        checkLength(length);
+
+        boolean equal = (length == this.length);
+        for (int i = 0; equal && i < length; ++i)
+        {
+            equal = (this.text[i] == text[offset + i]);
+        }
+        if (equal)
+        {
+            return;
+        }
+
+        System.arraycopy(text, offset, this.text, 0, length);
+        rebuild(length);
+    }
+
+    private boolean isCurrentText(CharSequence text, int start, int length)
+    {
+        if (length != this.length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < length; ++i)
+        {
+            if (this.text[i] != text.charAt(start + i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkLength(int length)
+    {
+        if (length < 0 || length > text.length)
+        {
+            throw new InvalidParameterException("The text buffer can hold " + text.length + " characters, not " + length + "!");
+        }
+    }
+
+    /**
+     * This method writes the vertices of the current text.
+     */
+    private void rebuild(int length)
+    {
+        floats.position(0);
 
         float x = 0;
-        float y = 0;
-        for (int index = 0; index < text.length(); ++index)
+        for (int index = 0; index < length; ++index)
         {
-            char c = text.charAt(index);
-
-            CharacterInfo info = characterInfos.get(c);
-
-            float posLeft = 	x + info.offset.x;
-            float posRight = 	x + info.offset.x + info.area.width();
-            float posTop = 		y - info.offset.y;
-            float posBottom = 	y - (info.offset.y + info.area.height());
-            float texLeft = 	(float) info.area.left / (float) texture.getWidth();
-            float texRight = 	(float) info.area.right / (float) texture.getWidth();
-            float texTop = 		1.0f - (float) info.area.top 	/ (float) texture.getHeight();
-            float texBottom = 	1.0f - (float) info.area.bottom / (float) texture.getHeight();
-
-            // triangle 1
-            data.putFloat(posLeft); 	data.putFloat(posTop); 		data.putFloat(texLeft); 	data.putFloat(texTop);
-            data.putFloat(posLeft); 	data.putFloat(posBottom); 	data.putFloat(texLeft); 	data.putFloat(texBottom);
-            data.putFloat(posRight); 	data.putFloat(posTop); 		data.putFloat(texRight); 	data.putFloat(texTop);
-
-            // triangle 2
-            data.putFloat(posRight); 	data.putFloat(posTop); 		data.putFloat(texRight); 	data.putFloat(texTop);
-            data.putFloat(posLeft); 	data.putFloat(posBottom); 	data.putFloat(texLeft); 	data.putFloat(texBottom);
-            data.putFloat(posRight); 	data.putFloat(posBottom); 	data.putFloat(texRight); 	data.putFloat(texBottom);
-
-            x += info.width;
+            x = putCharacter(text[index], x);
         }
 
+        this.length = length;
+        finish(mesh.getVertexBuffer().getBuffer(), length);
+    }
+
+    /**
+     * This method writes the two triangles of a character into the vertex data.
+     *
+     * @return the position of the next character
+     */
+    private float putCharacter(char c, float x)
+    {
+        int index = spriteFont.getGlyph(c);
+        System.arraycopy(spriteFont.getGlyphVertices(), index * SpriteFont.GLYPH_FLOATS, glyph, 0, SpriteFont.GLYPH_FLOATS);
+
+        // x of the six vertices
+        for (int i = 0; i < SpriteFont.GLYPH_FLOATS; i += 4)
+        {
+            glyph[i] += x;
+        }
+        floats.put(glyph, 0, SpriteFont.GLYPH_FLOATS);
+
+        return x + spriteFont.getAdvance(index);
+    }
+
+    private void finish(ByteBuffer data, int length)
+    {
         data.position(0);
-        mesh.getVertexBuffer().setNumVertices(6 * text.length());
+        mesh.getVertexBuffer().setNumVertices(6 * length);
+        mesh.getVertexBuffer().invalidate();
     }
 }
\ No newline at end of file
@@ -0,0 +1,251 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class compares the glyph table of the SpriteFont with the original map of character infos
+ * which was read for every character of a TextBuffer. The benchmark runs on a desktop JVM with a
+ * synthetic font and does not need a device:
+ *
+ *   java de.hdm.mib.dg041.graphics.TextBufferBenchmark [iterations]
+ *
+ * Before the timing starts, the vertices of both versions are compared float by float. The texts
+ * are changed in every iteration, so the TextBuffer can not skip an unchanged text.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class TextBufferBenchmark
+{
+    // --------------------------------------------------------
+    // INNER CLASS LEGACY CHARACTER INFO
+    // --------------------------------------------------------
+
+    /**
+     * The meta data of a character as stored by the original SpriteFont: the area is a rect in the
+     * texture, the offset a point.
+     */
+    private static class LegacyCharacterInfo
+    {
+        int width;
+        int[] area = new int[4];
+        int[] offset = new int[2];
+    }
+
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int DEFAULT_ITERATIONS = 200000;
+    private static final int TEXTURE_SIZE = 256;
+
+    /** texts of the HUD and the menu, they are set in turns **/
+    private static final String[] TEXTS = {
+        "03:27", "03:28", "Highscore", "1. 02:14 - 1200 m", "Distance: 845 m", "Game Over"
+    };
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public static void main(String[] args)
+    {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        int[] metrics = createMetrics();
+        Texture texture = new Texture(0, TEXTURE_SIZE, TEXTURE_SIZE);
+        SpriteFont font = new SpriteFont(texture, metrics);
+        Map<Character, LegacyCharacterInfo> infos = createLegacyInfos(metrics);
+
+        int capacity = 0;
+        int glyphs = 0;
+        for (String text : TEXTS)
+        {
+            capacity = Math.max(capacity, text.length());
+            glyphs += text.length();
+        }
+
+        TextBuffer textBuffer = new TextBuffer(new GraphicDevice(), font, capacity);
+        ByteBuffer legacyData = ByteBuffer.allocateDirect(6 * 16 * capacity);
+        legacyData.order(ByteOrder.nativeOrder());
+
+        for (String text : TEXTS)
+        {
+            textBuffer.setText(text);
+            setTextLegacy(legacyData, infos, texture, text);
+            if (!isEqual(legacyData, textBuffer.getMesh().getVertexBuffer().getBuffer(), text.length()))
+            {
+                throw new IllegalStateException("TextBuffer output differs from the legacy version for \"" + text + "\"");
+            }
+        }
+
+        // warm up both versions before measuring
+        measureLegacy(legacyData, infos, texture, iterations / 4 + 1);
+        measureTable(textBuffer, iterations / 4 + 1);
+
+        double legacy = (double) measureLegacy(legacyData, infos, texture, iterations) / ((long) iterations * glyphs);
+        double table = (double) measureTable(textBuffer, iterations) / ((long) iterations * glyphs);
+
+        System.out.println(String.format("%-8s %12s", "version", "ns/glyph"));
+        System.out.println(String.format("%-8s %12.2f", "legacy", legacy));
+        System.out.println(String.format("%-8s %12.2f", "table", table));
+        System.out.println(String.format("speedup %12.2fx", legacy / table));
+    }
+
+    private static long measureLegacy(ByteBuffer data, Map<Character, LegacyCharacterInfo> infos, Texture texture, int iterations)
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+        {
+            for (String text : TEXTS)
+            {
+                setTextLegacy(data, infos, texture, text);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long measureTable(TextBuffer textBuffer, int iterations)
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+        {
+            for (String text : TEXTS)
+            {
+                textBuffer.setText(text);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return metrics of a font with glyphs of different sizes in a texture of TEXTURE_SIZE
+     */
+    private static int[] createMetrics()
+    {
+        int[] metrics = new int[SpriteFont.NUM_GLYPHS * SpriteFont.GLYPH_METRICS];
+        Arrays.fill(metrics, -1);
+
+        int x = 0;
+        int y = 0;
+        for (char c = ' '; c < SpriteFont.NUM_GLYPHS; ++c)
+        {
+            if (c == 128)
+            {
+                c = 160;
+            }
+
+            int width = 6 + c % 7;
+            int height = 10 + c % 5;
+            if (x + width > TEXTURE_SIZE)
+            {
+                x = 0;
+                y += 16;
+            }
+
+            int index = c * SpriteFont.GLYPH_METRICS;
+            metrics[index] = width + 1;
+            metrics[index + 1] = x;
+            metrics[index + 2] = y;
+            metrics[index + 3] = x + width;
+            metrics[index + 4] = y + height;
+            metrics[index + 5] = c % 2;
+            metrics[index + 6] = -height;
+
+            x += width + 1;
+        }
+        return metrics;
+    }
+
+    private static Map<Character, LegacyCharacterInfo> createLegacyInfos(int[] metrics)
+    {
+        Map<Character, LegacyCharacterInfo> infos = new HashMap<Character, LegacyCharacterInfo>();
+        for (char c = 0; c < SpriteFont.NUM_GLYPHS; ++c)
+        {
+            int index = c * SpriteFont.GLYPH_METRICS;
+            if (metrics[index] < 0)
+            {
+                continue;
+            }
+
+            LegacyCharacterInfo info = new LegacyCharacterInfo();
+            info.width = metrics[index];
+            System.arraycopy(metrics, index + 1, info.area, 0, 4);
+            System.arraycopy(metrics, index + 5, info.offset, 0, 2);
+            infos.put(c, info);
+        }
+        return infos;
+    }
+
+    // ****************** LEGACY TEXT BUFFER ****************** //
+
+    /**
+     * This method writes the vertices of a text like the original TextBuffer.setText.
+     */
+    private static void setTextLegacy(ByteBuffer data, Map<Character, LegacyCharacterInfo> infos, Texture texture, String text)
+    {
+        data.position(0);
+
+        float x = 0;
+        for (int index = 0; index < text.length(); ++index)
+        {
+            LegacyCharacterInfo info = infos.get(text.charAt(index));
+            float y = 0;
+
+            float posLeft = 	x + info.offset[0];
+            float posRight = 	x + info.offset[0] + (info.area[2] - info.area[0]);
+            float posTop = 		y - info.offset[1];
+            float posBottom = 	y - (info.offset[1] + (info.area[3] - info.area[1]));
+            float texLeft = 	(float) info.area[0] / (float) texture.getWidth();
+            float texRight = 	(float) info.area[2] / (float) texture.getWidth();
+            float texTop = 		1.0f - (float) info.area[1] / (float) texture.getHeight();
+            float texBottom = 	1.0f - (float) info.area[3] / (float) texture.getHeight();
+
+            // triangle 1
+            data.putFloat(posLeft); 	data.putFloat(posTop); 		data.putFloat(texLeft); 	data.putFloat(texTop);
+            data.putFloat(posLeft); 	data.putFloat(posBottom); 	data.putFloat(texLeft); 	data.putFloat(texBottom);
+            data.putFloat(posRight); 	data.putFloat(posTop); 		data.putFloat(texRight); 	data.putFloat(texTop);
+
+            // triangle 2
+            data.putFloat(posRight); 	data.putFloat(posTop); 		data.putFloat(texRight); 	data.putFloat(texTop);
+            data.putFloat(posLeft); 	data.putFloat(posBottom); 	data.putFloat(texLeft); 	data.putFloat(texBottom);
+            data.putFloat(posRight); 	data.putFloat(posBottom); 	data.putFloat(texRight); 	data.putFloat(texBottom);
+
+            x += info.width;
+        }
+
+        data.position(0);
+    }
+
+    /**
+     * @return TRUE if the vertices of both buffers are equal
+     */
+    private static boolean isEqual(ByteBuffer expected, ByteBuffer actual, int length)
+    {
+        for (int i = 0; i < length * SpriteFont.GLYPH_FLOATS; ++i)
+        {
+            if (expected.getFloat(i * 4) != actual.getFloat(i * 4))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -26,6 +26,10 @@ public class Texture
     private int handle;
     private int width, height;
 
+    /** parameters of the texture object cached by the GraphicDevice, null if unknown **/
+    TextureFilter filterMin, filterMag;
+    TextureWrapMode wrapU, wrapV;
+
     // --------------------------------------------------------
     // CONSTRUCTOR
     // --------------------------------------------------------
@@ -29,6 +29,12 @@ public class VertexBuffer
     private VertexElement[] elements;
     private ByteBuffer buffer;
 
+    /** usage hint and state of the buffer object in video memory **/
+    private BufferUsage usage = BufferUsage.STATIC;
+    private int handle;
+    private int handleGeneration = -1;
+    private boolean dirty = true;
+
     // --------------------------------------------------------
     // METHODS
     // --------------------------------------------------------
@@ -79,5 +85,60 @@ public class VertexBuffer
     public void setBuffer(ByteBuffer buffer)
     {
 	    this.buffer = buffer;
-    } 
+	    this.dirty = true;
+    }
+
+    /**
+     * @return the usage hint of the buffer object
+     */
+    public BufferUsage getUsage()
+    {
+        return usage;
+    }
+
+    /**
+     * @param usage set the usage hint of the buffer object. Buffers which are changed every few
+     *              frames like text should be DYNAMIC.
+     */
+    public void setUsage(BufferUsage usage)
+    {
+        this.usage = usage;
+    }
+
+    /**
+     * This method marks the data of the byte buffer as changed. The buffer object is updated
+     * before the next draw call.
+     */
+    public void invalidate()
+    {
+        this.dirty = true;
+    }
+
+    // ****************** BUFFER OBJECT ****************** //
+
+    int getHandle()
+    {
+        return handle;
+    }
+
+    int getHandleGeneration()
+    {
+        return handleGeneration;
+    }
+
+    boolean isDirty()
+    {
+        return dirty;
+    }
+
+    void setHandle(int handle, int generation)
+    {
+        this.handle = handle;
+        this.handleGeneration = generation;
+    }
+
+    void setDirty(boolean dirty)
+    {
+        this.dirty = dirty;
+    }
 }
\ No newline at end of file
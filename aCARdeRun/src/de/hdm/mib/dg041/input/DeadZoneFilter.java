@@ -0,0 +1,73 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.input;
+
+import java.security.InvalidParameterException;
+
+/**
+ * This class sets values close to zero to zero, so the noise of a device which lies still does
+ * not reach the game.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class DeadZoneFilter implements InputFilter
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private float deadZone;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param deadZone values with a smaller absolute value are set to zero
+     */
+    public DeadZoneFilter(float deadZone)
+    {
+        if (deadZone < 0.0f)
+        {
+            throw new InvalidParameterException("The dead zone must not be negative!");
+        }
+
+        this.deadZone = deadZone;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    @Override
+    public boolean filter(InputEvent inputEvent)
+    {
+        float[] values = inputEvent.getValues();
+        for (int i = 0; i < values.length; ++i)
+        {
+            if (Math.abs(values[i]) < deadZone)
+            {
+                values[i] = 0.0f;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void reset()
+    {
+        // no state
+    }
+}
@@ -38,7 +38,9 @@ public class InputEvent
         GYROSCOPE,
         ROTATION,
         LINEAR_ACCELEROMETER,
-    	GRAVITY
+    	GRAVITY,
+        /** lane changes which a LaneIntentFilter recognized **/
+        LANE
     }
 
     /**
@@ -53,7 +55,9 @@ public class InputEvent
         DOWN,
         UP,
         MOVE,
-        UPDATE
+        UPDATE,
+        LEFT,
+        RIGHT
     }
 
     // --------------------------------------------------------
@@ -62,7 +66,8 @@ public class InputEvent
     
     private InputDevice device;
     private InputAction action;
-    private float time;
+    private long time;
+    private long receiveTime;
     private int keyCode;
     private float[] values = new float[4];
 
@@ -87,13 +92,22 @@ public class InputEvent
     }
 
     /**
-     * @return the time code of the event.
+     * @return the time code of the event in nanoseconds, as delivered by android. Sensors and
+     *         touch events may use different clocks, so only times of one device can be compared.
      */
-    public float getTime()
+    public long getTime()
     {
 	    return time;
     }
 
+    /**
+     * @return the time of System.nanoTime at which the InputSystem received the event
+     */
+    public long getReceiveTime()
+    {
+        return receiveTime;
+    }
+
     /**
      * @return the key code of the input event
      */
@@ -110,7 +124,7 @@ public class InputEvent
 	    return values;
     }
 
-    public void set(InputDevice device, InputAction action, float time, int keyCode, float value0, float value1, float value2, float value3)
+    public void set(InputDevice device, InputAction action, long time, int keyCode, float value0, float value1, float value2, float value3)
     {
         this.device = device;
         this.action = action;
@@ -121,4 +135,12 @@ public class InputEvent
         this.values[2] = value2;
         this.values[3] = value3;
     }
+
+    /**
+     * @param receiveTime the time of System.nanoTime at which the InputSystem received the event
+     */
+    public void setReceiveTime(long receiveTime)
+    {
+        this.receiveTime = receiveTime;
+    }
 }
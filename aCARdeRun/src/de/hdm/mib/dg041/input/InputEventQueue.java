@@ -0,0 +1,190 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.input;
+
+import java.security.InvalidParameterException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.hdm.mib.dg041.input.InputEvent.InputAction;
+import de.hdm.mib.dg041.input.InputEvent.InputDevice;
+
+/**
+ * This class is a bounded queue of preallocated input events without locks. Several threads may
+ * add events, for example the UI thread with touch events and a sensor thread, and one thread
+ * takes them out, the GL thread of the game.
+ *
+ * Every slot of the ring has a sequence counter. A producer claims the next sequence of the ring
+ * with a compare and set, writes the event into the slot and publishes it by setting the counter
+ * of the slot to sequence + 1. The consumer reads slots until it finds one which is not
+ * published yet and releases every read slot for the next round by setting its counter to
+ * sequence + capacity. With a single producer the compare and set never fails.
+ *
+ * If the ring is full the event is dropped and counted, the producer never waits for the GL
+ * thread.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class InputEventQueue
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private final InputEvent[] events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /** next sequence which is claimed by a producer **/
+    private final AtomicLong tail = new AtomicLong();
+    /** next sequence which is read by the consumer, only used by the consumer thread **/
+    private long head;
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private volatile boolean overflowing;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param capacity the number of events the queue can hold, a power of two
+     */
+    public InputEventQueue(int capacity)
+    {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0)
+        {
+            throw new InvalidParameterException("The capacity of the input queue has to be a power of two!");
+        }
+
+        events = new InputEvent[capacity];
+        sequences = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+
+        for (int i = 0; i < capacity; ++i)
+        {
+            events[i] = new InputEvent();
+            sequences.set(i, i);
+        }
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public int getCapacity()
+    {
+        return events.length;
+    }
+
+    /**
+     * This method adds an event to the queue. It can be called by several threads at the same time.
+     *
+     * @return TRUE if the event was added, FALSE if the queue was full and the event was dropped
+     */
+    public boolean offer(InputDevice device, InputAction action, long time, long receiveTime, int keyCode,
+                         float value0, float value1, float value2, float value3)
+    {
+        long sequence = tail.get();
+        int index;
+
+        while (true)
+        {
+            index = (int) sequence & mask;
+            long difference = sequences.get(index) - sequence;
+
+            if (difference == 0)
+            {
+                // the slot is free for this sequence, try to claim it
+                if (tail.compareAndSet(sequence, sequence + 1))
+                {
+                    break;
+                }
+                sequence = tail.get();
+            }
+            else if (difference < 0)
+            {
+                // the slot still holds the event of the last round, the consumer is behind
+                droppedEvents.incrementAndGet();
+                if (!overflowing)
+                {
+                    overflowing = true;
+                    overflows.incrementAndGet();
+                }
+                return false;
+            }
+            else
+            {
+                // another producer claimed the sequence first
+                sequence = tail.get();
+            }
+        }
+
+        events[index].set(device, action, time, keyCode, value0, value1, value2, value3);
+        events[index].setReceiveTime(receiveTime);
+        sequences.lazySet(index, sequence + 1);
+        overflowing = false;
+        return true;
+    }
+
+    /**
+     * This method passes the published events in the order of arrival to the consumer and releases
+     * them. Events which are added while draining are passed as well, at most one capacity of
+     * events is drained per call. Only one thread may drain the queue.
+     *
+     * @param consumer the receiver of the events
+     * @return the number of drained events
+     */
+    public int drain(InputEventConsumer consumer)
+    {
+        long sequence = head;
+        int count = 0;
+
+        while (count < events.length)
+        {
+            int index = (int) sequence & mask;
+            if (sequences.get(index) != sequence + 1)
+            {
+                // not published yet
+                break;
+            }
+
+            consumer.onInputEvent(events[index]);
+            sequences.lazySet(index, sequence + events.length);
+            sequence++;
+            count++;
+        }
+
+        head = sequence;
+        return count;
+    }
+
+    /**
+     * @return the number of events which were dropped because the queue was full
+     */
+    public long getDroppedEvents()
+    {
+        return droppedEvents.get();
+    }
+
+    /**
+     * @return how often the queue ran full, consecutive dropped events count as one overflow
+     */
+    public long getOverflows()
+    {
+        return overflows.get();
+    }
+}
@@ -0,0 +1,36 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.input;
+
+/**
+ * This interface defines a stage of the input processing. The InputSystem passes the events of a
+ * device through its filter before the game receives them, see InputSystem.setFilter. A filter
+ * changes the values of the event in place, so no event is allocated per sample.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public interface InputFilter
+{
+    /**
+     * @param inputEvent the event, the filter may change its values, device and action
+     * @return TRUE if the event is passed on, FALSE if it is dropped
+     */
+    public boolean filter(InputEvent inputEvent);
+
+    /**
+     * This method clears the state of the filter, for example after the sensor was off.
+     */
+    public void reset();
+}
@@ -0,0 +1,78 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.input;
+
+import java.security.InvalidParameterException;
+
+/**
+ * This class runs several filters one after another. An event which is dropped by a filter does
+ * not reach the following filters.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class InputFilterChain implements InputFilter
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private InputFilter[] filters;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param filters the filters in the order in which they are applied
+     */
+    public InputFilterChain(InputFilter... filters)
+    {
+        for (InputFilter filter : filters)
+        {
+            if (filter == null)
+            {
+                throw new InvalidParameterException("A filter of the chain is null!");
+            }
+        }
+
+        this.filters = filters.clone();
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    @Override
+    public boolean filter(InputEvent inputEvent)
+    {
+        for (int i = 0; i < filters.length; ++i)
+        {
+            if (!filters[i].filter(inputEvent))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void reset()
+    {
+        for (int i = 0; i < filters.length; ++i)
+        {
+            filters[i].reset();
+        }
+    }
+}
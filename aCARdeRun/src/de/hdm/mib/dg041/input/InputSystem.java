@@ -13,8 +13,9 @@
  * limitations under the License. */
 package de.hdm.mib.dg041.input;
 
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.security.InvalidParameterException;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import de.hdm.mib.dg041.input.InputEvent.InputAction;
 import de.hdm.mib.dg041.input.InputEvent.InputDevice;
@@ -23,6 +24,7 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.util.Log;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
@@ -30,17 +32,56 @@ import android.view.View.OnKeyListener;
 import android.view.View.OnTouchListener;
 
 /**
+ * This class collects the events of the touch screen, the keys and the sensors. The callbacks of
+ * android add them to a lock free InputEventQueue, the game takes them out once per tick on the
+ * GL thread with drain.
+ *
+ * Sensors are only registered while the current screen needs them, see setSensors. Their samples
+ * are not queued, each sensor has a SensorSlot which is passed to the game once per tick.
+ * Before the game receives an event it passes the InputFilter of its device.
+ *
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
  * Created on 23.02.2012.
  */
-public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventListener
+public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventListener, InputEventConsumer
 {
     // --------------------------------------------------------
     // PROPERTIES
     // --------------------------------------------------------
 
-    private Queue<InputEvent> inputQueue;
-	private Queue<InputEvent> inputPool;
+    private static String TAG = InputSystem.class.getName();
+
+    /** number of events which can be queued between two ticks, a power of two **/
+    private static final int MAX_INPUT_EVENTS = 128;
+
+    /** all devices which are sensors, in the order in which their events are drained **/
+    private static final InputDevice[] SENSOR_DEVICES = {
+        InputDevice.ACCELEROMETER,
+        InputDevice.GYROSCOPE,
+        InputDevice.ROTATION,
+        InputDevice.LINEAR_ACCELEROMETER,
+        InputDevice.GRAVITY
+    };
+
+    private InputEventQueue inputQueue;
+    /** overflows of the queue which were already written to the log **/
+    private long reportedOverflows;
+
+    private SensorManager sensorManager;
+    /** the latest samples of the sensors and the event which passes them, indexed by InputDevice.ordinal **/
+    private SensorSlot[] sensorSlots;
+    private InputEvent[] sensorEvents;
+    private SensorCoalescing[] coalescing;
+    /** filters of the devices, indexed by InputDevice.ordinal, only used by the GL thread **/
+    private InputFilter[] filters;
+    /** set when a sensor is registered again, the GL thread resets the filter before the next sample **/
+    private AtomicBoolean[] filterResets;
+    /** the receiver of the events while the queue is drained **/
+    private InputEventConsumer consumer;
+
+    /** sensors which are requested by the current screen **/
+    private EnumSet<InputDevice> sensors = EnumSet.noneOf(InputDevice.class);
+    private boolean paused = false;
 
     // --------------------------------------------------------
     // CONSTRUCTOR
@@ -48,14 +89,7 @@ public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventL
 
 	public InputSystem(View view)
     {
-		int maxInputEvents = 128;
-		inputQueue = new ArrayBlockingQueue<InputEvent>(maxInputEvents);
-		inputPool = new ArrayBlockingQueue<InputEvent>(maxInputEvents);
-
-        for (int i = 0; i < maxInputEvents; ++i)
-		{
-			inputPool.add(new InputEvent());
-		}
+		inputQueue = new InputEventQueue(MAX_INPUT_EVENTS);
 		
 		view.setFocusable(true);
 		view.setFocusableInTouchMode(true);
@@ -63,35 +97,149 @@ public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventL
 		view.setOnTouchListener(this);
 		
 		Context context = view.getContext();
-		SensorManager sensorManager = (SensorManager)context.getSystemService(Context.SENSOR_SERVICE);
-		
-		Sensor accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-		if (accelerometer != null)
+		sensorManager = (SensorManager)context.getSystemService(Context.SENSOR_SERVICE);
+
+		int numDevices = InputDevice.values().length;
+		sensorSlots = new SensorSlot[numDevices];
+		sensorEvents = new InputEvent[numDevices];
+		coalescing = new SensorCoalescing[numDevices];
+		filters = new InputFilter[numDevices];
+		filterResets = new AtomicBoolean[numDevices];
+		for (InputDevice device : SENSOR_DEVICES)
+		{
+		    sensorSlots[device.ordinal()] = new SensorSlot();
+		    sensorEvents[device.ordinal()] = new InputEvent();
+		    coalescing[device.ordinal()] = SensorCoalescing.LATEST;
+		    filterResets[device.ordinal()] = new AtomicBoolean(false);
+		}
+	}
+
+    /**
+     * This method registers the listener for the given sensors and unregisters all other sensors.
+     * It is called when the screen changes, a sensor which is not needed costs battery and CPU.
+     *
+     * @param devices the sensors which are needed, touch screen and keyboard are always enabled
+     */
+    public synchronized void setSensors(EnumSet<InputDevice> devices)
+    {
+        for (InputDevice device : devices)
         {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
+            getSensorType(device);      // only sensors are allowed
         }
 
-		Sensor gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
-		if (gyroscope != null)
+        for (InputDevice device : SENSOR_DEVICES)
         {
-            sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+            boolean wanted = devices.contains(device);
+            if (!paused && wanted && !sensors.contains(device))
+            {
+                registerSensor(device);
+            }
+            else if (!paused && !wanted && sensors.contains(device))
+            {
+                unregisterSensor(device);
+            }
         }
 
-		Sensor rotation = sensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);			
-		if (rotation != null)
+        sensors = EnumSet.copyOf(devices);
+    }
+
+    /**
+     * This method unregisters all sensors while the game is paused.
+     */
+    public synchronized void pause()
+    {
+        paused = true;
+        sensorManager.unregisterListener(this);
+    }
+
+    /**
+     * This method registers the sensors of the current screen again.
+     */
+    public synchronized void resume()
+    {
+        if (!paused)
         {
-            sensorManager.registerListener(this, rotation, SensorManager.SENSOR_DELAY_GAME);
+            return;
         }
 
-		Sensor linearAccelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_LINEAR_ACCELERATION);
-		if(linearAccelerometer != null)
+        paused = false;
+        for (InputDevice device : sensors)
         {
-            sensorManager.registerListener(this, linearAccelerometer, SensorManager.SENSOR_DELAY_GAME);
+            registerSensor(device);
         }
+    }
 
-		Sensor gravity = sensorManager.getDefaultSensor(Sensor.TYPE_GRAVITY);
-			sensorManager.registerListener(this, gravity, SensorManager.SENSOR_DELAY_GAME);
-	}
+    /**
+     * @param device a sensor
+     * @param mode LATEST to pass the latest sample once per tick, AVERAGE to pass the mean of the
+     *        samples since the last tick
+     */
+    public void setCoalescing(InputDevice device, SensorCoalescing mode)
+    {
+        getSensorType(device);
+        coalescing[device.ordinal()] = mode;
+    }
+
+    /**
+     * This method sets the filter which processes the events of a device before they are passed to
+     * the game. It has to be called by the GL thread.
+     *
+     * @param device the device of the events
+     * @param filter the filter or chain of filters, null to pass the events unchanged
+     */
+    public void setFilter(InputDevice device, InputFilter filter)
+    {
+        if (filter != null)
+        {
+            filter.reset();
+        }
+        filters[device.ordinal()] = filter;
+    }
+
+    private void registerSensor(InputDevice device)
+    {
+        Sensor sensor = sensorManager.getDefaultSensor(getSensorType(device));
+        if (sensor == null)
+        {
+            Log.w(TAG, "The device has no sensor for " + device + ".");
+            return;
+        }
+
+        // the filter must not continue with the state from before the sensor was off
+        filterResets[device.ordinal()].set(true);
+        sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_GAME);
+    }
+
+    private void unregisterSensor(InputDevice device)
+    {
+        Sensor sensor = sensorManager.getDefaultSensor(getSensorType(device));
+        if (sensor != null)
+        {
+            sensorManager.unregisterListener(this, sensor);
+        }
+    }
+
+    /**
+     * @return the type of the android sensor which produces the events of the device
+     */
+    private static int getSensorType(InputDevice device)
+    {
+        switch (device)
+        {
+            case ACCELEROMETER:
+                return Sensor.TYPE_ACCELEROMETER;
+            case GYROSCOPE:
+                return Sensor.TYPE_GYROSCOPE;
+            case ROTATION:
+                return Sensor.TYPE_ROTATION_VECTOR;
+            case LINEAR_ACCELEROMETER:
+                return Sensor.TYPE_LINEAR_ACCELERATION;
+            case GRAVITY:
+                return Sensor.TYPE_GRAVITY;
+            default:
+                throw new InvalidParameterException(device + " is no sensor!");
+        }
+    }
 
 	@Override
 	public void onAccuracyChanged(Sensor arg0, int arg1)
@@ -103,8 +251,8 @@ public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventL
 	public void onSensorChanged(SensorEvent event)
     {
 		InputDevice device = InputDevice.NONE;
-		InputAction action = InputAction.UPDATE;
-		float time = event.timestamp / 1000.0f;
+		long receiveTime = System.nanoTime();
+		long time = event.timestamp;
 		float v0 = 0, v1 = 0, v2 = 0, v3 = 0;
 		
 		switch (event.sensor.getType())
@@ -159,14 +307,8 @@ public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventL
                 return;
 		}
 		
-		InputEvent inputEvent = inputPool.poll();
-		if (inputEvent == null)
-        {
-            return;
-        }
-
-		inputEvent.set(device, action, time, 0, v0, v1, v2, v3);
-		inputQueue.add(inputEvent);
+		// consecutive samples overwrite each other until the next tick
+		sensorSlots[device.ordinal()].write(time, receiveTime, v0, v1, v2, v3);
 	}
 
 	@Override
@@ -174,7 +316,7 @@ public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventL
     {
 		InputDevice device = InputDevice.TOUCHSCREEN;
 		InputAction action = InputAction.NONE;
-		float time = event.getEventTime() / 1000.0f;
+		long time = event.getEventTime() * 1000000L;		// milliseconds to nanoseconds
 		float x = event.getX();
 		float y = event.getY();
 		
@@ -196,16 +338,7 @@ public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventL
                 return false;
 		}
 		
-		InputEvent inputEvent = inputPool.poll();
-		if (inputEvent == null)
-        {
-            return false;
-        }
-
-		inputEvent.set(device, action, time, 0, x, y, 0, 0);
-		inputQueue.add(inputEvent);
-		
-		return true;
+		return inputQueue.offer(device, action, time, System.nanoTime(), 0, x, y, 0, 0);
 	}
 
 	@Override
@@ -213,7 +346,7 @@ public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventL
     {
 		InputDevice device = InputDevice.KEYBOARD;
 		InputAction action = InputAction.NONE;
-		float time = event.getEventTime() / 1000.0f;
+		long time = event.getEventTime() * 1000000L;		// milliseconds to nanoseconds
 		
 		switch (event.getAction())
         {
@@ -229,31 +362,74 @@ public class InputSystem implements OnKeyListener, OnTouchListener, SensorEventL
                 return false;
 		}
 		
-		InputEvent inputEvent = inputPool.poll();
-		if (inputEvent == null)
+		return inputQueue.offer(device, action, time, System.nanoTime(), keycode, 0, 0, 0, 0);
+	}
+
+    /**
+     * This method passes all queued events in the order of arrival to the consumer, followed by
+     * one event per sensor with new samples. It has to be called by the GL thread only.
+     *
+     * @param consumer the receiver of the events
+     * @return the number of processed events
+     */
+    public int drain(InputEventConsumer consumer)
+    {
+        long overflows = inputQueue.getOverflows();
+        if (overflows != reportedOverflows)
         {
-            return false;
+            reportedOverflows = overflows;
+            Log.w(TAG, "The input queue ran full, " + inputQueue.getDroppedEvents() + " events were dropped so far.");
         }
 
-		inputEvent.set(device, action, time, keycode, 0, 0, 0, 0);
-		inputQueue.add(inputEvent);
-		
-		return true;
-	}
+        this.consumer = consumer;
+        int count = inputQueue.drain(this);
+        this.consumer = null;
 
-	public InputEvent peekEvent()
-    {
-		return inputQueue.peek();
-	}
-	
-	public void popEvent()
+        for (InputDevice device : SENSOR_DEVICES)
+        {
+            int index = device.ordinal();
+            if (filterResets[index].getAndSet(false) && filters[index] != null)
+            {
+                filters[index].reset();
+            }
+
+            if (sensorSlots[index].read(sensorEvents[index], device, coalescing[index]) &&
+                (filters[index] == null || filters[index].filter(sensorEvents[index])))
+            {
+                consumer.onInputEvent(sensorEvents[index]);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * This method passes a queued event through the filter of its device, it is called by drain.
+     */
+    @Override
+    public void onInputEvent(InputEvent inputEvent)
     {
-		InputEvent inputEvent = inputQueue.poll();
-		if (inputEvent == null)
+        InputFilter filter = filters[inputEvent.getDevice().ordinal()];
+        if (filter == null || filter.filter(inputEvent))
         {
-            return;
+            consumer.onInputEvent(inputEvent);
         }
+    }
 
-		inputPool.add(inputEvent);
-	}
-}
\ No newline at end of file
+    /**
+     * @return the number of events which were dropped because the game did not take them in time
+     */
+    public long getDroppedEvents()
+    {
+        return inputQueue.getDroppedEvents();
+    }
+
+    /**
+     * @return how often the queue ran full
+     */
+    public long getOverflows()
+    {
+        return inputQueue.getOverflows();
+    }
+}
@@ -0,0 +1,137 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.input;
+
+import java.security.InvalidParameterException;
+
+import de.hdm.mib.dg041.input.InputEvent.InputAction;
+import de.hdm.mib.dg041.input.InputEvent.InputDevice;
+
+/**
+ * This class turns the tilt of the device into the wish to change the lane. The event is changed
+ * into an event of the device LANE with the action LEFT or RIGHT, all other samples are dropped.
+ *
+ * A tilt is recognized when the value of the axis crosses the enter threshold. The tilt has to go
+ * back below the exit threshold before the next tilt to the same side is recognized, so a value
+ * which shakes around the threshold produces only one lane change. After a lane change no further
+ * change is passed for a number of samples. A tilt which starts in this time and is still held
+ * afterwards is passed with the first sample after it.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class LaneIntentFilter implements InputFilter
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private int axis;
+    private float enterThreshold;
+    private float exitThreshold;
+    private int debounceSamples;
+
+    /** the side of the current tilt: -1 left, 0 none, 1 right **/
+    private int tilt = 0;
+    /** samples until the next lane change may be passed **/
+    private int samplesToWait = 0;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param axis the index of the value which is read, positive values mean right
+     * @param enterThreshold the absolute value at which a tilt starts
+     * @param exitThreshold the absolute value below which a tilt ends, at most the enter threshold
+     * @param debounceSamples the number of samples after a lane change in which no change is passed
+     */
+    public LaneIntentFilter(int axis, float enterThreshold, float exitThreshold, int debounceSamples)
+    {
+        if (axis < 0 || axis > 3)
+        {
+            throw new InvalidParameterException("The axis has to be between 0 and 3!");
+        }
+        if (exitThreshold < 0.0f || exitThreshold > enterThreshold)
+        {
+            throw new InvalidParameterException("The exit threshold has to be between 0 and the enter threshold!");
+        }
+        if (debounceSamples < 0)
+        {
+            throw new InvalidParameterException("The number of debounce samples must not be negative!");
+        }
+
+        this.axis = axis;
+        this.enterThreshold = enterThreshold;
+        this.exitThreshold = exitThreshold;
+        this.debounceSamples = debounceSamples;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    @Override
+    public boolean filter(InputEvent inputEvent)
+    {
+        float value = inputEvent.getValues()[axis];
+
+        if (samplesToWait > 0)
+        {
+            samplesToWait--;
+        }
+
+        // end of a tilt
+        if ((tilt > 0 && value < exitThreshold) || (tilt < 0 && value > -exitThreshold))
+        {
+            tilt = 0;
+        }
+
+        // start of a tilt
+        int newTilt = 0;
+        if (value >= enterThreshold && tilt <= 0)
+        {
+            newTilt = 1;
+        }
+        else if (value <= -enterThreshold && tilt >= 0)
+        {
+            newTilt = -1;
+        }
+
+        if (newTilt == 0)
+        {
+            return false;
+        }
+
+        // a tilt within the debounce time is not latched, so a held tilt fires after it
+        if (samplesToWait > 0)
+        {
+            return false;
+        }
+
+        tilt = newTilt;
+        samplesToWait = debounceSamples;
+        float[] values = inputEvent.getValues();
+        inputEvent.set(InputDevice.LANE, (newTilt > 0) ? InputAction.RIGHT : InputAction.LEFT, inputEvent.getTime(),
+                inputEvent.getKeycode(), values[0], values[1], values[2], values[3]);
+        return true;
+    }
+
+    @Override
+    public void reset()
+    {
+        tilt = 0;
+        samplesToWait = 0;
+    }
+}
@@ -0,0 +1,86 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.input;
+
+import java.security.InvalidParameterException;
+
+/**
+ * This class smooths the values of a device with an exponential moving average:
+ *
+ *   filtered = filtered + alpha * (value - filtered)
+ *
+ * A small alpha removes more noise but reacts later. The sensors pass at most one sample per tick
+ * to the filters, so the delay of the filter is counted in ticks.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class LowPassFilter implements InputFilter
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private float alpha;
+    private float[] filtered = new float[4];
+    private boolean initialized = false;
+
+    // --------------------------------------------------------
+    // CONSTRUCTOR
+    // --------------------------------------------------------
+
+    /**
+     * @param alpha the weight of a new sample, greater than 0 and at most 1
+     */
+    public LowPassFilter(float alpha)
+    {
+        if (alpha <= 0.0f || alpha > 1.0f)
+        {
+            throw new InvalidParameterException("The alpha of the low pass has to be greater than 0 and at most 1!");
+        }
+
+        this.alpha = alpha;
+    }
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    @Override
+    public boolean filter(InputEvent inputEvent)
+    {
+        float[] values = inputEvent.getValues();
+
+        // the first sample starts the average, otherwise the filter would start at zero
+        if (!initialized)
+        {
+            System.arraycopy(values, 0, filtered, 0, filtered.length);
+            initialized = true;
+            return true;
+        }
+
+        for (int i = 0; i < filtered.length; ++i)
+        {
+            filtered[i] += alpha * (values[i] - filtered[i]);
+            values[i] = filtered[i];
+        }
+        return true;
+    }
+
+    @Override
+    public void reset()
+    {
+        initialized = false;
+    }
+}
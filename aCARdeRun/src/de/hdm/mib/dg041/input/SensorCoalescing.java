@@ -0,0 +1,29 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.input;
+
+/**
+ * This enumeration defines how the samples of a sensor between two ticks are passed to the game,
+ * see InputSystem.setCoalescing.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public enum SensorCoalescing
+{
+    /** only the latest sample is passed **/
+    LATEST,
+    /** the mean of all samples since the last tick is passed, this smooths noisy sensors **/
+    AVERAGE
+}
@@ -0,0 +1,133 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.input;
+
+import de.hdm.mib.dg041.input.InputEvent.InputAction;
+import de.hdm.mib.dg041.input.InputEvent.InputDevice;
+
+/**
+ * This class holds the samples of one sensor between two ticks. The sensor thread overwrites the
+ * latest sample and adds it to running sums, the GL thread reads the slot once per tick. Instead
+ * of one queued event per sample a sensor produces at most one event per tick.
+ *
+ * The slot is a sequence lock: the writer makes the version odd while it writes and even when it
+ * is done, the reader repeats reading until it saw the same even version before and after. There
+ * has to be only one writer per slot, android delivers all sensor events of a listener on the
+ * same thread.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+class SensorSlot
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private volatile int version;
+    private volatile long time;
+    private volatile long receiveTime;
+    private volatile float value0, value1, value2, value3;
+    /** sums of all samples, the reader takes the difference to its last read **/
+    private volatile double sum0, sum1, sum2, sum3;
+    private volatile long samples;
+
+    /** state of the last read, only used by the reader **/
+    private long readSamples;
+    private double readSum0, readSum1, readSum2, readSum3;
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    /**
+     * This method stores a new sample, it must be called by one thread only.
+     */
+    void write(long time, long receiveTime, float value0, float value1, float value2, float value3)
+    {
+        version++;
+
+        this.time = time;
+        this.receiveTime = receiveTime;
+        this.value0 = value0;
+        this.value1 = value1;
+        this.value2 = value2;
+        this.value3 = value3;
+        sum0 += value0;
+        sum1 += value1;
+        sum2 += value2;
+        sum3 += value3;
+        samples++;
+
+        version++;
+    }
+
+    /**
+     * This method writes the samples since the last read into the event.
+     *
+     * @param inputEvent the event which receives the values
+     * @param device the device of the slot
+     * @param coalescing the latest sample or the mean of the samples
+     * @return TRUE if there was a new sample, otherwise the event is not changed
+     */
+    boolean read(InputEvent inputEvent, InputDevice device, SensorCoalescing coalescing)
+    {
+        long t, r;
+        float v0, v1, v2, v3;
+        double s0, s1, s2, s3;
+        long n;
+
+        int before;
+        do
+        {
+            before = version;
+            t = time;
+            r = receiveTime;
+            v0 = value0;
+            v1 = value1;
+            v2 = value2;
+            v3 = value3;
+            s0 = sum0;
+            s1 = sum1;
+            s2 = sum2;
+            s3 = sum3;
+            n = samples;
+        }
+        while ((before & 1) != 0 || before != version);
+
+        long count = n - readSamples;
+        if (count == 0)
+        {
+            return false;
+        }
+
+        if (coalescing == SensorCoalescing.AVERAGE)
+        {
+            v0 = (float) ((s0 - readSum0) / count);
+            v1 = (float) ((s1 - readSum1) / count);
+            v2 = (float) ((s2 - readSum2) / count);
+            v3 = (float) ((s3 - readSum3) / count);
+        }
+
+        readSamples = n;
+        readSum0 = s0;
+        readSum1 = s1;
+        readSum2 = s2;
+        readSum3 = s3;
+
+        inputEvent.set(device, InputAction.UPDATE, t, 0, v0, v1, v2, v3);
+        inputEvent.setReceiveTime(r);
+        return true;
+    }
+}
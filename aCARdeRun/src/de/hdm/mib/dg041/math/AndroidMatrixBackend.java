@@ -0,0 +1,91 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.math;
+
+import android.opengl.Matrix;
+
+/**
+ * This backend delegates every operation to android.opengl.Matrix. multiplyMM and multiplyMV
+ * are native methods of the platform, every call crosses the JNI boundary. The backend only
+ * works on a device or an emulator.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class AndroidMatrixBackend implements MatrixBackend
+{
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    @Override
+    public void multiplyMM(float[] result, int resultOffset, float[] lhs, int lhsOffset, float[] rhs, int rhsOffset)
+    {
+        Matrix.multiplyMM(result, resultOffset, lhs, lhsOffset, rhs, rhsOffset);
+    }
+
+    @Override
+    public void multiplyMV(float[] resultVec, int resultVecOffset, float[] lhsMat, int lhsMatOffset, float[] rhsVec, int rhsVecOffset)
+    {
+        Matrix.multiplyMV(resultVec, resultVecOffset, lhsMat, lhsMatOffset, rhsVec, rhsVecOffset);
+    }
+
+    @Override
+    public void transposeM(float[] mTrans, int mTransOffset, float[] m, int mOffset)
+    {
+        Matrix.transposeM(mTrans, mTransOffset, m, mOffset);
+    }
+
+    @Override
+    public boolean invertM(float[] mInv, int mInvOffset, float[] m, int mOffset)
+    {
+        return Matrix.invertM(mInv, mInvOffset, m, mOffset);
+    }
+
+    @Override
+    public void setIdentityM(float[] sm, int smOffset)
+    {
+        Matrix.setIdentityM(sm, smOffset);
+    }
+
+    @Override
+    public void setRotateM(float[] rm, int rmOffset, float a, float x, float y, float z)
+    {
+        Matrix.setRotateM(rm, rmOffset, a, x, y, z);
+    }
+
+    @Override
+    public void scaleM(float[] m, int mOffset, float x, float y, float z)
+    {
+        Matrix.scaleM(m, mOffset, x, y, z);
+    }
+
+    @Override
+    public void translateM(float[] m, int mOffset, float x, float y, float z)
+    {
+        Matrix.translateM(m, mOffset, x, y, z);
+    }
+
+    @Override
+    public void orthoM(float[] m, int mOffset, float left, float right, float bottom, float top, float near, float far)
+    {
+        Matrix.orthoM(m, mOffset, left, right, bottom, top, near, far);
+    }
+
+    @Override
+    public void frustumM(float[] m, int offset, float left, float right, float bottom, float top, float near, float far)
+    {
+        Matrix.frustumM(m, offset, left, right, bottom, top, near, far);
+    }
+}
@@ -0,0 +1,293 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.math;
+
+import java.security.InvalidParameterException;
+
+/**
+ * This backend calculates all matrix operations in plain java. It does not need the android
+ * platform, so the math package also runs in a desktop JVM, and it avoids the JNI call of the
+ * native android.opengl.Matrix methods for the small matrices of the game.
+ *
+ * The formulas follow android.opengl.Matrix, the results are equal within float precision.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class JavaMatrixBackend implements MatrixBackend
+{
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    @Override
+    public void multiplyMM(float[] result, int resultOffset, float[] lhs, int lhsOffset, float[] rhs, int rhsOffset)
+    {
+        float l00 = lhs[lhsOffset],      l10 = lhs[lhsOffset + 1],  l20 = lhs[lhsOffset + 2],  l30 = lhs[lhsOffset + 3];
+        float l01 = lhs[lhsOffset + 4],  l11 = lhs[lhsOffset + 5],  l21 = lhs[lhsOffset + 6],  l31 = lhs[lhsOffset + 7];
+        float l02 = lhs[lhsOffset + 8],  l12 = lhs[lhsOffset + 9],  l22 = lhs[lhsOffset + 10], l32 = lhs[lhsOffset + 11];
+        float l03 = lhs[lhsOffset + 12], l13 = lhs[lhsOffset + 13], l23 = lhs[lhsOffset + 14], l33 = lhs[lhsOffset + 15];
+
+        for (int j = 0; j < 4; ++j)
+        {
+            int r = rhsOffset + 4 * j;
+            float r0 = rhs[r];
+            float r1 = rhs[r + 1];
+            float r2 = rhs[r + 2];
+            float r3 = rhs[r + 3];
+
+            int o = resultOffset + 4 * j;
+            result[o]     = l00 * r0 + l01 * r1 + l02 * r2 + l03 * r3;
+            result[o + 1] = l10 * r0 + l11 * r1 + l12 * r2 + l13 * r3;
+            result[o + 2] = l20 * r0 + l21 * r1 + l22 * r2 + l23 * r3;
+            result[o + 3] = l30 * r0 + l31 * r1 + l32 * r2 + l33 * r3;
+        }
+    }
+
+    @Override
+    public void multiplyMV(float[] resultVec, int resultVecOffset, float[] lhsMat, int lhsMatOffset, float[] rhsVec, int rhsVecOffset)
+    {
+        float x = rhsVec[rhsVecOffset];
+        float y = rhsVec[rhsVecOffset + 1];
+        float z = rhsVec[rhsVecOffset + 2];
+        float w = rhsVec[rhsVecOffset + 3];
+
+        for (int i = 0; i < 4; ++i)
+        {
+            int m = lhsMatOffset + i;
+            resultVec[resultVecOffset + i] = lhsMat[m] * x + lhsMat[m + 4] * y + lhsMat[m + 8] * z + lhsMat[m + 12] * w;
+        }
+    }
+
+    @Override
+    public void transposeM(float[] mTrans, int mTransOffset, float[] m, int mOffset)
+    {
+        for (int i = 0; i < 4; ++i)
+        {
+            int mBase = i * 4 + mOffset;
+            mTrans[i + mTransOffset]      = m[mBase];
+            mTrans[i + 4 + mTransOffset]  = m[mBase + 1];
+            mTrans[i + 8 + mTransOffset]  = m[mBase + 2];
+            mTrans[i + 12 + mTransOffset] = m[mBase + 3];
+        }
+    }
+
+    /**
+     * This method inverts the matrix with Cramer's rule. The cofactors are built from the 2x2
+     * sub determinants of the upper and the lower half of the matrix.
+     */
+    @Override
+    public boolean invertM(float[] mInv, int mInvOffset, float[] m, int mOffset)
+    {
+        float a00 = m[mOffset],      a01 = m[mOffset + 4],  a02 = m[mOffset + 8],  a03 = m[mOffset + 12];
+        float a10 = m[mOffset + 1],  a11 = m[mOffset + 5],  a12 = m[mOffset + 9],  a13 = m[mOffset + 13];
+        float a20 = m[mOffset + 2],  a21 = m[mOffset + 6],  a22 = m[mOffset + 10], a23 = m[mOffset + 14];
+        float a30 = m[mOffset + 3],  a31 = m[mOffset + 7],  a32 = m[mOffset + 11], a33 = m[mOffset + 15];
+
+        // 2x2 determinants of the rows 0 and 1
+        float s0 = a00 * a11 - a10 * a01;
+        float s1 = a00 * a12 - a10 * a02;
+        float s2 = a00 * a13 - a10 * a03;
+        float s3 = a01 * a12 - a11 * a02;
+        float s4 = a01 * a13 - a11 * a03;
+        float s5 = a02 * a13 - a12 * a03;
+
+        // 2x2 determinants of the rows 2 and 3
+        float c5 = a22 * a33 - a32 * a23;
+        float c4 = a21 * a33 - a31 * a23;
+        float c3 = a21 * a32 - a31 * a22;
+        float c2 = a20 * a33 - a30 * a23;
+        float c1 = a20 * a32 - a30 * a22;
+        float c0 = a20 * a31 - a30 * a21;
+
+        float det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (det == 0.0f)
+        {
+            return false;
+        }
+        float invDet = 1.0f / det;
+
+        mInv[mInvOffset]      = ( a11 * c5 - a12 * c4 + a13 * c3) * invDet;
+        mInv[mInvOffset + 4]  = (-a01 * c5 + a02 * c4 - a03 * c3) * invDet;
+        mInv[mInvOffset + 8]  = ( a31 * s5 - a32 * s4 + a33 * s3) * invDet;
+        mInv[mInvOffset + 12] = (-a21 * s5 + a22 * s4 - a23 * s3) * invDet;
+
+        mInv[mInvOffset + 1]  = (-a10 * c5 + a12 * c2 - a13 * c1) * invDet;
+        mInv[mInvOffset + 5]  = ( a00 * c5 - a02 * c2 + a03 * c1) * invDet;
+        mInv[mInvOffset + 9]  = (-a30 * s5 + a32 * s2 - a33 * s1) * invDet;
+        mInv[mInvOffset + 13] = ( a20 * s5 - a22 * s2 + a23 * s1) * invDet;
+
+        mInv[mInvOffset + 2]  = ( a10 * c4 - a11 * c2 + a13 * c0) * invDet;
+        mInv[mInvOffset + 6]  = (-a00 * c4 + a01 * c2 - a03 * c0) * invDet;
+        mInv[mInvOffset + 10] = ( a30 * s4 - a31 * s2 + a33 * s0) * invDet;
+        mInv[mInvOffset + 14] = (-a20 * s4 + a21 * s2 - a23 * s0) * invDet;
+
+        mInv[mInvOffset + 3]  = (-a10 * c3 + a11 * c1 - a12 * c0) * invDet;
+        mInv[mInvOffset + 7]  = ( a00 * c3 - a01 * c1 + a02 * c0) * invDet;
+        mInv[mInvOffset + 11] = (-a30 * s3 + a31 * s1 - a32 * s0) * invDet;
+        mInv[mInvOffset + 15] = ( a20 * s3 - a21 * s1 + a22 * s0) * invDet;
+
+        return true;
+    }
+
+    @Override
+    public void setIdentityM(float[] sm, int smOffset)
+    {
+        for (int i = 0; i < 16; ++i)
+        {
+            sm[smOffset + i] = 0;
+        }
+        for (int i = 0; i < 16; i += 5)
+        {
+            sm[smOffset + i] = 1.0f;
+        }
+    }
+
+    @Override
+    public void setRotateM(float[] rm, int rmOffset, float a, float x, float y, float z)
+    {
+        rm[rmOffset + 3]  = 0;
+        rm[rmOffset + 7]  = 0;
+        rm[rmOffset + 11] = 0;
+        rm[rmOffset + 12] = 0;
+        rm[rmOffset + 13] = 0;
+        rm[rmOffset + 14] = 0;
+        rm[rmOffset + 15] = 1;
+
+        a *= (float) (Math.PI / 180.0f);
+        float s = (float) Math.sin(a);
+        float c = (float) Math.cos(a);
+
+        if (1.0f == x && 0.0f == y && 0.0f == z)
+        {
+            rm[rmOffset + 5]  = c;   rm[rmOffset + 10] = c;
+            rm[rmOffset + 6]  = s;   rm[rmOffset + 9]  = -s;
+            rm[rmOffset + 1]  = 0;   rm[rmOffset + 2]  = 0;
+            rm[rmOffset + 4]  = 0;   rm[rmOffset + 8]  = 0;
+            rm[rmOffset]      = 1;
+        }
+        else if (0.0f == x && 1.0f == y && 0.0f == z)
+        {
+            rm[rmOffset]      = c;   rm[rmOffset + 10] = c;
+            rm[rmOffset + 8]  = s;   rm[rmOffset + 2]  = -s;
+            rm[rmOffset + 1]  = 0;   rm[rmOffset + 4]  = 0;
+            rm[rmOffset + 6]  = 0;   rm[rmOffset + 9]  = 0;
+            rm[rmOffset + 5]  = 1;
+        }
+        else if (0.0f == x && 0.0f == y && 1.0f == z)
+        {
+            rm[rmOffset]      = c;   rm[rmOffset + 5]  = c;
+            rm[rmOffset + 1]  = s;   rm[rmOffset + 4]  = -s;
+            rm[rmOffset + 2]  = 0;   rm[rmOffset + 6]  = 0;
+            rm[rmOffset + 8]  = 0;   rm[rmOffset + 9]  = 0;
+            rm[rmOffset + 10] = 1;
+        }
+        else
+        {
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            if (1.0f != length)
+            {
+                float recipLength = 1.0f / length;
+                x *= recipLength;
+                y *= recipLength;
+                z *= recipLength;
+            }
+
+            float nc = 1.0f - c;
+            float xy = x * y;
+            float yz = y * z;
+            float zx = z * x;
+            float xs = x * s;
+            float ys = y * s;
+            float zs = z * s;
+
+            rm[rmOffset]      = x * x * nc + c;
+            rm[rmOffset + 4]  = xy * nc - zs;
+            rm[rmOffset + 8]  = zx * nc + ys;
+            rm[rmOffset + 1]  = xy * nc + zs;
+            rm[rmOffset + 5]  = y * y * nc + c;
+            rm[rmOffset + 9]  = yz * nc - xs;
+            rm[rmOffset + 2]  = zx * nc - ys;
+            rm[rmOffset + 6]  = yz * nc + xs;
+            rm[rmOffset + 10] = z * z * nc + c;
+        }
+    }
+
+    @Override
+    public void scaleM(float[] m, int mOffset, float x, float y, float z)
+    {
+        for (int i = 0; i < 4; ++i)
+        {
+            m[mOffset + i]     *= x;
+            m[mOffset + 4 + i] *= y;
+            m[mOffset + 8 + i] *= z;
+        }
+    }
+
+    @Override
+    public void translateM(float[] m, int mOffset, float x, float y, float z)
+    {
+        for (int i = 0; i < 4; ++i)
+        {
+            int mi = mOffset + i;
+            m[12 + mi] += m[mi] * x + m[4 + mi] * y + m[8 + mi] * z;
+        }
+    }
+
+    @Override
+    public void orthoM(float[] m, int mOffset, float left, float right, float bottom, float top, float near, float far)
+    {
+        if (left == right || bottom == top || near == far)
+        {
+            throw new InvalidParameterException("The clipping planes of the orthogonal projection must differ!");
+        }
+
+        float rWidth  = 1.0f / (right - left);
+        float rHeight = 1.0f / (top - bottom);
+        float rDepth  = 1.0f / (far - near);
+
+        setIdentityM(m, mOffset);
+        m[mOffset]      = 2.0f * rWidth;
+        m[mOffset + 5]  = 2.0f * rHeight;
+        m[mOffset + 10] = -2.0f * rDepth;
+        m[mOffset + 12] = -(right + left) * rWidth;
+        m[mOffset + 13] = -(top + bottom) * rHeight;
+        m[mOffset + 14] = -(far + near) * rDepth;
+    }
+
+    @Override
+    public void frustumM(float[] m, int offset, float left, float right, float bottom, float top, float near, float far)
+    {
+        if (left == right || bottom == top || near == far || near <= 0.0f || far <= 0.0f)
+        {
+            throw new InvalidParameterException("Invalid clipping planes of the perspective projection!");
+        }
+
+        float rWidth  = 1.0f / (right - left);
+        float rHeight = 1.0f / (top - bottom);
+        float rDepth  = 1.0f / (near - far);
+
+        for (int i = 0; i < 16; ++i)
+        {
+            m[offset + i] = 0;
+        }
+        m[offset]      = 2.0f * (near * rWidth);
+        m[offset + 5]  = 2.0f * (near * rHeight);
+        m[offset + 8]  = (right + left) * rWidth;
+        m[offset + 9]  = (top + bottom) * rHeight;
+        m[offset + 10] = (far + near) * rDepth;
+        m[offset + 11] = -1.0f;
+        m[offset + 14] = 2.0f * (far * near * rDepth);
+    }
+}
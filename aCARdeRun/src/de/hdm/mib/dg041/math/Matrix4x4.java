@@ -13,9 +13,13 @@
  * limitations under the License. */
 package de.hdm.mib.dg041.math;
 
-import android.opengl.Matrix;
+import java.security.InvalidParameterException;
 
 /**
+ * This class defines a column major 4x4 matrix. The operations are calculated by a MatrixBackend,
+ * by default the pure java implementation. It can be exchanged at runtime with setBackend, for
+ * example to compare it with the android.opengl.Matrix implementation.
+ *
  * @author dennis.grewe [dg041@hdm-stuttgart.de]
  * Created on 23.02.2012.
  */
@@ -27,6 +31,15 @@ public class Matrix4x4
 
     public float[] m = new float [16];
 
+    /** implementation of the matrix operations shared by all matrices **/
+    private static MatrixBackend backend = new JavaMatrixBackend();
+
+    /**
+     * scratch memory of the in place operations. android.opengl.Matrix.rotateM allocates two
+     * temporary arrays per call on older platforms, so rotations are composed here instead.
+     */
+    private static final float[] TEMP = new float[32];
+
     // --------------------------------------------------------
     // CONSTRUCTORS
     // --------------------------------------------------------
@@ -74,6 +87,31 @@ public class Matrix4x4
     // --------------------------------------------------------
     // METHODS
     // --------------------------------------------------------
+
+    // ****************** BACKEND ****************** //
+
+    /**
+     * @return the implementation of the matrix operations
+     */
+    public static MatrixBackend getBackend()
+    {
+        return backend;
+    }
+
+    /**
+     * This method exchanges the implementation of the matrix operations for all matrices. It
+     * should be called before the game is initialized.
+     *
+     * @param matrixBackend for example a JavaMatrixBackend or an AndroidMatrixBackend
+     */
+    public static void setBackend(MatrixBackend matrixBackend)
+    {
+        if (matrixBackend == null)
+        {
+            throw new InvalidParameterException("The matrix backend must not be null!");
+        }
+        backend = matrixBackend;
+    }
     
 	// ****************** MATRIX ROTATION ****************** //
 
@@ -177,7 +215,7 @@ public class Matrix4x4
     public static Matrix4x4 multiply(Matrix4x4 m1, Matrix4x4 m2)
     {
         Matrix4x4 result = new Matrix4x4();
-        Matrix.multiplyMM(result.m, 0, m1.m, 0, m2.m, 0);
+        backend.multiplyMM(result.m, 0, m1.m, 0, m2.m, 0);
         return result;
     }
 
@@ -191,15 +229,86 @@ public class Matrix4x4
     public static Vector4 multiply(Matrix4x4 m, Vector4 v)
     {
         Vector4 result = new Vector4();
-        Matrix.multiplyMV(result.v, 0, m.m, 0, v.v, 0);
+        backend.multiplyMV(result.v, 0, m.m, 0, v.v, 0);
         return result;
     }
 
+    /**
+     * This method multiplies two given matrices without creating a new instance. The result
+     * may be one of the operands.
+     *
+     * @param m1
+     * @param m2
+     * @param out the matrix which receives the result
+     * @return out
+     */
+    public static Matrix4x4 multiply(Matrix4x4 m1, Matrix4x4 m2, Matrix4x4 out)
+    {
+        if (out == m1 || out == m2)
+        {
+            synchronized (TEMP)
+            {
+                backend.multiplyMM(TEMP, 0, m1.m, 0, m2.m, 0);
+                System.arraycopy(TEMP, 0, out.m, 0, 16);
+            }
+        }
+        else
+        {
+            backend.multiplyMM(out.m, 0, m1.m, 0, m2.m, 0);
+        }
+        return out;
+    }
+
+    /**
+     * This method multiplies a given matrix and a vector without creating a new instance. The
+     * result may be the given vector.
+     *
+     * @param m the matrix
+     * @param v the vector
+     * @param out the vector which receives the result
+     * @return out
+     */
+    public static Vector4 multiply(Matrix4x4 m, Vector4 v, Vector4 out)
+    {
+        if (out == v)
+        {
+            synchronized (TEMP)
+            {
+                backend.multiplyMV(TEMP, 0, m.m, 0, v.v, 0);
+                System.arraycopy(TEMP, 0, out.v, 0, 4);
+            }
+        }
+        else
+        {
+            backend.multiplyMV(out.v, 0, m.m, 0, v.v, 0);
+        }
+        return out;
+    }
+
     public Matrix4x4 getTranspose()
     {
-        Matrix4x4 result = new Matrix4x4();
-        Matrix.transposeM(result.m, 0, m, 0);
-        return result;
+        return getTranspose(new Matrix4x4());
+    }
+
+    /**
+     * @param out the matrix which receives the transposed matrix, may be this matrix
+     * @return out
+     */
+    public Matrix4x4 getTranspose(Matrix4x4 out)
+    {
+        if (out == this)
+        {
+            synchronized (TEMP)
+            {
+                backend.transposeM(TEMP, 0, m, 0);
+                System.arraycopy(TEMP, 0, out.m, 0, 16);
+            }
+        }
+        else
+        {
+            backend.transposeM(out.m, 0, m, 0);
+        }
+        return out;
     }
 
     /**
@@ -207,9 +316,23 @@ public class Matrix4x4
      */
     public Matrix4x4 getInverse()
     {
-        Matrix4x4 result = new Matrix4x4();
-        Matrix.invertM(result.m, 0, m, 0);
-        return result;
+        return getInverse(new Matrix4x4());
+    }
+
+    /**
+     * @param out the matrix which receives the inverse matrix, may be this matrix
+     * @return out, it is not changed if the matrix can not be inverted
+     */
+    public Matrix4x4 getInverse(Matrix4x4 out)
+    {
+        synchronized (TEMP)
+        {
+            if (backend.invertM(TEMP, 0, m, 0))
+            {
+                System.arraycopy(TEMP, 0, out.m, 0, 16);
+            }
+        }
+        return out;
     }
 
     /**
@@ -221,7 +344,7 @@ public class Matrix4x4
     public Matrix4x4 multiply(Matrix4x4 matrix)
     {
         Matrix4x4 result = new Matrix4x4();
-        Matrix.multiplyMM(result.m, 0, m, 0, matrix.m, 0);
+        backend.multiplyMM(result.m, 0, m, 0, matrix.m, 0);
         return result;
     }
 
@@ -234,7 +357,7 @@ public class Matrix4x4
     public Vector4 multiply(Vector4 vector)
     {
         Vector4 result = new Vector4();
-        Matrix.multiplyMV(result.v, 0, m, 0, vector.v, 0);
+        backend.multiplyMV(result.v, 0, m, 0, vector.v, 0);
         return result;
     }
 
@@ -252,8 +375,7 @@ public class Matrix4x4
      */
     public Matrix4x4 rotate(float angle, float x, float y, float z)
     {
-        Matrix.rotateM(m, 0, angle, x, y, z);
-        return this;
+        return multiplyRotation(angle, x, y, z);
     }
 
     /**
@@ -264,8 +386,7 @@ public class Matrix4x4
      */
     public Matrix4x4 rotateX(float angle)
     {
-        Matrix.rotateM(m, 0, angle, 1, 0, 0);
-        return this;
+        return multiplyRotation(angle, 1, 0, 0);
     }
 
     /**
@@ -276,8 +397,7 @@ public class Matrix4x4
      */
     public Matrix4x4 rotateY(float angle)
     {
-        Matrix.rotateM(m, 0, angle, 0, 1, 0);
-        return this;
+        return multiplyRotation(angle, 0, 1, 0);
     }
 
     /**
@@ -288,8 +408,7 @@ public class Matrix4x4
      */
     public Matrix4x4 rotateZ(float angle)
     {
-        Matrix.rotateM(m, 0, angle, 0, 0, 1);
-        return this;
+        return multiplyRotation(angle, 0, 0, 1);
     }
 
     /**
@@ -300,7 +419,7 @@ public class Matrix4x4
      */
     public Matrix4x4 scale(float s)
     {
-        Matrix.scaleM(m, 0, s, s, s);
+        backend.scaleM(m, 0, s, s, s);
         return this;
     }
 
@@ -314,7 +433,7 @@ public class Matrix4x4
      */
     public Matrix4x4 scale(float x, float y, float z)
     {
-        Matrix.scaleM(m, 0, x, y, z);
+        backend.scaleM(m, 0, x, y, z);
         return this;
     }
 
@@ -328,7 +447,21 @@ public class Matrix4x4
      */
     public Matrix4x4 translate(float x, float y, float z)
     {
-        Matrix.translateM(m, 0, x, y, z);
+        backend.translateM(m, 0, x, y, z);
+        return this;
+    }
+
+    /**
+     * This method multiplies the current matrix with a rotation matrix in place.
+     */
+    private Matrix4x4 multiplyRotation(float angle, float x, float y, float z)
+    {
+        synchronized (TEMP)
+        {
+            backend.setRotateM(TEMP, 16, angle, x, y, z);
+            backend.multiplyMM(TEMP, 0, m, 0, TEMP, 16);
+            System.arraycopy(TEMP, 0, m, 0, 16);
+        }
         return this;
     }
 
@@ -339,7 +472,57 @@ public class Matrix4x4
      */
     public Matrix4x4 setIdentity()
     {
-        Matrix.setIdentityM(m, 0);
+        backend.setIdentityM(m, 0);
+        return this;
+    }
+
+    /**
+     * This method copies the values of the given matrix into the current matrix.
+     *
+     * @param matrix
+     * @return
+     */
+    public Matrix4x4 set(Matrix4x4 matrix)
+    {
+        System.arraycopy(matrix.m, 0, m, 0, 16);
+        return this;
+    }
+
+    /**
+     * This method sets the current matrix to a translation. It equals createTranslation(x, y, z)
+     * without creating a new instance.
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    public Matrix4x4 setTranslation(float x, float y, float z)
+    {
+        backend.setIdentityM(m, 0);
+        m[12] = x;
+        m[13] = y;
+        m[14] = z;
+        return this;
+    }
+
+    /**
+     * This method sets the current matrix to a translation followed by a rotation on the y-axis.
+     * It equals createTranslation(x, y, z).multiply(createRotationY(angle)) without creating
+     * the three temporary instances.
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param angle
+     * @return
+     */
+    public Matrix4x4 setTranslationRotationY(float x, float y, float z, float angle)
+    {
+        backend.setRotateM(m, 0, angle, 0, 1, 0);
+        m[12] = x;
+        m[13] = y;
+        m[14] = z;
         return this;
     }
 
@@ -356,7 +539,7 @@ public class Matrix4x4
      */
     public Matrix4x4 setOrthogonalProjection(float left, float right, float bottom, float top, float near, float far)
     {
-        Matrix.orthoM(m, 0, left, right, bottom, top, near, far);
+        backend.orthoM(m, 0, left, right, bottom, top, near, far);
         return this;
     }
 
@@ -373,7 +556,7 @@ public class Matrix4x4
      */
     public Matrix4x4 setPerspectiveProjection(float left, float right, float bottom, float top, float near, float far)
     {
-        Matrix.frustumM(m, 0, left, right, bottom, top, near, far);
+        backend.frustumM(m, 0, left, right, bottom, top, near, far);
         return this;
     }   
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.math;
+
+/**
+ * This interface defines the matrix operations which are used by Matrix4x4. The methods have the
+ * same signatures and the same column major layout as android.opengl.Matrix, so an implementation
+ * can either delegate to the android class or calculate the values itself. The result array of
+ * multiplyMM, multiplyMV, transposeM and invertM must not overlap the input arrays.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public interface MatrixBackend
+{
+    public void multiplyMM(float[] result, int resultOffset, float[] lhs, int lhsOffset, float[] rhs, int rhsOffset);
+
+    public void multiplyMV(float[] resultVec, int resultVecOffset, float[] lhsMat, int lhsMatOffset, float[] rhsVec, int rhsVecOffset);
+
+    public void transposeM(float[] mTrans, int mTransOffset, float[] m, int mOffset);
+
+    /**
+     * @return FALSE if the matrix can not be inverted, mInv is not changed in this case
+     */
+    public boolean invertM(float[] mInv, int mInvOffset, float[] m, int mOffset);
+
+    public void setIdentityM(float[] sm, int smOffset);
+
+    /**
+     * @param a the angle in degrees
+     */
+    public void setRotateM(float[] rm, int rmOffset, float a, float x, float y, float z);
+
+    /**
+     * This method scales the matrix in place.
+     */
+    public void scaleM(float[] m, int mOffset, float x, float y, float z);
+
+    /**
+     * This method translates the matrix in place.
+     */
+    public void translateM(float[] m, int mOffset, float x, float y, float z);
+
+    public void orthoM(float[] m, int mOffset, float left, float right, float bottom, float top, float near, float far);
+
+    public void frustumM(float[] m, int offset, float left, float right, float bottom, float top, float near, float far);
+}
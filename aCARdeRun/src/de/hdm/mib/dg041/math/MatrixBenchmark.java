@@ -0,0 +1,249 @@
+/* Copyright 2012 Dennis Grewe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. */
+package de.hdm.mib.dg041.math;
+
+import java.util.Random;
+
+/**
+ * This class compares the JavaMatrixBackend with the AndroidMatrixBackend. Before the timing
+ * starts, the results of both backends are compared for random matrices, every value has to be
+ * equal within float precision. Afterwards every operation is measured per backend:
+ *
+ *   java de.hdm.mib.dg041.math.MatrixBenchmark [iterations]
+ *
+ * In a desktop JVM android.opengl.Matrix is not available, so only the java backend is measured
+ * there. On a device both backends are measured and the faster one can be passed to
+ * Matrix4x4.setBackend.
+ *
+ * @author dennis.grewe [dg041@hdm-stuttgart.de]
+ * Created on 23.02.2012.
+ */
+public class MatrixBenchmark
+{
+    // --------------------------------------------------------
+    // PROPERTIES
+    // --------------------------------------------------------
+
+    private static final int DEFAULT_ITERATIONS = 1000000;
+    private static final int NUM_SAMPLES = 1000;
+
+    /** allowed difference relative to the magnitude of the compared values **/
+    private static final float EPSILON = 1e-5f;
+
+    private static final String[] OPERATIONS = {
+        "setIdentityM", "translateM", "scaleM", "setRotateM", "rotate", "multiplyMM",
+        "multiplyMV", "transposeM", "invertM", "orthoM", "frustumM"
+    };
+
+    // --------------------------------------------------------
+    // METHODS
+    // --------------------------------------------------------
+
+    public static void main(String[] args)
+    {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        MatrixBackend java = new JavaMatrixBackend();
+        MatrixBackend android = new AndroidMatrixBackend();
+
+        boolean androidAvailable = isAvailable(android);
+        if (androidAvailable)
+        {
+            compare(java, android);
+            System.out.println("Both backends are equal within " + EPSILON + " for " + NUM_SAMPLES + " random matrices.");
+        }
+        else
+        {
+            System.out.println("android.opengl.Matrix is not available, only the java backend is measured.");
+        }
+
+        System.out.println(String.format("%-14s %14s %14s %8s", "operation", "java ns/op", "android ns/op", "speedup"));
+
+        for (int op = 0; op < OPERATIONS.length; ++op)
+        {
+            // warm up before measuring
+            measure(java, op, iterations / 4 + 1);
+            double javaTime = (double) measure(java, op, iterations) / iterations;
+
+            if (androidAvailable)
+            {
+                measure(android, op, iterations / 4 + 1);
+                double androidTime = (double) measure(android, op, iterations) / iterations;
+                System.out.println(String.format("%-14s %14.2f %14.2f %7.2fx", OPERATIONS[op], javaTime, androidTime, androidTime / javaTime));
+            }
+            else
+            {
+                System.out.println(String.format("%-14s %14.2f %14s %8s", OPERATIONS[op], javaTime, "-", "-"));
+            }
+        }
+    }
+
+    /**
+     * @return FALSE if the backend throws an exception, like the stubs of android.jar in a desktop JVM
+     */
+    private static boolean isAvailable(MatrixBackend backend)
+    {
+        try
+        {
+            float[] m = new float[16];
+            backend.setIdentityM(m, 0);
+            backend.multiplyMM(new float[16], 0, m, 0, m, 0);
+            return m[0] == 1.0f;
+        }
+        catch (RuntimeException e)
+        {
+            return false;
+        }
+        catch (LinkageError e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * This method runs every operation on both backends with the same random input and throws an
+     * exception if a result differs.
+     */
+    private static void compare(MatrixBackend a, MatrixBackend b)
+    {
+        Random random = new Random(42);
+        float[] ra = new float[16];
+        float[] rb = new float[16];
+
+        for (int i = 0; i < NUM_SAMPLES; ++i)
+        {
+            float[] m = createTransform(a, random);
+            float[] n = createTransform(a, random);
+            float[] v = { random.nextFloat(), random.nextFloat(), random.nextFloat(), 1.0f };
+            float angle = random.nextFloat() * 360.0f;
+            float x = random.nextFloat() - 0.5f;
+            float y = random.nextFloat() - 0.5f;
+            float z = random.nextFloat() - 0.5f;
+
+            a.multiplyMM(ra, 0, m, 0, n, 0);
+            b.multiplyMM(rb, 0, m, 0, n, 0);
+            check("multiplyMM", ra, rb, 16);
+
+            a.multiplyMV(ra, 0, m, 0, v, 0);
+            b.multiplyMV(rb, 0, m, 0, v, 0);
+            check("multiplyMV", ra, rb, 4);
+
+            a.transposeM(ra, 0, m, 0);
+            b.transposeM(rb, 0, m, 0);
+            check("transposeM", ra, rb, 16);
+
+            if (a.invertM(ra, 0, m, 0) != b.invertM(rb, 0, m, 0))
+            {
+                throw new IllegalStateException("invertM differs between the backends!");
+            }
+            check("invertM", ra, rb, 16);
+
+            a.setRotateM(ra, 0, angle, x, y, z);
+            b.setRotateM(rb, 0, angle, x, y, z);
+            check("setRotateM", ra, rb, 16);
+
+            // the axis aligned rotations have their own code path
+            a.setRotateM(ra, 0, angle, 0, 1, 0);
+            b.setRotateM(rb, 0, angle, 0, 1, 0);
+            check("setRotateM", ra, rb, 16);
+
+            System.arraycopy(m, 0, ra, 0, 16);
+            System.arraycopy(m, 0, rb, 0, 16);
+            a.translateM(ra, 0, x, y, z);
+            b.translateM(rb, 0, x, y, z);
+            check("translateM", ra, rb, 16);
+
+            a.scaleM(ra, 0, x, y, z);
+            b.scaleM(rb, 0, x, y, z);
+            check("scaleM", ra, rb, 16);
+
+            a.orthoM(ra, 0, -x - 1, x + 1, -y - 1, y + 1, 0.1f, 10.0f + z);
+            b.orthoM(rb, 0, -x - 1, x + 1, -y - 1, y + 1, 0.1f, 10.0f + z);
+            check("orthoM", ra, rb, 16);
+
+            a.frustumM(ra, 0, -x - 1, x + 1, -y - 1, y + 1, 0.1f, 10.0f + z);
+            b.frustumM(rb, 0, -x - 1, x + 1, -y - 1, y + 1, 0.1f, 10.0f + z);
+            check("frustumM", ra, rb, 16);
+        }
+    }
+
+    /**
+     * @return a random invertible matrix of translations, rotations and scalings like the game uses them
+     */
+    private static float[] createTransform(MatrixBackend backend, Random random)
+    {
+        float[] m = new float[16];
+        float[] r = new float[16];
+        float[] t = new float[16];
+
+        backend.setIdentityM(m, 0);
+        backend.translateM(m, 0, random.nextFloat() * 20 - 10, random.nextFloat() * 20 - 10, random.nextFloat() * 20 - 10);
+        backend.setRotateM(r, 0, random.nextFloat() * 360.0f, random.nextFloat(), random.nextFloat(), random.nextFloat() + 0.1f);
+        backend.multiplyMM(t, 0, m, 0, r, 0);
+        backend.scaleM(t, 0, random.nextFloat() + 0.1f, random.nextFloat() + 0.1f, random.nextFloat() + 0.1f);
+        return t;
+    }
+
+    private static void check(String operation, float[] a, float[] b, int count)
+    {
+        for (int i = 0; i < count; ++i)
+        {
+            float tolerance = EPSILON * Math.max(1.0f, Math.max(Math.abs(a[i]), Math.abs(b[i])));
+            if (!(Math.abs(a[i] - b[i]) <= tolerance))
+            {
+                throw new IllegalStateException(operation + " differs between the backends at index " + i + ": " + a[i] + " != " + b[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the time of the given number of calls of the operation in nanoseconds
+     */
+    private static long measure(MatrixBackend backend, int operation, int iterations)
+    {
+        float[] m = createTransform(backend, new Random(7));
+        float[] n = createTransform(backend, new Random(11));
+        float[] result = new float[32];
+        float[] v = { 1, 2, 3, 1 };
+        float checksum = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i)
+        {
+            switch (operation)
+            {
+                case 0: backend.setIdentityM(result, 0); break;
+                case 1: backend.translateM(m, 0, 0.001f, 0, 0); break;
+                case 2: backend.scaleM(m, 0, 1.0f, 1.0f, 1.0f); break;
+                case 3: backend.setRotateM(result, 0, i, 0, 1, 0); break;
+                case 4: backend.setRotateM(result, 16, i, 0, 1, 0); backend.multiplyMM(result, 0, m, 0, result, 16); break;
+                case 5: backend.multiplyMM(result, 0, m, 0, n, 0); break;
+                case 6: backend.multiplyMV(result, 0, m, 0, v, 0); break;
+                case 7: backend.transposeM(result, 0, m, 0); break;
+                case 8: backend.invertM(result, 0, m, 0); break;
+                case 9: backend.orthoM(result, 0, -400, 400, -240, 240, 0, 1); break;
+                default: backend.frustumM(result, 0, -0.1f, 0.1f, -0.1f, 0.1f, 0.1f, 16.0f); break;
+            }
+            checksum += result[i & 15];
+        }
+        long time = System.nanoTime() - start;
+
+        // keeps the results alive, otherwise the JIT may remove the loop
+        if (checksum == Float.MIN_VALUE)
+        {
+            System.out.println(checksum);
+        }
+        return time;
+    }
+}
@@ -121,13 +121,24 @@ public class Vector2
      */
     public static Vector2 normalize(Vector2 v)
     {
-        Vector2 result = new Vector2();
+        return normalize(v, new Vector2());
+    }
+
+    /**
+     * This method normalizes a given vector without creating a new instance.
+     *
+     * @param v
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector2 normalize(Vector2 v, Vector2 out)
+    {
         float l = v.getLength();
         for (int i = 0; i < 2; ++i)
         {
-            result.v[i] /= l;
+            out.v[i] = v.v[i] / l;
         }
-        return result;
+        return out;
     }
 	
 
@@ -145,6 +156,21 @@ public class Vector2
 	    return new Vector2(v1.v[0] + v2.v[0], v1.v[1] + v2.v[1]);
     }
 
+    /**
+     * This method sums two given vectors without creating a new instance.
+     *
+     * @param v1
+     * @param v2
+     * @param out the vector which receives the result, may be one of the operands
+     * @return out
+     */
+    public static Vector2 add(Vector2 v1, Vector2 v2, Vector2 out)
+    {
+        out.v[0] = v1.v[0] + v2.v[0];
+        out.v[1] = v1.v[1] + v2.v[1];
+        return out;
+    }
+
     /**
      * This method divides the vector depending on the given value.
      *
@@ -157,6 +183,21 @@ public class Vector2
 	    return new Vector2(v.v[0] / s, v.v[1] / s);
     }
 
+    /**
+     * This method divides a vector by the given value without creating a new instance.
+     *
+     * @param v
+     * @param s
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector2 divide(Vector2 v, float s, Vector2 out)
+    {
+        out.v[0] = v.v[0] / s;
+        out.v[1] = v.v[1] / s;
+        return out;
+    }
+
     /**
      * This method multiplies the current vector depending on the given value.
      *
@@ -174,11 +215,55 @@ public class Vector2
 	    return new Vector2(s * v.v[0], s * v.v[1]);
     }
 
+    /**
+     * This method multiplies a vector with the given value without creating a new instance.
+     *
+     * @param v
+     * @param s
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector2 multiply(Vector2 v, float s, Vector2 out)
+    {
+        out.v[0] = v.v[0] * s;
+        out.v[1] = v.v[1] * s;
+        return out;
+    }
+
     public static Vector2 subtract(Vector2 v1, Vector2 v2)
     {
 	    return new Vector2(v1.v[0] - v2.v[0], v1.v[1] - v2.v[1]);
     }
 
+    /**
+     * This method subtracts two given vectors without creating a new instance.
+     *
+     * @param v1
+     * @param v2
+     * @param out the vector which receives the result, may be one of the operands
+     * @return out
+     */
+    public static Vector2 subtract(Vector2 v1, Vector2 v2, Vector2 out)
+    {
+        out.v[0] = v1.v[0] - v2.v[0];
+        out.v[1] = v1.v[1] - v2.v[1];
+        return out;
+    }
+
+    /**
+     * This method sets all values of the vector.
+     *
+     * @param x
+     * @param y
+     * @return
+     */
+    public Vector2 set(float x, float y)
+    {
+        v[0] = x;
+        v[1] = y;
+        return this;
+    }
+
     /**
      * This method sets the new value to the position of the vector
      *
@@ -106,14 +106,24 @@ public class Vector3
 
     public static Vector3 normalize(Vector3 v)
     {
-        Vector3 result = new Vector3();
-        float l = v.getLength();
+        return normalize(v, new Vector3());
+    }
 
+    /**
+     * This method normalizes a given vector without creating a new instance.
+     *
+     * @param v
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector3 normalize(Vector3 v, Vector3 out)
+    {
+        float l = v.getLength();
         for (int i = 0; i < 3; ++i)
         {
-            result.v[i] /= l;
+            out.v[i] = v.v[i] / l;
         }
-        return result;
+        return out;
     }
 
     public static Vector3 add(Vector3 v1, Vector3 v2)
@@ -121,11 +131,43 @@ public class Vector3
 	    return new Vector3(v1.v[0] + v2.v[0], v1.v[1] + v2.v[1], v1.v[2] + v2.v[2]);
     }
 
+    /**
+     * This method sums two given vectors without creating a new instance.
+     *
+     * @param v1
+     * @param v2
+     * @param out the vector which receives the result, may be one of the operands
+     * @return out
+     */
+    public static Vector3 add(Vector3 v1, Vector3 v2, Vector3 out)
+    {
+        out.v[0] = v1.v[0] + v2.v[0];
+        out.v[1] = v1.v[1] + v2.v[1];
+        out.v[2] = v1.v[2] + v2.v[2];
+        return out;
+    }
+
     public static Vector3 divide(Vector3 v, float s)
     {
 	    return new Vector3(v.v[0] / s, v.v[1] / s, v.v[2] / s);
     }
 
+    /**
+     * This method divides a vector by the given value without creating a new instance.
+     *
+     * @param v
+     * @param s
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector3 divide(Vector3 v, float s, Vector3 out)
+    {
+        out.v[0] = v.v[0] / s;
+        out.v[1] = v.v[1] / s;
+        out.v[2] = v.v[2] / s;
+        return out;
+    }
+
     public static Vector3 multiply(Vector3 v, float s)
     {
 	    return new Vector3(v.v[0] * s, v.v[1] * s, v.v[2] * s);
@@ -136,18 +178,81 @@ public class Vector3
 	    return new Vector3(s * v.v[0], s * v.v[1], s * v.v[2]);
     }
 
+    /**
+     * This method multiplies a vector with the given value without creating a new instance.
+     *
+     * @param v
+     * @param s
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector3 multiply(Vector3 v, float s, Vector3 out)
+    {
+        out.v[0] = v.v[0] * s;
+        out.v[1] = v.v[1] * s;
+        out.v[2] = v.v[2] * s;
+        return out;
+    }
+
     public static Vector3 subtract(Vector3 v1, Vector3 v2)
     {
 	    return new Vector3(v1.v[0] - v2.v[0], v1.v[1] - v2.v[1], v1.v[2] - v2.v[2]);
     }
 
+    /**
+     * This method subtracts two given vectors without creating a new instance.
+     *
+     * @param v1
+     * @param v2
+     * @param out the vector which receives the result, may be one of the operands
+     * @return out
+     */
+    public static Vector3 subtract(Vector3 v1, Vector3 v2, Vector3 out)
+    {
+        out.v[0] = v1.v[0] - v2.v[0];
+        out.v[1] = v1.v[1] - v2.v[1];
+        out.v[2] = v1.v[2] - v2.v[2];
+        return out;
+    }
+
     public static Vector3 cross(Vector3 v1, Vector3 v2)
     {
-        Vector3 result = new Vector3();
-        result.v[0] = v1.v[1] * v2.v[2] - v1.v[2] * v2.v[1];
-        result.v[1] = v1.v[2] * v2.v[0] - v1.v[0] * v2.v[2];
-        result.v[2] = v1.v[0] * v2.v[1] - v1.v[1] * v2.v[0];
-        return result;
+        return cross(v1, v2, new Vector3());
+    }
+
+    /**
+     * This method calculates the cross product without creating a new instance.
+     *
+     * @param v1
+     * @param v2
+     * @param out the vector which receives the result, may be one of the operands
+     * @return out
+     */
+    public static Vector3 cross(Vector3 v1, Vector3 v2, Vector3 out)
+    {
+        float x = v1.v[1] * v2.v[2] - v1.v[2] * v2.v[1];
+        float y = v1.v[2] * v2.v[0] - v1.v[0] * v2.v[2];
+        float z = v1.v[0] * v2.v[1] - v1.v[1] * v2.v[0];
+        out.v[0] = x;
+        out.v[1] = y;
+        out.v[2] = z;
+        return out;
+    }
+
+    /**
+     * This method sets all values of the vector.
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    public Vector3 set(float x, float y, float z)
+    {
+        v[0] = x;
+        v[1] = y;
+        v[2] = z;
+        return this;
     }
 
     public void set(int index, float value)
@@ -124,13 +124,24 @@ public class Vector4
 
     public static Vector4 normalize(Vector4 v)
     {
-        Vector4 result = new Vector4();
+        return normalize(v, new Vector4());
+    }
+
+    /**
+     * This method normalizes a given vector without creating a new instance.
+     *
+     * @param v
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector4 normalize(Vector4 v, Vector4 out)
+    {
         float l = v.getLength();
         for (int i = 0; i < 4; ++i)
         {
-            result.v[i] /= l;
+            out.v[i] = v.v[i] / l;
         }
-        return result;
+        return out;
     }
 
     public static Vector4 add(Vector4 v1, Vector4 v2)
@@ -138,11 +149,45 @@ public class Vector4
 	    return new Vector4(v1.v[0] + v2.v[0], v1.v[1] + v2.v[1], v1.v[2] + v2.v[2], v1.v[3] + v2.v[3]);
     }
 
+    /**
+     * This method sums two given vectors without creating a new instance.
+     *
+     * @param v1
+     * @param v2
+     * @param out the vector which receives the result, may be one of the operands
+     * @return out
+     */
+    public static Vector4 add(Vector4 v1, Vector4 v2, Vector4 out)
+    {
+        out.v[0] = v1.v[0] + v2.v[0];
+        out.v[1] = v1.v[1] + v2.v[1];
+        out.v[2] = v1.v[2] + v2.v[2];
+        out.v[3] = v1.v[3] + v2.v[3];
+        return out;
+    }
+
     public static Vector4 divide(Vector4 v, float s)
     {
 	    return new Vector4(v.v[0] / s, v.v[1] / s, v.v[2] / s, v.v[3] / s);
     }
 
+    /**
+     * This method divides a vector by the given value without creating a new instance.
+     *
+     * @param v
+     * @param s
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector4 divide(Vector4 v, float s, Vector4 out)
+    {
+        out.v[0] = v.v[0] / s;
+        out.v[1] = v.v[1] / s;
+        out.v[2] = v.v[2] / s;
+        out.v[3] = v.v[3] / s;
+        return out;
+    }
+
     public static Vector4 multiply(Vector4 v, float s)
     {
 	    return new Vector4(v.v[0] * s, v.v[1] * s, v.v[2] * s, v.v[3] * s);
@@ -153,11 +198,63 @@ public class Vector4
 	    return new Vector4(s * v.v[0], s * v.v[1], s * v.v[2], s * v.v[3]);
     }
 
+    /**
+     * This method multiplies a vector with the given value without creating a new instance.
+     *
+     * @param v
+     * @param s
+     * @param out the vector which receives the result, may be the given vector
+     * @return out
+     */
+    public static Vector4 multiply(Vector4 v, float s, Vector4 out)
+    {
+        out.v[0] = v.v[0] * s;
+        out.v[1] = v.v[1] * s;
+        out.v[2] = v.v[2] * s;
+        out.v[3] = v.v[3] * s;
+        return out;
+    }
+
     public static Vector4 subtract(Vector4 v1, Vector4 v2)
     {
 	    return new Vector4(v1.v[0] - v2.v[0], v1.v[1] - v2.v[1], v1.v[2] - v2.v[2], v1.v[3] - v2.v[3]);
     }
 
+    /**
+     * This method subtracts two given vectors without creating a new instance.
+     *
+     * @param v1
+     * @param v2
+     * @param out the vector which receives the result, may be one of the operands
+     * @return out
+     */
+    public static Vector4 subtract(Vector4 v1, Vector4 v2, Vector4 out)
+    {
+        out.v[0] = v1.v[0] - v2.v[0];
+        out.v[1] = v1.v[1] - v2.v[1];
+        out.v[2] = v1.v[2] - v2.v[2];
+        out.v[3] = v1.v[3] - v2.v[3];
+        return out;
+    }
+
+    /**
+     * This method sets all values of the vector.
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param w
+     * @return
+     */
+    public Vector4 set(float x, float y, float z, float w)
+    {
+        v[0] = x;
+        v[1] = y;
+        v[2] = z;
+        v[3] = w;
+        return this;
+    }
+
     public void set(int index, float value)
     {
 	    v[index] = value;